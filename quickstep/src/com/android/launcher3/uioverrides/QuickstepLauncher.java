@@ -1391,6 +1391,9 @@ public class QuickstepLauncher extends Launcher {
                 recentsView.getPagedViewOrientedState()));
         if (recentsView != null) {
             recentsView.getSplitSelectController().dump(prefix, writer);
+            if (recentsView.getTaskViewPoolWarmer() != null) {
+                recentsView.getTaskViewPoolWarmer().dump(prefix, writer);
+            }
         }
         if (mAppTransitionManager != null) {
             mAppTransitionManager.dump(prefix + "\t" + RING_APPEAR_ANIMATION_PREFIX, writer);
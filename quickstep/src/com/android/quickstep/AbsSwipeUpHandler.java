@@ -134,6 +134,7 @@ import com.android.quickstep.util.StaggeredWorkspaceAnim;
 import com.android.quickstep.util.SurfaceTransaction;
 import com.android.quickstep.util.SurfaceTransactionApplier;
 import com.android.quickstep.util.SwipePipToHomeAnimator;
+import com.android.quickstep.util.SwipeUpLatencyTracker;
 import com.android.quickstep.util.TaskViewSimulator;
 import com.android.quickstep.views.RecentsView;
 import com.android.quickstep.views.TaskView;
@@ -951,6 +952,7 @@ public abstract class AbsSwipeUpHandler<T extends StatefulActivity<S>,
     public void onRecentsAnimationStart(RecentsAnimationController controller,
             RecentsAnimationTargets targets) {
         super.onRecentsAnimationStart(controller, targets);
+        SwipeUpLatencyTracker.INSTANCE.onRecentsAnimationStart();
         if (isDesktopModeSupported() && targets.hasDesktopTasks()) {
             mRemoteTargetHandles = mTargetGluer.assignTargetsForDesktop(targets);
         } else {
@@ -1155,6 +1157,7 @@ public abstract class AbsSwipeUpHandler<T extends StatefulActivity<S>,
         // Fast-finish the attaching animation if it's still running.
         maybeUpdateRecentsAttachedState(false);
         final GestureEndTarget endTarget = mGestureState.getEndTarget();
+        SwipeUpLatencyTracker.INSTANCE.onSettledOnEndTarget(endTarget);
         // Wait until the given View (if supplied) draws before resuming the last task.
         View postResumeLastTask = mActivityInterface.onSettledOnEndTarget(endTarget);
 
@@ -1207,8 +1210,8 @@ public abstract class AbsSwipeUpHandler<T extends StatefulActivity<S>,
                 break;
         }
         ActiveGestureLog.INSTANCE.addLog(
-                new ActiveGestureLog.CompoundString("onSettledOnEndTarget ")
-                        .append(endTarget.name()),
+                /* event= */ "onSettledOnEndTarget",
+                /* detail= */ endTarget.name(),
                 /* gestureEvent= */ ON_SETTLED_ON_END_TARGET);
     }
 
@@ -1238,13 +1241,14 @@ public abstract class AbsSwipeUpHandler<T extends StatefulActivity<S>,
                         ? INVALID_VELOCITY_ON_SWIPE_UP
                         : null;
         ActiveGestureLog.INSTANCE.addLog(
-                new ActiveGestureLog.CompoundString("calculateEndTarget: velocities=(x=")
-                        .append(dpiFromPx(velocityPxPerMs.x))
-                        .append("dp/ms, y=")
-                        .append(dpiFromPx(velocityPxPerMs.y))
-                        .append("dp/ms), angle=")
-                        .append(Math.toDegrees(Math.atan2(
-                                -velocityPxPerMs.y, velocityPxPerMs.x))), gestureEvent);
+                "calculateEndTarget: velocities in dp/ms",
+                dpiFromPx(velocityPxPerMs.x),
+                dpiFromPx(velocityPxPerMs.y),
+                gestureEvent);
+        ActiveGestureLog.INSTANCE.addLog(
+                "calculateEndTarget: angle",
+                (float) Math.toDegrees(Math.atan2(-velocityPxPerMs.y, velocityPxPerMs.x)),
+                /* gestureEvent= */ null);
 
         if (mGestureState.isHandlingAtomicEvent()) {
             // Button mode, this is only used to go to recents.
@@ -2527,6 +2531,9 @@ public abstract class AbsSwipeUpHandler<T extends StatefulActivity<S>,
                 taskViewSimulator.apply(remoteHandle.getTransformParams());
             }
         }
+        if (notSwipingToHome) {
+            SwipeUpLatencyTracker.INSTANCE.onSurfaceTransactionApplied(getSingleFrameMs(mContext));
+        }
     }
 
     // Scaling of RecentsView during quick switch based on amount of recents scroll
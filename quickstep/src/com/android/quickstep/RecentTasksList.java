@@ -35,10 +35,12 @@ import android.util.SparseBooleanArray;
 
 import androidx.annotation.VisibleForTesting;
 
+import com.android.launcher3.config.FeatureFlags;
 import com.android.launcher3.util.LooperExecutor;
 import com.android.launcher3.util.SplitConfigurationOptions;
 import com.android.quickstep.util.DesktopTask;
 import com.android.quickstep.util.GroupTask;
+import com.android.quickstep.util.TaskListChangeSet;
 import com.android.systemui.shared.recents.model.Task;
 import com.android.wm.shell.recents.IRecentTasksListener;
 import com.android.wm.shell.util.GroupedRecentTaskInfo;
@@ -46,9 +48,9 @@ import com.android.wm.shell.util.GroupedRecentTaskInfo;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
-import java.util.stream.Collectors;
 
 /**
  * Manages the recent task list from the system, caching it as necessary.
@@ -70,6 +72,9 @@ public class RecentTasksList {
 
     private TaskLoadResult mResultsBg = INVALID_RESULT;
     private TaskLoadResult mResultsUi = INVALID_RESULT;
+    // Changes from the previously loaded list to mResultsBg/mResultsUi
+    private TaskListChangeSet mChangesBg = TaskListChangeSet.fullReload(-1);
+    private TaskListChangeSet mChangesUi = TaskListChangeSet.fullReload(-1);
 
     private RecentsModel.RunningTasksListener mRunningTasksListener;
     // Tasks are stored in order of least recently launched to most recently launched.
@@ -133,6 +138,21 @@ public class RecentTasksList {
      */
     public synchronized int getTasks(boolean loadKeysOnly,
             Consumer<ArrayList<GroupTask>> callback, Predicate<GroupTask> filter) {
+        return getTaskChanges(loadKeysOnly,
+                callback == null ? null : (tasks, changes) -> callback.accept(tasks), filter);
+    }
+
+    /**
+     * Asynchronously fetches the list of recent tasks, reusing cached list if available, along with
+     * the changes from the previously loaded list.
+     *
+     * @param loadKeysOnly Whether to load other associated task data, or just the key
+     * @param callback The callback to receive the list of recent tasks and the changes
+     * @return The change id of the current task list
+     */
+    public synchronized int getTaskChanges(boolean loadKeysOnly,
+            BiConsumer<ArrayList<GroupTask>, TaskListChangeSet> callback,
+            Predicate<GroupTask> filter) {
         final int requestLoadId = mChangeId;
         if (mResultsUi.isValidForRequest(requestLoadId, loadKeysOnly)) {
             // The list is up to date, send the callback on the next frame,
@@ -140,12 +160,11 @@ public class RecentTasksList {
             if (callback != null) {
                 // Copy synchronously as the changeId might change by next frame
                 // and filter GroupTasks
-                ArrayList<GroupTask> result = mResultsUi.stream().filter(filter)
-                        .map(GroupTask::copy)
-                        .collect(Collectors.toCollection(ArrayList<GroupTask>::new));
+                ArrayList<GroupTask> result = copyOf(mResultsUi, filter);
+                TaskListChangeSet changes = mChangesUi;
 
                 mMainThreadExecutor.post(() -> {
-                    callback.accept(result);
+                    callback.accept(result, changes);
                 });
             }
 
@@ -156,19 +175,23 @@ public class RecentTasksList {
         mLoadingTasksInBackground = true;
         UI_HELPER_EXECUTOR.execute(() -> {
             if (!mResultsBg.isValidForRequest(requestLoadId, loadKeysOnly)) {
+                // The whole list is still fetched: onRecentTasksChanged doesn't say what changed,
+                // and a running task appearing or vanishing doesn't say whether it is in recents.
+                // Only the views are updated incrementally from the computed changes.
+                TaskLoadResult previous = mResultsBg;
                 mResultsBg = loadTasksInBackground(Integer.MAX_VALUE, requestLoadId, loadKeysOnly);
+                mChangesBg = TaskListChangeSet.compute(previous, previous.mRequestId,
+                        mResultsBg, requestLoadId);
             }
             TaskLoadResult loadResult = mResultsBg;
+            TaskListChangeSet changes = mChangesBg;
             mMainThreadExecutor.execute(() -> {
                 mLoadingTasksInBackground = false;
                 mResultsUi = loadResult;
+                mChangesUi = changes;
                 if (callback != null) {
                     // filter the tasks if needed before passing them into the callback
-                    ArrayList<GroupTask> result = mResultsUi.stream().filter(filter)
-                            .map(GroupTask::copy)
-                            .collect(Collectors.toCollection(ArrayList<GroupTask>::new));
-
-                    callback.accept(result);
+                    callback.accept(copyOf(mResultsUi, filter), changes);
                 }
             });
         });
@@ -188,7 +211,11 @@ public class RecentTasksList {
     }
 
     private synchronized void invalidateLoadedTasks() {
-        UI_HELPER_EXECUTOR.execute(() -> mResultsBg = INVALID_RESULT);
+        if (!FeatureFlags.ENABLE_INCREMENTAL_RECENT_TASKS.get()) {
+            UI_HELPER_EXECUTOR.execute(() -> mResultsBg = INVALID_RESULT);
+        }
+        // Otherwise keep the last loaded list, its request id no longer matches so it is only
+        // used as the base to compute the changes of the next load.
         mResultsUi = INVALID_RESULT;
         mChangeId++;
     }
@@ -330,10 +357,14 @@ public class RecentTasksList {
         return new DesktopTask(tasks);
     }
 
-    private ArrayList<GroupTask> copyOf(ArrayList<GroupTask> tasks) {
-        ArrayList<GroupTask> newTasks = new ArrayList<>();
+    private static ArrayList<GroupTask> copyOf(ArrayList<GroupTask> tasks,
+            Predicate<GroupTask> filter) {
+        ArrayList<GroupTask> newTasks = new ArrayList<>(tasks.size());
         for (int i = 0; i < tasks.size(); i++) {
-            newTasks.add(tasks.get(i).copy());
+            GroupTask task = tasks.get(i);
+            if (filter.test(task)) {
+                newTasks.add(task.copy());
+            }
         }
         return newTasks;
     }
@@ -341,6 +372,7 @@ public class RecentTasksList {
     public void dump(String prefix, PrintWriter writer) {
         writer.println(prefix + "RecentTasksList:");
         writer.println(prefix + "  mChangeId=" + mChangeId);
+        writer.println(prefix + "  mChangesUi=" + mChangesUi);
         writer.println(prefix + "  mResultsUi=[id=" + mResultsUi.mRequestId + ", tasks=");
         for (GroupTask task : mResultsUi) {
             Task task1 = task.task1;
@@ -41,6 +41,7 @@ import com.android.launcher3.util.Executors.SimpleThreadFactory;
 import com.android.launcher3.util.MainThreadInitializedObject;
 import com.android.launcher3.util.SafeCloseable;
 import com.android.quickstep.util.GroupTask;
+import com.android.quickstep.util.TaskListChangeSet;
 import com.android.quickstep.util.TaskVisualsChangeListener;
 import com.android.systemui.shared.recents.model.Task;
 import com.android.systemui.shared.recents.model.ThumbnailData;
@@ -53,6 +54,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 
@@ -159,6 +161,21 @@ public class RecentsModel implements IconChangeListener, TaskStackChangeListener
         return mTaskList.getTasks(false /* loadKeysOnly */, callback, filter);
     }
 
+    /**
+     * Fetches the list of recent tasks, based on a filter, along with the changes from the
+     * previously loaded list.
+     *
+     * @param callback The callback to receive the task plan and its changes once its complete.
+     *                This is always called on the UI thread.
+     * @param filter  Returns true if a GroupTask should be included into the list passed into
+     *                callback.
+     * @return the request id associated with this call.
+     */
+    public int getTaskChanges(BiConsumer<ArrayList<GroupTask>, TaskListChangeSet> callback,
+            Predicate<GroupTask> filter) {
+        return mTaskList.getTaskChanges(false /* loadKeysOnly */, callback, filter);
+    }
+
     /**
      * @return Whether the provided {@param changeId} is the latest recent tasks list id.
      */
@@ -293,6 +310,7 @@ public class RecentsModel implements IconChangeListener, TaskStackChangeListener
     public void dump(String prefix, PrintWriter writer) {
         writer.println(prefix + "RecentsModel:");
         mTaskList.dump("  ", writer);
+        mThumbnailCache.dump("  ", writer);
     }
 
     /**
@@ -16,13 +16,17 @@
 package com.android.quickstep;
 
 import static com.android.launcher3.Flags.enableOverviewIconMenu;
+import static com.android.launcher3.config.FeatureFlags.ENABLE_CONCURRENT_TASK_KEY_CACHE;
+import static com.android.launcher3.config.FeatureFlags.ENABLE_PERSISTENT_TASK_ICON_CACHE;
 import static com.android.launcher3.util.DisplayController.CHANGE_DENSITY;
 
 import android.annotation.Nullable;
 import android.app.ActivityManager;
 import android.app.ActivityManager.TaskDescription;
+import android.content.ComponentName;
 import android.content.Context;
 import android.content.pm.ActivityInfo;
+import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
 import android.content.res.Resources;
 import android.graphics.Bitmap;
@@ -45,8 +49,11 @@ import com.android.launcher3.pm.UserCache;
 import com.android.launcher3.util.DisplayController;
 import com.android.launcher3.util.DisplayController.DisplayInfoChangeListener;
 import com.android.launcher3.util.DisplayController.Info;
+import com.android.launcher3.util.PackageManagerHelper;
 import com.android.launcher3.util.Preconditions;
 import com.android.quickstep.util.CancellableTask;
+import com.android.quickstep.util.TaskKeyCache;
+import com.android.quickstep.util.TaskKeyClockCache;
 import com.android.quickstep.util.TaskKeyLruCache;
 import com.android.quickstep.util.TaskVisualsChangeListener;
 import com.android.systemui.shared.recents.model.Task;
@@ -65,11 +72,14 @@ public class TaskIconCache implements DisplayInfoChangeListener {
     private final AccessibilityManager mAccessibilityManager;
 
     private final Context mContext;
-    private final TaskKeyLruCache<TaskCacheEntry> mIconCache;
+    private final PackageManagerHelper mPackageManagerHelper;
+    private final TaskKeyCache<TaskCacheEntry> mIconCache;
     private final SparseArray<BitmapInfo> mDefaultIcons = new SparseArray<>();
     private BitmapInfo mDefaultIconBase = null;
 
     private final IconProvider mIconProvider;
+    @Nullable
+    private final TaskIconDiskCache mDiskCache;
 
     private BaseIconFactory mIconFactory;
 
@@ -78,6 +88,7 @@ public class TaskIconCache implements DisplayInfoChangeListener {
 
     public TaskIconCache(Context context, Executor bgExecutor, IconProvider iconProvider) {
         mContext = context;
+        mPackageManagerHelper = new PackageManagerHelper(context);
         mBgExecutor = bgExecutor;
         mAccessibilityManager = context.getSystemService(AccessibilityManager.class);
         mIconProvider = iconProvider;
@@ -85,7 +96,10 @@ public class TaskIconCache implements DisplayInfoChangeListener {
         Resources res = context.getResources();
         int cacheSize = res.getInteger(R.integer.recentsIconCacheSize);
 
-        mIconCache = new TaskKeyLruCache<>(cacheSize);
+        mIconCache = ENABLE_CONCURRENT_TASK_KEY_CACHE.get()
+                ? new TaskKeyClockCache<>(cacheSize) : new TaskKeyLruCache<>(cacheSize);
+        mDiskCache = ENABLE_PERSISTENT_TASK_ICON_CACHE.get()
+                ? new TaskIconDiskCache(context, cacheSize * 4) : null;
 
         DisplayController.INSTANCE.get(mContext).addChangeListener(this);
     }
@@ -142,8 +156,13 @@ public class TaskIconCache implements DisplayInfoChangeListener {
     }
 
     void invalidateCacheEntries(String pkg, UserHandle handle) {
-        mBgExecutor.execute(() -> mIconCache.removeAll(key ->
-                pkg.equals(key.getPackageName()) && handle.getIdentifier() == key.userId));
+        mBgExecutor.execute(() -> {
+            mIconCache.removeAll(key ->
+                    pkg.equals(key.getPackageName()) && handle.getIdentifier() == key.userId);
+            if (mDiskCache != null) {
+                mDiskCache.removeAll(pkg, handle.getIdentifier());
+            }
+        });
     }
 
     @WorkerThread
@@ -157,27 +176,53 @@ public class TaskIconCache implements DisplayInfoChangeListener {
         TaskKey key = task.key;
         ActivityInfo activityInfo = null;
 
+        TaskIconDiskCache.Key diskKey = null;
+        if (mDiskCache != null) {
+            // Only use the persisted entries of activities which still exist
+            activityInfo = PackageManagerWrapper.getInstance().getActivityInfo(
+                    key.getComponent(), key.userId);
+            diskKey = activityInfo != null ? getDiskCacheKey(task) : null;
+        }
+        if (diskKey != null) {
+            TaskIconDiskCache.Entry diskEntry = mDiskCache.get(diskKey);
+            if (diskEntry != null) {
+                entry = new TaskCacheEntry();
+                entry.icon = getBadgedIcon(diskEntry.icon, diskEntry.iconColor, key.userId,
+                        diskEntry.isInstantApp);
+                entry.contentDescription = diskEntry.contentDescription;
+                entry.title = diskEntry.title;
+                mIconCache.put(task.key, entry);
+                return entry;
+            }
+        }
+
         // Create new cache entry
         entry = new TaskCacheEntry();
 
         // Load icon
         // TODO: Load icon resource (b/143363444)
         Bitmap icon = getIcon(desc, key.userId);
+        BitmapInfo bitmapInfo = null;
+        boolean isInstantApp = false;
         if (icon != null) {
-            entry.icon = getBitmapInfo(
+            bitmapInfo = getBitmapInfo(
                     new BitmapDrawable(mContext.getResources(), icon),
                     key.userId,
                     desc.getPrimaryColor(),
-                    false /* isInstantApp */).newIcon(mContext);
+                    false /* isInstantApp */);
+            entry.icon = bitmapInfo.newIcon(mContext);
         } else {
-            activityInfo = PackageManagerWrapper.getInstance().getActivityInfo(
-                    key.getComponent(), key.userId);
+            if (activityInfo == null) {
+                activityInfo = PackageManagerWrapper.getInstance().getActivityInfo(
+                        key.getComponent(), key.userId);
+            }
             if (activityInfo != null) {
-                BitmapInfo bitmapInfo = getBitmapInfo(
+                isInstantApp = activityInfo.applicationInfo.isInstantApp();
+                bitmapInfo = getBitmapInfo(
                         mIconProvider.getIcon(activityInfo),
                         key.userId,
                         desc.getPrimaryColor(),
-                        activityInfo.applicationInfo.isInstantApp());
+                        isInstantApp);
                 entry.icon = bitmapInfo.newIcon(mContext);
             } else {
                 entry.icon = getDefaultIcon(key.userId);
@@ -199,9 +244,46 @@ public class TaskIconCache implements DisplayInfoChangeListener {
         }
 
         mIconCache.put(task.key, entry);
+        if (diskKey != null && bitmapInfo != null && activityInfo != null) {
+            // Write once the result of this request is posted
+            TaskIconDiskCache.Entry diskEntry = new TaskIconDiskCache.Entry(bitmapInfo.icon,
+                    bitmapInfo.color, isInstantApp, entry.contentDescription, entry.title);
+            mBgExecutor.execute(() -> mDiskCache.put(diskKey, diskEntry));
+        }
         return entry;
     }
 
+    /**
+     * Returns the key of the task icon in the disk cache, or null if it can't be persisted.
+     */
+    @WorkerThread
+    @Nullable
+    private TaskIconDiskCache.Key getDiskCacheKey(Task task) {
+        ComponentName cn = task.key.getComponent();
+        TaskDescription desc = task.taskDescription;
+        if (cn == null || desc == null || desc.getInMemoryIcon() != null) {
+            // In-memory icons are new bitmaps in every process, so they can't be matched with a
+            // persisted entry without hashing their pixels, which costs as much as loading them.
+            return null;
+        }
+        // Resolve the package for the user of the task, e.g. its work profile
+        PackageInfo packageInfo = mPackageManagerHelper.getPackageInfo(cn.getPackageName(),
+                UserHandle.of(task.key.userId), PackageManager.GET_UNINSTALLED_PACKAGES);
+        if (packageInfo == null) {
+            return null;
+        }
+        int iconHash = desc.getIconFilename() != null ? desc.getIconFilename().hashCode() : 0;
+        String state = desc.getPrimaryColor()
+                + "," + packageInfo.lastUpdateTime
+                + "," + DisplayController.INSTANCE.get(mContext).getInfo().getDensityDpi()
+                + "," + mIconProvider.getSystemIconState()
+                + "," + mContext.getResources().getConfiguration().getLocales().toLanguageTags()
+                + "," + enableOverviewIconMenu()
+                + "," + desc.getLabel();
+        return new TaskIconDiskCache.Key(cn.flattenToString(), cn.getPackageName(),
+                task.key.userId, iconHash, state);
+    }
+
     private Bitmap getIcon(ActivityManager.TaskDescription desc, int userId) {
         if (desc.getInMemoryIcon() != null) {
             return desc.getInMemoryIcon();
@@ -250,6 +332,15 @@ public class TaskIconCache implements DisplayInfoChangeListener {
         }
     }
 
+    @WorkerThread
+    private Drawable getBadgedIcon(Bitmap icon, int color, int userId, boolean isInstantApp) {
+        try (BaseIconFactory bif = getIconFactory()) {
+            return BitmapInfo.of(icon, color).withFlags(bif.getBitmapFlagOp(new IconOptions()
+                    .setUser(UserCache.INSTANCE.get(mContext).getUserInfo(UserHandle.of(userId)))
+                    .setInstantApp(isInstantApp))).newIcon(mContext);
+        }
+    }
+
     @WorkerThread
     private BitmapInfo getBitmapInfo(Drawable drawable, int userId,
             int primaryColor, boolean isInstantApp) {
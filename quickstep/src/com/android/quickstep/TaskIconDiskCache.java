@@ -0,0 +1,254 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.quickstep;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import com.android.launcher3.icons.GraphicsUtils;
+
+/**
+ * Persists the task icons and content descriptions computed by {@link TaskIconCache}, so that
+ * they don't need to be computed again after the process restarts.
+ *
+ * <p>Entries are keyed by the task component and user, along with everything the icon and the
+ * content description are computed from: the task description icon file, color and label, the
+ * package update time, the icon density, the system icon state and the locale. Only the most
+ * recently used entries are kept.
+ */
+class TaskIconDiskCache extends SQLiteOpenHelper {
+
+    private static final String TAG = "TaskIconDiskCache";
+
+    private static final String DB_NAME = "task_icons.db";
+    private static final int DB_VERSION = 2;
+
+    private static final String TABLE_NAME = "task_icons";
+    private static final String COLUMN_COMPONENT = "component";
+    private static final String COLUMN_PACKAGE = "package";
+    private static final String COLUMN_USER = "user";
+    private static final String COLUMN_ICON_HASH = "icon_hash";
+    private static final String COLUMN_STATE = "state";
+    private static final String COLUMN_ICON = "icon";
+    private static final String COLUMN_ICON_COLOR = "icon_color";
+    private static final String COLUMN_INSTANT_APP = "instant_app";
+    private static final String COLUMN_CONTENT_DESCRIPTION = "content_description";
+    private static final String COLUMN_TITLE = "title";
+    private static final String COLUMN_LAST_USED = "last_used";
+
+    private static final String[] ENTRY_COLUMNS = new String[] {COLUMN_STATE, COLUMN_ICON,
+            COLUMN_ICON_COLOR, COLUMN_INSTANT_APP, COLUMN_CONTENT_DESCRIPTION, COLUMN_TITLE};
+
+    private final int mMaxEntries;
+
+    TaskIconDiskCache(Context context, int maxEntries) {
+        this(context, DB_NAME, maxEntries);
+    }
+
+    /**
+     * @param dbName name of the database file, or null for an in-memory database
+     */
+    @VisibleForTesting
+    TaskIconDiskCache(Context context, @Nullable String dbName, int maxEntries) {
+        super(context, dbName, null, DB_VERSION);
+        mMaxEntries = maxEntries;
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_NAME + " ("
+                + COLUMN_COMPONENT + " TEXT NOT NULL, "
+                + COLUMN_PACKAGE + " TEXT NOT NULL, "
+                + COLUMN_USER + " INTEGER NOT NULL, "
+                + COLUMN_ICON_HASH + " INTEGER NOT NULL, "
+                + COLUMN_STATE + " TEXT NOT NULL, "
+                + COLUMN_ICON + " BLOB NOT NULL, "
+                + COLUMN_ICON_COLOR + " INTEGER NOT NULL, "
+                + COLUMN_INSTANT_APP + " INTEGER NOT NULL DEFAULT 0, "
+                + COLUMN_CONTENT_DESCRIPTION + " TEXT, "
+                + COLUMN_TITLE + " TEXT, "
+                + COLUMN_LAST_USED + " INTEGER NOT NULL DEFAULT 0, "
+                + "PRIMARY KEY (" + COLUMN_COMPONENT + ", " + COLUMN_USER + ", "
+                + COLUMN_ICON_HASH + "))");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        resetTable(db);
+    }
+
+    @Override
+    public void onDowngrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        resetTable(db);
+    }
+
+    private void resetTable(SQLiteDatabase db) {
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_NAME);
+        onCreate(db);
+    }
+
+    /**
+     * Returns the entry persisted for {@param key}, or null if there is none or it was computed
+     * from a different state.
+     */
+    @WorkerThread
+    @Nullable
+    Entry get(Key key) {
+        try (Cursor c = getReadableDatabase().query(TABLE_NAME, ENTRY_COLUMNS,
+                COLUMN_COMPONENT + " = ? AND " + COLUMN_USER + " = ? AND "
+                        + COLUMN_ICON_HASH + " = ?",
+                new String[] {key.mComponent, Integer.toString(key.mUserId),
+                        Integer.toString(key.mIconHash)},
+                null, null, null)) {
+            if (!c.moveToNext() || !key.mState.equals(c.getString(0))) {
+                return null;
+            }
+            byte[] data = c.getBlob(1);
+            Bitmap icon = BitmapFactory.decodeByteArray(data, 0, data.length);
+            if (icon == null) {
+                return null;
+            }
+            Entry entry = new Entry(icon, c.getInt(2), c.getInt(3) != 0, c.getString(4),
+                    c.getString(5));
+            touch(key);
+            return entry;
+        } catch (SQLiteException e) {
+            Log.w(TAG, "Failed to read task icon", e);
+            return null;
+        }
+    }
+
+    /**
+     * Persists {@param entry} for {@param key}, removing the least recently used entries if there
+     * are too many.
+     */
+    @WorkerThread
+    void put(Key key, Entry entry) {
+        byte[] data = GraphicsUtils.flattenBitmap(entry.icon);
+        if (data == null) {
+            return;
+        }
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_COMPONENT, key.mComponent);
+        values.put(COLUMN_PACKAGE, key.mPackageName);
+        values.put(COLUMN_USER, key.mUserId);
+        values.put(COLUMN_ICON_HASH, key.mIconHash);
+        values.put(COLUMN_STATE, key.mState);
+        values.put(COLUMN_ICON, data);
+        values.put(COLUMN_ICON_COLOR, entry.iconColor);
+        values.put(COLUMN_INSTANT_APP, entry.isInstantApp ? 1 : 0);
+        values.put(COLUMN_CONTENT_DESCRIPTION, entry.contentDescription);
+        values.put(COLUMN_TITLE, entry.title);
+        values.put(COLUMN_LAST_USED, System.currentTimeMillis());
+        try {
+            SQLiteDatabase db = getWritableDatabase();
+            db.beginTransaction();
+            try {
+                db.insertWithOnConflict(TABLE_NAME, null, values,
+                        SQLiteDatabase.CONFLICT_REPLACE);
+                db.execSQL("DELETE FROM " + TABLE_NAME + " WHERE rowid NOT IN (SELECT rowid FROM "
+                        + TABLE_NAME + " ORDER BY " + COLUMN_LAST_USED + " DESC LIMIT "
+                        + mMaxEntries + ")");
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        } catch (SQLiteException e) {
+            Log.w(TAG, "Failed to write task icon", e);
+        }
+    }
+
+    /**
+     * Removes the entries of the given package and user.
+     */
+    @WorkerThread
+    void removeAll(String packageName, int userId) {
+        try {
+            getWritableDatabase().delete(TABLE_NAME,
+                    COLUMN_PACKAGE + " = ? AND " + COLUMN_USER + " = ?",
+                    new String[] {packageName, Integer.toString(userId)});
+        } catch (SQLiteException e) {
+            Log.w(TAG, "Failed to remove task icons", e);
+        }
+    }
+
+    private void touch(Key key) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_LAST_USED, System.currentTimeMillis());
+        getWritableDatabase().update(TABLE_NAME, values,
+                COLUMN_COMPONENT + " = ? AND " + COLUMN_USER + " = ? AND "
+                        + COLUMN_ICON_HASH + " = ?",
+                new String[] {key.mComponent, Integer.toString(key.mUserId),
+                        Integer.toString(key.mIconHash)});
+    }
+
+    /**
+     * Identifies a task icon, along with the state it was computed from.
+     */
+    static class Key {
+
+        final String mComponent;
+        final String mPackageName;
+        final int mUserId;
+        final int mIconHash;
+        final String mState;
+
+        /**
+         * @param iconHash hash of the task description icon file name, or 0 if the task uses the
+         *                 activity icon
+         * @param state everything else the icon and the content description depend on
+         */
+        Key(String component, String packageName, int userId, int iconHash, String state) {
+            mComponent = component;
+            mPackageName = packageName;
+            mUserId = userId;
+            mIconHash = iconHash;
+            mState = state;
+        }
+    }
+
+    /**
+     * A persisted task icon, before the user badge is applied.
+     */
+    static class Entry {
+
+        final Bitmap icon;
+        final int iconColor;
+        final boolean isInstantApp;
+        final String contentDescription;
+        final String title;
+
+        Entry(Bitmap icon, int iconColor, boolean isInstantApp, String contentDescription,
+                String title) {
+            this.icon = icon;
+            this.iconColor = iconColor;
+            this.isInstantApp = isInstantApp;
+            this.contentDescription = contentDescription;
+            this.title = title;
+        }
+    }
+}
@@ -16,10 +16,16 @@
 package com.android.quickstep;
 
 import static com.android.launcher3.Flags.enableGridOnlyOverview;
+import static com.android.launcher3.config.FeatureFlags.ENABLE_CONCURRENT_TASK_KEY_CACHE;
+import static com.android.launcher3.config.FeatureFlags.ENABLE_THUMBNAIL_BYTE_BUDGET;
+import static com.android.launcher3.util.Executors.THREAD_POOL_EXECUTOR;
 
+import android.app.ActivityManager;
 import android.content.Context;
 import android.content.res.Resources;
+import android.util.Log;
 
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 
 import com.android.launcher3.R;
@@ -27,24 +33,40 @@ import com.android.launcher3.util.Preconditions;
 import com.android.quickstep.util.CancellableTask;
 import com.android.quickstep.util.TaskKeyByLastActiveTimeCache;
 import com.android.quickstep.util.TaskKeyCache;
+import com.android.quickstep.util.TaskKeyClockCache;
 import com.android.quickstep.util.TaskKeyLruCache;
+import com.android.quickstep.util.TaskThumbnailByteCache;
 import com.android.systemui.shared.recents.model.Task;
 import com.android.systemui.shared.recents.model.Task.TaskKey;
 import com.android.systemui.shared.recents.model.ThumbnailData;
 import com.android.systemui.shared.system.ActivityManagerWrapper;
 
+import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 import java.util.function.Consumer;
 
 public class TaskThumbnailCache {
 
+    private static final String TAG = "TaskThumbnailCache";
+
+    // Share of the app memory class which can be used by thumbnails with a byte budget
+    private static final int MEMORY_CLASS_BUDGET_DIVISOR = 8;
+    private static final float DEFAULT_LOW_RES_SCALE = 0.5f;
+
     private final Executor mBgExecutor;
     private final TaskKeyCache<ThumbnailData> mCache;
     private final HighResLoadingState mHighResLoadingState;
     private final boolean mEnableTaskSnapshotPreloading;
     private final Context mContext;
 
+    // Only accessed on the UI thread
+    private int mHits;
+    private int mMisses;
+
     public static class HighResLoadingState {
         private boolean mForceHighResThumbnails;
         private boolean mVisible;
@@ -101,9 +123,22 @@ public class TaskThumbnailCache {
     }
 
     private TaskThumbnailCache(Context context, Executor bgExecutor, int cacheSize) {
-        this(context, bgExecutor,
-                enableGridOnlyOverview() ? new TaskKeyByLastActiveTimeCache<>(cacheSize)
-                        : new TaskKeyLruCache<>(cacheSize));
+        this(context, bgExecutor, createCache(context, bgExecutor, cacheSize));
+    }
+
+    private static TaskKeyCache<ThumbnailData> createCache(Context context, Executor bgExecutor,
+            int cacheSize) {
+        if (ENABLE_THUMBNAIL_BYTE_BUDGET.get()) {
+            int memoryClass = context.getSystemService(ActivityManager.class).getMemoryClass();
+            long maxBytes = memoryClass * 1024L * 1024L / MEMORY_CLASS_BUDGET_DIVISOR;
+            return new TaskThumbnailByteCache(cacheSize, maxBytes, getLowResThumbnailScale(),
+                    enableGridOnlyOverview(), bgExecutor);
+        }
+        if (enableGridOnlyOverview()) {
+            return new TaskKeyByLastActiveTimeCache<>(cacheSize);
+        }
+        return ENABLE_CONCURRENT_TASK_KEY_CACHE.get()
+                ? new TaskKeyClockCache<>(cacheSize) : new TaskKeyLruCache<>(cacheSize);
     }
 
     @VisibleForTesting
@@ -166,6 +201,101 @@ public class TaskThumbnailCache {
         });
     }
 
+    /**
+     * Returns whether {@param task} already has a thumbnail, on the task or in the cache, at the
+     * resolution {@link #updateThumbnailInBackground(Task, Consumer)} would load. This doesn't
+     * count as a cache hit or miss.
+     */
+    public boolean isThumbnailCached(Task task) {
+        boolean lowResolution = !mHighResLoadingState.isEnabled();
+        return isUsable(task.thumbnail, lowResolution)
+                || isUsable(mCache.getAndInvalidateIfModified(task.key), lowResolution);
+    }
+
+    /**
+     * Asynchronously fetches the thumbnails of all the given {@param tasks} in a single request,
+     * fetching the missing ones in parallel, so that the tasks of a group are all shown at once.
+     *
+     * @param callback The callback to receive the thumbnails, in the order of {@param tasks}.
+     * @return A cancelable handle to the request, or null if all the thumbnails were available
+     */
+    public CancellableTask updateThumbnailsInBackground(
+            List<Task> tasks, Consumer<ThumbnailData[]> callback) {
+        Preconditions.assertUIThread();
+
+        boolean lowResolution = !mHighResLoadingState.isEnabled();
+        ThumbnailData[] thumbnails = new ThumbnailData[tasks.size()];
+        ArrayList<Integer> missingIndices = new ArrayList<>();
+        for (int i = 0; i < tasks.size(); i++) {
+            Task task = tasks.get(i);
+            if (isUsable(task.thumbnail, lowResolution)) {
+                thumbnails[i] = task.thumbnail;
+                continue;
+            }
+            ThumbnailData cachedThumbnail = mCache.getAndInvalidateIfModified(task.key);
+            if (isUsable(cachedThumbnail, lowResolution)) {
+                mHits++;
+                task.thumbnail = cachedThumbnail;
+                thumbnails[i] = cachedThumbnail;
+            } else {
+                mMisses++;
+                missingIndices.add(i);
+            }
+        }
+        if (missingIndices.isEmpty()) {
+            callback.accept(thumbnails);
+            return null;
+        }
+
+        CancellableTask<ThumbnailData[]> request = new CancellableTask<>() {
+            @Override
+            public ThumbnailData[] getResultOnBg() {
+                // Fetch all but the first missing thumbnail on the thread pool, and the first one
+                // on this thread
+                ArrayList<FutureTask<ThumbnailData>> futures = new ArrayList<>();
+                for (int i = 1; i < missingIndices.size(); i++) {
+                    int taskId = tasks.get(missingIndices.get(i)).key.id;
+                    FutureTask<ThumbnailData> future =
+                            new FutureTask<>(() -> fetchThumbnail(taskId, lowResolution));
+                    THREAD_POOL_EXECUTOR.execute(future);
+                    futures.add(future);
+                }
+                ThumbnailData[] results = new ThumbnailData[missingIndices.size()];
+                results[0] = fetchThumbnail(tasks.get(missingIndices.get(0)).key.id,
+                        lowResolution);
+                for (int i = 1; i < results.length; i++) {
+                    try {
+                        results[i] = futures.get(i - 1).get();
+                    } catch (InterruptedException | ExecutionException e) {
+                        Log.e(TAG, "Failed to fetch thumbnail", e);
+                        results[i] = new ThumbnailData();
+                    }
+                }
+                return results;
+            }
+
+            @Override
+            public void handleResult(ThumbnailData[] results) {
+                for (int i = 0; i < results.length; i++) {
+                    int index = missingIndices.get(i);
+                    Task task = tasks.get(index);
+                    ThumbnailData result = results[i];
+                    ThumbnailData cachedThumbnail = getHigherResCachedThumbnail(task.key, result);
+                    if (cachedThumbnail != null) {
+                        result = cachedThumbnail;
+                    } else {
+                        mCache.put(task.key, result);
+                    }
+                    task.thumbnail = result;
+                    thumbnails[index] = result;
+                }
+                callback.accept(thumbnails);
+            }
+        };
+        mBgExecutor.execute(request);
+        return request;
+    }
+
     /**
      * Updates cache size and remove excess entries if current size is more than new cache size.
      *
@@ -191,32 +321,22 @@ public class TaskThumbnailCache {
         if (cachedThumbnail != null &&  cachedThumbnail.thumbnail != null
                 && (!cachedThumbnail.reducedResolution || lowResolution)) {
             // Already cached, lets use that thumbnail
+            mHits++;
             callback.accept(cachedThumbnail);
             return null;
         }
+        mMisses++;
 
         CancellableTask<ThumbnailData> request = new CancellableTask<>() {
             @Override
             public ThumbnailData getResultOnBg() {
-                ThumbnailData thumbnailData = ActivityManagerWrapper.getInstance().getTaskThumbnail(
-                        key.id, lowResolution);
-                if (thumbnailData.thumbnail != null) {
-                    return thumbnailData;
-                }
-                return ActivityManagerWrapper.getInstance().takeTaskThumbnail(key.id);
+                return fetchThumbnail(key.id, lowResolution);
             }
 
             @Override
             public void handleResult(ThumbnailData result) {
-                // Avoid an async timing issue that a low res entry replaces an existing high res
-                // entry in high res enabled state, so we check before putting it to cache
-                if (enableGridOnlyOverview() && result.reducedResolution
-                        && getHighResLoadingState().isEnabled()) {
-                    ThumbnailData cachedThumbnail = mCache.getAndInvalidateIfModified(key);
-                    if (cachedThumbnail != null && cachedThumbnail.thumbnail != null
-                            && !cachedThumbnail.reducedResolution) {
-                        return;
-                    }
+                if (getHigherResCachedThumbnail(key, result) != null) {
+                    return;
                 }
                 mCache.put(key, result);
                 callback.accept(result);
@@ -226,6 +346,38 @@ public class TaskThumbnailCache {
         return request;
     }
 
+    private static ThumbnailData fetchThumbnail(int taskId, boolean lowResolution) {
+        ThumbnailData thumbnailData = ActivityManagerWrapper.getInstance().getTaskThumbnail(
+                taskId, lowResolution);
+        if (thumbnailData.thumbnail != null) {
+            return thumbnailData;
+        }
+        return ActivityManagerWrapper.getInstance().takeTaskThumbnail(taskId);
+    }
+
+    /**
+     * Returns the cached thumbnail if {@param result} shouldn't replace it, or null.
+     */
+    @Nullable
+    private ThumbnailData getHigherResCachedThumbnail(TaskKey key, ThumbnailData result) {
+        // Avoid an async timing issue that a low res entry replaces an existing high res
+        // entry in high res enabled state, so we check before putting it to cache
+        if (enableGridOnlyOverview() && result.reducedResolution
+                && getHighResLoadingState().isEnabled()) {
+            ThumbnailData cachedThumbnail = mCache.getAndInvalidateIfModified(key);
+            if (cachedThumbnail != null && cachedThumbnail.thumbnail != null
+                    && !cachedThumbnail.reducedResolution) {
+                return cachedThumbnail;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isUsable(ThumbnailData thumbnail, boolean lowResolution) {
+        return thumbnail != null && thumbnail.thumbnail != null
+                && (!thumbnail.reducedResolution || lowResolution);
+    }
+
     /**
      * Clears the cache.
      */
@@ -261,6 +413,15 @@ public class TaskThumbnailCache {
         return mEnableTaskSnapshotPreloading && mHighResLoadingState.mVisible;
     }
 
+    public void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "TaskThumbnailCache:");
+        writer.println(prefix + "  size=" + mCache.getSize() + " maxSize=" + mCache.getMaxSize());
+        writer.println(prefix + "  hits=" + mHits + " misses=" + mMisses);
+        if (mCache instanceof TaskThumbnailByteCache) {
+            ((TaskThumbnailByteCache) mCache).dump(prefix + "  ", writer);
+        }
+    }
+
     /**
      * @return Whether device supports low-res thumbnails. Low-res files are an optimization
      * for faster load times of snapshots. Devices can optionally disable low-res files so that
@@ -276,4 +437,16 @@ public class TaskThumbnailCache {
         return true;
     }
 
+    /**
+     * @return The scale of low-res thumbnails relative to high-res ones, or 0 if the device
+     * doesn't support low-res thumbnails.
+     */
+    private static float getLowResThumbnailScale() {
+        Resources res = Resources.getSystem();
+        int resId = res.getIdentifier("config_lowResTaskSnapshotScale", "dimen", "android");
+        if (resId != 0) {
+            return Math.max(0, res.getFloat(resId));
+        }
+        return DEFAULT_LOW_RES_SCALE;
+    }
 }
@@ -15,8 +15,19 @@
  */
 package com.android.quickstep.util;
 
+import static android.view.MotionEvent.ACTION_DOWN;
+import static android.view.MotionEvent.ACTION_MOVE;
+import static android.view.MotionEvent.ACTION_UP;
+
+import static com.android.quickstep.util.ActiveGestureErrorDetector.GestureEvent.MOTION_DOWN;
+import static com.android.quickstep.util.ActiveGestureErrorDetector.GestureEvent.MOTION_MOVE;
+import static com.android.quickstep.util.ActiveGestureErrorDetector.GestureEvent.MOTION_UP;
+
+import android.view.MotionEvent;
+
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 
 import com.android.launcher3.util.Preconditions;
 
@@ -30,12 +41,26 @@ import java.util.Objects;
 
 /**
  * A log to keep track of the active gesture.
+ *
+ * <p>Entries are stored in a preallocated ring buffer of parallel arrays, holding the event
+ * string, primitive extras and timestamp of each entry, so that logging on the gesture hot path
+ * doesn't allocate. Entries are only turned into strings when the log is dumped.
  */
 public class ActiveGestureLog {
 
     private static final int MAX_GESTURES_TRACKED = 15;
+    private static final int MAX_ENTRIES = 2048;
+
+    public static final ActiveGestureLog INSTANCE = new ActiveGestureLog(MAX_ENTRIES);
 
-    public static final ActiveGestureLog INSTANCE = new ActiveGestureLog();
+    private static final byte KIND_NO_OP = 0;
+    private static final byte KIND_TEXT = 1;
+    private static final byte KIND_INT = 2;
+    private static final byte KIND_INT_PAIR = 3;
+    private static final byte KIND_FLOAT = 4;
+    private static final byte KIND_FLOAT_PAIR = 5;
+    private static final byte KIND_BOOLEAN = 6;
+    private static final byte KIND_COMPOUND = 7;
 
     private boolean mIsFullyGesturalNavMode;
 
@@ -45,13 +70,39 @@ public class ActiveGestureLog {
      */
     public static final String INTENT_EXTRA_LOG_TRACE_ID = "INTENT_EXTRA_LOG_TRACE_ID";
 
-    private final EventLog[] logs;
-    private int nextIndex;
+    // Ring buffer of entries, the oldest entries are overwritten when it is full
+    private final int[] mLogIds;
+    private final long[] mTimes;
+    private final byte[] mKinds;
+    private final String[] mEvents;
+    private final String[] mDetails;
+    private final CompoundString[] mCompoundStrings;
+    private final ActiveGestureErrorDetector.GestureEvent[] mGestureEvents;
+    private final int[] mInts0;
+    private final int[] mInts1;
+    private final float[] mFloats0;
+    private final float[] mFloats1;
+    private final int[] mDuplicateCounts;
+    private final boolean[] mFullyGesturalNavModes;
+    private int mNextIndex;
+    private int mSize;
     private int mCurrentLogId = 100;
 
-    private ActiveGestureLog() {
-        this.logs = new EventLog[MAX_GESTURES_TRACKED];
-        this.nextIndex = 0;
+    @VisibleForTesting
+    ActiveGestureLog(int maxEntries) {
+        mLogIds = new int[maxEntries];
+        mTimes = new long[maxEntries];
+        mKinds = new byte[maxEntries];
+        mEvents = new String[maxEntries];
+        mDetails = new String[maxEntries];
+        mCompoundStrings = new CompoundString[maxEntries];
+        mGestureEvents = new ActiveGestureErrorDetector.GestureEvent[maxEntries];
+        mInts0 = new int[maxEntries];
+        mInts1 = new int[maxEntries];
+        mFloats0 = new float[maxEntries];
+        mFloats1 = new float[maxEntries];
+        mDuplicateCounts = new int[maxEntries];
+        mFullyGesturalNavModes = new boolean[maxEntries];
     }
 
     /**
@@ -61,22 +112,22 @@ public class ActiveGestureLog {
      *                   execution.
      */
     public void trackEvent(@Nullable ActiveGestureErrorDetector.GestureEvent gestureEvent) {
-        addLog(CompoundString.NO_OP, gestureEvent);
+        addEntry(KIND_NO_OP, null, null, null, 0, 0, 0, 0, gestureEvent);
     }
 
     /**
      * Adds a log to be printed at log-dump-time.
      */
     public void addLog(String event) {
-        addLog(event, null);
+        addLog(event, (ActiveGestureErrorDetector.GestureEvent) null);
     }
 
     public void addLog(String event, int extras) {
-        addLog(event, extras, null);
+        addLog(event, extras, (ActiveGestureErrorDetector.GestureEvent) null);
     }
 
     public void addLog(String event, boolean extras) {
-        addLog(event, extras, null);
+        addLog(event, extras, (ActiveGestureErrorDetector.GestureEvent) null);
     }
 
     /**
@@ -86,21 +137,105 @@ public class ActiveGestureLog {
      */
     public void addLog(
             String event, @Nullable ActiveGestureErrorDetector.GestureEvent gestureEvent) {
-        addLog(new CompoundString(event), gestureEvent);
+        addEntry(KIND_TEXT, event, null, null, 0, 0, 0, 0, gestureEvent);
     }
 
+    /**
+     * Adds a log printed as "{@param event}: {@param detail}".
+     */
+    public void addLog(
+            String event,
+            String detail,
+            @Nullable ActiveGestureErrorDetector.GestureEvent gestureEvent) {
+        addEntry(KIND_TEXT, event, detail, null, 0, 0, 0, 0, gestureEvent);
+    }
+
+    public void addLog(
+            String event,
+            int extras,
+            @Nullable ActiveGestureErrorDetector.GestureEvent gestureEvent) {
+        addEntry(KIND_INT, event, null, null, extras, 0, 0, 0, gestureEvent);
+    }
+
+    /**
+     * Adds a log printed as "{@param event}: {@param extras}, {@param detail}".
+     */
     public void addLog(
             String event,
             int extras,
+            String detail,
+            @Nullable ActiveGestureErrorDetector.GestureEvent gestureEvent) {
+        addEntry(KIND_INT, event, detail, null, extras, 0, 0, 0, gestureEvent);
+    }
+
+    /**
+     * Adds a log printed as "{@param event}: ({@param x}, {@param y}), {@param detail}".
+     */
+    public void addLog(
+            String event,
+            int x,
+            int y,
+            String detail,
             @Nullable ActiveGestureErrorDetector.GestureEvent gestureEvent) {
-        addLog(new CompoundString(event).append(": ").append(extras), gestureEvent);
+        addEntry(KIND_INT_PAIR, event, detail, null, x, y, 0, 0, gestureEvent);
     }
 
     public void addLog(
             String event,
             boolean extras,
             @Nullable ActiveGestureErrorDetector.GestureEvent gestureEvent) {
-        addLog(new CompoundString(event).append(": ").append(extras), gestureEvent);
+        addEntry(KIND_BOOLEAN, event, null, null, extras ? 1 : 0, 0, 0, 0, gestureEvent);
+    }
+
+    public void addLog(
+            String event,
+            float extras,
+            @Nullable ActiveGestureErrorDetector.GestureEvent gestureEvent) {
+        addEntry(KIND_FLOAT, event, null, null, 0, 0, extras, 0, gestureEvent);
+    }
+
+    /**
+     * Adds a log printed as "{@param event}: ({@param x}, {@param y})".
+     */
+    public void addLog(
+            String event,
+            float x,
+            float y,
+            @Nullable ActiveGestureErrorDetector.GestureEvent gestureEvent) {
+        addEntry(KIND_FLOAT_PAIR, event, null, null, 0, 0, x, y, gestureEvent);
+    }
+
+    /**
+     * Adds a log of the given touch event, tracking the associated motion event for error
+     * detection. Down, move and up events are logged without allocating, as they are logged for
+     * every event of the gesture.
+     */
+    public void addMotionEventLog(MotionEvent event) {
+        int action = event.getActionMasked();
+        String classification = MotionEvent.classificationToString(event.getClassification());
+        switch (action) {
+            case ACTION_DOWN:
+            case ACTION_UP:
+                addLog(action == ACTION_DOWN
+                                ? "onMotionEvent: ACTION_DOWN"
+                                : "onMotionEvent: ACTION_UP",
+                        (int) event.getRawX(),
+                        (int) event.getRawY(),
+                        classification,
+                        /* gestureEvent= */ action == ACTION_DOWN ? MOTION_DOWN : MOTION_UP);
+                break;
+            case ACTION_MOVE:
+                addLog("onMotionEvent: ACTION_MOVE, pointerCount",
+                        event.getPointerCount(),
+                        classification,
+                        MOTION_MOVE);
+                break;
+            default:
+                addLog(new CompoundString("onMotionEvent: ")
+                        .append(MotionEvent.actionToString(action))
+                        .append(",")
+                        .append(classification));
+        }
     }
 
     public void addLog(CompoundString compoundString) {
@@ -110,63 +245,74 @@ public class ActiveGestureLog {
     public void addLog(
             CompoundString compoundString,
             @Nullable ActiveGestureErrorDetector.GestureEvent gestureEvent) {
-        EventLog lastEventLog = logs[(nextIndex + logs.length - 1) % logs.length];
-        if (lastEventLog == null || mCurrentLogId != lastEventLog.logId) {
-            EventLog eventLog = new EventLog(mCurrentLogId, mIsFullyGesturalNavMode);
-            EventEntry eventEntry = new EventEntry();
-
-            eventEntry.update(compoundString, gestureEvent);
-            eventLog.eventEntries.add(eventEntry);
-            logs[nextIndex] = eventLog;
-            nextIndex = (nextIndex + 1) % logs.length;
+        if (compoundString.mIsNoOp) {
+            trackEvent(gestureEvent);
             return;
         }
+        addEntry(KIND_COMPOUND, null, null, compoundString, 0, 0, 0, 0, gestureEvent);
+    }
 
-        // Update the last EventLog
-        List<EventEntry> lastEventEntries = lastEventLog.eventEntries;
-        EventEntry lastEntry = !lastEventEntries.isEmpty()
-                ? lastEventEntries.get(lastEventEntries.size() - 1) : null;
-
-        // Update the last EventEntry if it's a duplicate
-        if (isEntrySame(lastEntry, compoundString, gestureEvent)) {
-            lastEntry.duplicateCount++;
-            return;
+    private synchronized void addEntry(byte kind, String event, String detail,
+            CompoundString compoundString, int int0, int int1, float float0, float float1,
+            @Nullable ActiveGestureErrorDetector.GestureEvent gestureEvent) {
+        if (mSize > 0) {
+            int last = (mNextIndex + mLogIds.length - 1) % mLogIds.length;
+            // Update the last entry if it's a duplicate in the same log
+            if (mLogIds[last] == mCurrentLogId
+                    && mKinds[last] == kind
+                    && mGestureEvents[last] == gestureEvent
+                    && mInts0[last] == int0
+                    && mInts1[last] == int1
+                    && Float.compare(mFloats0[last], float0) == 0
+                    && Float.compare(mFloats1[last], float1) == 0
+                    && Objects.equals(mEvents[last], event)
+                    && Objects.equals(mDetails[last], detail)
+                    && Objects.equals(mCompoundStrings[last], compoundString)) {
+                mDuplicateCounts[last]++;
+                return;
+            }
         }
-        EventEntry eventEntry = new EventEntry();
 
-        eventEntry.update(compoundString, gestureEvent);
-        lastEventEntries.add(eventEntry);
+        int index = mNextIndex;
+        mLogIds[index] = mCurrentLogId;
+        mTimes[index] = System.currentTimeMillis();
+        mKinds[index] = kind;
+        mEvents[index] = event;
+        mDetails[index] = detail;
+        mCompoundStrings[index] = compoundString;
+        mGestureEvents[index] = gestureEvent;
+        mInts0[index] = int0;
+        mInts1[index] = int1;
+        mFloats0[index] = float0;
+        mFloats1[index] = float1;
+        mDuplicateCounts[index] = 0;
+        mFullyGesturalNavModes[index] = mIsFullyGesturalNavMode;
+        mNextIndex = (index + 1) % mLogIds.length;
+        mSize = Math.min(mSize + 1, mLogIds.length);
     }
 
     public void dump(String prefix, PrintWriter writer) {
+        List<EventLog> logs = buildEventLogs();
+
         writer.println(prefix + "ActiveGestureErrorDetector:");
-        for (int i = 0; i < logs.length; i++) {
-            EventLog eventLog = logs[(nextIndex + i) % logs.length];
-            if (eventLog == null) {
-                continue;
-            }
+        for (EventLog eventLog : logs) {
             ActiveGestureErrorDetector.analyseAndDump(prefix + '\t', writer, eventLog);
         }
 
         writer.println(prefix + "ActiveGestureLog history:");
         SimpleDateFormat sdf = new SimpleDateFormat("HH:mm:ss.SSSZ  ", Locale.US);
         Date date = new Date();
-        for (int i = 0; i < logs.length; i++) {
-            EventLog eventLog = logs[(nextIndex + i) % logs.length];
-            if (eventLog == null) {
-                continue;
-            }
-
+        for (EventLog eventLog : logs) {
             writer.println(prefix + "\tLogs for logId: " + eventLog.logId);
             for (EventEntry eventEntry : eventLog.eventEntries) {
-                if (eventEntry.mCompoundString.mIsNoOp) {
+                if (eventEntry.mMessage == null) {
                     continue;
                 }
                 date.setTime(eventEntry.time);
 
                 StringBuilder msg = new StringBuilder(prefix + "\t\t")
                         .append(sdf.format(date))
-                        .append(eventEntry.mCompoundString);
+                        .append(eventEntry.mMessage);
                 if (eventEntry.duplicateCount > 0) {
                     msg.append(" & ").append(eventEntry.duplicateCount).append(" similar events");
                 }
@@ -175,6 +321,68 @@ public class ActiveGestureLog {
         }
     }
 
+    /**
+     * Groups the entries into logs, keeping the last {@link #MAX_GESTURES_TRACKED} logs.
+     */
+    private synchronized List<EventLog> buildEventLogs() {
+        ArrayList<EventLog> logs = new ArrayList<>();
+        EventLog eventLog = null;
+        int first = (mNextIndex + mLogIds.length - mSize) % mLogIds.length;
+        for (int i = 0; i < mSize; i++) {
+            int index = (first + i) % mLogIds.length;
+            if (eventLog == null || eventLog.logId != mLogIds[index]) {
+                eventLog = new EventLog(mLogIds[index], mFullyGesturalNavModes[index]);
+                logs.add(eventLog);
+            }
+            EventEntry eventEntry = new EventEntry(getMessage(index), mGestureEvents[index],
+                    mTimes[index], mDuplicateCounts[index]);
+            eventLog.eventEntries.add(eventEntry);
+        }
+        return logs.size() > MAX_GESTURES_TRACKED
+                ? logs.subList(logs.size() - MAX_GESTURES_TRACKED, logs.size()) : logs;
+    }
+
+    @Nullable
+    private String getMessage(int index) {
+        StringBuilder sb = new StringBuilder();
+        switch (mKinds[index]) {
+            case KIND_NO_OP:
+                return null;
+            case KIND_COMPOUND:
+                return mCompoundStrings[index].toString();
+            case KIND_TEXT:
+                sb.append(mEvents[index]);
+                if (mDetails[index] != null) {
+                    sb.append(": ").append(mDetails[index]);
+                }
+                return sb.toString();
+            case KIND_INT:
+                sb.append(mEvents[index]).append(": ").append(mInts0[index]);
+                break;
+            case KIND_INT_PAIR:
+                sb.append(mEvents[index]).append(": (").append(mInts0[index]).append(", ")
+                        .append(mInts1[index]).append(')');
+                break;
+            case KIND_FLOAT:
+                sb.append(mEvents[index]).append(": ")
+                        .append(String.format(Locale.US, "%.2f", mFloats0[index]));
+                break;
+            case KIND_FLOAT_PAIR:
+                sb.append(mEvents[index]).append(": (")
+                        .append(String.format(Locale.US, "%.2f, %.2f", mFloats0[index],
+                                mFloats1[index]))
+                        .append(')');
+                break;
+            case KIND_BOOLEAN:
+                sb.append(mEvents[index]).append(": ").append(mInts0[index] != 0);
+                break;
+        }
+        if (mDetails[index] != null) {
+            sb.append(", ").append(mDetails[index]);
+        }
+        return sb.toString();
+    }
+
     /**
      * Increments and returns the current log ID. This should be used every time a new log trace
      * is started.
@@ -192,39 +400,28 @@ public class ActiveGestureLog {
         return mCurrentLogId;
     }
 
-    private boolean isEntrySame(
-            EventEntry entry,
-            CompoundString compoundString,
-            ActiveGestureErrorDetector.GestureEvent gestureEvent) {
-        return entry != null
-                && entry.mCompoundString.equals(compoundString)
-                && entry.gestureEvent == gestureEvent;
-    }
-
     /** A single event entry. */
     protected static class EventEntry {
 
-        @NonNull private CompoundString mCompoundString;
-        private ActiveGestureErrorDetector.GestureEvent gestureEvent;
-        private long time;
-        private int duplicateCount;
+        @Nullable private final String mMessage;
+        private final ActiveGestureErrorDetector.GestureEvent gestureEvent;
+        private final long time;
+        private final int duplicateCount;
 
-        private EventEntry() {}
+        private EventEntry(@Nullable String message,
+                ActiveGestureErrorDetector.GestureEvent gestureEvent, long time,
+                int duplicateCount) {
+            mMessage = message;
+            this.gestureEvent = gestureEvent;
+            this.time = time;
+            this.duplicateCount = duplicateCount;
+        }
 
         @Nullable
         protected ActiveGestureErrorDetector.GestureEvent getGestureEvent() {
             return gestureEvent;
         }
 
-        private void update(
-                @NonNull CompoundString compoundString,
-                ActiveGestureErrorDetector.GestureEvent gestureEvent) {
-            this.mCompoundString = compoundString;
-            this.gestureEvent = gestureEvent;
-            time = System.currentTimeMillis();
-            duplicateCount = 0;
-        }
-
         public long getTime() {
             return time;
         }
@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.quickstep.util;
+
+import android.graphics.Matrix;
+import android.graphics.Rect;
+import android.util.ArrayMap;
+import android.view.SurfaceControl;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.UiThread;
+
+import java.util.Arrays;
+
+/**
+ * Remembers the properties last set on each surface, so that a {@link SurfaceTransaction} can
+ * skip the properties which didn't change since the previous frame.
+ *
+ * <p>This is only correct as long as all the changes to these surfaces go through the
+ * transactions using this cache, and {@link #clear()} must be called if such a transaction is
+ * dropped instead of being applied.
+ */
+@UiThread
+public class SurfacePropertyCache {
+
+    private final ArrayMap<SurfaceControl, SurfaceState> mStates = new ArrayMap<>();
+    private final float[] mTmpValues = new float[9];
+
+    /**
+     * Returns whether {@param alpha} differs from the alpha of {@param surface}, and records it.
+     */
+    public boolean updateAlpha(SurfaceControl surface, float alpha) {
+        SurfaceState state = getState(surface);
+        if (state.mHasAlpha && Float.compare(state.mAlpha, alpha) == 0) {
+            return false;
+        }
+        state.mHasAlpha = true;
+        state.mAlpha = alpha;
+        return true;
+    }
+
+    /**
+     * Returns whether {@param matrix} differs from the matrix of {@param surface}, and records it.
+     */
+    public boolean updateMatrix(SurfaceControl surface, Matrix matrix) {
+        SurfaceState state = getState(surface);
+        matrix.getValues(mTmpValues);
+        if (state.mHasMatrix && Arrays.equals(state.mMatrixValues, mTmpValues)) {
+            return false;
+        }
+        state.mHasMatrix = true;
+        System.arraycopy(mTmpValues, 0, state.mMatrixValues, 0, mTmpValues.length);
+        return true;
+    }
+
+    /**
+     * Returns whether {@param windowCrop} differs from the crop of {@param surface}, and records
+     * it.
+     */
+    public boolean updateWindowCrop(SurfaceControl surface, @Nullable Rect windowCrop) {
+        SurfaceState state = getState(surface);
+        if (state.mHasWindowCrop && (windowCrop == null
+                ? state.mWindowCropIsNull
+                : !state.mWindowCropIsNull && state.mWindowCrop.equals(windowCrop))) {
+            return false;
+        }
+        state.mHasWindowCrop = true;
+        state.mWindowCropIsNull = windowCrop == null;
+        if (windowCrop != null) {
+            state.mWindowCrop.set(windowCrop);
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether {@param layer} differs from the layer of {@param surface}, and records it.
+     */
+    public boolean updateLayer(SurfaceControl surface, int layer) {
+        SurfaceState state = getState(surface);
+        if (state.mHasLayer && state.mLayer == layer) {
+            return false;
+        }
+        state.mHasLayer = true;
+        state.mLayer = layer;
+        return true;
+    }
+
+    /**
+     * Returns whether {@param radius} differs from the corner radius of {@param surface}, and
+     * records it.
+     */
+    public boolean updateCornerRadius(SurfaceControl surface, float radius) {
+        SurfaceState state = getState(surface);
+        if (state.mHasCornerRadius && Float.compare(state.mCornerRadius, radius) == 0) {
+            return false;
+        }
+        state.mHasCornerRadius = true;
+        state.mCornerRadius = radius;
+        return true;
+    }
+
+    /**
+     * Returns whether {@param radius} differs from the shadow radius of {@param surface}, and
+     * records it.
+     */
+    public boolean updateShadowRadius(SurfaceControl surface, float radius) {
+        SurfaceState state = getState(surface);
+        if (state.mHasShadowRadius && Float.compare(state.mShadowRadius, radius) == 0) {
+            return false;
+        }
+        state.mHasShadowRadius = true;
+        state.mShadowRadius = radius;
+        return true;
+    }
+
+    /**
+     * Forgets the properties of all the surfaces, so that they are all set again.
+     */
+    public void clear() {
+        mStates.clear();
+    }
+
+    private SurfaceState getState(SurfaceControl surface) {
+        SurfaceState state = mStates.get(surface);
+        if (state == null) {
+            state = new SurfaceState();
+            mStates.put(surface, state);
+        }
+        return state;
+    }
+
+    /** The properties last set on a surface. */
+    private static class SurfaceState {
+        final float[] mMatrixValues = new float[9];
+        final Rect mWindowCrop = new Rect();
+        float mAlpha;
+        int mLayer;
+        float mCornerRadius;
+        float mShadowRadius;
+        boolean mHasAlpha;
+        boolean mHasMatrix;
+        boolean mHasWindowCrop;
+        boolean mWindowCropIsNull;
+        boolean mHasLayer;
+        boolean mHasCornerRadius;
+        boolean mHasShadowRadius;
+    }
+}
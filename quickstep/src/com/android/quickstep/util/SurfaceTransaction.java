@@ -17,9 +17,12 @@ package com.android.quickstep.util;
 
 import android.graphics.Matrix;
 import android.graphics.Rect;
+import android.util.ArrayMap;
 import android.view.SurfaceControl;
 import android.view.SurfaceControl.Transaction;
 
+import androidx.annotation.Nullable;
+
 /**
  * Helper class for building a {@link Transaction}.
  */
@@ -28,11 +31,47 @@ public class SurfaceTransaction {
     private final Transaction mTransaction = new Transaction();
     private final float[] mTmpValues = new float[9];
 
+    @Nullable private final SurfacePropertyCache mPropertyCache;
+    @Nullable private final ArrayMap<SurfaceControl, SurfaceProperties> mProperties;
+
+    public SurfaceTransaction() {
+        this(null);
+    }
+
+    /**
+     * Creates a transaction which only sets the properties that differ from
+     * {@param propertyCache}. Such a transaction is meant to be reused once it has been applied or
+     * merged, and reuses the builders of the surfaces it was already used for.
+     */
+    public SurfaceTransaction(@Nullable SurfacePropertyCache propertyCache) {
+        mPropertyCache = propertyCache;
+        mProperties = propertyCache != null ? new ArrayMap<>() : null;
+    }
+
     /**
      * Creates a new builder for the provided surface
      */
     public SurfaceProperties forSurface(SurfaceControl surface) {
-        return surface.isValid() ? new SurfaceProperties(surface) : new MockProperties();
+        if (!surface.isValid()) {
+            return new MockProperties();
+        }
+        if (mProperties == null) {
+            return new SurfaceProperties(surface);
+        }
+        SurfaceProperties properties = mProperties.get(surface);
+        if (properties == null) {
+            properties = new SurfaceProperties(surface);
+            mProperties.put(surface, properties);
+        }
+        return properties;
+    }
+
+    /**
+     * Returns the cache of the surface properties used by this transaction, if any
+     */
+    @Nullable
+    public SurfacePropertyCache getPropertyCache() {
+        return mPropertyCache;
     }
 
     /**
@@ -58,7 +97,9 @@ public class SurfaceTransaction {
          * @return this Builder
          */
         public SurfaceProperties setAlpha(float alpha) {
-            mTransaction.setAlpha(mSurface, alpha);
+            if (mPropertyCache == null || mPropertyCache.updateAlpha(mSurface, alpha)) {
+                mTransaction.setAlpha(mSurface, alpha);
+            }
             return this;
         }
 
@@ -67,7 +108,9 @@ public class SurfaceTransaction {
          * @return this Builder
          */
         public SurfaceProperties setMatrix(Matrix matrix) {
-            mTransaction.setMatrix(mSurface, matrix, mTmpValues);
+            if (mPropertyCache == null || mPropertyCache.updateMatrix(mSurface, matrix)) {
+                mTransaction.setMatrix(mSurface, matrix, mTmpValues);
+            }
             return this;
         }
 
@@ -76,7 +119,9 @@ public class SurfaceTransaction {
          * @return this Builder
          */
         public SurfaceProperties setWindowCrop(Rect windowCrop) {
-            mTransaction.setWindowCrop(mSurface, windowCrop);
+            if (mPropertyCache == null || mPropertyCache.updateWindowCrop(mSurface, windowCrop)) {
+                mTransaction.setWindowCrop(mSurface, windowCrop);
+            }
             return this;
         }
 
@@ -85,7 +130,9 @@ public class SurfaceTransaction {
          * @return this Builder
          */
         public SurfaceProperties setLayer(int relativeLayer) {
-            mTransaction.setLayer(mSurface, relativeLayer);
+            if (mPropertyCache == null || mPropertyCache.updateLayer(mSurface, relativeLayer)) {
+                mTransaction.setLayer(mSurface, relativeLayer);
+            }
             return this;
         }
 
@@ -94,7 +141,9 @@ public class SurfaceTransaction {
          * @return this Builder
          */
         public SurfaceProperties setCornerRadius(float radius) {
-            mTransaction.setCornerRadius(mSurface, radius);
+            if (mPropertyCache == null || mPropertyCache.updateCornerRadius(mSurface, radius)) {
+                mTransaction.setCornerRadius(mSurface, radius);
+            }
             return this;
         }
 
@@ -103,7 +152,9 @@ public class SurfaceTransaction {
          * @return this Builder
          */
         public SurfaceProperties setShadowRadius(float radius) {
-            mTransaction.setShadowRadius(mSurface, radius);
+            if (mPropertyCache == null || mPropertyCache.updateShadowRadius(mSurface, radius)) {
+                mTransaction.setShadowRadius(mSurface, radius);
+            }
             return this;
         }
 
@@ -15,6 +15,8 @@
  */
 package com.android.quickstep.util;
 
+import static com.android.launcher3.config.FeatureFlags.ENABLE_BATCHED_SURFACE_TRANSACTIONS;
+
 import android.annotation.TargetApi;
 import android.os.Build;
 import android.os.Handler;
@@ -26,6 +28,7 @@ import android.view.View.OnAttachStateChangeListener;
 import android.view.ViewRootImpl;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import com.android.quickstep.RemoteAnimationTargets.ReleaseCheck;
 
@@ -47,6 +50,15 @@ public class SurfaceTransactionApplier extends ReleaseCheck {
 
     private int mLastSequenceNumber = 0;
 
+    // When batching, the transactions scheduled before the next frame are merged into mBatch,
+    // which is moved to mRtTransaction on the render thread, and the properties they set are
+    // cached so that the unchanged ones are skipped.
+    @Nullable private final SurfacePropertyCache mPropertyCache;
+    private final Object mBatchLock = new Object();
+    @Nullable private final Transaction mBatch;
+    @Nullable private final Transaction mRtTransaction;
+    private boolean mBatchHasChanges;
+
     /**
      * @param targetView The view in the surface that acts as synchronization anchor.
      */
@@ -72,6 +84,25 @@ public class SurfaceTransactionApplier extends ReleaseCheck {
         }
         mApplyHandler = new Handler(this::onApplyMessage);
         setCanRelease(true);
+
+        if (ENABLE_BATCHED_SURFACE_TRANSACTIONS.get()) {
+            mPropertyCache = new SurfacePropertyCache();
+            mBatch = new Transaction();
+            mRtTransaction = new Transaction();
+        } else {
+            mPropertyCache = null;
+            mBatch = null;
+            mRtTransaction = null;
+        }
+    }
+
+    /**
+     * Returns the cache to build the transactions scheduled on this applier with, or null if the
+     * transactions are not batched.
+     */
+    @Nullable
+    public SurfacePropertyCache getPropertyCache() {
+        return mPropertyCache;
     }
 
     private void initialize(View view) {
@@ -83,6 +114,10 @@ public class SurfaceTransactionApplier extends ReleaseCheck {
     protected boolean onApplyMessage(Message msg) {
         if (msg.what == MSG_UPDATE_SEQUENCE_NUMBER) {
             setCanRelease(msg.arg1 == mLastSequenceNumber);
+            if (msg.arg2 != 0 && mPropertyCache != null) {
+                // The batch was dropped, so the cached properties were never applied
+                mPropertyCache.clear();
+            }
             return true;
         }
         return false;
@@ -101,6 +136,14 @@ public class SurfaceTransactionApplier extends ReleaseCheck {
         }
         View view = mTargetViewRootImpl.getView();
         if (view == null) {
+            if (mPropertyCache != null) {
+                params.getTransaction().clear();
+                mPropertyCache.clear();
+            }
+            return;
+        }
+        if (mPropertyCache != null) {
+            scheduleBatchedApply(view, params.getTransaction());
             return;
         }
         Transaction t = params.getTransaction();
@@ -122,4 +165,41 @@ public class SurfaceTransactionApplier extends ReleaseCheck {
         // Make sure a frame gets scheduled.
         view.invalidate();
     }
+
+    /**
+     * Merges {@param t} into the transaction applied on the next frame, leaving {@param t} empty.
+     */
+    private void scheduleBatchedApply(View view, Transaction t) {
+        synchronized (mBatchLock) {
+            mBatch.merge(t);
+            mBatchHasChanges = true;
+        }
+
+        mLastSequenceNumber++;
+        final int toApplySeqNo = mLastSequenceNumber;
+        setCanRelease(false);
+        mTargetViewRootImpl.registerRtFrameCallback(frame -> {
+            synchronized (mBatchLock) {
+                if (!mBatchHasChanges) {
+                    // Already applied by the callback of a transaction scheduled earlier
+                    Message.obtain(mApplyHandler, MSG_UPDATE_SEQUENCE_NUMBER, toApplySeqNo, 0)
+                            .sendToTarget();
+                    return;
+                }
+                mRtTransaction.merge(mBatch);
+                mBatchHasChanges = false;
+            }
+            boolean dropped = mBarrierSurfaceControl == null || !mBarrierSurfaceControl.isValid();
+            if (dropped) {
+                mRtTransaction.clear();
+            } else {
+                mTargetViewRootImpl.mergeWithNextTransaction(mRtTransaction, frame);
+            }
+            Message.obtain(mApplyHandler, MSG_UPDATE_SEQUENCE_NUMBER, toApplySeqNo,
+                    dropped ? 1 : 0).sendToTarget();
+        });
+
+        // Make sure a frame gets scheduled.
+        view.invalidate();
+    }
 }
@@ -0,0 +1,285 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.quickstep.util;
+
+import static android.view.MotionEvent.ACTION_DOWN;
+
+import android.os.SystemClock;
+import android.view.Choreographer;
+import android.view.MotionEvent;
+
+import androidx.annotation.UiThread;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.quickstep.GestureState.GestureEndTarget;
+
+import java.io.PrintWriter;
+import java.util.EnumMap;
+
+/**
+ * Measures the latency of the swipe up gestures, from the touch down to the first frame of the
+ * recents animation and to the end of the gesture, along with the number of janky frames.
+ *
+ * <p>The measurements are aggregated in memory per gesture end target and are available through
+ * dumpsys, so that regressions can be spotted without recording a trace.
+ */
+public class SwipeUpLatencyTracker implements Choreographer.FrameCallback {
+
+    public static final SwipeUpLatencyTracker INSTANCE = new SwipeUpLatencyTracker();
+
+    // A frame is janky if it took longer than this many frame intervals
+    private static final float JANK_FRAME_INTERVALS = 1.5f;
+
+    private final EnumMap<GestureEndTarget, GestureStats> mStats =
+            new EnumMap<>(GestureEndTarget.class);
+    private int mGesturesWithoutEndTarget;
+
+    // State of the current gesture, only accessed on the UI thread
+    private boolean mTracking;
+    private long mTouchDownTimeMs;
+    private long mMaxInputLatencyMs;
+    private long mRecentsAnimationStartTimeMs;
+    private long mFirstFrameTimeMs;
+    private long mFrameIntervalNanos;
+    private long mLastFrameTimeNanos;
+    private int mFrameCount;
+    private int mJankyFrameCount;
+    private boolean mFrameCallbackPosted;
+
+    @VisibleForTesting
+    SwipeUpLatencyTracker() { }
+
+    /**
+     * Called for every motion event received by the touch interaction service. A down event
+     * starts a new gesture.
+     */
+    @UiThread
+    public void onMotionEvent(MotionEvent event) {
+        onMotionEvent(event.getActionMasked(), event.getEventTime(), SystemClock.uptimeMillis());
+    }
+
+    @VisibleForTesting
+    void onMotionEvent(int action, long eventTimeMs, long arrivalTimeMs) {
+        if (action == ACTION_DOWN) {
+            if (mTracking) {
+                // The previous gesture didn't settle on any end target, e.g. it was a tap
+                onGestureWithoutEndTarget();
+            }
+            mTracking = true;
+            mTouchDownTimeMs = eventTimeMs;
+            mMaxInputLatencyMs = 0;
+            mRecentsAnimationStartTimeMs = 0;
+            mFirstFrameTimeMs = 0;
+            mLastFrameTimeNanos = 0;
+            mFrameCount = 0;
+            mJankyFrameCount = 0;
+        } else if (!mTracking) {
+            return;
+        }
+        mMaxInputLatencyMs = Math.max(mMaxInputLatencyMs, arrivalTimeMs - eventTimeMs);
+    }
+
+    /**
+     * Called when the recents animation of the current gesture has started.
+     */
+    @UiThread
+    public void onRecentsAnimationStart() {
+        onRecentsAnimationStart(SystemClock.uptimeMillis());
+    }
+
+    @VisibleForTesting
+    void onRecentsAnimationStart(long timeMs) {
+        if (mTracking && mRecentsAnimationStartTimeMs == 0) {
+            mRecentsAnimationStartTimeMs = timeMs;
+        }
+    }
+
+    /**
+     * Called whenever a surface transaction of the recents animation is applied. The first one
+     * starts counting the janky frames until the gesture settles.
+     *
+     * @param singleFrameMs the expected duration of a frame
+     */
+    @UiThread
+    public void onSurfaceTransactionApplied(int singleFrameMs) {
+        if (!mTracking || mFirstFrameTimeMs != 0) {
+            return;
+        }
+        onFirstSurfaceTransactionApplied(SystemClock.uptimeMillis(), singleFrameMs);
+        if (!mFrameCallbackPosted) {
+            mFrameCallbackPosted = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    @VisibleForTesting
+    void onFirstSurfaceTransactionApplied(long timeMs, int singleFrameMs) {
+        mFirstFrameTimeMs = timeMs;
+        mFrameIntervalNanos = singleFrameMs * 1_000_000L;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        mFrameCallbackPosted = false;
+        if (!mTracking || mFirstFrameTimeMs == 0) {
+            return;
+        }
+        onFrame(frameTimeNanos);
+        mFrameCallbackPosted = true;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    @VisibleForTesting
+    void onFrame(long frameTimeNanos) {
+        if (mLastFrameTimeNanos != 0) {
+            mFrameCount++;
+            if (frameTimeNanos - mLastFrameTimeNanos
+                    > mFrameIntervalNanos * JANK_FRAME_INTERVALS) {
+                mJankyFrameCount++;
+            }
+        }
+        mLastFrameTimeNanos = frameTimeNanos;
+    }
+
+    /**
+     * Called when the current gesture settled on {@param endTarget}, which ends the gesture.
+     */
+    @UiThread
+    public void onSettledOnEndTarget(GestureEndTarget endTarget) {
+        onSettledOnEndTarget(endTarget, SystemClock.uptimeMillis());
+    }
+
+    @VisibleForTesting
+    void onSettledOnEndTarget(GestureEndTarget endTarget, long timeMs) {
+        if (!mTracking) {
+            return;
+        }
+        mTracking = false;
+        if (mFrameCallbackPosted) {
+            mFrameCallbackPosted = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+        if (endTarget == null) {
+            onGestureWithoutEndTarget();
+            return;
+        }
+
+        synchronized (mStats) {
+            GestureStats stats = mStats.get(endTarget);
+            if (stats == null) {
+                stats = new GestureStats();
+                mStats.put(endTarget, stats);
+            }
+            stats.inputLatency.add(mMaxInputLatencyMs);
+            if (mRecentsAnimationStartTimeMs != 0) {
+                stats.touchToRecentsAnimationStart.add(
+                        mRecentsAnimationStartTimeMs - mTouchDownTimeMs);
+            }
+            if (mFirstFrameTimeMs != 0) {
+                stats.touchToFirstFrame.add(mFirstFrameTimeMs - mTouchDownTimeMs);
+                stats.frames.add(mFrameCount);
+                stats.jankyFrames.add(mJankyFrameCount);
+            }
+            stats.touchToSettled.add(timeMs - mTouchDownTimeMs);
+        }
+    }
+
+    private void onGestureWithoutEndTarget() {
+        synchronized (mStats) {
+            mGesturesWithoutEndTarget++;
+        }
+    }
+
+    public void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "SwipeUpLatencyTracker:");
+        synchronized (mStats) {
+            writer.println(prefix + "\tgesturesWithoutEndTarget=" + mGesturesWithoutEndTarget);
+            for (GestureEndTarget endTarget : mStats.keySet()) {
+                GestureStats stats = mStats.get(endTarget);
+                writer.println(prefix + "\t" + endTarget + ": count="
+                        + stats.touchToSettled.getCount());
+                writer.println(prefix + "\t\tinputLatencyMs: " + stats.inputLatency);
+                writer.println(prefix + "\t\ttouchToRecentsAnimationStartMs: "
+                        + stats.touchToRecentsAnimationStart);
+                writer.println(prefix + "\t\ttouchToFirstFrameMs: " + stats.touchToFirstFrame);
+                writer.println(prefix + "\t\ttouchToSettledMs: " + stats.touchToSettled);
+                writer.println(prefix + "\t\tframes: " + stats.frames);
+                writer.println(prefix + "\t\tjankyFrames: " + stats.jankyFrames);
+            }
+        }
+    }
+
+    /** The measurements of all the gestures which settled on the same end target. */
+    private static class GestureStats {
+        final Histogram inputLatency = new Histogram();
+        final Histogram touchToRecentsAnimationStart = new Histogram();
+        final Histogram touchToFirstFrame = new Histogram();
+        final Histogram touchToSettled = new Histogram();
+        final Histogram frames = new Histogram();
+        final Histogram jankyFrames = new Histogram();
+    }
+
+    /**
+     * Histogram of non negative values, with one bucket per value up to {@link #MAX_VALUE} and
+     * a bucket for all the larger values.
+     */
+    @VisibleForTesting
+    static class Histogram {
+
+        static final int MAX_VALUE = 1000;
+
+        private final int[] mCounts = new int[MAX_VALUE + 2];
+        private int mCount;
+        private long mMax;
+
+        void add(long value) {
+            value = Math.max(value, 0);
+            mCounts[(int) Math.min(value, MAX_VALUE + 1)]++;
+            mCount++;
+            mMax = Math.max(mMax, value);
+        }
+
+        int getCount() {
+            return mCount;
+        }
+
+        /**
+         * Returns the smallest value which at least {@param percentile} percent of the values are
+         * lower than or equal to, or the max value if it is in the overflow bucket.
+         */
+        long getPercentile(int percentile) {
+            if (mCount == 0) {
+                return 0;
+            }
+            // Rank of the value, rounded up
+            long rank = Math.max(1, ((long) mCount * percentile + 99) / 100);
+            long seen = 0;
+            for (int value = 0; value <= MAX_VALUE; value++) {
+                seen += mCounts[value];
+                if (seen >= rank) {
+                    return value;
+                }
+            }
+            return mMax;
+        }
+
+        @Override
+        public String toString() {
+            return "p50=" + getPercentile(50) + " p90=" + getPercentile(90)
+                    + " p99=" + getPercentile(99) + " max=" + mMax + " count=" + mCount;
+        }
+    }
+}
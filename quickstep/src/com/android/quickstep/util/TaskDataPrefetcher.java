@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.quickstep.util;
+
+import android.util.SparseArray;
+
+import androidx.annotation.UiThread;
+
+import com.android.launcher3.util.Preconditions;
+import com.android.quickstep.TaskIconCache;
+import com.android.quickstep.TaskThumbnailCache;
+import com.android.systemui.shared.recents.model.Task;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * Loads the thumbnails and icons of tasks which are not visible yet, such as the tasks around the
+ * position a fling in Overview is going to land on, so that they are ready by the time they are
+ * shown.
+ *
+ * <p>Only a few loads are in flight at the same time, and the loads of tasks which are no longer
+ * requested are cancelled. Thumbnails are only kept in the {@link TaskThumbnailCache}, the task
+ * itself doesn't hold on to them unless it became visible in the meantime.
+ */
+public class TaskDataPrefetcher {
+
+    private static final int MAX_LOADS_IN_FLIGHT = 4;
+
+    private final TaskThumbnailCache mThumbnailCache;
+    private final TaskIconCache mIconCache;
+    private final IntPredicate mIsTaskVisible;
+
+    private final ArrayList<Task> mPending = new ArrayList<>();
+    private final SparseArray<Request> mInFlight = new SparseArray<>();
+    private boolean mStartingRequests;
+
+    /**
+     * @param isTaskVisible returns whether the task with the given id is visible, in which case
+     *                      it keeps the loaded thumbnail
+     */
+    public TaskDataPrefetcher(TaskThumbnailCache thumbnailCache, TaskIconCache iconCache,
+            IntPredicate isTaskVisible) {
+        mThumbnailCache = thumbnailCache;
+        mIconCache = iconCache;
+        mIsTaskVisible = isTaskVisible;
+    }
+
+    /**
+     * Loads the data of {@param tasks}, in order, cancelling any load started for tasks which are
+     * not part of the list anymore.
+     */
+    @UiThread
+    public void prefetch(List<Task> tasks) {
+        Preconditions.assertUIThread();
+        for (int i = mInFlight.size() - 1; i >= 0; i--) {
+            if (!containsTask(tasks, mInFlight.keyAt(i))) {
+                mInFlight.valueAt(i).cancel();
+                mInFlight.removeAt(i);
+            }
+        }
+        mPending.clear();
+        for (Task task : tasks) {
+            // The thumbnails of the tasks which aren't visible are only kept in the cache, so
+            // check there rather than on the task, not to load them again on every call.
+            if (mInFlight.get(task.key.id) == null
+                    && (task.icon == null || !mThumbnailCache.isThumbnailCached(task))) {
+                mPending.add(task);
+            }
+        }
+        startPendingRequests();
+    }
+
+    /**
+     * Cancels all the loads in flight and the pending ones.
+     */
+    @UiThread
+    public void cancelAll() {
+        mPending.clear();
+        for (int i = 0; i < mInFlight.size(); i++) {
+            mInFlight.valueAt(i).cancel();
+        }
+        mInFlight.clear();
+    }
+
+    private void startPendingRequests() {
+        if (mStartingRequests) {
+            // Requests completing synchronously call back into this method
+            return;
+        }
+        mStartingRequests = true;
+        while (mInFlight.size() < MAX_LOADS_IN_FLIGHT && !mPending.isEmpty()) {
+            Request request = new Request(mPending.remove(0));
+            mInFlight.put(request.mTask.key.id, request);
+            request.start();
+        }
+        mStartingRequests = false;
+    }
+
+    private void onRequestComplete(Request request) {
+        if (mInFlight.get(request.mTask.key.id) == request) {
+            mInFlight.remove(request.mTask.key.id);
+        }
+        startPendingRequests();
+    }
+
+    private static boolean containsTask(List<Task> tasks, int taskId) {
+        for (int i = 0; i < tasks.size(); i++) {
+            if (tasks.get(i).key.id == taskId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private class Request {
+
+        private final Task mTask;
+        private CancellableTask mThumbnailRequest;
+        private CancellableTask mIconRequest;
+        private int mRemaining = 2;
+        private boolean mCancelled;
+
+        Request(Task task) {
+            mTask = task;
+        }
+
+        void start() {
+            mThumbnailRequest = mThumbnailCache.updateThumbnailInBackground(mTask, thumbnail -> {
+                if (!mIsTaskVisible.test(mTask.key.id)) {
+                    // The thumbnail stays in the cache, the task view will pick it up from there
+                    mTask.thumbnail = null;
+                }
+                onPartComplete();
+            });
+            if (!mCancelled) {
+                mIconRequest = mIconCache.updateIconInBackground(mTask,
+                        task -> onPartComplete());
+            }
+        }
+
+        void cancel() {
+            mCancelled = true;
+            if (mThumbnailRequest != null) {
+                mThumbnailRequest.cancel();
+            }
+            if (mIconRequest != null) {
+                mIconRequest.cancel();
+            }
+        }
+
+        private void onPartComplete() {
+            mRemaining--;
+            if (mRemaining == 0 && !mCancelled) {
+                onRequestComplete(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.quickstep.util;
+
+import android.util.Log;
+
+import com.android.systemui.shared.recents.model.Task.TaskKey;
+
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+/**
+ * A task key cache with an approximate LRU eviction policy, which doesn't block readers.
+ *
+ * <p>Lookups go through an immutable open addressing table keyed by the primitive task id, and
+ * only mark the entry as referenced. Writes are serialized and publish a new table. When the
+ * cache is full, the CLOCK algorithm evicts the first entry which hasn't been referenced since
+ * the clock hand last went over it. As the caches for tasks only hold a few dozen entries,
+ * copying the table on write is cheaper than making readers wait on a lock.
+ *
+ * @param <V> The type of the value
+ */
+public class TaskKeyClockCache<V> implements TaskKeyCache<V> {
+
+    private static final String TAG = "TaskKeyClockCache";
+
+    private final Object mWriteLock = new Object();
+
+    // Table used for lookups, never modified once published
+    private volatile Node<V>[] mTable;
+
+    // The following are only accessed with mWriteLock held, apart from reading the sizes
+    private Node<V>[] mClock;
+    private volatile int mSize;
+    private volatile int mMaxSize;
+    private int mClockHand;
+
+    public TaskKeyClockCache(int maxSize) {
+        mMaxSize = maxSize;
+        mClock = newArray(Math.max(maxSize, 1));
+        mTable = newArray(tableSizeFor(maxSize));
+    }
+
+    @Override
+    public void evictAll() {
+        synchronized (mWriteLock) {
+            Arrays.fill(mClock, null);
+            mSize = 0;
+            mClockHand = 0;
+            publishLocked();
+        }
+    }
+
+    @Override
+    public void remove(TaskKey key) {
+        if (key == null) {
+            return;
+        }
+        synchronized (mWriteLock) {
+            int index = indexInClockLocked(key.id);
+            if (index >= 0) {
+                removeAtLocked(index);
+                publishLocked();
+            }
+        }
+    }
+
+    private void removeNode(Node<V> node) {
+        synchronized (mWriteLock) {
+            for (int i = 0; i < mSize; i++) {
+                if (mClock[i] == node) {
+                    removeAtLocked(i);
+                    publishLocked();
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void removeAll(Predicate<TaskKey> keyCheck) {
+        synchronized (mWriteLock) {
+            boolean removed = false;
+            for (int i = mSize - 1; i >= 0; i--) {
+                if (keyCheck.test(mClock[i].mKey)) {
+                    removeAtLocked(i);
+                    removed = true;
+                }
+            }
+            if (removed) {
+                publishLocked();
+            }
+        }
+    }
+
+    @Override
+    public V getAndInvalidateIfModified(TaskKey key) {
+        Node<V> node = find(mTable, key.id);
+        if (node != null && node.mKey.windowingMode == key.windowingMode
+                && node.mKey.lastActiveTime == key.lastActiveTime) {
+            node.mReferenced = true;
+            return node.mValue;
+        }
+        if (node != null) {
+            // Only remove the stale entry, a fresh entry may have been put concurrently
+            removeNode(node);
+        }
+        return null;
+    }
+
+    @Override
+    public void put(TaskKey key, V value) {
+        if (key == null || value == null) {
+            Log.e(TAG, "Unexpected null key or value: " + key + ", " + value);
+            return;
+        }
+        synchronized (mWriteLock) {
+            int index = indexInClockLocked(key.id);
+            if (index >= 0) {
+                removeAtLocked(index);
+            }
+            if (mMaxSize <= 0) {
+                publishLocked();
+                return;
+            }
+            while (mSize >= mMaxSize) {
+                evictLocked();
+            }
+            if (mSize == mClock.length) {
+                mClock = Arrays.copyOf(mClock, mClock.length * 2);
+            }
+            mClock[mSize++] = new Node<>(key, value);
+            publishLocked();
+        }
+    }
+
+    @Override
+    public void updateIfAlreadyInCache(int taskId, V data) {
+        Node<V> node = find(mTable, taskId);
+        if (node != null) {
+            node.mValue = data;
+        }
+    }
+
+    @Override
+    public void updateCacheSizeAndRemoveExcess(int cacheSize) {
+        synchronized (mWriteLock) {
+            mMaxSize = cacheSize;
+            while (mSize > Math.max(cacheSize, 0)) {
+                evictLocked();
+            }
+            publishLocked();
+        }
+    }
+
+    @Override
+    public int getMaxSize() {
+        return mMaxSize;
+    }
+
+    @Override
+    public int getSize() {
+        return mSize;
+    }
+
+    /**
+     * Moves the clock hand until it finds an entry which wasn't referenced since the last pass,
+     * and removes it.
+     */
+    private void evictLocked() {
+        while (true) {
+            if (mClockHand >= mSize) {
+                mClockHand = 0;
+            }
+            Node<V> node = mClock[mClockHand];
+            if (node.mReferenced) {
+                node.mReferenced = false;
+                mClockHand++;
+            } else {
+                removeAtLocked(mClockHand);
+                return;
+            }
+        }
+    }
+
+    private void removeAtLocked(int index) {
+        System.arraycopy(mClock, index + 1, mClock, index, mSize - index - 1);
+        mClock[--mSize] = null;
+        if (mClockHand > index) {
+            mClockHand--;
+        }
+    }
+
+    private int indexInClockLocked(int taskId) {
+        for (int i = 0; i < mSize; i++) {
+            if (mClock[i].mKey.id == taskId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Builds a new lookup table from the clock entries and publishes it to the readers.
+     */
+    private void publishLocked() {
+        Node<V>[] table = newArray(tableSizeFor(Math.max(mSize, mMaxSize)));
+        int mask = table.length - 1;
+        for (int i = 0; i < mSize; i++) {
+            Node<V> node = mClock[i];
+            int slot = hash(node.mKey.id) & mask;
+            while (table[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = node;
+        }
+        mTable = table;
+    }
+
+    private static <V> Node<V> find(Node<V>[] table, int taskId) {
+        int mask = table.length - 1;
+        int slot = hash(taskId) & mask;
+        while (true) {
+            Node<V> node = table[slot];
+            if (node == null || node.mKey.id == taskId) {
+                return node;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private static int hash(int taskId) {
+        int h = taskId * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Returns a power of two table size which keeps the table at most half full.
+     */
+    private static int tableSizeFor(int entries) {
+        return Integer.highestOneBit(Math.max(entries, 1) * 2 - 1) << 1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> Node<V>[] newArray(int size) {
+        return (Node<V>[]) new Node[size];
+    }
+
+    private static class Node<V> {
+
+        final TaskKey mKey;
+        volatile V mValue;
+        volatile boolean mReferenced;
+
+        Node(TaskKey key, V value) {
+            mKey = key;
+            mValue = value;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.quickstep.util;
+
+import android.util.SparseArray;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.android.launcher3.util.IntSet;
+import com.android.launcher3.util.SplitConfigurationOptions.SplitBounds;
+import com.android.systemui.shared.recents.model.Task;
+
+import java.util.List;
+
+/**
+ * Describes how a list of recent tasks changed from a previously loaded list, so that the views
+ * bound to the previous list can be updated instead of being rebound.
+ *
+ * A task which is still in the list but moved, for example because it was launched again, is
+ * neither removed nor changed: only its position differs.
+ */
+public class TaskListChangeSet {
+
+    private final int mFromChangeId;
+    private final int mToChangeId;
+    private final IntSet mRemovedTaskIds;
+    private final IntSet mChangedTaskIds;
+    private final boolean mIncremental;
+
+    private TaskListChangeSet(int fromChangeId, int toChangeId, IntSet removedTaskIds,
+            IntSet changedTaskIds, boolean incremental) {
+        mFromChangeId = fromChangeId;
+        mToChangeId = toChangeId;
+        mRemovedTaskIds = removedTaskIds;
+        mChangedTaskIds = changedTaskIds;
+        mIncremental = incremental;
+    }
+
+    /**
+     * Returns a change set which doesn't relate {@param toChangeId} to any previous list.
+     */
+    public static TaskListChangeSet fullReload(int toChangeId) {
+        return new TaskListChangeSet(-1, toChangeId, new IntSet(), new IntSet(),
+                false /* incremental */);
+    }
+
+    /**
+     * Computes the changes between two lists of tasks, both ordered from the least recent to the
+     * most recent task.
+     *
+     * @param previous the previous list, or null if there is none
+     */
+    public static TaskListChangeSet compute(@Nullable List<GroupTask> previous,
+            int fromChangeId, @NonNull List<GroupTask> current, int toChangeId) {
+        if (previous == null || fromChangeId < 0) {
+            return fullReload(toChangeId);
+        }
+
+        SparseArray<GroupTask> previousGroups = new SparseArray<>();
+        for (GroupTask group : previous) {
+            if (group instanceof DesktopTask) {
+                // Desktop tasks are always rebound
+                return fullReload(toChangeId);
+            }
+            previousGroups.put(group.task1.key.id, group);
+            if (group.task2 != null) {
+                previousGroups.put(group.task2.key.id, group);
+            }
+        }
+
+        IntSet changed = new IntSet();
+        IntSet currentIds = new IntSet();
+        for (GroupTask group : current) {
+            if (group instanceof DesktopTask) {
+                return fullReload(toChangeId);
+            }
+            addTaskIds(group, currentIds);
+            // A task which is now grouped differently, such as a split pair being broken, needs
+            // a new view for each of the groups it was or is part of
+            markChanged(group, previousGroups.get(group.task1.key.id), changed);
+            if (group.task2 != null) {
+                markChanged(group, previousGroups.get(group.task2.key.id), changed);
+            }
+        }
+        IntSet removed = new IntSet();
+        for (int i = 0; i < previousGroups.size(); i++) {
+            int id = previousGroups.keyAt(i);
+            if (!currentIds.contains(id)) {
+                removed.add(id);
+            }
+        }
+        return new TaskListChangeSet(fromChangeId, toChangeId, removed, changed,
+                true /* incremental */);
+    }
+
+    /**
+     * Returns the change id of the list these changes apply to.
+     */
+    public int getFromChangeId() {
+        return mFromChangeId;
+    }
+
+    /**
+     * Returns the change id of the list resulting from these changes.
+     */
+    public int getToChangeId() {
+        return mToChangeId;
+    }
+
+    /**
+     * Returns whether the views bound to the previous list can be updated with these changes,
+     * instead of being rebound to the new list.
+     */
+    public boolean isIncremental() {
+        return mIncremental;
+    }
+
+    /**
+     * Returns whether the task is no longer in the list.
+     */
+    public boolean isTaskRemoved(int taskId) {
+        return mRemovedTaskIds.contains(taskId);
+    }
+
+    /**
+     * Returns whether the task is still in the list, but its view can't be kept, for example
+     * because it was split with another task.
+     */
+    public boolean isTaskChanged(int taskId) {
+        return mChangedTaskIds.contains(taskId);
+    }
+
+    @Override
+    public String toString() {
+        return "TaskListChangeSet{from=" + mFromChangeId + ", to=" + mToChangeId
+                + ", removed=" + mRemovedTaskIds + ", changed=" + mChangedTaskIds
+                + ", incremental=" + mIncremental + "}";
+    }
+
+    private static void markChanged(GroupTask group, @Nullable GroupTask previousGroup,
+            IntSet out) {
+        if (previousGroup == null || isSameGroup(previousGroup, group)) {
+            return;
+        }
+        addTaskIds(previousGroup, out);
+        addTaskIds(group, out);
+    }
+
+    private static void addTaskIds(GroupTask group, IntSet out) {
+        out.add(group.task1.key.id);
+        if (group.task2 != null) {
+            out.add(group.task2.key.id);
+        }
+    }
+
+    private static boolean isSameGroup(GroupTask a, GroupTask b) {
+        if (a.taskViewType != b.taskViewType || !isSameSplitBounds(a, b)) {
+            return false;
+        }
+        return isSameTask(a.task1, b.task1) && (a.task2 == null
+                ? b.task2 == null
+                : b.task2 != null && isSameTask(a.task2, b.task2));
+    }
+
+    private static boolean isSameSplitBounds(GroupTask a, GroupTask b) {
+        SplitBounds boundsA = a.mSplitBounds;
+        SplitBounds boundsB = b.mSplitBounds;
+        if (boundsA == null || boundsB == null) {
+            return boundsA == boundsB;
+        }
+        return boundsA.leftTopTaskId == boundsB.leftTopTaskId
+                && boundsA.leftTopBounds.equals(boundsB.leftTopBounds)
+                && boundsA.rightBottomBounds.equals(boundsB.rightBottomBounds);
+    }
+
+    private static boolean isSameTask(Task a, Task b) {
+        // The last active time is not compared as it changes every time the task is launched
+        return a.key.id == b.key.id && a.key.windowingMode == b.key.windowingMode;
+    }
+}
@@ -0,0 +1,316 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.quickstep.util;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import com.android.systemui.shared.recents.model.Task;
+import com.android.systemui.shared.recents.model.ThumbnailData;
+
+import java.io.PrintWriter;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Predicate;
+
+/**
+ * A thumbnail cache which is bounded by the memory used by the thumbnail bitmaps, in addition to
+ * the number of entries.
+ *
+ * <p>When the cache goes over its memory budget, high-res thumbnails are first replaced with a
+ * low-res copy, and entries are only removed once there are no high-res thumbnails left. Entries
+ * are picked in least recently used order, or by the smallest last active time when
+ * {@code orderByLastActiveTime} is set. Trimming happens on the background executor as it scales
+ * bitmaps.
+ */
+public class TaskThumbnailByteCache implements TaskKeyCache<ThumbnailData> {
+
+    private static final String TAG = "TaskThumbnailByteCache";
+
+    private final LinkedHashMap<Integer, ByteEntry> mMap =
+            new LinkedHashMap<>(0, 0.75f, true /* accessOrder */);
+    private final long mMaxBytes;
+    private final float mLowResScale;
+    private final boolean mOrderByLastActiveTime;
+    private final Executor mBgExecutor;
+
+    private int mMaxSize;
+    private long mBytes;
+    private boolean mTrimScheduled;
+
+    private int mDowngrades;
+    private int mEvictions;
+
+    /**
+     * @param maxSize maximum number of entries
+     * @param maxBytes maximum number of bytes used by the thumbnail bitmaps
+     * @param lowResScale scale of the low-res copies, or 0 to always remove entries
+     */
+    public TaskThumbnailByteCache(int maxSize, long maxBytes, float lowResScale,
+            boolean orderByLastActiveTime, Executor bgExecutor) {
+        mMaxSize = maxSize;
+        mMaxBytes = maxBytes;
+        mLowResScale = lowResScale;
+        mOrderByLastActiveTime = orderByLastActiveTime;
+        mBgExecutor = bgExecutor;
+    }
+
+    @Override
+    public synchronized void evictAll() {
+        mMap.clear();
+        mBytes = 0;
+    }
+
+    @Override
+    public synchronized void remove(Task.TaskKey key) {
+        if (key == null) {
+            return;
+        }
+        ByteEntry entry = mMap.remove(key.id);
+        if (entry != null) {
+            mBytes -= entry.mBytes;
+        }
+    }
+
+    @Override
+    public synchronized void removeAll(Predicate<Task.TaskKey> keyCheck) {
+        Iterator<ByteEntry> iterator = mMap.values().iterator();
+        while (iterator.hasNext()) {
+            ByteEntry entry = iterator.next();
+            if (keyCheck.test(entry.mKey)) {
+                mBytes -= entry.mBytes;
+                iterator.remove();
+            }
+        }
+    }
+
+    @Override
+    public synchronized ThumbnailData getAndInvalidateIfModified(Task.TaskKey key) {
+        ByteEntry entry = mMap.get(key.id);
+        if (entry != null && entry.mKey.windowingMode == key.windowingMode
+                && entry.mKey.lastActiveTime == key.lastActiveTime) {
+            return entry.mValue;
+        } else {
+            remove(key);
+            return null;
+        }
+    }
+
+    @Override
+    public synchronized void put(Task.TaskKey key, ThumbnailData value) {
+        if (key == null || value == null) {
+            Log.e(TAG, "Unexpected null key or value: " + key + ", " + value);
+            return;
+        }
+        ByteEntry entry = new ByteEntry(key, value);
+        ByteEntry previous = mMap.put(key.id, entry);
+        if (previous != null) {
+            mBytes -= previous.mBytes;
+        }
+        mBytes += entry.mBytes;
+        removeExcessIfNeeded();
+        scheduleTrimIfNeeded();
+    }
+
+    @Override
+    public synchronized void updateIfAlreadyInCache(int taskId, ThumbnailData data) {
+        ByteEntry entry = mMap.get(taskId);
+        if (entry != null) {
+            mBytes -= entry.mBytes;
+            entry.setValue(data);
+            mBytes += entry.mBytes;
+            scheduleTrimIfNeeded();
+        }
+    }
+
+    @Override
+    public synchronized void updateCacheSizeAndRemoveExcess(int cacheSize) {
+        mMaxSize = cacheSize;
+        removeExcessIfNeeded();
+    }
+
+    @Override
+    public synchronized int getMaxSize() {
+        return mMaxSize;
+    }
+
+    @Override
+    public synchronized int getSize() {
+        return mMap.size();
+    }
+
+    /**
+     * Gets the number of bytes used by the cached thumbnails.
+     */
+    public synchronized long getBytes() {
+        return mBytes;
+    }
+
+    /**
+     * Brings the cache under its memory budget, first by replacing high-res thumbnails with
+     * low-res copies and then by removing entries.
+     */
+    @WorkerThread
+    @VisibleForTesting
+    void trimToBudget() {
+        while (true) {
+            ByteEntry victim;
+            ThumbnailData highRes;
+            synchronized (this) {
+                if (mBytes <= mMaxBytes || mMap.isEmpty()) {
+                    // The byte count may have drifted from the entries, e.g. if a bitmap was
+                    // reconfigured, so stop once there is nothing left to evict.
+                    if (mMap.isEmpty()) {
+                        mBytes = 0;
+                    }
+                    mTrimScheduled = false;
+                    return;
+                }
+                victim = mLowResScale > 0 ? findVictim(true /* highResOnly */) : null;
+                if (victim == null) {
+                    ByteEntry eldest = findVictim(false /* highResOnly */);
+                    mMap.remove(eldest.mKey.id);
+                    mBytes -= eldest.mBytes;
+                    mEvictions++;
+                    continue;
+                }
+                highRes = victim.mValue;
+            }
+
+            // Scale outside of the lock so the UI thread isn't blocked on it.
+            ThumbnailData lowRes = createLowResCopy(highRes);
+            synchronized (this) {
+                if (victim.mValue != highRes || !mMap.containsValue(victim)) {
+                    // Changed while scaling, check again.
+                    continue;
+                }
+                mBytes -= victim.mBytes;
+                if (lowRes != null) {
+                    victim.setValue(lowRes);
+                    mBytes += victim.mBytes;
+                    mDowngrades++;
+                } else {
+                    mMap.remove(victim.mKey.id);
+                    mEvictions++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Dumps the memory used and the number of thumbnails downgraded and evicted.
+     */
+    public synchronized void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "TaskThumbnailByteCache:");
+        writer.println(prefix + "  bytes=" + mBytes + " maxBytes=" + mMaxBytes);
+        writer.println(prefix + "  size=" + mMap.size() + " maxSize=" + mMaxSize);
+        writer.println(prefix + "  downgrades=" + mDowngrades + " evictions=" + mEvictions);
+    }
+
+    private void removeExcessIfNeeded() {
+        while (mMap.size() > mMaxSize && !mMap.isEmpty()) {
+            ByteEntry eldest = findVictim(false /* highResOnly */);
+            mMap.remove(eldest.mKey.id);
+            mBytes -= eldest.mBytes;
+            mEvictions++;
+        }
+    }
+
+    private void scheduleTrimIfNeeded() {
+        if (mBytes > mMaxBytes && !mTrimScheduled) {
+            mTrimScheduled = true;
+            mBgExecutor.execute(this::trimToBudget);
+        }
+    }
+
+    /**
+     * Returns the entry which should be downgraded or removed first, iterating without changing
+     * the access order.
+     */
+    @Nullable
+    private ByteEntry findVictim(boolean highResOnly) {
+        ByteEntry victim = null;
+        for (ByteEntry entry : mMap.values()) {
+            if (highResOnly && (entry.mBytes == 0 || entry.mValue.reducedResolution)) {
+                continue;
+            }
+            if (!mOrderByLastActiveTime) {
+                return entry;
+            }
+            if (victim == null || entry.mKey.lastActiveTime < victim.mKey.lastActiveTime) {
+                victim = entry;
+            }
+        }
+        return victim;
+    }
+
+    @Nullable
+    private ThumbnailData createLowResCopy(ThumbnailData data) {
+        Bitmap bitmap = data.thumbnail;
+        if (bitmap == null) {
+            return null;
+        }
+        int width = Math.max(1, Math.round(bitmap.getWidth() * mLowResScale));
+        int height = Math.max(1, Math.round(bitmap.getHeight() * mLowResScale));
+        Bitmap scaled;
+        try {
+            scaled = Bitmap.createScaledBitmap(bitmap, width, height, true /* filter */);
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Failed to downgrade thumbnail", e);
+            return null;
+        }
+
+        ThumbnailData lowRes = new ThumbnailData();
+        lowRes.thumbnail = scaled;
+        lowRes.orientation = data.orientation;
+        lowRes.rotation = data.rotation;
+        lowRes.insets.set(data.insets);
+        lowRes.letterboxInsets.set(data.letterboxInsets);
+        lowRes.reducedResolution = true;
+        lowRes.isRealSnapshot = data.isRealSnapshot;
+        lowRes.isTranslucent = data.isTranslucent;
+        lowRes.windowingMode = data.windowingMode;
+        lowRes.appearance = data.appearance;
+        lowRes.scale = data.scale * mLowResScale;
+        lowRes.snapshotId = data.snapshotId;
+        return lowRes;
+    }
+
+    private static long sizeOf(ThumbnailData data) {
+        return data == null || data.thumbnail == null
+                ? 0 : data.thumbnail.getAllocationByteCount();
+    }
+
+    private static class ByteEntry extends Entry<ThumbnailData> {
+
+        long mBytes;
+
+        ByteEntry(Task.TaskKey key, ThumbnailData value) {
+            super(key, value);
+            mBytes = sizeOf(value);
+        }
+
+        void setValue(ThumbnailData value) {
+            mValue = value;
+            mBytes = sizeOf(value);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.quickstep.util;
+
+import static com.android.launcher3.EncryptionType.ENCRYPTED;
+import static com.android.launcher3.LauncherPrefs.nonRestorableItem;
+import static com.android.launcher3.util.Executors.VIEW_PREINFLATION_EXECUTOR;
+
+import android.content.Context;
+import android.os.Looper;
+
+import androidx.annotation.UiThread;
+
+import com.android.launcher3.ConstantItem;
+import com.android.launcher3.LauncherPrefs;
+import com.android.launcher3.util.Preconditions;
+import com.android.launcher3.util.ViewPool;
+import com.android.quickstep.views.TaskView;
+
+import java.io.PrintWriter;
+import java.util.List;
+
+/**
+ * Inflates the task views of Overview in the background while the main thread is idle, so that
+ * the first gesture to Overview doesn't inflate them synchronously.
+ *
+ * <p>The number of views inflated for each type follows the number of tasks of that type seen the
+ * last time the task list was applied, which is persisted for the next process start. The time
+ * spent inflating the views is recorded separately for the main thread and the background.
+ */
+public class TaskViewPoolWarmer {
+
+    private static final ConstantItem<Integer> SINGLE_TASK_COUNT =
+            nonRestorableItem("pref_overview_single_task_count", 10, ENCRYPTED);
+    private static final ConstantItem<Integer> GROUPED_TASK_COUNT =
+            nonRestorableItem("pref_overview_grouped_task_count", 10, ENCRYPTED);
+    private static final ConstantItem<Integer> DESKTOP_TASK_COUNT =
+            nonRestorableItem("pref_overview_desktop_task_count", 1, ENCRYPTED);
+
+    // Extra views to inflate for the tasks launched since the list was last applied
+    private static final int EXTRA_VIEWS = 1;
+
+    private final LauncherPrefs mPrefs;
+    private final ViewPool<?> mSinglePool;
+    private final ViewPool<?> mGroupedPool;
+    private final ViewPool<?> mDesktopPool;
+    private final InflationHistogram mMainThreadHistogram = new InflationHistogram();
+    private final InflationHistogram mBackgroundHistogram = new InflationHistogram();
+
+    private int mSingleCount;
+    private int mGroupedCount;
+    private int mDesktopCount;
+    private boolean mWarmUpScheduled;
+
+    public TaskViewPoolWarmer(Context context, ViewPool<?> singlePool, ViewPool<?> groupedPool,
+            ViewPool<?> desktopPool) {
+        mPrefs = LauncherPrefs.get(context);
+        mSinglePool = singlePool;
+        mGroupedPool = groupedPool;
+        mDesktopPool = desktopPool;
+        mSingleCount = mPrefs.get(SINGLE_TASK_COUNT);
+        mGroupedCount = mPrefs.get(GROUPED_TASK_COUNT);
+        mDesktopCount = mPrefs.get(DESKTOP_TASK_COUNT);
+
+        ViewPool.InflationListener listener = (durationNanos, onMainThread) ->
+                (onMainThread ? mMainThreadHistogram : mBackgroundHistogram).add(durationNanos);
+        singlePool.setInflationListener(listener);
+        groupedPool.setInflationListener(listener);
+        desktopPool.setInflationListener(listener);
+    }
+
+    /**
+     * Records the number of tasks of each type in {@param taskGroups}, and inflates more views
+     * when the main thread is next idle if needed.
+     */
+    @UiThread
+    public void onTaskListApplied(List<GroupTask> taskGroups) {
+        int singleCount = 0;
+        int groupedCount = 0;
+        int desktopCount = 0;
+        for (GroupTask group : taskGroups) {
+            switch (group.taskViewType) {
+                case TaskView.Type.GROUPED:
+                    groupedCount++;
+                    break;
+                case TaskView.Type.DESKTOP:
+                    desktopCount++;
+                    break;
+                case TaskView.Type.SINGLE:
+                default:
+                    singleCount++;
+            }
+        }
+        if (singleCount != mSingleCount || groupedCount != mGroupedCount
+                || desktopCount != mDesktopCount) {
+            mSingleCount = singleCount;
+            mGroupedCount = groupedCount;
+            mDesktopCount = desktopCount;
+            mPrefs.put(SINGLE_TASK_COUNT.to(singleCount), GROUPED_TASK_COUNT.to(groupedCount),
+                    DESKTOP_TASK_COUNT.to(desktopCount));
+        }
+        warmUpWhenIdle();
+    }
+
+    /**
+     * Inflates the views for the last observed number of tasks once the main thread is idle.
+     */
+    @UiThread
+    public void warmUpWhenIdle() {
+        Preconditions.assertUIThread();
+        if (mWarmUpScheduled) {
+            return;
+        }
+        mWarmUpScheduled = true;
+        Looper.myQueue().addIdleHandler(() -> {
+            mWarmUpScheduled = false;
+            warmUp(mSinglePool, mSingleCount);
+            warmUp(mGroupedPool, mGroupedCount);
+            warmUp(mDesktopPool, mDesktopCount);
+            return false;
+        });
+    }
+
+    private static void warmUp(ViewPool<?> pool, int taskCount) {
+        if (taskCount > 0) {
+            pool.preinflate(taskCount + EXTRA_VIEWS, VIEW_PREINFLATION_EXECUTOR);
+        }
+    }
+
+    @UiThread
+    public void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "TaskViewPoolWarmer:");
+        writer.println(prefix + "\tobservedTasks: single=" + mSingleCount
+                + " grouped=" + mGroupedCount + " desktop=" + mDesktopCount);
+        writer.println(prefix + "\tpools(created/available): single="
+                + mSinglePool.getCreatedCount() + "/" + mSinglePool.getAvailableCount()
+                + " grouped=" + mGroupedPool.getCreatedCount() + "/"
+                + mGroupedPool.getAvailableCount()
+                + " desktop=" + mDesktopPool.getCreatedCount() + "/"
+                + mDesktopPool.getAvailableCount());
+        writer.println(prefix + "\tmainThreadInflations: " + mMainThreadHistogram);
+        writer.println(prefix + "\tbackgroundInflations: " + mBackgroundHistogram);
+    }
+
+    /**
+     * Histogram of inflation times, with power of two buckets in milliseconds.
+     */
+    private static class InflationHistogram {
+
+        private static final int BUCKETS = 8;
+
+        private final int[] mCounts = new int[BUCKETS];
+        private long mTotalNanos;
+
+        synchronized void add(long durationNanos) {
+            long millis = durationNanos / 1_000_000;
+            int bucket = millis <= 0 ? 0 : 64 - Long.numberOfLeadingZeros(millis);
+            mCounts[Math.min(bucket, BUCKETS - 1)]++;
+            mTotalNanos += durationNanos;
+        }
+
+        @Override
+        public synchronized String toString() {
+            StringBuilder sb = new StringBuilder();
+            int total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                total += mCounts[i];
+                boolean isLast = i == BUCKETS - 1;
+                sb.append(isLast ? ">=" : "<").append(1 << (isLast ? i - 1 : i))
+                        .append("ms=").append(mCounts[i]).append(' ');
+            }
+            sb.append("count=").append(total).append(" totalMs=").append(mTotalNanos / 1_000_000);
+            return sb.toString();
+        }
+    }
+}
@@ -20,6 +20,8 @@ import static android.app.WindowConfiguration.ACTIVITY_TYPE_HOME;
 import android.util.FloatProperty;
 import android.view.RemoteAnimationTarget;
 
+import androidx.annotation.Nullable;
+
 import com.android.quickstep.RemoteAnimationTargets;
 import com.android.quickstep.util.SurfaceTransaction.SurfaceProperties;
 
@@ -57,6 +59,8 @@ public class TransformParams {
     private float mCornerRadius;
     private RemoteAnimationTargets mTargetSet;
     private SurfaceTransactionApplier mSyncTransactionApplier;
+    // Reused across frames when the applier batches the transactions
+    private SurfaceTransaction mReusableTransaction;
 
     private BuilderProxy mHomeBuilderProxy = BuilderProxy.ALWAYS_VISIBLE;
     private BuilderProxy mBaseBuilderProxy = BuilderProxy.ALWAYS_VISIBLE;
@@ -103,6 +107,12 @@ public class TransformParams {
      */
     public TransformParams setTargetSet(RemoteAnimationTargets targetSet) {
         mTargetSet = targetSet;
+        mReusableTransaction = null;
+        SurfacePropertyCache cache = getPropertyCache();
+        if (cache != null) {
+            // The leashes of the new targets may have been changed outside of the applier
+            cache.clear();
+        }
         return this;
     }
 
@@ -112,6 +122,11 @@ public class TransformParams {
      */
     public TransformParams setSyncTransactionApplier(SurfaceTransactionApplier applier) {
         mSyncTransactionApplier = applier;
+        SurfacePropertyCache cache = getPropertyCache();
+        if (cache != null) {
+            // Forget the leashes of the previous targets
+            cache.clear();
+        }
         return this;
     }
 
@@ -136,7 +151,7 @@ public class TransformParams {
     /** Builds the SurfaceTransaction from the given BuilderProxy params. */
     public SurfaceTransaction createSurfaceParams(BuilderProxy proxy) {
         RemoteAnimationTargets targets = mTargetSet;
-        SurfaceTransaction transaction = new SurfaceTransaction();
+        SurfaceTransaction transaction = obtainTransaction();
         if (targets == null) {
             return transaction;
         }
@@ -166,6 +181,26 @@ public class TransformParams {
         return transaction;
     }
 
+    /**
+     * Returns a new transaction, or the reusable one if the applier batches the transactions, as
+     * the applier then merges it immediately.
+     */
+    private SurfaceTransaction obtainTransaction() {
+        SurfacePropertyCache cache = getPropertyCache();
+        if (cache == null) {
+            return new SurfaceTransaction();
+        }
+        if (mReusableTransaction == null || mReusableTransaction.getPropertyCache() != cache) {
+            mReusableTransaction = new SurfaceTransaction(cache);
+        }
+        return mReusableTransaction;
+    }
+
+    @Nullable
+    private SurfacePropertyCache getPropertyCache() {
+        return mSyncTransactionApplier != null ? mSyncTransactionApplier.getPropertyCache() : null;
+    }
+
     // Pubic getters so outside packages can read the values.
 
     public float getProgress() {
@@ -17,6 +17,7 @@
 package com.android.quickstep.views;
 
 import static android.view.ViewGroup.LayoutParams.WRAP_CONTENT;
+import static com.android.launcher3.config.FeatureFlags.ENABLE_GROUPED_THUMBNAIL_LOADING;
 import static com.android.launcher3.util.SplitConfigurationOptions.STAGE_POSITION_UNDEFINED;
 
 import android.content.Context;
@@ -284,7 +285,25 @@ public class DesktopTaskView extends TaskView {
             RecentsModel model = RecentsModel.INSTANCE.get(getContext());
             TaskThumbnailCache thumbnailCache = model.getThumbnailCache();
 
-            if (needsUpdate(changes, FLAG_UPDATE_THUMBNAIL)) {
+            if (needsUpdate(changes, FLAG_UPDATE_THUMBNAIL)
+                    && ENABLE_GROUPED_THUMBNAIL_LOADING.get()) {
+                // Load all the thumbnails in one request, so that they are shown at the same time
+                List<Task> tasks = mTasks;
+                CancellableTask<?> thumbLoadRequest = thumbnailCache.updateThumbnailsInBackground(
+                        tasks, thumbnails -> {
+                            for (int i = 0; i < tasks.size(); i++) {
+                                Task task = tasks.get(i);
+                                TaskThumbnailView thumbnailView =
+                                        mSnapshotViewMap.get(task.key.id);
+                                if (thumbnailView != null) {
+                                    thumbnailView.setThumbnail(task, thumbnails[i]);
+                                }
+                            }
+                        });
+                if (thumbLoadRequest != null) {
+                    mPendingThumbnailRequests.add(thumbLoadRequest);
+                }
+            } else if (needsUpdate(changes, FLAG_UPDATE_THUMBNAIL)) {
                 for (Task task : mTasks) {
                     CancellableTask<?> thumbLoadRequest =
                             thumbnailCache.updateThumbnailInBackground(task, thumbnailData -> {
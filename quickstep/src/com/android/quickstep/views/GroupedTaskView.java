@@ -3,6 +3,7 @@ package com.android.quickstep.views;
 import static android.app.ActivityTaskManager.INVALID_TASK_ID;
 
 import static com.android.launcher3.Flags.enableOverviewIconMenu;
+import static com.android.launcher3.config.FeatureFlags.ENABLE_GROUPED_THUMBNAIL_LOADING;
 import static com.android.launcher3.util.SplitConfigurationOptions.STAGE_POSITION_BOTTOM_OR_RIGHT;
 import static com.android.quickstep.util.SplitScreenUtils.convertLauncherSplitBoundsToShell;
 
@@ -36,6 +37,7 @@ import com.android.systemui.shared.recents.utilities.PreviewPositionHelper;
 import com.android.systemui.shared.system.InteractionJankMonitorWrapper;
 import com.android.wm.shell.common.split.SplitScreenConstants.PersistentSnapPosition;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.function.Consumer;
 
@@ -58,7 +60,7 @@ public class GroupedTaskView extends TaskView {
     private TaskThumbnailView mSnapshotView2;
     private TaskViewIcon mIconView2;
     @Nullable
-    private CancellableTask<ThumbnailData> mThumbnailLoadRequest2;
+    private CancellableTask<?> mThumbnailLoadRequest2;
     @Nullable
     private CancellableTask mIconLoadRequest2;
     private final float[] mIcon2CenterCoords = new float[2];
@@ -151,13 +153,24 @@ public class GroupedTaskView extends TaskView {
 
     @Override
     public void onTaskListVisibilityChanged(boolean visible, int changes) {
-        super.onTaskListVisibilityChanged(visible, changes);
+        // Load both thumbnails in one request, so that they are shown at the same time
+        boolean loadThumbnailsTogether = visible && mTask != null
+                && ENABLE_GROUPED_THUMBNAIL_LOADING.get()
+                && needsUpdate(changes, FLAG_UPDATE_THUMBNAIL);
+        super.onTaskListVisibilityChanged(visible,
+                loadThumbnailsTogether ? changes & ~FLAG_UPDATE_THUMBNAIL : changes);
         if (visible) {
             RecentsModel model = RecentsModel.INSTANCE.get(getContext());
             TaskThumbnailCache thumbnailCache = model.getThumbnailCache();
             TaskIconCache iconCache = model.getIconCache();
 
-            if (needsUpdate(changes, FLAG_UPDATE_THUMBNAIL)) {
+            if (loadThumbnailsTogether) {
+                mThumbnailLoadRequest2 = thumbnailCache.updateThumbnailsInBackground(
+                        Arrays.asList(mTask, mSecondaryTask), thumbnails -> {
+                            mSnapshotView.setThumbnail(mTask, thumbnails[0]);
+                            mSnapshotView2.setThumbnail(mSecondaryTask, thumbnails[1]);
+                        });
+            } else if (needsUpdate(changes, FLAG_UPDATE_THUMBNAIL)) {
                 mThumbnailLoadRequest2 = thumbnailCache.updateThumbnailInBackground(mSecondaryTask,
                         thumbnailData -> mSnapshotView2.setThumbnail(
                                 mSecondaryTask, thumbnailData
@@ -114,6 +114,7 @@ import android.util.AttributeSet;
 import android.util.FloatProperty;
 import android.util.Log;
 import android.util.Pair;
+import android.util.SparseArray;
 import android.util.SparseBooleanArray;
 import android.view.HapticFeedbackConstants;
 import android.view.KeyEvent;
@@ -207,7 +208,10 @@ import com.android.quickstep.util.SplitAnimationTimings;
 import com.android.quickstep.util.SplitSelectStateController;
 import com.android.quickstep.util.SurfaceTransaction;
 import com.android.quickstep.util.SurfaceTransactionApplier;
+import com.android.quickstep.util.TaskDataPrefetcher;
 import com.android.quickstep.util.TaskGridNavHelper;
+import com.android.quickstep.util.TaskListChangeSet;
+import com.android.quickstep.util.TaskViewPoolWarmer;
 import com.android.quickstep.util.TaskViewSimulator;
 import com.android.quickstep.util.TaskVisualsChangeListener;
 import com.android.quickstep.util.TransformParams;
@@ -225,12 +229,14 @@ import com.android.wm.shell.pip.IPipAnimationListener;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
@@ -494,6 +500,7 @@ public abstract class RecentsView<ACTIVITY_TYPE extends StatefulActivity<STATE_T
     private final float mFastFlingVelocity;
     private final int mScrollHapticMinGapMillis;
     private final RecentsModel mModel;
+    private final TaskDataPrefetcher mTaskDataPrefetcher;
     private final int mSplitPlaceholderSize;
     private final int mSplitPlaceholderInset;
     private final ClearAllButton mClearAllButton;
@@ -515,6 +522,8 @@ public abstract class RecentsView<ACTIVITY_TYPE extends StatefulActivity<STATE_T
     private final ViewPool<TaskView> mTaskViewPool;
     private final ViewPool<GroupedTaskView> mGroupedTaskViewPool;
     private final ViewPool<DesktopTaskView> mDesktopTaskViewPool;
+    @Nullable
+    private final TaskViewPoolWarmer mTaskViewPoolWarmer;
 
     private final TaskOverlayFactory mTaskOverlayFactory;
 
@@ -623,6 +632,8 @@ public abstract class RecentsView<ACTIVITY_TYPE extends StatefulActivity<STATE_T
     // Used to keep track of the last requested task list id, so that we do not request to load the
     // tasks again if we have already requested it and the task list has not changed
     private int mTaskListChangeId = -1;
+    // The change id of the task list the task views are bound to, or -1 if it isn't known
+    private int mBoundTaskListChangeId = -1;
 
     // Only valid until the launcher state changes to NORMAL
     /**
@@ -789,17 +800,33 @@ public abstract class RecentsView<ACTIVITY_TYPE extends StatefulActivity<STATE_T
         mFastFlingVelocity = getResources()
                 .getDimensionPixelSize(R.dimen.recents_fast_fling_velocity);
         mModel = RecentsModel.INSTANCE.get(context);
+        mTaskDataPrefetcher = new TaskDataPrefetcher(mModel.getThumbnailCache(),
+                mModel.getIconCache(), mHasVisibleTaskData::get);
         mIdp = InvariantDeviceProfile.INSTANCE.get(context);
 
         mClearAllButton = (ClearAllButton) LayoutInflater.from(context)
                 .inflate(R.layout.overview_clear_all_button, this, false);
         mClearAllButton.setOnClickListener(this::dismissAllTasks);
-        mTaskViewPool = new ViewPool<>(context, this, R.layout.task, 20 /* max size */,
-                10 /* initial size */);
-        mGroupedTaskViewPool = new ViewPool<>(context, this,
-                R.layout.task_grouped, 20 /* max size */, 10 /* initial size */);
-        mDesktopTaskViewPool = new ViewPool<>(context, this, R.layout.task_desktop,
-                5 /* max size */, 1 /* initial size */);
+        if (FeatureFlags.ENABLE_TASK_VIEW_POOL_WARMER.get()) {
+            // The warmer inflates the views once idle, based on the tasks seen last time
+            mTaskViewPool = new ViewPool<>(context, this, R.layout.task, 20 /* max size */,
+                    0 /* initial size */);
+            mGroupedTaskViewPool = new ViewPool<>(context, this,
+                    R.layout.task_grouped, 20 /* max size */, 0 /* initial size */);
+            mDesktopTaskViewPool = new ViewPool<>(context, this, R.layout.task_desktop,
+                    5 /* max size */, 0 /* initial size */);
+            mTaskViewPoolWarmer = new TaskViewPoolWarmer(context, mTaskViewPool,
+                    mGroupedTaskViewPool, mDesktopTaskViewPool);
+            mTaskViewPoolWarmer.warmUpWhenIdle();
+        } else {
+            mTaskViewPool = new ViewPool<>(context, this, R.layout.task, 20 /* max size */,
+                    10 /* initial size */);
+            mGroupedTaskViewPool = new ViewPool<>(context, this,
+                    R.layout.task_grouped, 20 /* max size */, 10 /* initial size */);
+            mDesktopTaskViewPool = new ViewPool<>(context, this, R.layout.task_desktop,
+                    5 /* max size */, 1 /* initial size */);
+            mTaskViewPoolWarmer = null;
+        }
 
         mIsRtl = mOrientationHandler.getRecentsRtlSetting(getResources());
         setLayoutDirection(mIsRtl ? View.LAYOUT_DIRECTION_RTL : View.LAYOUT_DIRECTION_LTR);
@@ -1080,6 +1107,11 @@ public abstract class RecentsView<ACTIVITY_TYPE extends StatefulActivity<STATE_T
         return mSplitSelectStateController;
     }
 
+    @Nullable
+    public TaskViewPoolWarmer getTaskViewPoolWarmer() {
+        return mTaskViewPoolWarmer;
+    }
+
     public boolean isSplitSelectionActive() {
         return mSplitSelectStateController.isSplitSelectActive();
     }
@@ -1681,6 +1713,192 @@ public abstract class RecentsView<ACTIVITY_TYPE extends StatefulActivity<STATE_T
         return super.isPageScrollsInitialized() && mLoadPlanEverApplied;
     }
 
+    /**
+     * Applies the {@param changes} from the task list the task views are bound to, only adding,
+     * moving and removing the task views which changed when possible instead of rebinding all of
+     * them.
+     */
+    protected void applyTaskListChanges(ArrayList<GroupTask> taskGroups,
+            TaskListChangeSet changes) {
+        if (mPendingAnimation != null) {
+            mPendingAnimation.addEndListener(success -> applyTaskListChanges(taskGroups, changes));
+            return;
+        }
+
+        if (canApplyTaskListChanges(taskGroups, changes)) {
+            updateTaskViews(taskGroups, changes);
+        } else {
+            applyLoadPlan(taskGroups);
+        }
+        mBoundTaskListChangeId = changes.getToChangeId();
+    }
+
+    /**
+     * Returns whether the task views can be updated to match {@param taskGroups} instead of being
+     * rebound, which also resets the running and desktop task views.
+     */
+    private boolean canApplyTaskListChanges(ArrayList<GroupTask> taskGroups,
+            TaskListChangeSet changes) {
+        if (!mLoadPlanEverApplied || !changes.isIncremental() || taskGroups.isEmpty()
+                || getTaskViewCount() == 0
+                || changes.getFromChangeId() != mBoundTaskListChangeId
+                || isSplitSelectionActive() || mDesktopTaskView != null
+                || mIgnoreResetTaskId != INVALID_TASK_ID) {
+            return false;
+        }
+        for (int id : getTaskIdsForTaskViewId(mRunningTaskViewId)) {
+            if (changes.isTaskRemoved(id) || changes.isTaskChanged(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isBoundToGroup(int[] taskIds, GroupTask groupTask) {
+        if (groupTask.task2 == null) {
+            return taskIds[0] == groupTask.task1.key.id && taskIds[1] == INVALID_TASK_ID;
+        }
+        // Grouped task views are bound to the left/top task first
+        return groupTask.containsTask(taskIds[0]) && groupTask.containsTask(taskIds[1]);
+    }
+
+    private void updateTaskViews(ArrayList<GroupTask> taskGroups, TaskListChangeSet changes) {
+        mFilterState.updateInstanceCountMap(taskGroups);
+        if (mTaskViewPoolWarmer != null) {
+            mTaskViewPoolWarmer.onTaskListApplied(taskGroups);
+        }
+
+        SparseArray<GroupTask> groupsByTaskId = new SparseArray<>();
+        for (GroupTask groupTask : taskGroups) {
+            groupsByTaskId.put(groupTask.task1.key.id, groupTask);
+            if (groupTask.task2 != null) {
+                groupsByTaskId.put(groupTask.task2.key.id, groupTask);
+            }
+        }
+
+        // Remove the task views which are no longer bound to a group of the list
+        TaskView currentTaskView = getTaskViewAt(mCurrentPage);
+        SparseArray<TaskView> taskViewsByTaskId = new SparseArray<>();
+        for (int i = getTaskViewCount() - 1; i >= 0; i--) {
+            TaskView taskView = requireTaskViewAt(i);
+            int[] taskIds = taskView.getTaskIds();
+            GroupTask groupTask = groupsByTaskId.get(taskIds[0]);
+            if (groupTask != null && !changes.isTaskChanged(taskIds[0])
+                    && isBoundToGroup(taskIds, groupTask)) {
+                taskViewsByTaskId.put(taskIds[0], taskView);
+                continue;
+            }
+            if (mHasVisibleTaskData.get(taskIds[0])) {
+                taskView.onTaskListVisibilityChanged(false /* visible */,
+                        TaskView.FLAG_UPDATE_ALL);
+            }
+            if (taskView.getTaskViewId() == mFocusedTaskViewId) {
+                mFocusedTaskViewId = INVALID_TASK_ID;
+            }
+            if (taskView == currentTaskView) {
+                currentTaskView = null;
+            }
+            mTopRowIdSet.remove(taskView.getTaskViewId());
+            removeView(taskView);
+        }
+
+        // Task views are ordered from the most recent task to the least recent one. Launching a
+        // task moves it to the front, so moving each view to its index in turn only moves the
+        // views which were launched again.
+        for (int i = 0; i < taskGroups.size(); i++) {
+            GroupTask groupTask = taskGroups.get(taskGroups.size() - 1 - i);
+            TaskView taskView = taskViewsByTaskId.get(groupTask.task1.key.id);
+            if (taskView == null && groupTask.task2 != null) {
+                taskView = taskViewsByTaskId.get(groupTask.task2.key.id);
+            }
+            if (taskView == null) {
+                taskView = getTaskViewFromPool(groupTask.taskViewType);
+                addView(taskView, i);
+            } else {
+                if (indexOfChild(taskView) != i) {
+                    mMovingTaskView = taskView;
+                    removeView(taskView);
+                    mMovingTaskView = null;
+                    addView(taskView, i);
+                }
+                if (hasSameTaskKeys(taskView, groupTask)) {
+                    continue;
+                }
+                // The task was launched again, rebind it so that its data is loaded with the
+                // up to date key
+                unloadTaskData(taskView);
+            }
+            bindTaskView(taskView, groupTask);
+            if (FeatureFlags.ENABLE_MULTI_INSTANCE.get()) {
+                taskView.setUpShowAllInstancesListener();
+            }
+        }
+
+        if (mFocusedTaskViewId == INVALID_TASK_ID && !enableGridOnlyOverview()) {
+            mFocusedTaskViewId = requireTaskViewAt(0).getTaskViewId();
+        }
+        updateTaskSize();
+        TaskView focusedTaskView = getTaskViewFromTaskViewId(mFocusedTaskViewId);
+        if (focusedTaskView != null) {
+            focusedTaskView.setOrientationState(mOrientationState);
+        }
+
+        // Go to the running task unless settling on a page, otherwise stay on the same task, or
+        // go back to the first one if it was removed
+        TaskView targetTaskView = mNextPage == INVALID_PAGE ? getRunningTaskView() : null;
+        if (targetTaskView == null) {
+            targetTaskView = currentTaskView;
+        }
+        int targetPage = targetTaskView != null ? indexOfChild(targetTaskView) : 0;
+        if (mCurrentPage != targetPage) {
+            runOnPageScrollsInitialized(() -> setCurrentPage(targetPage));
+        }
+        resetTaskVisuals();
+        onTaskStackUpdated();
+        updateEnabledOverlays();
+        if (isPageScrollsInitialized()) {
+            onPageScrollsInitialized();
+        }
+    }
+
+    private void bindTaskView(TaskView taskView, GroupTask groupTask) {
+        if (taskView instanceof GroupedTaskView) {
+            boolean firstTaskIsLeftTopTask =
+                    groupTask.mSplitBounds.leftTopTaskId == groupTask.task1.key.id;
+            Task leftTopTask = firstTaskIsLeftTopTask ? groupTask.task1 : groupTask.task2;
+            Task rightBottomTask = firstTaskIsLeftTopTask ? groupTask.task2 : groupTask.task1;
+
+            ((GroupedTaskView) taskView).bind(leftTopTask, rightBottomTask, mOrientationState,
+                    groupTask.mSplitBounds);
+        } else {
+            taskView.bind(groupTask.task1, mOrientationState);
+        }
+    }
+
+    private static boolean hasSameTaskKeys(TaskView taskView, GroupTask groupTask) {
+        for (TaskIdAttributeContainer container : taskView.getTaskIdAttributeContainers()) {
+            if (container == null) {
+                continue;
+            }
+            Task.TaskKey key = container.getTask().key;
+            Task task = groupTask.task1.key.id == key.id ? groupTask.task1 : groupTask.task2;
+            if (task == null || task.key.lastActiveTime != key.lastActiveTime) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void unloadTaskData(TaskView taskView) {
+        int[] taskIds = taskView.getTaskIds();
+        if (mHasVisibleTaskData.get(taskIds[0])) {
+            taskView.onTaskListVisibilityChanged(false /* visible */, TaskView.FLAG_UPDATE_ALL);
+        }
+        for (int id : taskIds) {
+            mHasVisibleTaskData.delete(id);
+        }
+    }
+
     protected void applyLoadPlan(ArrayList<GroupTask> taskGroups) {
         if (mPendingAnimation != null) {
             mPendingAnimation.addEndListener(success -> applyLoadPlan(taskGroups));
@@ -1688,6 +1906,10 @@ public abstract class RecentsView<ACTIVITY_TYPE extends StatefulActivity<STATE_T
         }
 
         mLoadPlanEverApplied = true;
+        mBoundTaskListChangeId = -1;
+        if (mTaskViewPoolWarmer != null && taskGroups != null) {
+            mTaskViewPoolWarmer.onTaskListApplied(taskGroups);
+        }
         if (taskGroups == null || taskGroups.isEmpty()) {
             removeTasksViewsAndClearAllButton();
             onTaskStackUpdated();
@@ -1778,16 +2000,8 @@ public abstract class RecentsView<ACTIVITY_TYPE extends StatefulActivity<STATE_T
                 // first (to prevent problems), then remove the whole thing.
                 taskView.bind(groupTask.task1, mOrientationState);
                 removeView(taskView);
-            } else if (taskView instanceof GroupedTaskView) {
-                boolean firstTaskIsLeftTopTask =
-                        groupTask.mSplitBounds.leftTopTaskId == groupTask.task1.key.id;
-                Task leftTopTask = firstTaskIsLeftTopTask ? groupTask.task1 : groupTask.task2;
-                Task rightBottomTask = firstTaskIsLeftTopTask ? groupTask.task2 : groupTask.task1;
-
-                ((GroupedTaskView) taskView).bind(leftTopTask, rightBottomTask, mOrientationState,
-                        groupTask.mSplitBounds);
             } else {
-                taskView.bind(groupTask.task1, mOrientationState);
+                bindTaskView(taskView, groupTask);
             }
 
             // enables instance filtering if the feature flag for it is on
@@ -2226,6 +2440,13 @@ public abstract class RecentsView<ACTIVITY_TYPE extends StatefulActivity<STATE_T
             // After scrolling, update the visible task's data
             loadVisibleTaskData(TaskView.FLAG_UPDATE_ALL);
         }
+        if (FeatureFlags.ENABLE_OVERVIEW_FLING_PREFETCH.get()) {
+            if (scrolling && !isHandlingTouch()) {
+                prefetchLandingTaskData();
+            } else {
+                mTaskDataPrefetcher.cancelAll();
+            }
+        }
 
         // Update ActionsView's visibility when scroll changes.
         updateActionsViewFocusedScroll();
@@ -2386,10 +2607,74 @@ public abstract class RecentsView<ACTIVITY_TYPE extends StatefulActivity<STATE_T
         }
     }
 
+    /**
+     * Loads the task data around the position the current fling is predicted to land on, when it
+     * is too far for the visible tasks window of {@link #loadVisibleTaskData} to cover it.
+     */
+    private void prefetchLandingTaskData() {
+        int currentScroll = mOrientationHandler.getPrimaryScroll(this);
+        int finalScroll = mScroller.getFinalX();
+        int pageOrientedSize = mOrientationHandler.getMeasuredSize(this);
+        if (mTaskListChangeId == -1 || Math.abs(finalScroll - currentScroll) < pageOrientedSize) {
+            mTaskDataPrefetcher.cancelAll();
+            return;
+        }
+
+        // Use the same window as loadVisibleTaskData, around the predicted final position
+        int landingIndex = getDestinationPage(finalScroll);
+        int lower = Math.max(0, landingIndex - 2);
+        int upper = Math.min(landingIndex + 2, getChildCount() - 1);
+        int landingStart = 0;
+        int landingEnd = 0;
+        if (showAsGrid()) {
+            int extraWidth = enableGridOnlyOverview() ? getLastComputedTaskSize().width()
+                    + getPageSpacing() : pageOrientedSize / 2;
+            landingStart = finalScroll - extraWidth;
+            landingEnd = finalScroll + pageOrientedSize + extraWidth;
+        }
+
+        ArrayList<TaskView> landingTaskViews = new ArrayList<>();
+        for (int i = 0; i < getTaskViewCount(); i++) {
+            TaskView taskView = requireTaskViewAt(i);
+            boolean landing = showAsGrid()
+                    ? isTaskViewWithinBounds(taskView, landingStart, landingEnd)
+                    : lower <= indexOfChild(taskView) && indexOfChild(taskView) <= upper;
+            if (landing) {
+                landingTaskViews.add(taskView);
+            }
+        }
+        // Load the tasks closest to where the fling lands first
+        landingTaskViews.sort(Comparator.comparingInt(
+                taskView -> Math.abs(indexOfChild(taskView) - landingIndex)));
+
+        List<Task> tasks = new ArrayList<>();
+        for (TaskView taskView : landingTaskViews) {
+            for (TaskIdAttributeContainer container : taskView.getTaskIdAttributeContainers()) {
+                if (container != null && !mHasVisibleTaskData.get(container.getTask().key.id)
+                        && !isTmpRunningTask(container.getTask())) {
+                    tasks.add(container.getTask());
+                }
+            }
+        }
+        mTaskDataPrefetcher.prefetch(tasks);
+    }
+
+    private boolean isTmpRunningTask(Task task) {
+        if (mTmpRunningTasks != null) {
+            for (Task t : mTmpRunningTasks) {
+                if (t == task) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     /**
      * Unloads any associated data from the currently visible tasks
      */
     private void unloadVisibleTaskData(@TaskView.TaskDataChanges int dataChanges) {
+        mTaskDataPrefetcher.cancelAll();
         for (int i = 0; i < mHasVisibleTaskData.size(); i++) {
             if (mHasVisibleTaskData.valueAt(i)) {
                 TaskView taskView = getTaskViewByTaskId(mHasVisibleTaskData.keyAt(i));
@@ -2442,6 +2727,7 @@ public abstract class RecentsView<ACTIVITY_TYPE extends StatefulActivity<STATE_T
         mCurrentPageScrollDiff = 0;
         mIgnoreResetTaskId = -1;
         mTaskListChangeId = -1;
+        mBoundTaskListChangeId = -1;
         mFocusedTaskViewId = -1;
 
         if (mRecentsAnimationController != null) {
@@ -2564,8 +2850,13 @@ public abstract class RecentsView<ACTIVITY_TYPE extends StatefulActivity<STATE_T
      */
     public void reloadIfNeeded() {
         if (!mModel.isTaskListValid(mTaskListChangeId)) {
-            mTaskListChangeId = mModel.getTasks(this::applyLoadPlan, RecentsFilterState
-                    .getFilter(mFilterState.getPackageNameToFilter()));
+            Predicate<GroupTask> filter = RecentsFilterState
+                    .getFilter(mFilterState.getPackageNameToFilter());
+            if (FeatureFlags.ENABLE_INCREMENTAL_RECENT_TASKS.get()) {
+                mTaskListChangeId = mModel.getTaskChanges(this::applyTaskListChanges, filter);
+            } else {
+                mTaskListChangeId = mModel.getTasks(this::applyLoadPlan, filter);
+            }
         }
     }
 
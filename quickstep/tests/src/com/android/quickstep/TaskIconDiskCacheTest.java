@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.quickstep;
+
+import static androidx.test.core.app.ApplicationProvider.getApplicationContext;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import androidx.test.filters.SmallTest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+@SmallTest
+public class TaskIconDiskCacheTest {
+
+    private static final String PACKAGE = "com.example.app";
+    private static final String COMPONENT = PACKAGE + "/.MainActivity";
+    private static final String STATE = "state";
+
+    private TaskIconDiskCache mDiskCache;
+
+    @Before
+    public void setup() {
+        // In-memory database
+        mDiskCache = new TaskIconDiskCache(getApplicationContext(), null, 2);
+    }
+
+    @After
+    public void tearDown() {
+        mDiskCache.close();
+    }
+
+    @Test
+    public void get_afterPut_returnsEntry() {
+        mDiskCache.put(createKey(COMPONENT, 0, STATE), createEntry());
+
+        TaskIconDiskCache.Entry entry = mDiskCache.get(createKey(COMPONENT, 0, STATE));
+
+        assertNotNull(entry);
+        assertEquals(4, entry.icon.getWidth());
+        assertEquals(Color.RED, entry.iconColor);
+        assertFalse(entry.isInstantApp);
+        assertEquals("description", entry.contentDescription);
+        assertEquals("title", entry.title);
+    }
+
+    @Test
+    public void get_otherComponentOrIcon_returnsNull() {
+        mDiskCache.put(createKey(COMPONENT, 0, STATE), createEntry());
+
+        assertNull(mDiskCache.get(createKey(PACKAGE + "/.OtherActivity", 0, STATE)));
+        assertNull(mDiskCache.get(createKey(COMPONENT, 1, STATE)));
+    }
+
+    @Test
+    public void get_stateChanged_returnsNull() {
+        mDiskCache.put(createKey(COMPONENT, 0, STATE), createEntry());
+
+        // e.g. the package was updated
+        assertNull(mDiskCache.get(createKey(COMPONENT, 0, STATE + ",updated")));
+    }
+
+    @Test
+    public void removeAll_removesPackageEntries() {
+        mDiskCache.put(createKey(COMPONENT, 0, STATE), createEntry());
+
+        mDiskCache.removeAll(PACKAGE, 0);
+
+        assertNull(mDiskCache.get(createKey(COMPONENT, 0, STATE)));
+    }
+
+    @Test
+    public void put_overMaxEntries_evictsLeastRecentlyUsed() throws Exception {
+        mDiskCache.put(createKey(COMPONENT, 1, STATE), createEntry());
+        Thread.sleep(2);
+        mDiskCache.put(createKey(COMPONENT, 2, STATE), createEntry());
+        Thread.sleep(2);
+        mDiskCache.get(createKey(COMPONENT, 1, STATE));
+        Thread.sleep(2);
+        mDiskCache.put(createKey(COMPONENT, 3, STATE), createEntry());
+
+        assertNotNull(mDiskCache.get(createKey(COMPONENT, 1, STATE)));
+        assertNull(mDiskCache.get(createKey(COMPONENT, 2, STATE)));
+        assertNotNull(mDiskCache.get(createKey(COMPONENT, 3, STATE)));
+    }
+
+    private static TaskIconDiskCache.Key createKey(String component, int iconHash, String state) {
+        return new TaskIconDiskCache.Key(component, PACKAGE, 0, iconHash, state);
+    }
+
+    private static TaskIconDiskCache.Entry createEntry() {
+        Bitmap icon = Bitmap.createBitmap(4, 4, Bitmap.Config.ARGB_8888);
+        icon.eraseColor(Color.RED);
+        return new TaskIconDiskCache.Entry(icon, Color.RED, false, "description", "title");
+    }
+}
@@ -15,9 +15,14 @@
  */
 package com.android.quickstep;
 
+import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
 import static junit.framework.Assert.assertTrue;
 
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -25,20 +30,28 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import android.content.ComponentName;
 import android.content.Context;
+import android.content.Intent;
 import android.content.res.Resources;
+import android.graphics.Bitmap;
 
 import androidx.test.filters.SmallTest;
 
 import com.android.launcher3.R;
+import com.android.quickstep.util.CancellableTask;
 import com.android.quickstep.util.TaskKeyCache;
+import com.android.systemui.shared.recents.model.Task;
+import com.android.systemui.shared.recents.model.ThumbnailData;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.util.Arrays;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
 
 @SmallTest
 public class TaskThumbnailCacheTest {
@@ -92,4 +105,73 @@ public class TaskThumbnailCacheTest {
         assertFalse(thumbnailCache.updateCacheSizeAndRemoveExcess());
         verify(mTaskKeyCache, never()).updateCacheSizeAndRemoveExcess(anyInt());
     }
+
+    @Test
+    public void updateThumbnailsInBackground_allCached_callsBackImmediately() {
+        Task task1 = createTask(1);
+        Task task2 = createTask(2);
+        ThumbnailData thumbnail1 = createThumbnail();
+        ThumbnailData thumbnail2 = createThumbnail();
+        when(mTaskKeyCache.getAndInvalidateIfModified(task1.key)).thenReturn(thumbnail1);
+        when(mTaskKeyCache.getAndInvalidateIfModified(task2.key)).thenReturn(thumbnail2);
+        Executor executor = mock(Executor.class);
+        TaskThumbnailCache thumbnailCache = new TaskThumbnailCache(mContext, executor,
+                mTaskKeyCache);
+        AtomicReference<ThumbnailData[]> result = new AtomicReference<>();
+
+        CancellableTask request = thumbnailCache.updateThumbnailsInBackground(
+                Arrays.asList(task1, task2), result::set);
+
+        assertNull(request);
+        assertEquals(2, result.get().length);
+        assertSame(thumbnail1, result.get()[0]);
+        assertSame(thumbnail2, result.get()[1]);
+        verify(executor, never()).execute(any());
+    }
+
+    @Test
+    public void updateThumbnailsInBackground_someMissing_loadsThemInOneRequest() {
+        Task task1 = createTask(1);
+        Task task2 = createTask(2);
+        Task task3 = createTask(3);
+        when(mTaskKeyCache.getAndInvalidateIfModified(task1.key)).thenReturn(createThumbnail());
+        Executor executor = mock(Executor.class);
+        TaskThumbnailCache thumbnailCache = new TaskThumbnailCache(mContext, executor,
+                mTaskKeyCache);
+        AtomicReference<ThumbnailData[]> result = new AtomicReference<>();
+
+        CancellableTask request = thumbnailCache.updateThumbnailsInBackground(
+                Arrays.asList(task1, task2, task3), result::set);
+
+        assertNotNull(request);
+        // Nothing is published until all the thumbnails are loaded
+        assertNull(result.get());
+        verify(executor, times(1)).execute(any());
+    }
+
+    @Test
+    public void isThumbnailCached_checksTaskAndCache() {
+        Task cachedTask = createTask(1);
+        Task loadedTask = createTask(2);
+        Task missingTask = createTask(3);
+        when(mTaskKeyCache.getAndInvalidateIfModified(cachedTask.key))
+                .thenReturn(createThumbnail());
+        loadedTask.thumbnail = createThumbnail();
+        TaskThumbnailCache thumbnailCache = new TaskThumbnailCache(mContext, mock(Executor.class),
+                mTaskKeyCache);
+
+        assertTrue(thumbnailCache.isThumbnailCached(cachedTask));
+        assertTrue(thumbnailCache.isThumbnailCached(loadedTask));
+        assertFalse(thumbnailCache.isThumbnailCached(missingTask));
+    }
+
+    private static Task createTask(int id) {
+        return new Task(new Task.TaskKey(id, 0, new Intent(), new ComponentName("", ""), 0, 0));
+    }
+
+    private static ThumbnailData createThumbnail() {
+        ThumbnailData thumbnail = new ThumbnailData();
+        thumbnail.thumbnail = Bitmap.createBitmap(1, 1, Bitmap.Config.ARGB_8888);
+        return thumbnail;
+    }
 }
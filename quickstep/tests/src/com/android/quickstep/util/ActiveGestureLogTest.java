@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.quickstep.util;
+
+import static android.view.MotionEvent.ACTION_DOWN;
+import static android.view.MotionEvent.ACTION_MOVE;
+import static android.view.MotionEvent.ACTION_UP;
+
+import static com.android.quickstep.util.ActiveGestureErrorDetector.GestureEvent.MOTION_DOWN;
+import static com.android.quickstep.util.ActiveGestureErrorDetector.GestureEvent.MOTION_MOVE;
+import static com.android.quickstep.util.ActiveGestureErrorDetector.GestureEvent.ON_SETTLED_ON_END_TARGET;
+import static com.android.quickstep.util.ActiveGestureErrorDetector.GestureEvent.SET_END_TARGET;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+import android.os.Debug;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+
+import androidx.test.filters.SmallTest;
+
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+@SmallTest
+public class ActiveGestureLogTest {
+
+    private static final int MOVE_EVENTS = 200;
+
+    private enum EndTarget { HOME, RECENTS }
+
+    @Test
+    public void dump_rendersEntries() {
+        ActiveGestureLog log = new ActiveGestureLog(64);
+        log.incrementLogId();
+        log.addLog("onMotionEvent: ACTION_DOWN", 10, 20, "NONE", MOTION_DOWN);
+        log.addLog("velocity", 1.5f, -2f, null);
+        log.addLog("onSettledOnEndTarget", "HOME", ON_SETTLED_ON_END_TARGET);
+        log.addLog("isLikelyToStartNewTask", true);
+
+        String dump = dump(log);
+
+        assertTrue(dump, dump.contains("onMotionEvent: ACTION_DOWN: (10, 20), NONE"));
+        assertTrue(dump, dump.contains("velocity: (1.50, -2.00)"));
+        assertTrue(dump, dump.contains("onSettledOnEndTarget: HOME"));
+        assertTrue(dump, dump.contains("isLikelyToStartNewTask: true"));
+    }
+
+    @Test
+    public void dump_mergesDuplicates() {
+        ActiveGestureLog log = new ActiveGestureLog(64);
+        log.incrementLogId();
+        for (int i = 0; i < 5; i++) {
+            log.addLog("onMotionEvent: ACTION_MOVE, pointerCount", 1, "NONE", MOTION_MOVE);
+        }
+
+        String dump = dump(log);
+
+        assertTrue(dump, dump.contains("onMotionEvent: ACTION_MOVE, pointerCount: 1, NONE"
+                + " & 4 similar events"));
+    }
+
+    @Test
+    public void dump_dropsOldestEntriesWhenFull() {
+        ActiveGestureLog log = new ActiveGestureLog(4);
+        log.incrementLogId();
+        for (int i = 0; i < 6; i++) {
+            log.addLog("event" + i);
+        }
+
+        String dump = dump(log);
+
+        assertFalse(dump, dump.contains("event1"));
+        assertTrue(dump, dump.contains("event2"));
+        assertTrue(dump, dump.contains("event5"));
+    }
+
+    @Test
+    public void dump_doesNotMergeEntriesWithDifferentExtras() {
+        ActiveGestureLog log = new ActiveGestureLog(64);
+        log.incrementLogId();
+        log.addLog("onMotionEvent: ACTION_MOVE, pointerCount", 1, "NONE", MOTION_MOVE);
+        log.addLog("onMotionEvent: ACTION_MOVE, pointerCount", 2, "NONE", MOTION_MOVE);
+        log.addLog("velocity", 1f, 2f, null);
+        log.addLog("velocity", 1f, 3f, null);
+
+        String dump = dump(log);
+
+        assertTrue(dump, dump.contains("onMotionEvent: ACTION_MOVE, pointerCount: 1, NONE"));
+        assertTrue(dump, dump.contains("onMotionEvent: ACTION_MOVE, pointerCount: 2, NONE"));
+        assertTrue(dump, dump.contains("velocity: (1.00, 2.00)"));
+        assertTrue(dump, dump.contains("velocity: (1.00, 3.00)"));
+        assertFalse(dump, dump.contains("similar events"));
+    }
+
+    @Test
+    public void addMotionEventLog_swipeUp_logsAndMergesMoves() {
+        ActiveGestureLog log = new ActiveGestureLog(64);
+        log.incrementLogId();
+        long downTime = SystemClock.uptimeMillis();
+        addMotionEventLog(log, downTime, ACTION_DOWN, 540, 2300);
+        for (int i = 0; i < MOVE_EVENTS; i++) {
+            addMotionEventLog(log, downTime, ACTION_MOVE, 540, 2300 - i * 10);
+        }
+        addMotionEventLog(log, downTime, ACTION_UP, 540, 1200);
+
+        String dump = dump(log);
+
+        assertTrue(dump, dump.contains("onMotionEvent: ACTION_DOWN: (540, 2300), NONE"));
+        assertTrue(dump, dump.contains("onMotionEvent: ACTION_MOVE, pointerCount: 1, NONE"
+                + " & " + (MOVE_EVENTS - 1) + " similar events"));
+        assertTrue(dump, dump.contains("onMotionEvent: ACTION_UP: (540, 1200), NONE"));
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void swipeUp_doesNotAllocate() {
+        ActiveGestureLog log = new ActiveGestureLog(256);
+        // The events are obtained up front, as obtaining them may allocate
+        MotionEvent[] events = obtainSwipeUpEvents();
+        try {
+            // Load the classes and fill the buffer once, so that only steady state is measured
+            simulateSwipeUp(log, events);
+
+            Debug.startAllocCounting();
+            try {
+                Debug.resetThreadAllocCount();
+                simulateSwipeUp(log, events);
+                int allocations = Debug.getThreadAllocCount();
+                assertEquals(0, allocations);
+            } finally {
+                Debug.stopAllocCounting();
+            }
+        } finally {
+            for (MotionEvent event : events) {
+                event.recycle();
+            }
+        }
+    }
+
+    /**
+     * Logs a swipe up to home the way TouchInteractionService and the gesture handler do.
+     */
+    private static void simulateSwipeUp(ActiveGestureLog log, MotionEvent[] events) {
+        log.incrementLogId();
+        for (int i = 0; i < events.length - 1; i++) {
+            log.addMotionEventLog(events[i]);
+        }
+        log.addLog("calculateEndTarget: velocities in dp/ms", 0.1f, -3.2f, null);
+        log.addLog("setEndTarget", EndTarget.HOME.name(), SET_END_TARGET);
+        log.trackEvent(SET_END_TARGET);
+        log.addLog("onSettledOnEndTarget", EndTarget.HOME.name(), ON_SETTLED_ON_END_TARGET);
+        log.addLog("isLikelyToStartNewTask", false);
+        log.addMotionEventLog(events[events.length - 1]);
+    }
+
+    private static MotionEvent[] obtainSwipeUpEvents() {
+        long downTime = SystemClock.uptimeMillis();
+        MotionEvent[] events = new MotionEvent[MOVE_EVENTS + 2];
+        events[0] = MotionEvent.obtain(downTime, downTime, ACTION_DOWN, 540, 2300, 0);
+        for (int i = 0; i < MOVE_EVENTS; i++) {
+            events[i + 1] = MotionEvent.obtain(
+                    downTime, downTime + i, ACTION_MOVE, 540, 2300 - i * 10, 0);
+        }
+        events[MOVE_EVENTS + 1] = MotionEvent.obtain(
+                downTime, downTime + MOVE_EVENTS, ACTION_UP, 540, 1200, 0);
+        return events;
+    }
+
+    private static void addMotionEventLog(
+            ActiveGestureLog log, long downTime, int action, float x, float y) {
+        MotionEvent event = MotionEvent.obtain(
+                downTime, SystemClock.uptimeMillis(), action, x, y, /* metaState= */ 0);
+        try {
+            log.addMotionEventLog(event);
+        } finally {
+            event.recycle();
+        }
+    }
+
+    private static String dump(ActiveGestureLog log) {
+        StringWriter out = new StringWriter();
+        log.dump("", new PrintWriter(out));
+        return out.toString();
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.quickstep.util;
+
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+import android.graphics.Matrix;
+import android.graphics.Rect;
+import android.view.SurfaceControl;
+
+import androidx.test.filters.SmallTest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+@SmallTest
+public class SurfacePropertyCacheTest {
+
+    private SurfaceControl mSurface;
+    private SurfaceControl mOtherSurface;
+    private SurfacePropertyCache mCache;
+
+    @Before
+    public void setUp() {
+        mSurface = new SurfaceControl.Builder().setName("SurfacePropertyCacheTest").build();
+        mOtherSurface = new SurfaceControl.Builder().setName("SurfacePropertyCacheTest2").build();
+        mCache = new SurfacePropertyCache();
+    }
+
+    @After
+    public void tearDown() {
+        mSurface.release();
+        mOtherSurface.release();
+    }
+
+    @Test
+    public void unchangedProperties_areSkipped() {
+        Matrix matrix = new Matrix();
+        matrix.setScale(0.5f, 0.5f);
+        Rect crop = new Rect(0, 0, 100, 200);
+
+        assertTrue(mCache.updateAlpha(mSurface, 1f));
+        assertTrue(mCache.updateMatrix(mSurface, matrix));
+        assertTrue(mCache.updateWindowCrop(mSurface, crop));
+        assertTrue(mCache.updateLayer(mSurface, 0));
+        assertTrue(mCache.updateCornerRadius(mSurface, 16f));
+
+        assertFalse(mCache.updateAlpha(mSurface, 1f));
+        assertFalse(mCache.updateMatrix(mSurface, new Matrix(matrix)));
+        assertFalse(mCache.updateWindowCrop(mSurface, new Rect(crop)));
+        assertFalse(mCache.updateLayer(mSurface, 0));
+        assertFalse(mCache.updateCornerRadius(mSurface, 16f));
+    }
+
+    @Test
+    public void changedProperties_areSet() {
+        Matrix matrix = new Matrix();
+        mCache.updateAlpha(mSurface, 1f);
+        mCache.updateMatrix(mSurface, matrix);
+        mCache.updateWindowCrop(mSurface, new Rect(0, 0, 100, 200));
+
+        matrix.postTranslate(0, -10);
+        assertTrue(mCache.updateAlpha(mSurface, 0.9f));
+        assertTrue(mCache.updateMatrix(mSurface, matrix));
+        assertTrue(mCache.updateWindowCrop(mSurface, new Rect(0, 0, 100, 190)));
+        assertTrue(mCache.updateWindowCrop(mSurface, null));
+        assertFalse(mCache.updateWindowCrop(mSurface, null));
+    }
+
+    @Test
+    public void surfaces_areCachedSeparately() {
+        assertTrue(mCache.updateAlpha(mSurface, 1f));
+        assertTrue(mCache.updateAlpha(mOtherSurface, 1f));
+        assertFalse(mCache.updateAlpha(mOtherSurface, 1f));
+    }
+
+    @Test
+    public void clear_setsAllPropertiesAgain() {
+        mCache.updateAlpha(mSurface, 1f);
+        mCache.updateLayer(mSurface, Integer.MIN_VALUE);
+
+        mCache.clear();
+
+        assertTrue(mCache.updateAlpha(mSurface, 1f));
+        assertTrue(mCache.updateLayer(mSurface, Integer.MIN_VALUE));
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.quickstep.util;
+
+import static android.view.MotionEvent.ACTION_DOWN;
+import static android.view.MotionEvent.ACTION_MOVE;
+import static android.view.MotionEvent.ACTION_UP;
+
+import static com.android.quickstep.GestureState.GestureEndTarget.HOME;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+import androidx.test.filters.SmallTest;
+
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+@SmallTest
+public class SwipeUpLatencyTrackerTest {
+
+    private static final int FRAME_MS = 16;
+    private static final long FRAME_NANOS = FRAME_MS * 1_000_000L;
+
+    @Test
+    public void histogram_percentiles() {
+        SwipeUpLatencyTracker.Histogram histogram = new SwipeUpLatencyTracker.Histogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.add(i);
+        }
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(50, histogram.getPercentile(50));
+        assertEquals(90, histogram.getPercentile(90));
+        assertEquals(99, histogram.getPercentile(99));
+    }
+
+    @Test
+    public void histogram_overflowReturnsMax() {
+        SwipeUpLatencyTracker.Histogram histogram = new SwipeUpLatencyTracker.Histogram();
+        histogram.add(5);
+        histogram.add(SwipeUpLatencyTracker.Histogram.MAX_VALUE + 500);
+
+        assertEquals(SwipeUpLatencyTracker.Histogram.MAX_VALUE + 500,
+                histogram.getPercentile(99));
+    }
+
+    @Test
+    public void swipeUp_recordsLatenciesAndJankyFrames() {
+        SwipeUpLatencyTracker tracker = new SwipeUpLatencyTracker();
+        tracker.onMotionEvent(ACTION_DOWN, 1000, 1004);
+        tracker.onMotionEvent(ACTION_MOVE, 1010, 1012);
+        tracker.onRecentsAnimationStart(1030);
+        tracker.onFirstSurfaceTransactionApplied(1040, FRAME_MS);
+        long frameTime = 0;
+        for (int i = 0; i < 10; i++) {
+            // Every other frame skips a vsync
+            frameTime += i % 2 == 0 ? FRAME_NANOS : 2 * FRAME_NANOS;
+            tracker.onFrame(frameTime);
+        }
+        tracker.onMotionEvent(ACTION_UP, 1200, 1201);
+        tracker.onSettledOnEndTarget(HOME, 1500);
+
+        String dump = dump(tracker);
+
+        assertTrue(dump, dump.contains("HOME: count=1"));
+        assertTrue(dump, dump.contains("inputLatencyMs: p50=4 "));
+        assertTrue(dump, dump.contains("touchToRecentsAnimationStartMs: p50=30 "));
+        assertTrue(dump, dump.contains("touchToFirstFrameMs: p50=40 "));
+        assertTrue(dump, dump.contains("touchToSettledMs: p50=500 "));
+        assertTrue(dump, dump.contains("frames: p50=9 "));
+        assertTrue(dump, dump.contains("jankyFrames: p50=5 "));
+    }
+
+    @Test
+    public void gestureWithoutEndTarget_isCountedSeparately() {
+        SwipeUpLatencyTracker tracker = new SwipeUpLatencyTracker();
+        tracker.onMotionEvent(ACTION_DOWN, 1000, 1001);
+        tracker.onMotionEvent(ACTION_UP, 1050, 1051);
+        tracker.onMotionEvent(ACTION_DOWN, 2000, 2001);
+        tracker.onSettledOnEndTarget(HOME, 2300);
+
+        String dump = dump(tracker);
+
+        assertTrue(dump, dump.contains("gesturesWithoutEndTarget=1"));
+        assertTrue(dump, dump.contains("HOME: count=1"));
+    }
+
+    private static String dump(SwipeUpLatencyTracker tracker) {
+        StringWriter out = new StringWriter();
+        tracker.dump("", new PrintWriter(out));
+        return out.toString();
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.quickstep.util;
+
+import static junit.framework.Assert.assertNull;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.ComponentName;
+import android.content.Intent;
+import android.graphics.drawable.ColorDrawable;
+
+import androidx.test.filters.SmallTest;
+
+import com.android.quickstep.TaskIconCache;
+import com.android.quickstep.TaskThumbnailCache;
+import com.android.systemui.shared.recents.model.Task;
+import com.android.systemui.shared.recents.model.ThumbnailData;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.function.Consumer;
+
+@SmallTest
+public class TaskDataPrefetcherTest {
+
+    private TaskThumbnailCache mThumbnailCache;
+    private TaskIconCache mIconCache;
+    private TaskDataPrefetcher mPrefetcher;
+
+    @Before
+    public void setup() {
+        mThumbnailCache = mock(TaskThumbnailCache.class);
+        mIconCache = mock(TaskIconCache.class);
+        // None of the tasks are visible
+        mPrefetcher = new TaskDataPrefetcher(mThumbnailCache, mIconCache, taskId -> false);
+    }
+
+    @Test
+    public void prefetch_cachedTask_isNotLoaded() {
+        Task task = createTask(1);
+        task.icon = new ColorDrawable();
+        when(mThumbnailCache.isThumbnailCached(task)).thenReturn(true);
+
+        mPrefetcher.prefetch(Collections.singletonList(task));
+
+        verify(mThumbnailCache, never()).updateThumbnailInBackground(any(Task.class), any());
+        verify(mIconCache, never()).updateIconInBackground(any(), any());
+    }
+
+    @Test
+    public void prefetch_invisibleTaskLoaded_isNotLoadedAgain() {
+        Task task = createTask(1);
+        doAnswer(invocation -> {
+            Task t = invocation.getArgument(0);
+            t.thumbnail = new ThumbnailData();
+            when(mThumbnailCache.isThumbnailCached(t)).thenReturn(true);
+            invocation.<Consumer<ThumbnailData>>getArgument(1).accept(t.thumbnail);
+            return null;
+        }).when(mThumbnailCache).updateThumbnailInBackground(eq(task), any());
+        doAnswer(invocation -> {
+            Task t = invocation.getArgument(0);
+            t.icon = new ColorDrawable();
+            invocation.<Consumer<Task>>getArgument(1).accept(t);
+            return null;
+        }).when(mIconCache).updateIconInBackground(eq(task), any());
+
+        mPrefetcher.prefetch(Collections.singletonList(task));
+        // The thumbnail is only kept in the cache as the task isn't visible
+        assertNull(task.thumbnail);
+        // e.g. on the next scroll frame
+        mPrefetcher.prefetch(Collections.singletonList(task));
+
+        verify(mThumbnailCache, times(1)).updateThumbnailInBackground(eq(task), any());
+        verify(mIconCache, times(1)).updateIconInBackground(eq(task), any());
+    }
+
+    private static Task createTask(int id) {
+        return new Task(new Task.TaskKey(id, 0, new Intent(), new ComponentName("", ""), 0, 0));
+    }
+}
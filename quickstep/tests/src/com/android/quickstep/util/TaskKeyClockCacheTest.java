@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.quickstep.util;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+import android.content.ComponentName;
+import android.content.Intent;
+
+import androidx.test.filters.SmallTest;
+
+import com.android.systemui.shared.recents.model.Task;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@SmallTest
+public class TaskKeyClockCacheTest {
+
+    @Test
+    public void putAndGet() {
+        TaskKeyClockCache<String> cache = new TaskKeyClockCache<>(3);
+        Task.TaskKey key1 = createKey(1, 1);
+        Task.TaskKey key2 = createKey(2, 2);
+        cache.put(key1, "1");
+        cache.put(key2, "2");
+
+        assertEquals(2, cache.getSize());
+        assertEquals("1", cache.getAndInvalidateIfModified(key1));
+        assertEquals("2", cache.getAndInvalidateIfModified(key2));
+        assertNull(cache.getAndInvalidateIfModified(createKey(3, 3)));
+    }
+
+    @Test
+    public void replaceSameTask() {
+        TaskKeyClockCache<String> cache = new TaskKeyClockCache<>(3);
+        cache.put(createKey(1, 1), "old");
+        cache.put(createKey(1, 1), "new");
+
+        assertEquals(1, cache.getSize());
+        assertEquals("new", cache.getAndInvalidateIfModified(createKey(1, 1)));
+    }
+
+    @Test
+    public void invalidateModifiedTask() {
+        TaskKeyClockCache<String> cache = new TaskKeyClockCache<>(3);
+        cache.put(createKey(1, 1), "1");
+
+        // Same task, active again since it was cached
+        assertNull(cache.getAndInvalidateIfModified(createKey(1, 2)));
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void evictUnreferencedFirst() {
+        TaskKeyClockCache<String> cache = new TaskKeyClockCache<>(3);
+        Task.TaskKey key1 = createKey(1, 1);
+        Task.TaskKey key2 = createKey(2, 2);
+        Task.TaskKey key3 = createKey(3, 3);
+        cache.put(key1, "1");
+        cache.put(key2, "2");
+        cache.put(key3, "3");
+        cache.getAndInvalidateIfModified(key1);
+        cache.getAndInvalidateIfModified(key3);
+
+        cache.put(createKey(4, 4), "4");
+
+        assertEquals(3, cache.getSize());
+        assertNotNull(cache.getAndInvalidateIfModified(key1));
+        assertNull(cache.getAndInvalidateIfModified(key2));
+        assertNotNull(cache.getAndInvalidateIfModified(key3));
+    }
+
+    @Test
+    public void removeAndUpdate() {
+        TaskKeyClockCache<String> cache = new TaskKeyClockCache<>(3);
+        Task.TaskKey key1 = createKey(1, 1);
+        Task.TaskKey key2 = createKey(2, 2);
+        cache.put(key1, "1");
+        cache.put(key2, "2");
+
+        cache.updateIfAlreadyInCache(2, "updated");
+        cache.updateIfAlreadyInCache(3, "missing");
+        assertEquals("updated", cache.getAndInvalidateIfModified(key2));
+        assertEquals(2, cache.getSize());
+
+        cache.remove(key1);
+        assertNull(cache.getAndInvalidateIfModified(key1));
+        cache.removeAll(key -> key.id == 2);
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void shrinkCache() {
+        TaskKeyClockCache<String> cache = new TaskKeyClockCache<>(4);
+        for (int i = 0; i < 4; i++) {
+            cache.put(createKey(i, i), Integer.toString(i));
+        }
+        cache.updateCacheSizeAndRemoveExcess(2);
+
+        assertEquals(2, cache.getSize());
+        assertEquals(2, cache.getMaxSize());
+    }
+
+    @Test
+    public void concurrentWrites_readersSeeConsistentValues() throws Exception {
+        // Same access pattern as a swipe up: the loaders put and remove tasks while the UI thread
+        // looks up the visible ones.
+        TaskKeyClockCache<Integer> cache = new TaskKeyClockCache<>(20);
+        Task.TaskKey[] keys = new Task.TaskKey[30];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = createKey(i, i);
+        }
+        AtomicBoolean done = new AtomicBoolean();
+        CountDownLatch started = new CountDownLatch(2);
+        Thread[] loaders = new Thread[2];
+        for (int t = 0; t < loaders.length; t++) {
+            int offset = t;
+            loaders[t] = new Thread(() -> {
+                started.countDown();
+                for (int i = offset; !done.get(); i += loaders.length) {
+                    cache.put(keys[i % keys.length], keys[i % keys.length].id);
+                    if (i % 7 == 0) {
+                        cache.remove(keys[(i * 31) % keys.length]);
+                    }
+                }
+            });
+            loaders[t].start();
+        }
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        int wrongValues = 0;
+        try {
+            for (int frame = 0; frame < 2000; frame++) {
+                int first = (frame / 100) % (keys.length - 5);
+                for (int i = first; i < first + 5; i++) {
+                    Integer value = cache.getAndInvalidateIfModified(keys[i]);
+                    if (value != null && value != keys[i].id) {
+                        wrongValues++;
+                    }
+                }
+            }
+        } finally {
+            done.set(true);
+            for (Thread loader : loaders) {
+                loader.join();
+            }
+        }
+
+        assertEquals(0, wrongValues);
+        assertTrue(cache.getSize() <= cache.getMaxSize());
+    }
+
+    private static Task.TaskKey createKey(int id, long lastActiveTime) {
+        return new Task.TaskKey(id, 0, new Intent(), new ComponentName("", ""), 0,
+                lastActiveTime);
+    }
+}
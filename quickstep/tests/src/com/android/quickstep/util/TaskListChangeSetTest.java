@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.quickstep.util;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+import android.content.ComponentName;
+import android.content.Intent;
+
+import androidx.test.filters.SmallTest;
+
+import com.android.systemui.shared.recents.model.Task;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@SmallTest
+public class TaskListChangeSetTest {
+
+    @Test
+    public void removedTasks_isIncremental() {
+        List<GroupTask> previous = Arrays.asList(group(1, 1), group(2, 2), group(3, 3));
+        List<GroupTask> current = Arrays.asList(group(1, 1), group(3, 3));
+
+        TaskListChangeSet changes = TaskListChangeSet.compute(previous, 1, current, 2);
+
+        assertTrue(changes.isIncremental());
+        assertTrue(changes.isTaskRemoved(2));
+        assertFalse(changes.isTaskRemoved(1));
+        assertFalse(changes.isTaskChanged(1));
+        assertEquals(1, changes.getFromChangeId());
+        assertEquals(2, changes.getToChangeId());
+    }
+
+    @Test
+    public void addedTask_isIncremental() {
+        List<GroupTask> previous = Arrays.asList(group(1, 1), group(2, 2));
+        List<GroupTask> current = Arrays.asList(group(1, 1), group(2, 2), group(3, 3));
+
+        TaskListChangeSet changes = TaskListChangeSet.compute(previous, 1, current, 2);
+
+        assertTrue(changes.isIncremental());
+        assertFalse(changes.isTaskRemoved(3));
+        assertFalse(changes.isTaskChanged(3));
+    }
+
+    @Test
+    public void relaunchedTask_isIncremental() {
+        // Launching task 1 again moves it to the end with a new last active time
+        List<GroupTask> previous = Arrays.asList(group(1, 1), group(2, 2), group(3, 3));
+        List<GroupTask> current = Arrays.asList(group(2, 2), group(3, 3), group(1, 4));
+
+        TaskListChangeSet changes = TaskListChangeSet.compute(previous, 1, current, 2);
+
+        assertTrue(changes.isIncremental());
+        assertFalse(changes.isTaskRemoved(1));
+        assertFalse(changes.isTaskChanged(1));
+    }
+
+    @Test
+    public void splitPairBroken_marksTasksChanged() {
+        List<GroupTask> previous = Arrays.asList(group(1, 1), pair(2, 3));
+        List<GroupTask> current = Arrays.asList(group(1, 1), group(3, 3));
+
+        TaskListChangeSet changes = TaskListChangeSet.compute(previous, 1, current, 2);
+
+        assertTrue(changes.isIncremental());
+        assertTrue(changes.isTaskRemoved(2));
+        assertTrue(changes.isTaskChanged(3));
+        assertFalse(changes.isTaskChanged(1));
+    }
+
+    @Test
+    public void desktopTask_isFullReload() {
+        List<GroupTask> previous = Arrays.asList(group(1, 1), group(2, 2));
+        List<GroupTask> current = Arrays.asList(group(1, 1),
+                new DesktopTask(new ArrayList<>(Arrays.asList(task(2, 2)))));
+
+        TaskListChangeSet changes = TaskListChangeSet.compute(previous, 1, current, 2);
+
+        assertFalse(changes.isIncremental());
+    }
+
+    @Test
+    public void noPreviousList_isFullReload() {
+        List<GroupTask> current = Arrays.asList(group(1, 1));
+
+        TaskListChangeSet changes = TaskListChangeSet.compute(null, -1, current, 2);
+
+        assertFalse(changes.isIncremental());
+        assertEquals(-1, changes.getFromChangeId());
+    }
+
+    private static GroupTask group(int id, long lastActiveTime) {
+        return new GroupTask(task(id, lastActiveTime));
+    }
+
+    private static GroupTask pair(int id1, int id2) {
+        return new GroupTask(task(id1, id1), task(id2, id2), null);
+    }
+
+    private static Task task(int id, long lastActiveTime) {
+        return new Task(new Task.TaskKey(id, 0, new Intent(), new ComponentName("", ""), 0,
+                lastActiveTime));
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.quickstep.util;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+import android.content.ComponentName;
+import android.content.Intent;
+import android.graphics.Bitmap;
+
+import androidx.test.filters.SmallTest;
+
+import com.android.systemui.shared.recents.model.Task;
+import com.android.systemui.shared.recents.model.ThumbnailData;
+
+import org.junit.Test;
+
+@SmallTest
+public class TaskThumbnailByteCacheTest {
+
+    private static final int SIZE = 100;
+    private static final long THUMBNAIL_BYTES = SIZE * SIZE * 4;
+
+    @Test
+    public void downgradesHighResBeforeEvicting() {
+        // Room for one high-res and one low-res thumbnail
+        TaskThumbnailByteCache cache = new TaskThumbnailByteCache(10,
+                THUMBNAIL_BYTES + THUMBNAIL_BYTES / 4, 0.5f, false, Runnable::run);
+        Task.TaskKey key1 = createKey(1, 1);
+        Task.TaskKey key2 = createKey(2, 2);
+        cache.put(key1, createThumbnail());
+        cache.put(key2, createThumbnail());
+
+        assertEquals(2, cache.getSize());
+        ThumbnailData data1 = cache.getAndInvalidateIfModified(key1);
+        assertNotNull(data1);
+        assertTrue(data1.reducedResolution);
+        assertEquals(SIZE / 2, data1.thumbnail.getWidth());
+        assertFalse(cache.getAndInvalidateIfModified(key2).reducedResolution);
+        assertEquals(THUMBNAIL_BYTES + THUMBNAIL_BYTES / 4, cache.getBytes());
+    }
+
+    @Test
+    public void evictsWhenThereIsNoHighResLeft() {
+        // Room for one high-res thumbnail, without low-res copies
+        TaskThumbnailByteCache cache = new TaskThumbnailByteCache(10, THUMBNAIL_BYTES, 0,
+                false, Runnable::run);
+        Task.TaskKey key1 = createKey(1, 1);
+        Task.TaskKey key2 = createKey(2, 2);
+        cache.put(key1, createThumbnail());
+        cache.put(key2, createThumbnail());
+
+        assertEquals(1, cache.getSize());
+        assertNull(cache.getAndInvalidateIfModified(key1));
+        assertNotNull(cache.getAndInvalidateIfModified(key2));
+        assertEquals(THUMBNAIL_BYTES, cache.getBytes());
+    }
+
+    @Test
+    public void evictsByLastActiveTime() {
+        TaskThumbnailByteCache cache = new TaskThumbnailByteCache(10, 2 * THUMBNAIL_BYTES, 0,
+                true, Runnable::run);
+        Task.TaskKey oldest = createKey(1, 1);
+        Task.TaskKey newest = createKey(2, 3);
+        Task.TaskKey middle = createKey(3, 2);
+        cache.put(oldest, createThumbnail());
+        cache.put(newest, createThumbnail());
+        // Access the oldest task, it should still be evicted first
+        cache.getAndInvalidateIfModified(oldest);
+        cache.put(middle, createThumbnail());
+
+        assertEquals(2, cache.getSize());
+        assertNull(cache.getAndInvalidateIfModified(oldest));
+        assertNotNull(cache.getAndInvalidateIfModified(newest));
+        assertNotNull(cache.getAndInvalidateIfModified(middle));
+    }
+
+    @Test
+    public void keepsTrackOfBytesWhenRemoving() {
+        TaskThumbnailByteCache cache = new TaskThumbnailByteCache(10, 10 * THUMBNAIL_BYTES, 0.5f,
+                false, Runnable::run);
+        Task.TaskKey key1 = createKey(1, 1);
+        Task.TaskKey key2 = createKey(2, 2);
+        cache.put(key1, createThumbnail());
+        cache.put(key2, createThumbnail());
+        assertEquals(2 * THUMBNAIL_BYTES, cache.getBytes());
+
+        cache.remove(key1);
+        assertEquals(THUMBNAIL_BYTES, cache.getBytes());
+
+        cache.removeAll(key -> key.id == 2);
+        assertEquals(0, cache.getBytes());
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void limitsNumberOfEntries() {
+        TaskThumbnailByteCache cache = new TaskThumbnailByteCache(2, 10 * THUMBNAIL_BYTES, 0.5f,
+                false, Runnable::run);
+        cache.put(createKey(1, 1), createThumbnail());
+        cache.put(createKey(2, 2), createThumbnail());
+        cache.put(createKey(3, 3), createThumbnail());
+        assertEquals(2, cache.getSize());
+        assertEquals(2 * THUMBNAIL_BYTES, cache.getBytes());
+
+        cache.updateCacheSizeAndRemoveExcess(1);
+        assertEquals(1, cache.getSize());
+        assertEquals(THUMBNAIL_BYTES, cache.getBytes());
+    }
+
+    private static Task.TaskKey createKey(int id, long lastActiveTime) {
+        return new Task.TaskKey(id, 0, new Intent(), new ComponentName("", ""), 0,
+                lastActiveTime);
+    }
+
+    private static ThumbnailData createThumbnail() {
+        ThumbnailData data = new ThumbnailData();
+        data.thumbnail = Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888);
+        data.scale = 1f;
+        return data;
+    }
+}
@@ -70,6 +70,7 @@ import com.android.launcher3.celllayout.CellPosMapper.CellPos;
 import com.android.launcher3.celllayout.DelegatedCellDrawing;
 import com.android.launcher3.celllayout.ItemConfiguration;
 import com.android.launcher3.celllayout.ReorderAlgorithm;
+import com.android.launcher3.celllayout.ReorderSolutionCache;
 import com.android.launcher3.config.FeatureFlags;
 import com.android.launcher3.dragndrop.DraggableView;
 import com.android.launcher3.folder.PreviewBackground;
@@ -207,6 +208,7 @@ public class CellLayout extends ViewGroup {
     public final int[] mDirectionVector = new int[2];
 
     ItemConfiguration mPreviousSolution = null;
+    private final ReorderSolutionCache mReorderSolutionCache = new ReorderSolutionCache();
     private static final int INVALID_DIRECTION = -100;
 
     private final Rect mTempRect = new Rect();
@@ -491,7 +493,7 @@ public class CellLayout extends ViewGroup {
             debugPaint.setStrokeWidth(Utilities.dpToPx(1));
             for (int x = 0; x < mCountX; x++) {
                 for (int y = 0; y < mCountY; y++) {
-                    if (!mOccupied.cells[x][y]) {
+                    if (!mOccupied.isOccupied(x, y)) {
                         continue;
                     }
                     targetCell[0] = x;
@@ -1290,18 +1292,13 @@ public class CellLayout extends ViewGroup {
         }
 
         for (int y = 0; y < countY - (minSpanY - 1); y++) {
-            inner:
             for (int x = 0; x < countX - (minSpanX - 1); x++) {
                 int ySize = -1;
                 int xSize = -1;
                 if (!ignoreOccupied) {
                     // First, let's see if this thing fits anywhere
-                    for (int i = 0; i < minSpanX; i++) {
-                        for (int j = 0; j < minSpanY; j++) {
-                            if (mOccupied.cells[x + i][y + j]) {
-                                continue inner;
-                            }
-                        }
+                    if (!mOccupied.isRegionVacant(x, y, minSpanX, minSpanY)) {
+                        continue;
                     }
                     xSize = minSpanX;
                     ySize = minSpanY;
@@ -1314,21 +1311,17 @@ public class CellLayout extends ViewGroup {
                     boolean hitMaxY = ySize >= spanY;
                     while (!(hitMaxX && hitMaxY)) {
                         if (incX && !hitMaxX) {
-                            for (int j = 0; j < ySize; j++) {
-                                if (x + xSize > countX -1 || mOccupied.cells[x + xSize][y + j]) {
-                                    // We can't move out horizontally
-                                    hitMaxX = true;
-                                }
+                            if (!mOccupied.isRegionVacant(x + xSize, y, 1, ySize)) {
+                                // We can't move out horizontally
+                                hitMaxX = true;
                             }
                             if (!hitMaxX) {
                                 xSize++;
                             }
                         } else if (!hitMaxY) {
-                            for (int i = 0; i < xSize; i++) {
-                                if (y + ySize > countY - 1 || mOccupied.cells[x + i][y + ySize]) {
-                                    // We can't move out vertically
-                                    hitMaxY = true;
-                                }
+                            if (!mOccupied.isRegionVacant(x, y + ySize, xSize, 1)) {
+                                // We can't move out vertically
+                                hitMaxY = true;
                             }
                             if (!hitMaxY) {
                                 ySize++;
@@ -1745,6 +1738,10 @@ public class CellLayout extends ViewGroup {
         return new ReorderAlgorithm(this);
     }
 
+    public ReorderSolutionCache getReorderSolutionCache() {
+        return mReorderSolutionCache;
+    }
+
     protected ItemConfiguration findReorderSolution(int pixelX, int pixelY, int minSpanX,
             int minSpanY, int spanX, int spanY, int[] direction, View dragView, boolean decX,
             ItemConfiguration solution) {
@@ -1939,6 +1936,7 @@ public class CellLayout extends ViewGroup {
         if (mDragging) {
             mDragging = false;
         }
+        mReorderSolutionCache.clear();
 
         // Invalidate the drag data
         mPreviousSolution = null;
@@ -2034,7 +2032,7 @@ public class CellLayout extends ViewGroup {
 
     public boolean isOccupied(int x, int y) {
         if (x >= 0 && x < mCountX && y >= 0 && y < mCountY) {
-            return mOccupied.cells[x][y];
+            return mOccupied.isOccupied(x, y);
         }
         if (BuildConfig.IS_STUDIO_BUILD) {
             throw new RuntimeException("Position exceeds the bound of this CellLayout");
@@ -241,6 +241,7 @@ import com.android.launcher3.views.FloatingIconView;
 import com.android.launcher3.views.FloatingSurfaceView;
 import com.android.launcher3.views.OptionsPopupView;
 import com.android.launcher3.views.ScrimView;
+import com.android.launcher3.widget.DeferredWidgetInflater;
 import com.android.launcher3.widget.LauncherAppWidgetHostView;
 import com.android.launcher3.widget.LauncherAppWidgetProviderInfo;
 import com.android.launcher3.widget.LauncherWidgetHolder;
@@ -249,6 +250,7 @@ import com.android.launcher3.widget.PendingAddWidgetInfo;
 import com.android.launcher3.widget.PendingAppWidgetHostView;
 import com.android.launcher3.widget.WidgetAddFlowHandler;
 import com.android.launcher3.widget.WidgetManagerHelper;
+import com.android.launcher3.widget.WidgetRemoteViewsCache;
 import com.android.launcher3.widget.custom.CustomWidgetManager;
 import com.android.launcher3.widget.model.WidgetsListBaseEntry;
 import com.android.launcher3.widget.picker.WidgetsFullSheet;
@@ -332,6 +334,7 @@ public class Launcher extends StatefulActivity<LauncherState>
 
     private WidgetManagerHelper mAppWidgetManager;
     private LauncherWidgetHolder mAppWidgetHolder;
+    private DeferredWidgetInflater mDeferredWidgetInflater;
 
     private final int[] mTmpAddItemCellCoordinates = new int[2];
 
@@ -514,6 +517,7 @@ public class Launcher extends StatefulActivity<LauncherState>
         mAllAppsController = new AllAppsTransitionController(this);
         mStateManager = new StateManager<>(this, NORMAL);
 
+        mDeferredWidgetInflater = new DeferredWidgetInflater(this);
         setupViews();
 
         mSmartspaceEnabled = Utilities.showSmartspace(this);
@@ -1744,6 +1748,7 @@ public class Launcher extends StatefulActivity<LauncherState>
             Log.w(TAG, "problem while stopping AppWidgetHost during Launcher destruction", ex);
         }
         mAppWidgetHolder.destroy();
+        mDeferredWidgetInflater.reset();
 
         TextKeyListener.getInstance().release();
         mModelCallbacks.clearPendingBinds();
@@ -2098,6 +2103,10 @@ public class Launcher extends StatefulActivity<LauncherState>
             // This clears all widget bitmaps from the widget tray
             // TODO(hyunyoungs)
         }
+        WidgetRemoteViewsCache remoteViewsCache = WidgetRemoteViewsCache.INSTANCE.getNoCreate();
+        if (remoteViewsCache != null) {
+            remoteViewsCache.onTrimMemory(level);
+        }
     }
 
     @Override
@@ -2232,7 +2241,10 @@ public class Launcher extends StatefulActivity<LauncherState>
                 }
                 case LauncherSettings.Favorites.ITEM_TYPE_APPWIDGET:
                 case LauncherSettings.Favorites.ITEM_TYPE_CUSTOM_APPWIDGET: {
-                    view = inflateAppWidget((LauncherAppWidgetInfo) item);
+                    View placeholder = mDeferredWidgetInflater.createPlaceholder(
+                            (LauncherAppWidgetInfo) item);
+                    view = placeholder != null
+                            ? placeholder : inflateAppWidget((LauncherAppWidgetInfo) item);
                     if (view == null) {
                         continue;
                     }
@@ -2820,6 +2832,10 @@ public class Launcher extends StatefulActivity<LauncherState>
         writer.println(prefix + "\tmRotationHelper: " + mRotationHelper);
         writer.println(prefix + "\tmAppWidgetHolder.isListening: "
                 + mAppWidgetHolder.isListening());
+        WidgetRemoteViewsCache remoteViewsCache = WidgetRemoteViewsCache.INSTANCE.getNoCreate();
+        if (remoteViewsCache != null) {
+            remoteViewsCache.dump(prefix + "\t", writer);
+        }
 
         // Extra logging for general debugging
         mDragLayer.dump(prefix, writer);
@@ -3179,6 +3195,10 @@ public class Launcher extends StatefulActivity<LauncherState>
         return mAppWidgetHolder;
     }
 
+    public DeferredWidgetInflater getDeferredWidgetInflater() {
+        return mDeferredWidgetInflater;
+    }
+
     public LauncherModel getModel() {
         return mModel;
     }
@@ -33,9 +33,11 @@ import android.content.pm.PackageInstaller;
 import android.content.pm.ShortcutInfo;
 import android.os.UserHandle;
 import android.text.TextUtils;
+import android.util.ArraySet;
 import android.util.Log;
 import android.util.Pair;
 
+import androidx.annotation.GuardedBy;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.WorkerThread;
@@ -138,6 +140,11 @@ public class LauncherModel extends LauncherApps.Callback implements InstallSessi
 
     private int mLastLoadId = -1;
 
+    // Writers holding batched item updates, which are written before the model is loaded again
+    @GuardedBy("itself")
+    @NonNull
+    private final ArraySet<ModelWriter> mWritersWithPendingUpdates = new ArraySet<>();
+
     // Runnable to check if the shortcuts permission has changed.
     @NonNull
     private final Runnable mDataValidationCheck = new Runnable() {
@@ -346,6 +353,7 @@ public class LauncherModel extends LauncherApps.Callback implements InstallSessi
      * not be called as DB updates are automatically followed by UI update
      */
     public void forceReload() {
+        flushPendingUpdates();
         synchronized (mLock) {
             // Stop any existing loaders first, so they don't set mModelLoaded to true later
             stopLoader();
@@ -414,6 +422,8 @@ public class LauncherModel extends LauncherApps.Callback implements InstallSessi
     }
 
     private boolean startLoader(@NonNull final Callbacks[] newCallbacks) {
+        // Write the batched updates before the loader reads the database
+        flushPendingUpdates();
         // Enable queue before starting loader. It will get disabled in Launcher#finishBindingItems
         ItemInstallQueue.INSTANCE.get(mApp.getContext())
                 .pauseModelPush(ItemInstallQueue.FLAG_LOADER_RUNNING);
@@ -459,6 +469,30 @@ public class LauncherModel extends LauncherApps.Callback implements InstallSessi
         return false;
     }
 
+    /**
+     * Called by {@param writer} when it starts or stops holding batched updates, which need to be
+     * written before the model is loaded again.
+     */
+    public void setHasPendingUpdates(@NonNull ModelWriter writer, boolean hasPendingUpdates) {
+        synchronized (mWritersWithPendingUpdates) {
+            if (hasPendingUpdates) {
+                mWritersWithPendingUpdates.add(writer);
+            } else {
+                mWritersWithPendingUpdates.remove(writer);
+            }
+        }
+    }
+
+    private void flushPendingUpdates() {
+        ModelWriter[] writers;
+        synchronized (mWritersWithPendingUpdates) {
+            writers = mWritersWithPendingUpdates.toArray(new ModelWriter[0]);
+        }
+        for (ModelWriter writer : writers) {
+            writer.flushPendingUpdates();
+        }
+    }
+
     /**
      * If there is already a loader task running, tell it to stop.
      * @return true if an existing loader was stopped.
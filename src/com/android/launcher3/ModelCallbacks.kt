@@ -66,6 +66,7 @@ class ModelCallbacks(private var launcher: Launcher) : BgDataModel.Callbacks {
         launcher.workspace.clearDropTargets()
         launcher.workspace.removeAllWorkspaceScreens()
         launcher.appWidgetHolder.clearViews()
+        launcher.deferredWidgetInflater.reset()
         launcher.hotseat?.resetLayout(launcher.deviceProfile.isVerticalBarLayout)
         TraceHelper.INSTANCE.endSection()
     }
@@ -80,6 +81,7 @@ class ModelCallbacks(private var launcher: Launcher) : BgDataModel.Callbacks {
         synchronouslyBoundPages = boundPages
         pagesToBindSynchronously = LIntSet()
         clearPendingBinds()
+        launcher.deferredWidgetInflater.onInitialBindComplete(boundPages)
         val executor = ViewOnDrawExecutor(pendingTasks)
         pendingExecutor = executor
         if (!launcher.isInState(LauncherState.ALL_APPS)) {
@@ -140,6 +142,7 @@ class ModelCallbacks(private var launcher: Launcher) : BgDataModel.Callbacks {
         TraceHelper.INSTANCE.endSection()
         launcher.workspace.removeExtraEmptyScreen(/* stripEmptyScreens= */ true)
         launcher.workspace.pageIndicator.setAreScreensBinding(false, deviceProfile.isTwoPanels)
+        launcher.deferredWidgetInflater.onBindComplete()
     }
 
     /**
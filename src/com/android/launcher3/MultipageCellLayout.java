@@ -38,6 +38,7 @@ public class MultipageCellLayout extends CellLayout {
     private final Drawable mRightBackground;
 
     private boolean mSeamWasAdded = false;
+    private View mSeam;
 
     public MultipageCellLayout(Context context) {
         this(context, null);
@@ -206,6 +207,17 @@ public class MultipageCellLayout extends CellLayout {
         mCountY = countY;
     }
 
+    /**
+     * Returns the view standing for the seam while it is simulated. The same view is reused
+     * across reorders so that solutions computed with the seam can be compared.
+     */
+    public View getSeam() {
+        if (mSeam == null) {
+            mSeam = new View(getContext());
+        }
+        return mSeam;
+    }
+
     public void setOccupied(GridOccupancy occupied) {
         mOccupied = occupied;
     }
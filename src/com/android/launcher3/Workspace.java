@@ -1270,6 +1270,7 @@ public class Workspace<T extends View & PageIndicator> extends PagedView<T>
     protected void onPageBeginTransition() {
         super.onPageBeginTransition();
         updateChildrenLayersEnabled();
+        mLauncher.getDeferredWidgetInflater().onPageBeginTransition();
     }
 
     protected void onPageEndTransition() {
@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.allapps.search;
+
+import androidx.annotation.WorkerThread;
+
+import com.android.launcher3.allapps.BaseAllAppsAdapter.AdapterItem;
+import com.android.launcher3.model.data.AppInfo;
+import com.android.launcher3.search.StringMatcherUtility;
+import com.android.launcher3.search.StringMatcherUtility.StringMatcher;
+import com.android.launcher3.util.IntArray;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Search index over the app titles, giving the same results as
+ * {@link DefaultAppSearchAlgorithm#getTitleMatchResult} without rescanning every title for
+ * word breaks on each keystroke.
+ *
+ * The index is synced with the app list before each query, only re-indexing apps which were
+ * added or whose title changed. When the new query extends the previous one, only the
+ * previous matches are checked again.
+ */
+public class AppSearchIndex {
+
+    private final StringMatcher mMatcher;
+
+    private IdentityHashMap<AppInfo, Entry> mEntries = new IdentityHashMap<>();
+    private final ArrayList<Entry> mOrderedEntries = new ArrayList<>();
+
+    private String mLastQuery;
+    private boolean mLastQueryFuzzy;
+    private final ArrayList<Entry> mLastMatches = new ArrayList<>();
+
+    public AppSearchIndex() {
+        this(StringMatcher.getInstance());
+    }
+
+    public AppSearchIndex(StringMatcher matcher) {
+        mMatcher = matcher;
+    }
+
+    /**
+     * Filters {@link AppInfo}s matching specified query
+     */
+    @WorkerThread
+    public ArrayList<AdapterItem> getTitleMatchResult(List<AppInfo> apps, String query) {
+        boolean changed = sync(apps);
+
+        final String queryTextLower = query.toLowerCase();
+        final boolean fuzzy = StringMatcherUtility.requestSimpleFuzzySearch(queryTextLower);
+
+        // A title matching a query always matches any prefix of that query as well.
+        ArrayList<Entry> candidates = !changed && mLastQuery != null
+                && fuzzy == mLastQueryFuzzy && queryTextLower.startsWith(mLastQuery)
+                ? new ArrayList<>(mLastMatches) : mOrderedEntries;
+
+        mLastMatches.clear();
+        final ArrayList<AdapterItem> result = new ArrayList<>();
+        int total = candidates.size();
+        for (int i = 0; i < total; i++) {
+            Entry entry = candidates.get(i);
+            if (entry.matches(queryTextLower, fuzzy, mMatcher)) {
+                mLastMatches.add(entry);
+                result.add(AdapterItem.asApp(entry.info));
+            }
+        }
+        mLastQuery = queryTextLower;
+        mLastQueryFuzzy = fuzzy;
+        return result;
+    }
+
+    /**
+     * Updates the index to reflect {@code apps}, returning true if anything changed.
+     */
+    private boolean sync(List<AppInfo> apps) {
+        int total = apps.size();
+        boolean changed = total != mOrderedEntries.size();
+        for (int i = 0; i < total && !changed; i++) {
+            Entry entry = mOrderedEntries.get(i);
+            AppInfo info = apps.get(i);
+            changed = entry.info != info || entry.source != info.title;
+        }
+        if (!changed) {
+            return false;
+        }
+
+        IdentityHashMap<AppInfo, Entry> entries = new IdentityHashMap<>(total);
+        mOrderedEntries.clear();
+        for (int i = 0; i < total; i++) {
+            AppInfo info = apps.get(i);
+            Entry entry = mEntries.get(info);
+            if (entry == null || entry.source != info.title) {
+                entry = new Entry(info, mMatcher);
+            }
+            entries.put(info, entry);
+            mOrderedEntries.add(entry);
+        }
+        mEntries = entries;
+        mLastQuery = null;
+        mLastMatches.clear();
+        return true;
+    }
+
+    private static class Entry {
+
+        final AppInfo info;
+        final CharSequence source;
+        final String title;
+        final IntArray starts;
+
+        private String mTitleLower;
+
+        Entry(AppInfo info, StringMatcher matcher) {
+            this.info = info;
+            source = info.title;
+            title = source == null ? "" : source.toString();
+            starts = StringMatcherUtility.getMatchStarts(title, matcher);
+        }
+
+        boolean matches(String query, boolean fuzzy, StringMatcher matcher) {
+            if (title.length() < query.length() || query.isEmpty()) {
+                return false;
+            }
+            if (fuzzy) {
+                if (mTitleLower == null) {
+                    mTitleLower = title.toLowerCase();
+                }
+                return mTitleLower.contains(query);
+            }
+            return StringMatcherUtility.matchesAt(query, title, starts, matcher);
+        }
+    }
+}
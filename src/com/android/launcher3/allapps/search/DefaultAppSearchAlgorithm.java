@@ -45,6 +45,8 @@ public class DefaultAppSearchAlgorithm implements SearchAlgorithm<AdapterItem> {
     private final LauncherAppState mAppState;
     private final Handler mResultHandler;
     private final boolean mAddNoResultsMessage;
+    // Only accessed on the model thread
+    private final AppSearchIndex mIndex = new AppSearchIndex();
 
     public DefaultAppSearchAlgorithm(Context context) {
         this(context, false);
@@ -69,7 +71,7 @@ public class DefaultAppSearchAlgorithm implements SearchAlgorithm<AdapterItem> {
             @Override
             public void execute(@NonNull final LauncherAppState app,
                     @NonNull final BgDataModel dataModel, @NonNull final AllAppsList apps) {
-                ArrayList<AdapterItem> result = getTitleMatchResult(apps.data, query);
+                ArrayList<AdapterItem> result = mIndex.getTitleMatchResult(apps.data, query);
                 if (mAddNoResultsMessage && result.isEmpty()) {
                     result.add(getEmptyMessageAdapterItem(query));
                 }
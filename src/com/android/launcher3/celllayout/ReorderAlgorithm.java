@@ -19,8 +19,10 @@ import android.graphics.Rect;
 import android.view.View;
 
 import com.android.launcher3.CellLayout;
+import com.android.launcher3.config.FeatureFlags;
 import com.android.launcher3.util.CellAndSpan;
 import com.android.launcher3.util.GridOccupancy;
+import com.android.launcher3.util.IntArray;
 
 import java.util.ArrayList;
 import java.util.Comparator;
@@ -37,6 +39,9 @@ public class ReorderAlgorithm {
 
     CellLayout mCellLayout;
 
+    // Target cells tried by the current search, see ReorderSolutionCache#save
+    private IntArray mSearchPath;
+
     public ReorderAlgorithm(CellLayout cellLayout) {
         mCellLayout = cellLayout;
     }
@@ -67,8 +72,27 @@ public class ReorderAlgorithm {
     public ItemConfiguration findReorderSolution(int pixelX, int pixelY, int minSpanX,
             int minSpanY, int spanX, int spanY, int[] direction, View dragView, boolean decX,
             ItemConfiguration solution) {
-        return findReorderSolutionRecursive(pixelX, pixelY, minSpanX, minSpanY, spanX, spanY,
-                direction, dragView, decX, solution);
+        ReorderSolutionCache cache = mCellLayout.getReorderSolutionCache();
+        if (!FeatureFlags.ENABLE_REORDER_SOLUTION_CACHE.get() || !solution.map.isEmpty()) {
+            return findReorderSolutionRecursive(pixelX, pixelY, minSpanX, minSpanY, spanX, spanY,
+                    direction, dragView, decX, solution);
+        }
+        if (cache.restore(this, pixelX, pixelY, minSpanX, minSpanY, spanX, spanY, direction,
+                dragView, decX, solution)) {
+            return solution;
+        }
+        int directionX = direction[0];
+        int directionY = direction[1];
+        mSearchPath = new IntArray();
+        try {
+            findReorderSolutionRecursive(pixelX, pixelY, minSpanX, minSpanY, spanX, spanY,
+                    direction, dragView, decX, solution);
+            cache.save(mCellLayout, minSpanX, minSpanY, spanX, spanY, directionX, directionY,
+                    direction, dragView, decX, mSearchPath, solution);
+        } finally {
+            mSearchPath = null;
+        }
+        return solution;
     }
 
 
@@ -85,6 +109,12 @@ public class ReorderAlgorithm {
         // nothing in its way.
         int[] result = new int[2];
         result = mCellLayout.findNearestAreaIgnoreOccupied(pixelX, pixelY, spanX, spanY, result);
+        if (mSearchPath != null) {
+            mSearchPath.add(spanX);
+            mSearchPath.add(spanY);
+            mSearchPath.add(result[0]);
+            mSearchPath.add(result[1]);
+        }
 
         boolean success;
         // First we try the exact nearest position of the item being dragged,
@@ -188,7 +218,7 @@ public class ReorderAlgorithm {
         mCellLayout.mTmpOccupied.markCells(rectOccupiedByPotentialDrop, true);
 
         int[] tmpLocation = findNearestArea(c.cellX, c.cellY, c.spanX, c.spanY, direction,
-                mCellLayout.mTmpOccupied.cells, null, new int[2]);
+                mCellLayout.mTmpOccupied, null, new int[2]);
 
         if (tmpLocation[0] >= 0 && tmpLocation[1] >= 0) {
             c.cellX = tmpLocation[0];
@@ -371,7 +401,7 @@ public class ReorderAlgorithm {
 
         int[] tmpLocation = findNearestArea(boundingRect.left, boundingRect.top,
                 boundingRect.width(), boundingRect.height(), direction,
-                mCellLayout.mTmpOccupied.cells, blockOccupied.cells, new int[2]);
+                mCellLayout.mTmpOccupied, blockOccupied, new int[2]);
 
         // If we successfully found a location by pushing the block of views, we commit it
         if (tmpLocation[0] >= 0 && tmpLocation[1] >= 0) {
@@ -589,8 +619,8 @@ public class ReorderAlgorithm {
      * @param spanX         Horizontal span of the object.
      * @param spanY         Vertical span of the object.
      * @param direction     The favored direction in which the views should move from x, y
-     * @param occupied      The array which represents which cells in the CellLayout are occupied
-     * @param blockOccupied The array which represents which cells in the specified block (cellX,
+     * @param occupied      The grid which represents which cells in the CellLayout are occupied
+     * @param blockOccupied The grid which represents which cells in the specified block (cellX,
      *                      cellY, spanX, spanY) are occupied. This is used when try to move a group
      *                      of views.
      * @param result        Array in which to place the result, or null (in which case a new array
@@ -600,7 +630,7 @@ public class ReorderAlgorithm {
      * nearest the requested location.
      */
     public int[] findNearestArea(int cellX, int cellY, int spanX, int spanY, int[] direction,
-            boolean[][] occupied, boolean[][] blockOccupied, int[] result) {
+            GridOccupancy occupied, GridOccupancy blockOccupied, int[] result) {
         // Keep track of best-scoring drop area
         final int[] bestXY = result != null ? result : new int[2];
         float bestDistance = Float.MAX_VALUE;
@@ -610,16 +640,11 @@ public class ReorderAlgorithm {
         final int countY = mCellLayout.getCountY();
 
         for (int y = 0; y < countY - (spanY - 1); y++) {
-            inner:
             for (int x = 0; x < countX - (spanX - 1); x++) {
                 // First, let's see if this thing fits anywhere
-                for (int i = 0; i < spanX; i++) {
-                    for (int j = 0; j < spanY; j++) {
-                        if (occupied[x + i][y + j] && (blockOccupied == null
-                                || blockOccupied[i][j])) {
-                            continue inner;
-                        }
-                    }
+                if (blockOccupied == null ? !occupied.isRegionVacant(x, y, spanX, spanY)
+                        : !occupied.isRegionVacant(x, y, blockOccupied)) {
+                    continue;
                 }
 
                 float distance = (float) Math.hypot(x - cellX, y - cellY);
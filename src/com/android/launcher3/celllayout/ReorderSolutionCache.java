@@ -0,0 +1,272 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.celllayout;
+
+import android.view.View;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.android.launcher3.CellLayout;
+import com.android.launcher3.ShortcutAndWidgetContainer;
+import com.android.launcher3.util.CellAndSpan;
+import com.android.launcher3.util.GridOccupancy;
+import com.android.launcher3.util.IntArray;
+
+import java.util.ArrayList;
+
+/**
+ * Remembers the last results of {@link ReorderAlgorithm#findReorderSolution}, so that drag frames
+ * which end up searching for the same target cells with the same span and direction don't run
+ * the recursive search again.
+ *
+ * The results are only valid for the layout they were computed on: any change to the children,
+ * their position or the occupancy of the {@link CellLayout} clears the cache. Entries are
+ * recycled to avoid allocating on every drag frame.
+ */
+public class ReorderSolutionCache {
+
+    @VisibleForTesting
+    static final int MAX_ENTRIES = 8;
+
+    // Layout the cached entries were computed for
+    private final ArrayList<View> mChildren = new ArrayList<>();
+    private final IntArray mChildCells = new IntArray();
+    private GridOccupancy mOccupied;
+
+    // Most recently used first
+    private final ArrayList<Entry> mEntries = new ArrayList<>(MAX_ENTRIES);
+
+    private final int[] mTmpCell = new int[2];
+
+    /**
+     * Clears all the cached solutions.
+     */
+    public void clear() {
+        mEntries.forEach(Entry::recycle);
+        mChildren.clear();
+        mChildCells.clear();
+        mOccupied = null;
+    }
+
+    /**
+     * Copies a cached solution into {@code solution}, returning true if there was one.
+     *
+     * @param solution an empty configuration
+     */
+    boolean restore(ReorderAlgorithm algorithm, int pixelX, int pixelY, int minSpanX,
+            int minSpanY, int spanX, int spanY, int[] direction, View dragView, boolean decX,
+            ItemConfiguration solution) {
+        CellLayout cellLayout = algorithm.mCellLayout;
+        if (!syncLayout(cellLayout)) {
+            return false;
+        }
+        for (int i = 0; i < mEntries.size(); i++) {
+            Entry entry = mEntries.get(i);
+            if (entry.matches(minSpanX, minSpanY, spanX, spanY, direction, dragView, decX)
+                    && entry.matchesPath(cellLayout, pixelX, pixelY, mTmpCell)
+                    && entry.copyTo(cellLayout, direction, solution)) {
+                mEntries.remove(i);
+                mEntries.add(0, entry);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds the solution computed for the given arguments to the cache.
+     *
+     * @param path the target cell found for each span which was tried, as
+     *             (spanX, spanY, cellX, cellY) tuples
+     * @param directionIn the direction before the search, as it may be modified by the search
+     */
+    void save(CellLayout cellLayout, int minSpanX, int minSpanY, int spanX, int spanY,
+            int directionInX, int directionInY, int[] directionOut, View dragView, boolean decX,
+            IntArray path, ItemConfiguration solution) {
+        syncLayout(cellLayout);
+        Entry entry;
+        if (mEntries.size() < MAX_ENTRIES) {
+            entry = new Entry();
+        } else {
+            entry = mEntries.remove(mEntries.size() - 1);
+        }
+        entry.set(minSpanX, minSpanY, spanX, spanY, directionInX, directionInY, directionOut,
+                dragView, decX, path, solution, cellLayout.mTmpOccupied);
+        mEntries.add(0, entry);
+    }
+
+    /**
+     * Makes sure the cache is for the current layout, clearing it otherwise. Returns false if the
+     * cache was cleared.
+     */
+    private boolean syncLayout(CellLayout cellLayout) {
+        ShortcutAndWidgetContainer container = cellLayout.getShortcutsAndWidgets();
+        GridOccupancy occupied = cellLayout.getOccupied();
+        int childCount = container.getChildCount();
+        boolean matches = occupied.equals(mOccupied) && childCount == mChildren.size();
+        for (int i = 0; i < childCount && matches; i++) {
+            View child = container.getChildAt(i);
+            CellLayoutLayoutParams lp = (CellLayoutLayoutParams) child.getLayoutParams();
+            matches = child == mChildren.get(i)
+                    && lp.getCellX() == mChildCells.get(i * 4)
+                    && lp.getCellY() == mChildCells.get(i * 4 + 1)
+                    && lp.cellHSpan == mChildCells.get(i * 4 + 2)
+                    && lp.cellVSpan == mChildCells.get(i * 4 + 3);
+        }
+        if (matches) {
+            return true;
+        }
+
+        clear();
+        for (int i = 0; i < childCount; i++) {
+            View child = container.getChildAt(i);
+            CellLayoutLayoutParams lp = (CellLayoutLayoutParams) child.getLayoutParams();
+            mChildren.add(child);
+            mChildCells.add(lp.getCellX());
+            mChildCells.add(lp.getCellY());
+            mChildCells.add(lp.cellHSpan);
+            mChildCells.add(lp.cellVSpan);
+        }
+        mOccupied = copyOf(occupied, null);
+        return false;
+    }
+
+    private static GridOccupancy copyOf(GridOccupancy src, GridOccupancy reuse) {
+        GridOccupancy dest = reuse != null && reuse.getCountX() == src.getCountX()
+                && reuse.getCountY() == src.getCountY()
+                ? reuse : new GridOccupancy(src.getCountX(), src.getCountY());
+        src.copyTo(dest);
+        return dest;
+    }
+
+    private static class Entry {
+
+        // Key
+        int minSpanX, minSpanY, spanX, spanY;
+        int directionInX, directionInY;
+        View dragView;
+        boolean decX;
+        final IntArray path = new IntArray();
+
+        // Solution
+        boolean isSolution;
+        int cellX, cellY, solutionSpanX, solutionSpanY;
+        int directionOutX, directionOutY;
+        final ArrayList<View> views = new ArrayList<>();
+        final IntArray cells = new IntArray();
+        final ArrayList<View> intersectingViews = new ArrayList<>();
+        GridOccupancy tmpOccupied;
+
+        void set(int minSpanX, int minSpanY, int spanX, int spanY, int directionInX,
+                int directionInY, int[] directionOut, View dragView, boolean decX,
+                IntArray path, ItemConfiguration solution, GridOccupancy tmpOccupied) {
+            recycle();
+            this.minSpanX = minSpanX;
+            this.minSpanY = minSpanY;
+            this.spanX = spanX;
+            this.spanY = spanY;
+            this.directionInX = directionInX;
+            this.directionInY = directionInY;
+            this.dragView = dragView;
+            this.decX = decX;
+            this.path.addAll(path);
+
+            isSolution = solution.isSolution;
+            cellX = solution.cellX;
+            cellY = solution.cellY;
+            solutionSpanX = solution.spanX;
+            solutionSpanY = solution.spanY;
+            directionOutX = directionOut[0];
+            directionOutY = directionOut[1];
+            for (int i = 0; i < solution.map.size(); i++) {
+                CellAndSpan c = solution.map.valueAt(i);
+                views.add(solution.map.keyAt(i));
+                cells.add(c.cellX);
+                cells.add(c.cellY);
+                cells.add(c.spanX);
+                cells.add(c.spanY);
+            }
+            intersectingViews.addAll(solution.intersectingViews);
+            this.tmpOccupied = copyOf(tmpOccupied, this.tmpOccupied);
+        }
+
+        void recycle() {
+            dragView = null;
+            path.clear();
+            views.clear();
+            cells.clear();
+            intersectingViews.clear();
+        }
+
+        boolean matches(int minSpanX, int minSpanY, int spanX, int spanY, int[] direction,
+                View dragView, boolean decX) {
+            return this.minSpanX == minSpanX && this.minSpanY == minSpanY
+                    && this.spanX == spanX && this.spanY == spanY
+                    && directionInX == direction[0] && directionInY == direction[1]
+                    && this.dragView == dragView && this.decX == decX && !path.isEmpty();
+        }
+
+        /**
+         * Returns true if the search would try the same target cells for the given position.
+         */
+        boolean matchesPath(CellLayout cellLayout, int pixelX, int pixelY, int[] tmpCell) {
+            for (int i = 0; i < path.size(); i += 4) {
+                cellLayout.findNearestAreaIgnoreOccupied(pixelX, pixelY, path.get(i),
+                        path.get(i + 1), tmpCell);
+                if (tmpCell[0] != path.get(i + 2) || tmpCell[1] != path.get(i + 3)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean copyTo(CellLayout cellLayout, int[] direction, ItemConfiguration solution) {
+            GridOccupancy target = cellLayout.mTmpOccupied;
+            if (target.getCountX() != tmpOccupied.getCountX()
+                    || target.getCountY() != tmpOccupied.getCountY()) {
+                return false;
+            }
+            cellLayout.copyCurrentStateToSolution(solution);
+            if (solution.map.size() != views.size()) {
+                solution.map.clear();
+                solution.sortedViews.clear();
+                return false;
+            }
+            for (int i = 0; i < views.size(); i++) {
+                CellAndSpan c = solution.map.get(views.get(i));
+                if (c == null) {
+                    solution.map.clear();
+                    solution.sortedViews.clear();
+                    return false;
+                }
+                c.cellX = cells.get(i * 4);
+                c.cellY = cells.get(i * 4 + 1);
+                c.spanX = cells.get(i * 4 + 2);
+                c.spanY = cells.get(i * 4 + 3);
+            }
+            solution.intersectingViews = new ArrayList<>(intersectingViews);
+            solution.isSolution = isSolution;
+            solution.cellX = cellX;
+            solution.cellY = cellY;
+            solution.spanX = solutionSpanX;
+            solution.spanY = solutionSpanY;
+            direction[0] = directionOutX;
+            direction[1] = directionOutY;
+            tmpOccupied.copyTo(target);
+            return true;
+        }
+    }
+}
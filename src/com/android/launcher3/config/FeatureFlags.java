@@ -490,7 +490,98 @@ public final class FeatureFlags {
             "ALL_APPS_GONE_VISIBILITY", TEAMFOOD,
             "Set all apps container view's hidden visibility to GONE instead of INVISIBLE.");
 
-    // TODO(Block 34): Empty block
+    // The flags of the blocks below don't have a tracking bug yet, hence their bug id of 0.
+    // TODO(Block 34): Loader and binding performance
+    public static final BooleanFlag ENABLE_PARALLEL_LOADER_PREFETCH = getDebugFlag(0,
+            "ENABLE_PARALLEL_LOADER_PREFETCH", DISABLED,
+            "Prefetches all apps, deep shortcuts and widget providers in parallel while the "
+                    + "workspace is loading, binding them in the usual order.");
+
+    public static final BooleanFlag ENABLE_MODEL_SNAPSHOT = getDebugFlag(0,
+            "ENABLE_MODEL_SNAPSHOT", DISABLED,
+            "Binds a snapshot of the first workspace pages saved by the previous process while "
+                    + "the workspace is loading from the database.");
+
+    public static final BooleanFlag ENABLE_BATCHED_MODEL_WRITES = getDebugFlag(0,
+            "ENABLE_BATCHED_MODEL_WRITES", DISABLED,
+            "Coalesces item updates made from the UI in a short window and writes them to the "
+                    + "database in a single transaction.");
+
+    // TODO(Block 35): Workspace reorder performance
+    public static final BooleanFlag ENABLE_REORDER_SOLUTION_CACHE = getDebugFlag(0,
+            "ENABLE_REORDER_SOLUTION_CACHE", DISABLED,
+            "Reuses the reorder solution found on a previous drag frame when the target cells, "
+                    + "span and direction have not changed.");
+
+    // TODO(Block 36): Icon pack performance
+    public static final BooleanFlag ENABLE_BULK_ICON_RELOAD = getDebugFlag(0,
+            "ENABLE_BULK_ICON_RELOAD", DISABLED,
+            "Regenerates the icons of all apps affected by an icon pack change in a single pass "
+                    + "and binds them at once, instead of reloading them package by package.");
+
+    // TODO(Block 37): Overview performance
+    public static final BooleanFlag ENABLE_THUMBNAIL_BYTE_BUDGET = getDebugFlag(0,
+            "ENABLE_THUMBNAIL_BYTE_BUDGET", DISABLED,
+            "Bounds the Overview thumbnail cache by the memory used by the thumbnails, "
+                    + "downgrading high-res thumbnails to low-res before evicting them.");
+
+    public static final BooleanFlag ENABLE_OVERVIEW_FLING_PREFETCH = getDebugFlag(0,
+            "ENABLE_OVERVIEW_FLING_PREFETCH", DISABLED,
+            "Loads the thumbnails and icons of the tasks a fling in Overview is going to land on "
+                    + "while it is still scrolling.");
+
+    public static final BooleanFlag ENABLE_CONCURRENT_TASK_KEY_CACHE = getDebugFlag(0,
+            "ENABLE_CONCURRENT_TASK_KEY_CACHE", DISABLED,
+            "Uses an approximate LRU cache which doesn't block readers for the Overview task "
+                    + "icons and thumbnails.");
+
+    public static final BooleanFlag ENABLE_INCREMENTAL_RECENT_TASKS = getDebugFlag(0,
+            "ENABLE_INCREMENTAL_RECENT_TASKS", DISABLED,
+            "Diffs reloaded recent tasks against the previous list, so that Overview only removes "
+                    + "the TaskViews of removed tasks instead of rebinding all of them.");
+
+    public static final BooleanFlag ENABLE_TASK_VIEW_POOL_WARMER = getDebugFlag(0,
+            "ENABLE_TASK_VIEW_POOL_WARMER", DISABLED,
+            "Inflates the Overview task views in the background when idle, based on the number "
+                    + "of recent tasks of each type seen last time.");
+
+    public static final BooleanFlag ENABLE_PERSISTENT_TASK_ICON_CACHE = getDebugFlag(0,
+            "ENABLE_PERSISTENT_TASK_ICON_CACHE", DISABLED,
+            "Persists the Overview task icons and content descriptions, so that they are not "
+                    + "computed again after the launcher restarts.");
+
+    public static final BooleanFlag ENABLE_BATCHED_SURFACE_TRANSACTIONS = getDebugFlag(0,
+            "ENABLE_BATCHED_SURFACE_TRANSACTIONS", DISABLED,
+            "Merges the surface transactions of all the remote targets into one transaction per "
+                    + "frame, skipping the surface properties which didn't change.");
+
+    public static final BooleanFlag ENABLE_GROUPED_THUMBNAIL_LOADING = getDebugFlag(0,
+            "ENABLE_GROUPED_THUMBNAIL_LOADING", DISABLED,
+            "Loads the thumbnails of split pairs and desktop tasks in one request, showing them "
+                    + "all at once.");
+
+    // TODO(Block 38): Widget performance
+    public static final BooleanFlag ENABLE_WIDGET_PREVIEW_CACHE = getDebugFlag(0,
+            "ENABLE_WIDGET_PREVIEW_CACHE", DISABLED,
+            "Keeps the widget picker previews in memory and on disk, so that they are not "
+                    + "generated again each time the picker opens.");
+
+    public static final BooleanFlag ENABLE_PARALLEL_WIDGET_PREVIEWS = getDebugFlag(0,
+            "ENABLE_PARALLEL_WIDGET_PREVIEWS", DISABLED,
+            "Generates the widget picker previews in parallel, visible rows first, dropping the "
+                    + "previews scrolled out of view.");
+
+    public static final BooleanFlag ENABLE_BOUNDED_REMOTE_VIEWS_CACHE = getDebugFlag(0,
+            "ENABLE_BOUNDED_REMOTE_VIEWS_CACHE", DISABLED,
+            "Bounds the RemoteViews cached for the widgets by their estimated size, evicting the "
+                    + "least recently used ones and trimming them on low memory.");
+
+    public static final BooleanFlag ENABLE_DEFERRED_WIDGET_INFLATION = getDebugFlag(0,
+            "ENABLE_DEFERRED_WIDGET_INFLATION", DISABLED,
+            "Binds the widgets away from the current page as placeholders, inflating them when "
+                    + "idle or when the workspace moves towards their page.");
+
+    // TODO(Block 39): Empty block
     // Please only add flags to your assigned block. If you do not have a block:
     // 1. Assign yourself this block
     // 2. Add your flag to this block
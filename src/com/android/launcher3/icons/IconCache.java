@@ -71,6 +71,7 @@ import com.android.launcher3.widget.WidgetSections;
 import com.android.launcher3.widget.WidgetSections.WidgetSection;
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -160,6 +161,34 @@ public class IconCache extends BaseIconCache {
         }
     }
 
+    /**
+     * Regenerates the entries of {@param apps}, which all belong to {@param user}, in memory and
+     * persistent DB in a single pass. Unlike {@link #updateIconsForPkg}, the entries are replaced
+     * in place, so the other components of the packages are left untouched.
+     */
+    public synchronized void updateIconsForComponents(@NonNull final UserHandle user,
+            @NonNull final List<LauncherActivityInfo> apps) {
+        long userSerial = mUserManager.getSerialNumberForUser(user);
+        Map<String, PackageInfo> packageInfos = new HashMap<>();
+        for (LauncherActivityInfo app : apps) {
+            String packageName = app.getComponentName().getPackageName();
+            PackageInfo info = packageInfos.get(packageName);
+            if (info == null && !packageInfos.containsKey(packageName)) {
+                try {
+                    info = mPackageManager.getPackageInfo(packageName,
+                            PackageManager.GET_UNINSTALLED_PACKAGES);
+                } catch (NameNotFoundException e) {
+                    Log.d(TAG, "Package not found", e);
+                }
+                packageInfos.put(packageName, info);
+            }
+            if (info != null) {
+                addIconToDBAndMemCache(app, mLauncherActivityInfoCachingLogic, info, userSerial,
+                        true /*replace existing*/);
+            }
+        }
+    }
+
     /**
      * Closes the cache DB. This will clear any in-memory cache.
      */
@@ -36,4 +36,11 @@ public class ThirdPartyIconProvider extends LauncherIconProvider {
         icon.setChangingConfigurations(icon.getChangingConfigurations() | CONFIG_HINT_NO_WRAP);
         return icon;
     }
+
+    /**
+     * Returns the icon of {@param launcherActivityInfo} without any icon pack applied.
+     */
+    public Drawable getDefaultIcon(LauncherActivityInfo launcherActivityInfo, int iconDpi) {
+        return super.getIcon(launcherActivityInfo, iconDpi);
+    }
 }
@@ -1,7 +1,9 @@
 package com.android.launcher3.icons.pack;
 
 import android.content.ComponentName;
+import android.content.Context;
 import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
 import android.content.res.Resources;
 import android.util.SparseArray;
@@ -22,6 +24,7 @@ class IconPack {
     private final CharSequence mPackageLabel;
     private Data mData;
     private Resources mRes;
+    private IconPackCompositor mCompositor;
 
     IconPack(ApplicationInfo ai, CharSequence label) {
         mAi = ai;
@@ -40,20 +43,38 @@ class IconPack {
         return mPackageLabel;
     }
 
-    Data getData(PackageManager pm)
+    synchronized Data getData(Context context)
             throws PackageManager.NameNotFoundException, XmlPullParserException, IOException {
         if (mData == null) {
-            mData = IconPackParser.parsePackage(pm, getResources(pm), getPackage());
+            PackageManager pm = context.getPackageManager();
+            PackageInfo info = pm.getPackageInfo(getPackage(), 0);
+            Data data = IconPackIndex.read(context, info);
+            if (data == null) {
+                Resources res = getResources(pm);
+                data = IconPackParser.parsePackage(pm, res, getPackage());
+                data.resolveDrawableIds(res, getPackage());
+                IconPackIndex.write(context, info, data);
+            }
+            mData = data;
         }
         return mData;
     }
 
-    int getDrawableId(PackageManager pm, ComponentName name)
+    int getDrawableId(Context context, ComponentName name)
             throws PackageManager.NameNotFoundException, IOException, XmlPullParserException {
-        Data data = getData(pm);
-        Resources res = getResources(pm);
-        String pkg = getPackage();
-        return res.getIdentifier(data.drawables.get(name), "drawable", pkg);
+        Integer drawableId = getData(context).drawableIds.get(name);
+        return drawableId == null ? 0 : drawableId;
+    }
+
+    /**
+     * Returns the compositor applying the masking layers of this pack, shared by all its icons.
+     */
+    synchronized IconPackCompositor getCompositor(Context context)
+            throws PackageManager.NameNotFoundException, IOException, XmlPullParserException {
+        if (mCompositor == null) {
+            mCompositor = new IconPackCompositor(context, getData(context), mAi);
+        }
+        return mCompositor;
     }
 
     private Resources getResources(PackageManager pm) throws PackageManager.NameNotFoundException {
@@ -64,7 +85,9 @@ class IconPack {
     }
 
     static class Data {
+        // Drawable names as declared in the appfilter, only set while parsing the XML.
         final Map<ComponentName, String> drawables = new HashMap<>();
+        final Map<ComponentName, Integer> drawableIds = new HashMap<>();
         final Map<ComponentName, String> calendarPrefix = new HashMap<>();
         final SparseArray<Clock> clockMetadata = new SparseArray<>();
         final List<Integer> iconBacks = new ArrayList<>();
@@ -72,6 +95,17 @@ class IconPack {
         final List<Integer> iconUpons = new ArrayList<>();
         float scale = 1f;
 
+        /**
+         * Resolves all parsed drawable names to resource ids, which is what gets indexed.
+         */
+        void resolveDrawableIds(Resources res, String pkg) {
+            for (Map.Entry<ComponentName, String> entry : drawables.entrySet()) {
+                drawableIds.put(entry.getKey(),
+                        res.getIdentifier(entry.getValue(), "drawable", pkg));
+            }
+            drawables.clear();
+        }
+
         boolean hasMasking() {
             return !iconBacks.isEmpty() || !iconMasks.isEmpty() || !iconUpons.isEmpty();
         }
@@ -0,0 +1,216 @@
+package com.android.launcher3.icons.pack;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
+import android.graphics.Xfermode;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+
+import com.android.launcher3.icons.BaseIconFactory;
+import com.android.launcher3.icons.LauncherIcons;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Composites icons with the back, mask and upon layers of an icon pack.
+ *
+ * The layers are rendered once per drawable, density and icon size and then reused for every
+ * icon, and the scratch bitmap used to apply the pack scale is taken from a small pool. A single
+ * compositor is shared by all resolvers of a pack and can be used from several threads at once.
+ */
+class IconPackCompositor {
+
+    private static final Xfermode MODE_MASK = new PorterDuffXfermode(PorterDuff.Mode.DST_OUT);
+    private static final Xfermode MODE_BACK = new PorterDuffXfermode(PorterDuff.Mode.DST_OVER);
+    private static final Xfermode MODE_UPON = new PorterDuffXfermode(PorterDuff.Mode.SRC_ATOP);
+
+    private static final int MAX_POOLED_BITMAPS = 4;
+
+    // Marks a layer which could not be loaded, as the map can't hold nulls
+    private static final Bitmap NO_LAYER = Bitmap.createBitmap(1, 1, Bitmap.Config.ALPHA_8);
+
+    private final Context mContext;
+    private final IconPack.Data mData;
+    private final ApplicationInfo mPackInfo;
+
+    private final Map<LayerKey, Bitmap> mLayers = new HashMap<>();
+    private final List<Bitmap> mScratchPool = new ArrayList<>();
+    private volatile Resources mRes;
+
+    IconPackCompositor(Context context, IconPack.Data data, ApplicationInfo packInfo) {
+        mContext = context;
+        mData = data;
+        mPackInfo = packInfo;
+    }
+
+    /**
+     * Returns {@code icon} composited with the layers picked by {@code hashCode}.
+     */
+    Drawable compose(Drawable icon, int hashCode, int iconDpi)
+            throws PackageManager.NameNotFoundException {
+        Resources res = getResources();
+        LauncherIcons li = LauncherIcons.obtain(mContext);
+        try {
+            // Re-render without scaling after creating the bitmap in the right dimensions.
+            Bitmap iconBm = li.createScaledBitmap(icon, BaseIconFactory.MODE_WITH_SHADOW);
+            int width = iconBm.getWidth();
+            int height = iconBm.getHeight();
+            Canvas canvas = new Canvas(iconBm);
+            icon.setBounds(0, 0, width, height);
+            icon.draw(canvas);
+
+            // Scale the bitmap using the icon pack scale.
+            if (mData.scale != 1f) {
+                scaleBitmap(canvas, iconBm, mData.scale);
+            }
+
+            Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+
+            // Cut parts off using the mask image.
+            drawLayer(canvas, paint, MODE_MASK, res, mData.iconMasks, hashCode, iconDpi,
+                    width, height);
+
+            // Add icon back after scaling.
+            drawLayer(canvas, paint, MODE_BACK, res, mData.iconBacks, hashCode, iconDpi,
+                    width, height);
+
+            // Render upon image onto icon. We use SRC_ATOP to make sure it stays within bounds.
+            drawLayer(canvas, paint, MODE_UPON, res, mData.iconUpons, hashCode, iconDpi,
+                    width, height);
+
+            return new BitmapDrawable(mContext.getResources(), iconBm);
+        } finally {
+            li.recycle();
+        }
+    }
+
+    private void scaleBitmap(Canvas canvas, Bitmap bitmap, float scale) {
+        Bitmap scratch = obtainScratch(bitmap.getWidth(), bitmap.getHeight());
+        new Canvas(scratch).drawBitmap(bitmap, 0f, 0f, null);
+
+        float move = 0.5f * (1f - scale);
+        Matrix matrix = new Matrix();
+        matrix.setScale(scale, scale);
+        matrix.postTranslate(move * bitmap.getWidth(), move * bitmap.getHeight());
+
+        bitmap.eraseColor(Color.TRANSPARENT);
+        canvas.drawBitmap(scratch, matrix, new Paint(Paint.FILTER_BITMAP_FLAG));
+        recycleScratch(scratch);
+    }
+
+    private void drawLayer(Canvas canvas, Paint paint, Xfermode mode, Resources res,
+            List<Integer> layers, int hashCode, int iconDpi, int width, int height) {
+        if (layers.isEmpty()) {
+            return;
+        }
+        Bitmap layer = getLayer(res, layers.get(hashCode % layers.size()), iconDpi, width, height);
+        if (layer != null) {
+            paint.setXfermode(mode);
+            canvas.drawBitmap(layer, 0f, 0f, paint);
+        }
+    }
+
+    private Bitmap getLayer(Resources res, int drawableId, int iconDpi, int width, int height) {
+        LayerKey key = new LayerKey(drawableId, iconDpi, width, height);
+        synchronized (mLayers) {
+            Bitmap layer = mLayers.get(key);
+            if (layer != null) {
+                return layer == NO_LAYER ? null : layer;
+            }
+        }
+
+        // Rendered outside of the lock, in the rare case two threads race the first one wins.
+        Bitmap layer = NO_LAYER;
+        try {
+            Drawable drawable = res.getDrawableForDensity(drawableId, iconDpi, null);
+            if (drawable != null) {
+                layer = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+                drawable.setBounds(0, 0, width, height);
+                drawable.draw(new Canvas(layer));
+                layer.prepareToDraw();
+            }
+        } catch (Resources.NotFoundException e) {
+            e.printStackTrace();
+        }
+        synchronized (mLayers) {
+            Bitmap existing = mLayers.putIfAbsent(key, layer);
+            if (existing != null) {
+                layer = existing;
+            }
+        }
+        return layer == NO_LAYER ? null : layer;
+    }
+
+    private Bitmap obtainScratch(int width, int height) {
+        synchronized (mScratchPool) {
+            for (int i = mScratchPool.size() - 1; i >= 0; i--) {
+                Bitmap bitmap = mScratchPool.get(i);
+                if (bitmap.getWidth() == width && bitmap.getHeight() == height) {
+                    mScratchPool.remove(i);
+                    bitmap.eraseColor(Color.TRANSPARENT);
+                    return bitmap;
+                }
+            }
+        }
+        return Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    }
+
+    private void recycleScratch(Bitmap bitmap) {
+        synchronized (mScratchPool) {
+            if (mScratchPool.size() < MAX_POOLED_BITMAPS) {
+                mScratchPool.add(bitmap);
+                return;
+            }
+        }
+        bitmap.recycle();
+    }
+
+    private Resources getResources() throws PackageManager.NameNotFoundException {
+        if (mRes == null) {
+            mRes = mContext.getPackageManager().getResourcesForApplication(mPackInfo);
+        }
+        return mRes;
+    }
+
+    private static class LayerKey {
+        final int drawableId;
+        final int iconDpi;
+        final int width;
+        final int height;
+
+        LayerKey(int drawableId, int iconDpi, int width, int height) {
+            this.drawableId = drawableId;
+            this.iconDpi = iconDpi;
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof LayerKey)) {
+                return false;
+            }
+            LayerKey other = (LayerKey) o;
+            return drawableId == other.drawableId && iconDpi == other.iconDpi
+                    && width == other.width && height == other.height;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(drawableId, iconDpi, width, height);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.android.launcher3.icons.pack;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.util.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persistent binary index of a parsed icon pack, so the appfilter XML does not have to be
+ * parsed and every drawable name resolved through {@code Resources#getIdentifier} again on
+ * each cold start. The index is keyed by the pack's versionCode and lastUpdateTime; any
+ * mismatch makes it stale and it is rebuilt from the XML.
+ */
+class IconPackIndex {
+    private static final String TAG = "IconPackIndex";
+
+    private static final String DIR_NAME = "icon_pack_index";
+    private static final int MAGIC = 0x49504958; // "IPIX"
+    private static final int FORMAT_VERSION = 1;
+
+    private IconPackIndex() { }
+
+    /**
+     * Returns the indexed data of the pack, or null if there is no index matching the
+     * installed version of the pack.
+     */
+    static IconPack.Data read(Context context, PackageInfo info) {
+        File file = getFile(context, info.packageName);
+        if (!file.exists()) {
+            return null;
+        }
+        try (FileInputStream in = new FileInputStream(file);
+             FileChannel channel = in.getChannel()) {
+            ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buf.getInt() != MAGIC
+                    || buf.getInt() != FORMAT_VERSION
+                    || buf.getLong() != info.getLongVersionCode()
+                    || buf.getLong() != info.lastUpdateTime) {
+                return null;
+            }
+
+            IconPack.Data data = new IconPack.Data();
+            data.scale = buf.getFloat();
+
+            String[] packages = new String[buf.getInt()];
+            for (int i = 0; i < packages.length; i++) {
+                packages[i] = readString(buf);
+            }
+
+            int count = buf.getInt();
+            for (int i = 0; i < count; i++) {
+                ComponentName cn = readComponent(buf, packages);
+                data.drawableIds.put(cn, buf.getInt());
+            }
+
+            count = buf.getInt();
+            for (int i = 0; i < count; i++) {
+                ComponentName cn = readComponent(buf, packages);
+                data.calendarPrefix.put(cn, readString(buf));
+            }
+
+            count = buf.getInt();
+            for (int i = 0; i < count; i++) {
+                int drawableId = buf.getInt();
+                data.clockMetadata.put(drawableId, new IconPack.Clock(buf.getInt(),
+                        buf.getInt(), buf.getInt(), buf.getInt(), buf.getInt(), buf.getInt()));
+            }
+
+            readIds(buf, data.iconBacks);
+            readIds(buf, data.iconMasks);
+            readIds(buf, data.iconUpons);
+            return data;
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Discarding unreadable index for " + info.packageName, e);
+            file.delete();
+            return null;
+        }
+    }
+
+    /**
+     * Writes the data of the pack to disk, replacing any existing index.
+     * All drawables in {@link IconPack.Data#drawableIds} must already be resolved.
+     */
+    static void write(Context context, PackageInfo info, IconPack.Data data) {
+        File file = getFile(context, info.packageName);
+        File tmp = new File(file.getPath() + ".tmp");
+        file.getParentFile().mkdirs();
+
+        // Component package names are heavily repeated, so they are written once.
+        Map<String, Integer> packages = new HashMap<>();
+        List<String> packageList = new ArrayList<>();
+        for (ComponentName cn : data.drawableIds.keySet()) {
+            addPackage(cn, packages, packageList);
+        }
+        for (ComponentName cn : data.calendarPrefix.keySet()) {
+            addPackage(cn, packages, packageList);
+        }
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(info.getLongVersionCode());
+            out.writeLong(info.lastUpdateTime);
+            out.writeFloat(data.scale);
+
+            out.writeInt(packageList.size());
+            for (String pkg : packageList) {
+                writeString(out, pkg);
+            }
+
+            out.writeInt(data.drawableIds.size());
+            for (Map.Entry<ComponentName, Integer> entry : data.drawableIds.entrySet()) {
+                writeComponent(out, entry.getKey(), packages);
+                out.writeInt(entry.getValue());
+            }
+
+            out.writeInt(data.calendarPrefix.size());
+            for (Map.Entry<ComponentName, String> entry : data.calendarPrefix.entrySet()) {
+                writeComponent(out, entry.getKey(), packages);
+                writeString(out, entry.getValue());
+            }
+
+            out.writeInt(data.clockMetadata.size());
+            for (int i = 0; i < data.clockMetadata.size(); i++) {
+                IconPack.Clock clock = data.clockMetadata.valueAt(i);
+                out.writeInt(data.clockMetadata.keyAt(i));
+                out.writeInt(clock.hourLayerIndex);
+                out.writeInt(clock.minuteLayerIndex);
+                out.writeInt(clock.secondLayerIndex);
+                out.writeInt(clock.defaultHour);
+                out.writeInt(clock.defaultMinute);
+                out.writeInt(clock.defaultSecond);
+            }
+
+            writeIds(out, data.iconBacks);
+            writeIds(out, data.iconMasks);
+            writeIds(out, data.iconUpons);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write index for " + info.packageName, e);
+            tmp.delete();
+            return;
+        }
+
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+        }
+    }
+
+    /**
+     * Removes the index of the given package, if there is one.
+     */
+    static void invalidate(Context context, String pkg) {
+        getFile(context, pkg).delete();
+    }
+
+    private static File getFile(Context context, String pkg) {
+        return new File(new File(context.getCacheDir(), DIR_NAME), pkg);
+    }
+
+    private static void addPackage(ComponentName cn, Map<String, Integer> packages,
+                                   List<String> packageList) {
+        if (!packages.containsKey(cn.getPackageName())) {
+            packages.put(cn.getPackageName(), packageList.size());
+            packageList.add(cn.getPackageName());
+        }
+    }
+
+    private static void writeComponent(DataOutputStream out, ComponentName cn,
+                                       Map<String, Integer> packages) throws IOException {
+        out.writeInt(packages.get(cn.getPackageName()));
+        writeString(out, cn.getClassName());
+    }
+
+    private static ComponentName readComponent(ByteBuffer buf, String[] packages) {
+        String pkg = packages[buf.getInt()];
+        return new ComponentName(pkg, readString(buf));
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buf) {
+        byte[] bytes = new byte[buf.getInt()];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeIds(DataOutputStream out, List<Integer> ids) throws IOException {
+        out.writeInt(ids.size());
+        for (int id : ids) {
+            out.writeInt(id);
+        }
+    }
+
+    private static void readIds(ByteBuffer buf, List<Integer> ids) {
+        int count = buf.getInt();
+        for (int i = 0; i < count; i++) {
+            ids.add(buf.getInt());
+        }
+    }
+}
@@ -6,23 +6,37 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
 import android.content.pm.ApplicationInfo;
+import android.content.pm.LauncherActivityInfo;
 import android.content.pm.PackageManager;
 import android.content.pm.ResolveInfo;
+import android.graphics.drawable.Drawable;
 import android.os.Handler;
 import android.util.Log;
 
+import androidx.annotation.WorkerThread;
+
 import static com.android.launcher3.util.Executors.MODEL_EXECUTOR;
+import static com.android.launcher3.util.Executors.THREAD_POOL_EXECUTOR;
 
+import com.android.launcher3.LauncherAppState;
 import com.android.launcher3.LauncherModel;
+import com.android.launcher3.icons.IconProvider;
+import com.android.launcher3.icons.ThirdPartyIconProvider;
 import com.android.launcher3.util.ComponentKey;
+import com.android.launcher3.util.SafeCloseable;
 
 import org.xmlpull.v1.XmlPullParserException;
 
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 import com.android.launcher3.customization.IconDatabase;
 import com.android.launcher3.util.AppReloader;
@@ -61,6 +75,9 @@ public class IconPackManager extends BroadcastReceiver {
     private final Map<String, IconPack> mProviders = new HashMap<>();
     private final Handler mHandler = new Handler(MODEL_EXECUTOR.getLooper());
 
+    // Masked icons being composited ahead of a reload, see #precomposeIcons
+    private volatile PrecomposedIcons mPrecomposedIcons;
+
     private IconPackManager(Context context) {
         mContext = context;
         reloadProviders();
@@ -88,8 +105,10 @@ public class IconPackManager extends BroadcastReceiver {
                 // either through the global setting or with an override.
                 Set<ComponentKey> updateKeys = appReloader.withIconPack(pkg);
 
-                // Remove the changed package from the providers to reload the application info.
+                // Remove the changed package from the providers to reload the application info,
+                // and drop its index so the appfilter is parsed again.
                 mProviders.remove(pkg);
+                IconPackIndex.invalidate(mContext, pkg);
 
                 // This can reset the global preference, so do this after creating the list.
                 reloadProviders();
@@ -153,8 +172,8 @@ public class IconPackManager extends BroadcastReceiver {
     public boolean packContainsActivity(String packPackage, ComponentName componentName) {
         try {
             IconPack pack = mProviders.get(packPackage);
-            IconPack.Data data = pack.getData(mContext.getPackageManager());
-            return data.drawables.containsKey(componentName);
+            IconPack.Data data = pack.getData(mContext);
+            return data.drawableIds.containsKey(componentName);
         } catch (PackageManager.NameNotFoundException | XmlPullParserException | IOException ignored) {
             return false;
         }
@@ -173,9 +192,9 @@ public class IconPackManager extends BroadcastReceiver {
             // The icon provider package is available.
             try {
                 IconPack pack = mProviders.get(packPackage);
-                IconPack.Data data = pack.getData(mContext.getPackageManager());
-                if (data.drawables.containsKey(key.componentName)) {
-                    int drawableId = pack.getDrawableId(mContext.getPackageManager(), key.componentName);
+                IconPack.Data data = pack.getData(mContext);
+                if (data.drawableIds.containsKey(key.componentName)) {
+                    int drawableId = pack.getDrawableId(mContext, key.componentName);
                     if (drawableId != 0) {
                         return new IconResolverExternal(mContext.getPackageManager(), pack.getAi(),
                                 drawableId,
@@ -184,7 +203,7 @@ public class IconPackManager extends BroadcastReceiver {
                     }
                 }
                 if (data.hasMasking()) {
-                    return new IconResolverMasked(mContext, data, pack.getAi(), key.hashCode());
+                    return new IconResolverMasked(this, pack.getCompositor(mContext), key);
                 }
             } catch (PackageManager.NameNotFoundException | XmlPullParserException | IOException ignored) {
             }
@@ -194,4 +213,92 @@ public class IconPackManager extends BroadcastReceiver {
         }
         return null;
     }
+
+    /**
+     * Starts compositing the masked icons of {@code infos} in parallel, so that regenerating their
+     * icons one by one on the model thread afterwards mostly picks up the results. Each icon is
+     * handed to the first resolver asking for it at {@code iconDpi}, which composites it on its
+     * own thread if no worker has started it yet, so the caller never waits on the whole set.
+     * Components which get their icon directly from an icon pack are left alone as they don't
+     * need compositing.
+     *
+     * @return a handle dropping the icons which were not picked up once closed.
+     */
+    @WorkerThread
+    public SafeCloseable precomposeIcons(List<LauncherActivityInfo> infos, int iconDpi) {
+        IconProvider iconProvider = LauncherAppState.getInstance(mContext).getIconProvider();
+        PrecomposedIcons icons = new PrecomposedIcons(iconDpi);
+        for (LauncherActivityInfo info : infos) {
+            ComponentKey key = new ComponentKey(info.getComponentName(), info.getUser());
+            IconResolver resolver = resolve(key);
+            if (!(resolver instanceof IconResolverMasked)) {
+                continue;
+            }
+            // Don't go through the icon provider, as it would resolve the same precomposed icon.
+            IconResolver.DefaultDrawableProvider fallback =
+                    iconProvider instanceof ThirdPartyIconProvider
+                            ? () -> ((ThirdPartyIconProvider) iconProvider)
+                                    .getDefaultIcon(info, iconDpi)
+                            : () -> iconProvider.getIcon(info, iconDpi);
+            icons.tasks.put(key, new FutureTask<>(
+                    () -> ((IconResolverMasked) resolver).compose(iconDpi, fallback)));
+        }
+        if (icons.tasks.size() < 2) {
+            return () -> { };
+        }
+        mPrecomposedIcons = icons;
+        for (FutureTask<Drawable> task : icons.tasks.values()) {
+            THREAD_POOL_EXECUTOR.execute(task);
+        }
+        return icons;
+    }
+
+    /**
+     * Returns the precomposed icon of {@code key}, waiting for it to be composited if a worker is
+     * already at it, or null if there is none at {@code iconDpi}.
+     */
+    Drawable takePrecomposedIcon(ComponentKey key, int iconDpi) {
+        PrecomposedIcons icons = mPrecomposedIcons;
+        if (icons == null || icons.iconDpi != iconDpi) {
+            return null;
+        }
+        FutureTask<Drawable> task = icons.tasks.remove(key);
+        if (task == null) {
+            return null;
+        }
+        // Composite it on this thread if no worker has picked it up yet, this is a no-op otherwise.
+        task.run();
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | CancellationException e) {
+            Log.w(TAG, "Failed to precompose icon of " + key, e);
+        }
+        return null;
+    }
+
+    /**
+     * Masked icons being composited ahead of a reload, only filled by the precomposing workers.
+     */
+    private class PrecomposedIcons implements SafeCloseable {
+
+        final int iconDpi;
+        final Map<ComponentKey, FutureTask<Drawable>> tasks = new ConcurrentHashMap<>();
+
+        PrecomposedIcons(int iconDpi) {
+            this.iconDpi = iconDpi;
+        }
+
+        @Override
+        public void close() {
+            if (mPrecomposedIcons == this) {
+                mPrecomposedIcons = null;
+            }
+            for (FutureTask<Drawable> task : tasks.values()) {
+                task.cancel(false);
+            }
+            tasks.clear();
+        }
+    }
 }
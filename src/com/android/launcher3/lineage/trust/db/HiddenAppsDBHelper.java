@@ -24,6 +24,10 @@ import android.database.sqlite.SQLiteOpenHelper;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
 public class HiddenAppsDBHelper extends SQLiteOpenHelper {
     private static final int DATABASE_VERSION = 1;
     private static final String DATABASE_NAME = "hidden_apps_db";
@@ -36,6 +40,11 @@ public class HiddenAppsDBHelper extends SQLiteOpenHelper {
     @Nullable
     private static HiddenAppsDBHelper sSingleton;
 
+    // Write-through copy of the hidden packages. Writes are rare, so they replace the whole set
+    // and readers never need to lock.
+    @Nullable
+    private volatile Set<String> mHiddenPackages;
+
     private HiddenAppsDBHelper(@NonNull Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
     }
@@ -83,6 +92,7 @@ public class HiddenAppsDBHelper extends SQLiteOpenHelper {
                 db.insertOrThrow(TABLE_NAME, null, values);
             }
             db.setTransactionSuccessful();
+            updateHiddenPackages(packageName, true);
         } catch (Exception e) {
             // Ignored
         } finally {
@@ -104,6 +114,7 @@ public class HiddenAppsDBHelper extends SQLiteOpenHelper {
 
             db.update(TABLE_NAME, values, KEY_PKGNAME + " = ?", new String[]{packageName});
             db.setTransactionSuccessful();
+            updateHiddenPackages(packageName, false);
         } catch (Exception e) {
             // Ignored
         } finally {
@@ -112,13 +123,35 @@ public class HiddenAppsDBHelper extends SQLiteOpenHelper {
     }
 
     public boolean isPackageHidden(@NonNull String packageName) {
-        String query = String.format("SELECT * FROM %s WHERE %s = ? AND %s = ?", TABLE_NAME,
-                KEY_PKGNAME, KEY_HIDDEN);
+        return getHiddenPackages().contains(packageName);
+    }
+
+    @NonNull
+    private Set<String> getHiddenPackages() {
+        Set<String> hiddenPackages = mHiddenPackages;
+        if (hiddenPackages == null) {
+            synchronized (this) {
+                hiddenPackages = mHiddenPackages;
+                if (hiddenPackages == null) {
+                    hiddenPackages = Collections.unmodifiableSet(loadHiddenPackages());
+                    mHiddenPackages = hiddenPackages;
+                }
+            }
+        }
+        return hiddenPackages;
+    }
+
+    @NonNull
+    private Set<String> loadHiddenPackages() {
+        String query = String.format("SELECT %s FROM %s WHERE %s = ?", KEY_PKGNAME, TABLE_NAME,
+                KEY_HIDDEN);
         SQLiteDatabase db = getReadableDatabase();
-        Cursor cursor = db.rawQuery(query, new String[]{packageName, String.valueOf(1)});
-        boolean result = false;
+        Cursor cursor = db.rawQuery(query, new String[]{String.valueOf(1)});
+        Set<String> result = new HashSet<>();
         try {
-            result = cursor.getCount() != 0;
+            while (cursor.moveToNext()) {
+                result.add(cursor.getString(0));
+            }
         } catch (Exception e) {
             // Ignored
         } finally {
@@ -130,6 +163,16 @@ public class HiddenAppsDBHelper extends SQLiteOpenHelper {
         return result;
     }
 
+    private synchronized void updateHiddenPackages(@NonNull String packageName, boolean hidden) {
+        Set<String> hiddenPackages = new HashSet<>(getHiddenPackages());
+        if (hidden) {
+            hiddenPackages.add(packageName);
+        } else {
+            hiddenPackages.remove(packageName);
+        }
+        mHiddenPackages = Collections.unmodifiableSet(hiddenPackages);
+    }
+
     public int getTotalPackageHidden() {
         String query = String.format("SELECT * FROM %s WHERE %s = ?", TABLE_NAME, KEY_HIDDEN);
         SQLiteDatabase db = getReadableDatabase();
@@ -120,6 +120,46 @@ public abstract class BaseLauncherBinder {
         }
     }
 
+    /**
+     * Binds the loaded items which are not part of the {@link ModelSnapshot} bound before the
+     * load, when the loaded model matches it. Unlike {@link #bindWorkspace}, the items bound from
+     * the snapshot are kept, so the first pages are not bound twice.
+     *
+     * @param boundItemIds ids of the items bound from the snapshot
+     */
+    public void bindWorkspaceOverSnapshot(IntSet boundItemIds) {
+        ArrayList<ItemInfo> workspaceItems = new ArrayList<>();
+        ArrayList<LauncherAppWidgetInfo> appWidgets = new ArrayList<>();
+        ArrayList<FixedContainerItems> extraItems = new ArrayList<>();
+        final IntArray orderedScreenIds;
+        synchronized (mBgDataModel) {
+            workspaceItems.addAll(mBgDataModel.workspaceItems);
+            appWidgets.addAll(mBgDataModel.appWidgets);
+            orderedScreenIds = mBgDataModel.collectWorkspaceScreens(mApp.getContext());
+            mBgDataModel.extraItems.forEach(extraItems::add);
+            // Don't increment the bind id, the pending binds of the snapshot are still valid
+            mMyBindingId = mBgDataModel.lastBindId;
+        }
+        workspaceItems.removeIf(item -> boundItemIds.contains(item.id));
+        appWidgets.removeIf(widget -> boundItemIds.contains(widget.id));
+        sortWorkspaceItemsSpatially(mApp.getInvariantDeviceProfile(), workspaceItems);
+        workspaceItems.addAll(appWidgets);
+
+        executeCallbacksTask(c -> c.bindAppsAdded(orderedScreenIds.clone(), workspaceItems, null),
+                mUiExecutor);
+        if (!FeatureFlags.CHANGE_MODEL_DELEGATE_LOADING_ORDER.get()) {
+            extraItems.forEach(item ->
+                    executeCallbacksTask(c -> c.bindExtraContainerItems(item), mUiExecutor));
+        }
+        StringCache cacheClone = mBgDataModel.stringCache.clone();
+        executeCallbacksTask(c -> c.bindStringCache(cacheClone), mUiExecutor);
+        mUiExecutor.execute(() -> {
+            MODEL_EXECUTOR.setThreadPriority(Process.THREAD_PRIORITY_DEFAULT);
+            ItemInstallQueue.INSTANCE.get(mApp.getContext())
+                    .resumeModelPush(FLAG_LOADER_RUNNING);
+        });
+    }
+
     private void bindWorkspaceAllAtOnce(boolean incrementBindId, boolean isBindSync) {
         // Save a copy of all the bg-thread collections
         ArrayList<ItemInfo> workspaceItems = new ArrayList<>();
@@ -133,6 +133,12 @@ public class BgDataModel {
      * Load id for which the callbacks were successfully bound
      */
     public int lastLoadId = -1;
+
+    /**
+     * Whether a loader already tried to bind the {@link ModelSnapshot} of this model
+     */
+    public boolean modelSnapshotChecked = false;
+
     public boolean isFirstPagePinnedItemEnabled = QSB_ON_FIRST_SCREEN
             && !ENABLE_SMARTSPACE_REMOVAL.get();
 
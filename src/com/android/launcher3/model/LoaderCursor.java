@@ -496,18 +496,18 @@ public class LoaderCursor extends CursorWrapper {
             }
 
             if (hotseatOccupancy != null) {
-                if (hotseatOccupancy.cells[(int) item.screenId][0]) {
+                if (hotseatOccupancy.isOccupied(item.screenId, 0)) {
                     Log.e(TAG, "Error loading shortcut into hotseat " + item
                             + " into position (" + item.screenId + ":" + item.cellX + ","
                             + item.cellY + ") already occupied");
                     return false;
                 } else {
-                    hotseatOccupancy.cells[item.screenId][0] = true;
+                    hotseatOccupancy.markCells(item.screenId, 0, 1, 1, true);
                     return true;
                 }
             } else {
                 final GridOccupancy occupancy = new GridOccupancy(mIDP.numDatabaseHotseatIcons, 1);
-                occupancy.cells[item.screenId][0] = true;
+                occupancy.markCells(item.screenId, 0, 1, 1, true);
                 mOccupied.put(Favorites.CONTAINER_HOTSEAT, occupancy);
                 return true;
             }
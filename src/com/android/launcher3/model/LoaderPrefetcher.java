@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.model;
+
+import static com.android.launcher3.util.PackageManagerHelper.hasShortcutsPermission;
+
+import android.appwidget.AppWidgetProviderInfo;
+import android.content.Context;
+import android.content.pm.LauncherActivityInfo;
+import android.content.pm.LauncherApps;
+import android.content.pm.ShortcutInfo;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.os.UserHandle;
+import android.os.UserManager;
+import android.util.ArrayMap;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.android.launcher3.pm.UserCache;
+import com.android.launcher3.shortcuts.ShortcutRequest;
+import com.android.launcher3.widget.WidgetManagerHelper;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Fetches the data sources of {@link LoaderTask} which only depend on system services, so that
+ * these binder calls can run in parallel with each other and with the workspace load. The
+ * loader still consumes the results in its usual order.
+ */
+class LoaderPrefetcher {
+
+    private static final String TAG = "LoaderPrefetcher";
+
+    private final Context mContext;
+    private final Consumer<String> mSplitLogger;
+    private final List<UserHandle> mProfiles;
+
+    private final Prefetch<Map<UserHandle, List<LauncherActivityInfo>>> mActivities;
+    private final Prefetch<Map<UserHandle, List<ShortcutInfo>>> mDeepShortcuts;
+    private final Prefetch<List<AppWidgetProviderInfo>> mWidgetProviders;
+
+    /**
+     * @param splitLogger receives the time each prefetch took, once it is consumed
+     */
+    LoaderPrefetcher(@NonNull Context context, @NonNull Consumer<String> splitLogger) {
+        mContext = context;
+        mSplitLogger = splitLogger;
+        mProfiles = UserCache.getInstance(context).getUserProfiles();
+        mActivities = new Prefetch<>("prefetchAllApps", this::fetchActivities);
+        mDeepShortcuts = new Prefetch<>("prefetchDeepShortcuts", this::fetchDeepShortcuts);
+        mWidgetProviders = new Prefetch<>("prefetchWidgets",
+                () -> new WidgetManagerHelper(mContext).getAllProviders(null));
+    }
+
+    /**
+     * Starts all the prefetches on the given executor.
+     */
+    void start(@NonNull Executor executor) {
+        executor.execute(mActivities);
+        executor.execute(mDeepShortcuts);
+        executor.execute(mWidgetProviders);
+    }
+
+    /**
+     * Cancels all pending prefetches.
+     */
+    void cancel() {
+        mActivities.cancel(true);
+        mDeepShortcuts.cancel(true);
+        mWidgetProviders.cancel(true);
+    }
+
+    @Nullable
+    Map<UserHandle, List<LauncherActivityInfo>> getActivities(BooleanSupplier isStopped) {
+        return mActivities.await(isStopped);
+    }
+
+    @Nullable
+    Map<UserHandle, List<ShortcutInfo>> getDeepShortcuts(BooleanSupplier isStopped) {
+        return mDeepShortcuts.await(isStopped);
+    }
+
+    @Nullable
+    List<AppWidgetProviderInfo> getWidgetProviders(BooleanSupplier isStopped) {
+        return mWidgetProviders.await(isStopped);
+    }
+
+    private Map<UserHandle, List<LauncherActivityInfo>> fetchActivities() {
+        LauncherApps launcherApps = mContext.getSystemService(LauncherApps.class);
+        Map<UserHandle, List<LauncherActivityInfo>> result = new ArrayMap<>();
+        for (UserHandle user : mProfiles) {
+            result.put(user, launcherApps.getActivityList(null, user));
+        }
+        return result;
+    }
+
+    private Map<UserHandle, List<ShortcutInfo>> fetchDeepShortcuts() {
+        Map<UserHandle, List<ShortcutInfo>> result = new ArrayMap<>();
+        if (!hasShortcutsPermission(mContext)) {
+            return result;
+        }
+        UserManager userManager = mContext.getSystemService(UserManager.class);
+        for (UserHandle user : mProfiles) {
+            if (userManager.isUserUnlocked(user)) {
+                result.put(user, new ShortcutRequest(mContext, user).query(ShortcutRequest.ALL));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * A single prefetch, which records how long it took to run.
+     */
+    private class Prefetch<T> extends FutureTask<T> {
+
+        private final String mLabel;
+        private long mStartMs;
+        private volatile long mDurationMs = -1;
+
+        Prefetch(String label, Callable<T> callable) {
+            super(callable);
+            mLabel = label;
+        }
+
+        @Override
+        public void run() {
+            Trace.beginSection(mLabel);
+            mStartMs = SystemClock.uptimeMillis();
+            try {
+                super.run();
+            } finally {
+                Trace.endSection();
+            }
+        }
+
+        @Override
+        protected void set(T result) {
+            // Called before waiters are released, so the duration is visible to them
+            mDurationMs = SystemClock.uptimeMillis() - mStartMs;
+            super.set(result);
+        }
+
+        /**
+         * Waits for the prefetch to complete, returning null if it failed, in which case the
+         * caller should load the data itself. Gives up as soon as {@code isStopped} is true.
+         */
+        @Nullable
+        T await(BooleanSupplier isStopped) {
+            while (!isStopped.getAsBoolean()) {
+                try {
+                    T result = get(1, TimeUnit.SECONDS);
+                    mSplitLogger.accept(mLabel + " took " + mDurationMs + "ms");
+                    return result;
+                } catch (TimeoutException e) {
+                    // Check whether the loader was stopped and wait again
+                } catch (ExecutionException | RuntimeException e) {
+                    Log.w(TAG, mLabel + " failed, loading on the loader thread", e);
+                    return null;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return null;
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -33,6 +33,7 @@ import static com.android.launcher3.model.data.ItemInfoWithIcon.FLAG_DISABLED_LO
 import static com.android.launcher3.model.data.ItemInfoWithIcon.FLAG_DISABLED_SAFEMODE;
 import static com.android.launcher3.model.data.ItemInfoWithIcon.FLAG_DISABLED_SUSPENDED;
 import static com.android.launcher3.util.Executors.MODEL_EXECUTOR;
+import static com.android.launcher3.util.Executors.THREAD_POOL_EXECUTOR;
 import static com.android.launcher3.util.PackageManagerHelper.hasShortcutsPermission;
 import static com.android.launcher3.util.PackageManagerHelper.isSystemApp;
 
@@ -154,11 +155,19 @@ public class LoaderTask implements Runnable {
     private Map<ShortcutKey, ShortcutInfo> mShortcutKeyToPinnedShortcuts;
 
     private boolean mStopped;
+    @Nullable
+    private LoaderPrefetcher mPrefetcher;
 
     private final Set<PackageUserKey> mPendingPackages = new HashSet<>();
     private boolean mItemsDeleted = false;
     private String mDbName;
 
+    // Items bound from the model snapshot, and the state of the workspace they were bound with
+    @Nullable
+    private List<ItemInfo> mSnapshotItems;
+    private IntArray mSnapshotScreens;
+    private boolean mSnapshotFirstPagePinned;
+
     public LoaderTask(@NonNull LauncherAppState app, AllAppsList bgAllAppsList, BgDataModel bgModel,
             ModelDelegate modelDelegate, @NonNull LauncherBinder launcherBinder) {
         this(app, bgAllAppsList, bgModel, modelDelegate, launcherBinder, new UserManagerState());
@@ -192,6 +201,10 @@ public class LoaderTask implements Runnable {
         while (!mStopped && idleLock.awaitLocked(1000));
     }
 
+    private synchronized boolean isStopped() {
+        return mStopped;
+    }
+
     private synchronized void verifyNotStopped() throws CancellationException {
         if (mStopped) {
             throw new CancellationException("Loader stopped");
@@ -223,6 +236,18 @@ public class LoaderTask implements Runnable {
         TraceHelper.INSTANCE.beginSection(TAG);
         LoaderMemoryLogger memoryLogger = new LoaderMemoryLogger();
         try (LauncherModel.LoaderTransaction transaction = mApp.getModel().beginLoader(this)) {
+            if (FeatureFlags.ENABLE_PARALLEL_LOADER_PREFETCH.get()) {
+                // All apps, deep shortcuts and widgets are fetched while the workspace loads,
+                // but are still consumed and bound in the order below.
+                synchronized (this) {
+                    mPrefetcher = new LoaderPrefetcher(mApp.getContext(), LoaderTask::logASplit);
+                }
+                mPrefetcher.start(THREAD_POOL_EXECUTOR);
+                logASplit("startPrefetch");
+            }
+
+            bindModelSnapshotIfAvailable();
+
             List<ShortcutInfo> allShortcuts = new ArrayList<>();
             loadWorkspace(allShortcuts, "", memoryLogger);
 
@@ -238,7 +263,14 @@ public class LoaderTask implements Runnable {
             }
 
             verifyNotStopped();
-            mLauncherBinder.bindWorkspace(true /* incrementBindId */, /* isBindSync= */ false);
+            IntSet snapshotItemIds = reconcileModelSnapshot();
+            if (snapshotItemIds != null) {
+                mLauncherBinder.bindWorkspaceOverSnapshot(snapshotItemIds);
+            } else {
+                mLauncherBinder.bindWorkspace(true /* incrementBindId */,
+                        /* isBindSync= */ false);
+            }
+            mSnapshotItems = null;
             logASplit("bindWorkspace");
 
             mModelDelegate.workspaceLoadComplete();
@@ -307,8 +339,9 @@ public class LoaderTask implements Runnable {
             verifyNotStopped();
 
             // fourth step
-            List<ComponentWithLabelAndIcon> allWidgetsList =
-                    mBgDataModel.widgetsModel.update(mApp, null);
+            List<ComponentWithLabelAndIcon> allWidgetsList = mBgDataModel.widgetsModel.update(
+                    mApp, null, mPrefetcher == null
+                            ? null : mPrefetcher.getWidgetProviders(this::isStopped));
             logASplit("load widgets");
 
             verifyNotStopped();
@@ -348,6 +381,12 @@ public class LoaderTask implements Runnable {
             logASplit("finish icon update");
 
             mModelDelegate.modelLoadComplete();
+            if (FeatureFlags.ENABLE_MODEL_SNAPSHOT.get()
+                    && mApp.getInvariantDeviceProfile().dbFile.equals(mDbName)) {
+                ModelSnapshot.write(mApp.getContext(), mApp.getInvariantDeviceProfile(),
+                        mBgDataModel);
+                logASplit("writeModelSnapshot");
+            }
             transaction.commit();
             memoryLogger.clearLogs();
         } catch (CancellationException e) {
@@ -356,12 +395,126 @@ public class LoaderTask implements Runnable {
         } catch (Exception e) {
             memoryLogger.printLogs();
             throw e;
+        } finally {
+            synchronized (this) {
+                if (mPrefetcher != null) {
+                    mPrefetcher.cancel();
+                    mPrefetcher = null;
+                }
+            }
         }
         TraceHelper.INSTANCE.endSection();
     }
 
+    /**
+     * On the first load of the model, binds the first pages saved by {@link ModelSnapshot}, so
+     * that they are visible while the workspace is loaded. See {@link #reconcileModelSnapshot}.
+     */
+    private void bindModelSnapshotIfAvailable() {
+        if (!FeatureFlags.ENABLE_MODEL_SNAPSHOT.get() || mBgDataModel.modelSnapshotChecked) {
+            return;
+        }
+        mBgDataModel.modelSnapshotChecked = true;
+        List<ItemInfo> items =
+                ModelSnapshot.read(mApp.getContext(), mApp.getInvariantDeviceProfile());
+        if (items == null) {
+            return;
+        }
+
+        List<IconRequestInfo<WorkspaceItemInfo>> iconRequestInfos = new ArrayList<>();
+        synchronized (mBgDataModel) {
+            mBgDataModel.clear();
+            for (ItemInfo item : items) {
+                if (item instanceof WorkspaceItemInfo) {
+                    iconRequestInfos.add(new IconRequestInfo<>((WorkspaceItemInfo) item,
+                            /* launcherActivityInfo= */ null, /* useLowResIcon= */ false));
+                }
+                // Folders are written before their contents, so contents are added to them.
+                mBgDataModel.addItem(mApp.getContext(), item, false);
+            }
+            mSnapshotScreens = mBgDataModel.collectWorkspaceScreens(mApp.getContext());
+            mSnapshotFirstPagePinned = mBgDataModel.isFirstPagePinnedItemEnabled;
+        }
+        // Icons are referenced by component, and read from the icon cache DB
+        mIconCache.getTitlesAndIconsInBulk(iconRequestInfos);
+        for (IconRequestInfo<WorkspaceItemInfo> request : iconRequestInfos) {
+            request.itemInfo.contentDescription = mIconCache.getUserBadgedLabel(
+                    request.itemInfo.title, request.itemInfo.user);
+        }
+        logASplit("loadModelSnapshot");
+
+        verifyNotStopped();
+        mLauncherBinder.bindWorkspace(true /* incrementBindId */, /* isBindSync= */ false);
+        mSnapshotItems = items;
+        logASplit("bindModelSnapshot");
+    }
+
+    /**
+     * If the model snapshot was bound and the loaded model has the same snapshot items, puts the
+     * bound items in the model in place of the loaded ones, as the bound views refer to them.
+     * Returns the ids of these items, or null if the whole workspace needs to be bound.
+     */
+    @Nullable
+    private IntSet reconcileModelSnapshot() {
+        if (mSnapshotItems == null) {
+            return null;
+        }
+        Context context = mApp.getContext();
+        synchronized (mBgDataModel) {
+            // Screens can only be added after the ones which are already bound
+            IntArray screens = mBgDataModel.collectWorkspaceScreens(context);
+            if (mSnapshotFirstPagePinned != mBgDataModel.isFirstPagePinnedItemEnabled
+                    || screens.size() < mSnapshotScreens.size()) {
+                return null;
+            }
+            for (int i = 0; i < mSnapshotScreens.size(); i++) {
+                if (screens.get(i) != mSnapshotScreens.get(i)) {
+                    return null;
+                }
+            }
+            List<ItemInfo> loadedItems = ModelSnapshot.collectItems(context, mBgDataModel);
+            if (!ModelSnapshot.isSame(context, loadedItems, mSnapshotItems)) {
+                return null;
+            }
+
+            IntSet ids = new IntSet();
+            for (int i = 0; i < loadedItems.size(); i++) {
+                ItemInfo loaded = loadedItems.get(i);
+                ItemInfo bound = mSnapshotItems.get(i);
+                // Keep the loaded state which isn't part of the snapshot
+                bound.copyFrom(loaded);
+                if (bound instanceof ItemInfoWithIcon) {
+                    ((ItemInfoWithIcon) bound).bitmap = ((ItemInfoWithIcon) loaded).bitmap;
+                    ((ItemInfoWithIcon) bound).runtimeStatusFlags =
+                            ((ItemInfoWithIcon) loaded).runtimeStatusFlags;
+                }
+                if (bound instanceof WorkspaceItemInfo) {
+                    ((WorkspaceItemInfo) bound).options = ((WorkspaceItemInfo) loaded).options;
+                }
+
+                mBgDataModel.itemsIdMap.put(bound.id, bound);
+                int index = mBgDataModel.workspaceItems.indexOf(loaded);
+                if (index >= 0) {
+                    mBgDataModel.workspaceItems.set(index, bound);
+                }
+                if (bound instanceof FolderInfo) {
+                    // The bound folder already holds the bound contents
+                    mBgDataModel.folders.put(bound.id, (FolderInfo) bound);
+                } else if (bound instanceof LauncherAppWidgetInfo) {
+                    index = mBgDataModel.appWidgets.indexOf(loaded);
+                    mBgDataModel.appWidgets.set(index, (LauncherAppWidgetInfo) bound);
+                }
+                ids.add(bound.id);
+            }
+            return ids;
+        }
+    }
+
     public synchronized void stopLocked() {
         mStopped = true;
+        if (mPrefetcher != null) {
+            mPrefetcher.cancel();
+        }
         this.notify();
     }
 
@@ -992,12 +1145,18 @@ public class LoaderTask implements Runnable {
         // Clear the list of apps
         mBgAllAppsList.clear();
 
+        final Map<UserHandle, List<LauncherActivityInfo>> prefetchedApps =
+                mPrefetcher == null ? null : mPrefetcher.getActivities(this::isStopped);
+        verifyNotStopped();
+
         List<IconRequestInfo<AppInfo>> iconRequestInfos = new ArrayList<>();
         boolean isWorkProfileQuiet = false;
         boolean isPrivateProfileQuiet = false;
         for (UserHandle user : profiles) {
             // Query for the set of apps
-            final List<LauncherActivityInfo> apps = mLauncherApps.getActivityList(null, user);
+            final List<LauncherActivityInfo> apps =
+                    prefetchedApps != null && prefetchedApps.containsKey(user)
+                            ? prefetchedApps.get(user) : mLauncherApps.getActivityList(null, user);
             // Fail if we don't have any apps
             // TODO: Fix this. Only fail for the current user.
             if (apps == null || apps.isEmpty()) {
@@ -1077,10 +1236,16 @@ public class LoaderTask implements Runnable {
         mBgDataModel.deepShortcutMap.clear();
 
         if (mBgAllAppsList.hasShortcutHostPermission()) {
+            final Map<UserHandle, List<ShortcutInfo>> prefetchedShortcuts =
+                    mPrefetcher == null ? null : mPrefetcher.getDeepShortcuts(this::isStopped);
+            verifyNotStopped();
             for (UserHandle user : mUserCache.getUserProfiles()) {
                 if (mUserManager.isUserUnlocked(user)) {
-                    List<ShortcutInfo> shortcuts = new ShortcutRequest(mApp.getContext(), user)
-                            .query(ShortcutRequest.ALL);
+                    List<ShortcutInfo> shortcuts =
+                            prefetchedShortcuts != null && prefetchedShortcuts.containsKey(user)
+                                    ? prefetchedShortcuts.get(user)
+                                    : new ShortcutRequest(mApp.getContext(), user)
+                                            .query(ShortcutRequest.ALL);
                     allShortcuts.addAll(shortcuts);
                     mBgDataModel.updateDeepShortcutCounts(null, user, shortcuts);
                 }
@@ -159,6 +159,7 @@ public class ModelDbController {
         int rowId = mOpenHelper.dbInsertAndCheck(db, table, initialValues);
         if (rowId >= 0) {
             onAddOrDeleteOp(db);
+            invalidateModelSnapshot();
         }
         return rowId;
     }
@@ -174,6 +175,7 @@ public class ModelDbController {
         int count = db.delete(table, selection, selectionArgs);
         if (count > 0) {
             onAddOrDeleteOp(db);
+            invalidateModelSnapshot();
         }
         return count;
     }
@@ -189,6 +191,9 @@ public class ModelDbController {
         addModifiedTime(values);
         SQLiteDatabase db = mOpenHelper.getWritableDatabase();
         int count = db.update(table, values, selection, selectionArgs);
+        if (count > 0) {
+            invalidateModelSnapshot();
+        }
         return count;
     }
 
@@ -227,6 +232,7 @@ public class ModelDbController {
         createDbIfNotExists();
         mOpenHelper.createEmptyDB(mOpenHelper.getWritableDatabase());
         LauncherPrefs.get(mContext).putSync(getEmptyDbCreatedKey().to(true));
+        invalidateModelSnapshot();
     }
 
     /**
@@ -244,6 +250,7 @@ public class ModelDbController {
     @WorkerThread
     public SQLiteTransaction newTransaction() {
         createDbIfNotExists();
+        invalidateModelSnapshot();
         return new SQLiteTransaction(mOpenHelper.getWritableDatabase());
     }
 
@@ -296,6 +303,7 @@ public class ModelDbController {
             Log.e(TAG, "migrateGridIfNeeded: target db is same as current: " + targetDbName);
             return false;
         }
+        invalidateModelSnapshot();
         DatabaseHelper oldHelper = mOpenHelper;
         mOpenHelper = (mContext instanceof SandboxContext) ? oldHelper
                 : createDatabaseHelper(true /* forMigration */);
@@ -317,6 +325,8 @@ public class ModelDbController {
      */
     public SQLiteDatabase getDb() {
         createDbIfNotExists();
+        // The caller may change the DB
+        invalidateModelSnapshot();
         return mOpenHelper.getWritableDatabase();
     }
 
@@ -324,6 +334,13 @@ public class ModelDbController {
         mOpenHelper.onAddOrDeleteOp(db);
     }
 
+    /**
+     * Deletes the {@link ModelSnapshot}, which no longer matches the DB once it is changed
+     */
+    private void invalidateModelSnapshot() {
+        ModelSnapshot.delete(mContext);
+    }
+
     /**
      * Deletes any empty folder from the DB.
      * @return Ids of deleted folders.
@@ -346,6 +363,7 @@ public class ModelDbController {
             if (!folderIds.isEmpty()) {
                 db.delete(Favorites.TABLE_NAME, Utilities.createDbSelectionQuery(
                         LauncherSettings.Favorites._ID, folderIds), null);
+                invalidateModelSnapshot();
             }
             t.commit();
             return folderIds;
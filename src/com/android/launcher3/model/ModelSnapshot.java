@@ -0,0 +1,320 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.model;
+
+import static com.android.launcher3.LauncherSettings.Favorites.CONTAINER_DESKTOP;
+import static com.android.launcher3.LauncherSettings.Favorites.CONTAINER_HOTSEAT;
+import static com.android.launcher3.LauncherSettings.Favorites.ITEM_TYPE_APPLICATION;
+import static com.android.launcher3.LauncherSettings.Favorites.ITEM_TYPE_APPWIDGET;
+import static com.android.launcher3.LauncherSettings.Favorites.ITEM_TYPE_FOLDER;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.os.UserHandle;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.android.launcher3.InvariantDeviceProfile;
+import com.android.launcher3.model.data.FolderInfo;
+import com.android.launcher3.model.data.ItemInfo;
+import com.android.launcher3.model.data.LauncherAppWidgetInfo;
+import com.android.launcher3.model.data.WorkspaceItemInfo;
+import com.android.launcher3.pm.UserCache;
+import com.android.launcher3.util.IntArray;
+import com.android.launcher3.util.IntSet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Versioned snapshot of the items on the first workspace pages and the hotseat, written once the
+ * model is loaded. After a process restart it lets {@link LoaderTask} bind the first screen
+ * before the workspace DB has been read. Once loaded, the model is compared with the snapshot:
+ * if they match, only the items which are not part of the snapshot are bound.
+ *
+ * The snapshot is keyed by the DB file, its schema version and the grid, and is deleted by
+ * {@link ModelDbController} on any change to the workspace DB.
+ *
+ * Only items which need no package or restore state checks are part of the snapshot: apps,
+ * folders of apps and restored widgets. Icons are not stored, they are read back in bulk from
+ * the icon cache DB.
+ */
+public class ModelSnapshot {
+
+    private static final String TAG = "ModelSnapshot";
+
+    private static final String FILE_NAME = "model_snapshot";
+    private static final int MAGIC = 0x4C4D534E; // "LMSN"
+    private static final int FORMAT_VERSION = 2;
+
+    /** Number of pages, starting with the first page, which are included in the snapshot */
+    private static final int SNAPSHOT_PAGES = 2;
+
+    private ModelSnapshot() { }
+
+    /**
+     * Writes the snapshot of {@code dataModel}, replacing any existing one.
+     */
+    @WorkerThread
+    public static void write(@NonNull Context context, @NonNull InvariantDeviceProfile idp,
+            @NonNull BgDataModel dataModel) {
+        List<ItemInfo> items = collectItems(context, dataModel);
+        File file = getFile(context);
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            writeHeader(out, idp);
+            writeItems(out, items, UserCache.getInstance(context));
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write model snapshot", e);
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+        }
+    }
+
+    /**
+     * Returns the items of {@code dataModel} which are part of its snapshot, in the order they
+     * are written. Folders are followed by their contents.
+     */
+    @NonNull
+    static List<ItemInfo> collectItems(@NonNull Context context,
+            @NonNull BgDataModel dataModel) {
+        List<ItemInfo> items = new ArrayList<>();
+        synchronized (dataModel) {
+            IntArray screens = dataModel.collectWorkspaceScreens(context);
+            IntSet snapshotScreens = new IntSet();
+            for (int i = 0; i < screens.size() && i < SNAPSHOT_PAGES; i++) {
+                snapshotScreens.add(screens.get(i));
+            }
+            for (ItemInfo item : dataModel.workspaceItems) {
+                if (isOnSnapshotScreens(item, snapshotScreens) && isSupported(item)) {
+                    items.add(item);
+                    if (item instanceof FolderInfo) {
+                        items.addAll(((FolderInfo) item).contents);
+                    }
+                }
+            }
+            for (LauncherAppWidgetInfo widget : dataModel.appWidgets) {
+                if (isOnSnapshotScreens(widget, snapshotScreens) && isSupported(widget)) {
+                    items.add(widget);
+                }
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Returns true if both lists hold the same items, as far as the snapshot is concerned.
+     */
+    static boolean isSame(@NonNull Context context, @NonNull List<ItemInfo> items,
+            @NonNull List<ItemInfo> otherItems) {
+        if (items.size() != otherItems.size()) {
+            return false;
+        }
+        UserCache userCache = UserCache.getInstance(context);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ByteArrayOutputStream otherBytes = new ByteArrayOutputStream();
+        try {
+            writeItems(new DataOutputStream(bytes), items, userCache);
+            writeItems(new DataOutputStream(otherBytes), otherItems, userCache);
+        } catch (IOException e) {
+            return false;
+        }
+        return Arrays.equals(bytes.toByteArray(), otherBytes.toByteArray());
+    }
+
+    /**
+     * Returns the items of the snapshot, or null if there is no snapshot matching the current
+     * grid and workspace DB. Folders are followed by their contents.
+     */
+    @Nullable
+    @WorkerThread
+    public static List<ItemInfo> read(@NonNull Context context,
+            @NonNull InvariantDeviceProfile idp) {
+        File file = getFile(context);
+        if (!file.exists()) {
+            return null;
+        }
+        UserCache userCache = UserCache.getInstance(context);
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            if (!readHeader(in, idp)) {
+                return null;
+            }
+            int count = in.readInt();
+            List<ItemInfo> items = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int itemType = in.readInt();
+                ItemInfo item;
+                switch (itemType) {
+                    case ITEM_TYPE_APPLICATION:
+                        item = new WorkspaceItemInfo();
+                        break;
+                    case ITEM_TYPE_FOLDER:
+                        item = new FolderInfo();
+                        break;
+                    case ITEM_TYPE_APPWIDGET:
+                        item = new LauncherAppWidgetInfo();
+                        break;
+                    default:
+                        throw new IOException("Unexpected item type " + itemType);
+                }
+                item.itemType = itemType;
+                item.id = in.readInt();
+                item.container = in.readInt();
+                item.screenId = in.readInt();
+                item.cellX = in.readInt();
+                item.cellY = in.readInt();
+                item.spanX = in.readInt();
+                item.spanY = in.readInt();
+                item.rank = in.readInt();
+                UserHandle user = userCache.getUserForSerialNumber(in.readLong());
+                if (user == null) {
+                    return null;
+                }
+                item.user = user;
+                item.title = in.readUTF();
+                if (item instanceof WorkspaceItemInfo) {
+                    ((WorkspaceItemInfo) item).intent = Intent.parseUri(in.readUTF(), 0);
+                } else if (item instanceof FolderInfo) {
+                    ((FolderInfo) item).options = in.readInt();
+                } else if (item instanceof LauncherAppWidgetInfo) {
+                    LauncherAppWidgetInfo widget = (LauncherAppWidgetInfo) item;
+                    widget.appWidgetId = in.readInt();
+                    widget.providerName = ComponentName.unflattenFromString(in.readUTF());
+                    widget.options = in.readInt();
+                    widget.sourceContainer = in.readInt();
+                    widget.restoreStatus = LauncherAppWidgetInfo.RESTORE_COMPLETED;
+                }
+                items.add(item);
+            }
+            return items;
+        } catch (IOException | URISyntaxException | RuntimeException e) {
+            Log.w(TAG, "Discarding unreadable model snapshot", e);
+            file.delete();
+            return null;
+        }
+    }
+
+    /**
+     * Removes the snapshot, if there is one.
+     */
+    public static void delete(@NonNull Context context) {
+        getFile(context).delete();
+    }
+
+    private static File getFile(Context context) {
+        return new File(context.getNoBackupFilesDir(), FILE_NAME);
+    }
+
+    private static void writeHeader(DataOutputStream out, InvariantDeviceProfile idp)
+            throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeUTF(idp.dbFile);
+        out.writeInt(DatabaseHelper.SCHEMA_VERSION);
+        out.writeInt(idp.numColumns);
+        out.writeInt(idp.numRows);
+        out.writeInt(idp.numDatabaseHotseatIcons);
+    }
+
+    private static boolean readHeader(DataInputStream in, InvariantDeviceProfile idp)
+            throws IOException {
+        return in.readInt() == MAGIC
+                && in.readInt() == FORMAT_VERSION
+                && in.readUTF().equals(idp.dbFile)
+                && in.readInt() == DatabaseHelper.SCHEMA_VERSION
+                && in.readInt() == idp.numColumns
+                && in.readInt() == idp.numRows
+                && in.readInt() == idp.numDatabaseHotseatIcons;
+    }
+
+    private static void writeItems(DataOutputStream out, List<ItemInfo> items,
+            UserCache userCache) throws IOException {
+        out.writeInt(items.size());
+        for (ItemInfo item : items) {
+            out.writeInt(item.itemType);
+            out.writeInt(item.id);
+            out.writeInt(item.container);
+            out.writeInt(item.screenId);
+            out.writeInt(item.cellX);
+            out.writeInt(item.cellY);
+            out.writeInt(item.spanX);
+            out.writeInt(item.spanY);
+            out.writeInt(item.rank);
+            out.writeLong(userCache.getSerialNumberForUser(item.user));
+            out.writeUTF(item.title == null ? "" : item.title.toString());
+            if (item instanceof WorkspaceItemInfo) {
+                out.writeUTF(((WorkspaceItemInfo) item).intent.toUri(0));
+            } else if (item instanceof FolderInfo) {
+                out.writeInt(((FolderInfo) item).options);
+            } else if (item instanceof LauncherAppWidgetInfo) {
+                LauncherAppWidgetInfo widget = (LauncherAppWidgetInfo) item;
+                out.writeInt(widget.appWidgetId);
+                out.writeUTF(widget.providerName.flattenToString());
+                out.writeInt(widget.options);
+                out.writeInt(widget.sourceContainer);
+            }
+        }
+    }
+
+    private static boolean isOnSnapshotScreens(ItemInfo item, IntSet screens) {
+        return item.container == CONTAINER_HOTSEAT
+                || (item.container == CONTAINER_DESKTOP && screens.contains(item.screenId));
+    }
+
+    private static boolean isSupported(ItemInfo item) {
+        if (item instanceof FolderInfo) {
+            FolderInfo folder = (FolderInfo) item;
+            if (folder.itemType != ITEM_TYPE_FOLDER) {
+                return false;
+            }
+            for (WorkspaceItemInfo content : folder.contents) {
+                if (!isSupported(content)) {
+                    return false;
+                }
+            }
+            return true;
+        } else if (item instanceof WorkspaceItemInfo) {
+            WorkspaceItemInfo app = (WorkspaceItemInfo) item;
+            return app.itemType == ITEM_TYPE_APPLICATION && app.intent != null
+                    && app.status == 0 && !app.isDisabled();
+        } else if (item instanceof LauncherAppWidgetInfo) {
+            LauncherAppWidgetInfo widget = (LauncherAppWidgetInfo) item;
+            return widget.itemType == ITEM_TYPE_APPWIDGET && widget.providerName != null
+                    && widget.restoreStatus == LauncherAppWidgetInfo.RESTORE_COMPLETED;
+        }
+        return false;
+    }
+}
@@ -22,9 +22,12 @@ import static com.android.launcher3.util.Executors.MODEL_EXECUTOR;
 
 import android.content.ContentValues;
 import android.content.Context;
+import android.os.Looper;
 import android.text.TextUtils;
 import android.util.Log;
+import android.util.SparseArray;
 
+import androidx.annotation.GuardedBy;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
@@ -65,6 +68,9 @@ public class ModelWriter {
 
     private static final String TAG = "ModelWriter";
 
+    // Window in which updates to items are coalesced when batching is enabled
+    private static final long BATCH_WINDOW_MS = 100;
+
     private final Context mContext;
     private final LauncherModel mModel;
     private final BgDataModel mBgDataModel;
@@ -80,6 +86,12 @@ public class ModelWriter {
     private boolean mPreparingToUndo;
     private final CellPosMapper mCellPosMapper;
 
+    // Updates waiting to be written in a single transaction, keyed by item id. Only added on the
+    // UI thread, but flushed on any thread when the model is reloaded.
+    @GuardedBy("itself")
+    private final SparseArray<PendingUpdate> mPendingUpdates = new SparseArray<>();
+    private final Runnable mFlushPendingUpdates = this::flushPendingUpdates;
+
     public ModelWriter(Context context, LauncherModel model, BgDataModel dataModel,
             boolean verifyChanges, CellPosMapper cellPosMapper, @Nullable Callbacks owner) {
         mContext = context;
@@ -214,7 +226,7 @@ public class ModelWriter {
                         .put(Favorites.SPANX, item.spanX)
                         .put(Favorites.SPANY, item.spanY)
                         .put(Favorites.SCREEN, item.screenId))
-                .executeOnModelThread();
+                .executeOrBatch();
     }
 
     /**
@@ -226,7 +238,7 @@ public class ModelWriter {
             ContentWriter writer = new ContentWriter(mContext);
             item.onAddToDatabase(writer);
             return writer;
-        }).executeOnModelThread();
+        }).executeOrBatch();
     }
 
     private void notifyItemModified(ItemInfo item) {
@@ -344,6 +356,7 @@ public class ModelWriter {
      * operations will remain uncommitted indefinitely.
      */
     public void prepareToUndoDelete() {
+        flushPendingUpdates();
         if (!mPreparingToUndo) {
             if (!mDeleteRunnables.isEmpty() && FeatureFlags.IS_STUDIO_BUILD) {
                 throw new IllegalStateException("There are still uncommitted delete operations!");
@@ -361,12 +374,15 @@ public class ModelWriter {
     private void enqueueDeleteRunnable(ModelTask r) {
         if (mPreparingToUndo) {
             mDeleteRunnables.add(r);
+        } else if (r instanceof UpdateItemBaseRunnable) {
+            ((UpdateItemBaseRunnable) r).executeOrBatch();
         } else {
             r.executeOnModelThread();
         }
     }
 
     public void commitDelete() {
+        flushPendingUpdates();
         mPreparingToUndo = false;
         mDeleteRunnables.forEach(ModelTask::executeOnModelThread);
         mDeleteRunnables.clear();
@@ -376,6 +392,7 @@ public class ModelWriter {
      * Aborts a previous delete operation pending commit
      */
     public void abortDelete() {
+        flushPendingUpdates();
         mPreparingToUndo = false;
         mDeleteRunnables.clear();
         // We do a full reload here instead of just a rebind because Folders change their internal
@@ -397,6 +414,105 @@ public class ModelWriter {
         });
     }
 
+    /**
+     * Whether updates should go through {@link #mPendingUpdates}. Only updates made by the UI
+     * on the UI thread are batched, as the model applies its own updates directly.
+     */
+    private boolean shouldBatchUpdates() {
+        return FeatureFlags.ENABLE_BATCHED_MODEL_WRITES.get() && mOwner != null
+                && Looper.myLooper() == mUiExecutor.getLooper();
+    }
+
+    private void addPendingUpdate(ItemInfo item, int itemId, Supplier<ContentValues> values,
+            UpdateItemBaseRunnable source) {
+        synchronized (mPendingUpdates) {
+            PendingUpdate update = mPendingUpdates.get(itemId);
+            if (update != null && (update.loadId != source.mLoadId || update.item != item)) {
+                // A pending update of a different model or object can't be merged, write it
+                // first. It is queued before releasing the lock, so that a concurrent flush can't
+                // write the new update before it.
+                mPendingUpdates.remove(itemId);
+                writePendingUpdates(Collections.singletonList(update));
+                update = null;
+            }
+            if (update == null) {
+                update = new PendingUpdate(item, itemId, source);
+                mPendingUpdates.put(itemId, update);
+                mModel.setHasPendingUpdates(this, true);
+            }
+            update.values.add(values);
+        }
+        mUiExecutor.getHandler().removeCallbacks(mFlushPendingUpdates);
+        mUiExecutor.getHandler().postDelayed(mFlushPendingUpdates, BATCH_WINDOW_MS);
+    }
+
+    /**
+     * Queues the pending updates on the model thread, to be written in a single transaction.
+     * This is called by the model before it is reloaded, so that the loader reads them.
+     */
+    public void flushPendingUpdates() {
+        synchronized (mPendingUpdates) {
+            if (mPendingUpdates.size() == 0) {
+                return;
+            }
+            ArrayList<PendingUpdate> updates = new ArrayList<>(mPendingUpdates.size());
+            for (int i = 0; i < mPendingUpdates.size(); i++) {
+                updates.add(mPendingUpdates.valueAt(i));
+            }
+            mPendingUpdates.clear();
+            mModel.setHasPendingUpdates(this, false);
+            writePendingUpdates(updates);
+        }
+        mUiExecutor.getHandler().removeCallbacks(mFlushPendingUpdates);
+    }
+
+    /**
+     * Writes {@param updates} on the model thread. Must be called while holding
+     * {@link #mPendingUpdates}, once the updates are detached from it, so that they are written in
+     * the order they were detached and are no longer modified.
+     */
+    private void writePendingUpdates(List<PendingUpdate> updates) {
+        MODEL_EXECUTOR.execute(() -> {
+            try (SQLiteTransaction t = mModel.getModelDbController().newTransaction()) {
+                for (PendingUpdate update : updates) {
+                    // Later updates of the same item override the earlier values
+                    ContentValues values = new ContentValues();
+                    update.values.forEach(v -> values.putAll(v.get()));
+                    mModel.getModelDbController().update(
+                            TABLE_NAME, values, itemIdMatch(update.itemId), null);
+                    if (update.loadId != mModel.getLastLoadId()) {
+                        // The changes made by the user are still written, but the items in
+                        // memory belong to a previous load.
+                        Log.d(TAG, "Model changed before the update could execute");
+                        continue;
+                    }
+                    updateItemArrays(update.item, update.itemId, update.stackTrace,
+                            update.verifier);
+                }
+                t.commit();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    private static class PendingUpdate {
+        final ItemInfo item;
+        final int itemId;
+        final int loadId;
+        final StackTraceElement[] stackTrace;
+        final ModelVerifier verifier;
+        final List<Supplier<ContentValues>> values = new ArrayList<>();
+
+        PendingUpdate(ItemInfo item, int itemId, UpdateItemBaseRunnable source) {
+            this.item = item;
+            this.itemId = itemId;
+            loadId = source.mLoadId;
+            stackTrace = source.mStackTrace;
+            verifier = source.mVerifier;
+        }
+    }
+
     private class UpdateItemRunnable extends UpdateItemBaseRunnable {
         private final ItemInfo mItem;
         private final Supplier<ContentWriter> mWriter;
@@ -414,6 +530,11 @@ public class ModelWriter {
                     TABLE_NAME, mWriter.get().getValues(mContext), itemIdMatch(mItemId), null);
             updateItemArrays(mItem, mItemId);
         }
+
+        @Override
+        void addToPendingUpdates() {
+            addPendingUpdate(mItem, mItemId, () -> mWriter.get().getValues(mContext), this);
+        }
     }
 
     private class UpdateItemsRunnable extends UpdateItemBaseRunnable {
@@ -425,6 +546,16 @@ public class ModelWriter {
             mItems = items;
         }
 
+        @Override
+        void addToPendingUpdates() {
+            int count = mItems.size();
+            for (int i = 0; i < count; i++) {
+                ItemInfo item = mItems.get(i);
+                ContentValues values = mValues.get(i);
+                addPendingUpdate(item, item.id, () -> values, this);
+            }
+        }
+
         @Override
         public void runImpl() {
             try (SQLiteTransaction t = mModel.getModelDbController().newTransaction()) {
@@ -451,53 +582,72 @@ public class ModelWriter {
             mStackTrace = new Throwable().getStackTrace();
         }
 
+        /**
+         * Executes this update on the model thread, or adds it to the pending updates if
+         * batching is enabled.
+         */
+        final void executeOrBatch() {
+            if (shouldBatchUpdates()) {
+                addToPendingUpdates();
+            } else {
+                executeOnModelThread();
+            }
+        }
+
+        abstract void addToPendingUpdates();
+
         protected void updateItemArrays(ItemInfo item, int itemId) {
-            // Lock on mBgLock *after* the db operation
-            synchronized (mBgDataModel) {
-                checkItemInfoLocked(itemId, item, mStackTrace);
-
-                if (item.container != Favorites.CONTAINER_DESKTOP &&
-                        item.container != Favorites.CONTAINER_HOTSEAT) {
-                    // Item is in a folder, make sure this folder exists
-                    if (!mBgDataModel.folders.containsKey(item.container)) {
-                        // An items container is being set to a that of an item which is not in
-                        // the list of Folders.
-                        String msg = "item: " + item + " container being set to: " +
-                                item.container + ", not in the list of folders";
-                        Log.e(TAG, msg);
-                    }
+            ModelWriter.this.updateItemArrays(item, itemId, mStackTrace, mVerifier);
+        }
+    }
+
+    private void updateItemArrays(ItemInfo item, int itemId, StackTraceElement[] stackTrace,
+            ModelVerifier verifier) {
+        // Lock on mBgLock *after* the db operation
+        synchronized (mBgDataModel) {
+            checkItemInfoLocked(itemId, item, stackTrace);
+
+            if (item.container != Favorites.CONTAINER_DESKTOP &&
+                    item.container != Favorites.CONTAINER_HOTSEAT) {
+                // Item is in a folder, make sure this folder exists
+                if (!mBgDataModel.folders.containsKey(item.container)) {
+                    // An items container is being set to a that of an item which is not in
+                    // the list of Folders.
+                    String msg = "item: " + item + " container being set to: " +
+                            item.container + ", not in the list of folders";
+                    Log.e(TAG, msg);
                 }
+            }
 
-                // Items are added/removed from the corresponding FolderInfo elsewhere, such
-                // as in Workspace.onDrop. Here, we just add/remove them from the list of items
-                // that are on the desktop, as appropriate
-                ItemInfo modelItem = mBgDataModel.itemsIdMap.get(itemId);
-                if (modelItem != null &&
-                        (modelItem.container == Favorites.CONTAINER_DESKTOP ||
-                                modelItem.container == Favorites.CONTAINER_HOTSEAT)) {
-                    switch (modelItem.itemType) {
-                        case Favorites.ITEM_TYPE_APPLICATION:
-                        case Favorites.ITEM_TYPE_DEEP_SHORTCUT:
-                        case Favorites.ITEM_TYPE_FOLDER:
-                        case Favorites.ITEM_TYPE_APP_PAIR:
-                            if (!mBgDataModel.workspaceItems.contains(modelItem)) {
-                                mBgDataModel.workspaceItems.add(modelItem);
-                            }
-                            break;
-                        default:
-                            break;
-                    }
-                } else {
-                    mBgDataModel.workspaceItems.remove(modelItem);
+            // Items are added/removed from the corresponding FolderInfo elsewhere, such
+            // as in Workspace.onDrop. Here, we just add/remove them from the list of items
+            // that are on the desktop, as appropriate
+            ItemInfo modelItem = mBgDataModel.itemsIdMap.get(itemId);
+            if (modelItem != null &&
+                    (modelItem.container == Favorites.CONTAINER_DESKTOP ||
+                            modelItem.container == Favorites.CONTAINER_HOTSEAT)) {
+                switch (modelItem.itemType) {
+                    case Favorites.ITEM_TYPE_APPLICATION:
+                    case Favorites.ITEM_TYPE_DEEP_SHORTCUT:
+                    case Favorites.ITEM_TYPE_FOLDER:
+                    case Favorites.ITEM_TYPE_APP_PAIR:
+                        if (!mBgDataModel.workspaceItems.contains(modelItem)) {
+                            mBgDataModel.workspaceItems.add(modelItem);
+                        }
+                        break;
+                    default:
+                        break;
                 }
-                mVerifier.verifyModel();
+            } else {
+                mBgDataModel.workspaceItems.remove(modelItem);
             }
+            verifier.verifyModel();
         }
     }
 
     private abstract class ModelTask implements Runnable {
 
-        private final int mLoadId = mBgDataModel.lastLoadId;
+        final int mLoadId = mBgDataModel.lastLoadId;
 
         @Override
         public final void run() {
@@ -509,6 +659,10 @@ public class ModelWriter {
         }
 
         public final void executeOnModelThread() {
+            if (Looper.myLooper() == mUiExecutor.getLooper()) {
+                // Keep the tasks ordered after any update pending from the UI
+                flushPendingUpdates();
+            }
             MODEL_EXECUTOR.execute(this);
         }
 
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.model;
+
+import android.content.ComponentName;
+import android.content.pm.LauncherActivityInfo;
+import android.content.pm.LauncherApps;
+import android.os.UserHandle;
+
+import androidx.annotation.NonNull;
+
+import com.android.launcher3.LauncherAppState;
+import com.android.launcher3.LauncherSettings;
+import com.android.launcher3.icons.IconCache;
+import com.android.launcher3.icons.pack.IconPackManager;
+import com.android.launcher3.model.data.WorkspaceItemInfo;
+import com.android.launcher3.util.ComponentKey;
+import com.android.launcher3.util.SafeCloseable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Regenerates the icons of a set of components, for example after the icon pack they use has
+ * changed, and binds all of them at once.
+ *
+ * Reloading the packages one by one through {@link PackageUpdatedTask} would bind the apps and
+ * workspace items once per package, this task updates the icon cache for every component first
+ * and then publishes a single update.
+ */
+public class ReloadIconsTask extends BaseModelUpdateTask {
+
+    // Number of icons composited in parallel ahead of their cache update
+    private static final int PRECOMPOSE_CHUNK_SIZE = 8;
+
+    @NonNull
+    private final Set<ComponentKey> mKeys;
+
+    public ReloadIconsTask(@NonNull final Collection<ComponentKey> keys) {
+        mKeys = new HashSet<>(keys);
+    }
+
+    @Override
+    public void execute(@NonNull final LauncherAppState app, @NonNull final BgDataModel dataModel,
+            @NonNull final AllAppsList apps) {
+        IconCache iconCache = app.getIconCache();
+        LauncherApps launcherApps = app.getContext().getSystemService(LauncherApps.class);
+        IconPackManager iconPackManager = IconPackManager.get(app.getContext());
+        int iconDpi = app.getInvariantDeviceProfile().fillResIconDpi;
+
+        Map<UserHandle, HashSet<String>> packagesByUser = new HashMap<>();
+        for (ComponentKey key : mKeys) {
+            packagesByUser.computeIfAbsent(key.user, u -> new HashSet<>())
+                    .add(key.componentName.getPackageName());
+        }
+
+        // Regenerate the cache entries of all components, querying the activities once per user.
+        for (UserHandle user : packagesByUser.keySet()) {
+            List<LauncherActivityInfo> activities = new ArrayList<>();
+            for (LauncherActivityInfo info : launcherApps.getActivityList(null, user)) {
+                if (mKeys.contains(new ComponentKey(info.getComponentName(), user))) {
+                    activities.add(info);
+                }
+            }
+            // Composite the masked icons of a chunk on all cores while the model thread writes
+            // them to the cache, holding on to the icons of a single chunk at a time.
+            for (int start = 0; start < activities.size(); start += PRECOMPOSE_CHUNK_SIZE) {
+                List<LauncherActivityInfo> chunk = activities.subList(
+                        start, Math.min(start + PRECOMPOSE_CHUNK_SIZE, activities.size()));
+                try (SafeCloseable c = iconPackManager.precomposeIcons(chunk, iconDpi)) {
+                    iconCache.updateIconsForComponents(user, chunk);
+                }
+            }
+        }
+
+        ArrayList<WorkspaceItemInfo> updatedShortcuts = new ArrayList<>();
+        synchronized (dataModel) {
+            packagesByUser.forEach((user, packages) -> {
+                dataModel.forAllWorkspaceItemInfos(user, si -> {
+                    ComponentName cn = si.getTargetComponent();
+                    if (si.itemType == LauncherSettings.Favorites.ITEM_TYPE_APPLICATION
+                            && cn != null && mKeys.contains(new ComponentKey(cn, user))) {
+                        iconCache.getTitleAndIcon(si, si.usingLowResIcon());
+                        updatedShortcuts.add(si);
+                    }
+                });
+                apps.updateIconsAndLabels(packages, user);
+            });
+        }
+        bindUpdatedWorkspaceItems(updatedShortcuts);
+        bindApplicationsIfNeeded();
+    }
+}
@@ -65,6 +65,55 @@ public class StringMatcherUtility {
         return false;
     }
 
+    /**
+     * Returns all the positions in {@code target} at which {@link #matches} would try to match a
+     * query, so that they can be computed once and reused with {@link #matchesAt}.
+     */
+    public static IntArray getMatchStarts(String target, StringMatcher matcher) {
+        int targetLength = target.length();
+        IntArray starts = new IntArray();
+        if (targetLength <= 0) {
+            return starts;
+        }
+
+        int lastType;
+        int thisType = Character.UNASSIGNED;
+        int nextType = Character.getType(target.codePointAt(0));
+        for (int i = 0; i < targetLength; i++) {
+            lastType = thisType;
+            thisType = nextType;
+            nextType = i < (targetLength - 1)
+                    ? Character.getType(target.codePointAt(i + 1)) : Character.UNASSIGNED;
+            if (matcher.isBreak(thisType, lastType, nextType)) {
+                starts.add(i);
+            }
+        }
+        return starts;
+    }
+
+    /**
+     * Same as {@link #matches} for a non fuzzy {@code query}, using the positions previously
+     * returned by {@link #getMatchStarts} for {@code target}.
+     */
+    public static boolean matchesAt(String query, String target, IntArray starts,
+            StringMatcher matcher) {
+        int queryLength = query.length();
+        int end = target.length() - queryLength;
+        if (end < 0 || queryLength <= 0) {
+            return false;
+        }
+        for (int i = 0; i < starts.size(); i++) {
+            int start = starts.get(i);
+            if (start > end) {
+                break;
+            }
+            if (matcher.matches(query, target.substring(start, start + queryLength))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Returns a list of breakpoints wherever the string contains a break. For example:
      * "t-mobile" would have breakpoints at [0, 1]
@@ -216,7 +265,7 @@ public class StringMatcherUtility {
     /**
      * Matching optimization to search in Chinese.
      */
-    private static boolean requestSimpleFuzzySearch(String s) {
+    public static boolean requestSimpleFuzzySearch(String s) {
         for (int i = 0; i < s.length(); ) {
             int codepoint = s.codePointAt(i);
             i += Character.charCount(codepoint);
@@ -5,8 +5,11 @@ import android.content.pm.LauncherActivityInfo;
 import android.content.pm.ShortcutInfo;
 import android.os.UserHandle;
 
+import static com.android.launcher3.config.FeatureFlags.ENABLE_BULK_ICON_RELOAD;
+
 import com.android.launcher3.LauncherAppState;
 import com.android.launcher3.LauncherModel;
+import com.android.launcher3.model.ReloadIconsTask;
 import android.content.pm.LauncherApps;
 import android.os.UserManager;
 import com.android.launcher3.util.ComponentKey;
@@ -70,6 +73,12 @@ public class AppReloader {
     }
 
     public void reload(Collection<ComponentKey> keys) {
+        if (ENABLE_BULK_ICON_RELOAD.get() && keys.size() > 1) {
+            // Regenerates the icons of all keys in one pass on the model thread, see
+            // ReloadIconsTask, instead of going through a package update for each of them.
+            mModel.enqueueModelUpdateTask(new ReloadIconsTask(keys));
+            return;
+        }
         for (ComponentKey key : keys) {
             reload(key);
         }
@@ -4,20 +4,29 @@ import android.graphics.Rect;
 
 import com.android.launcher3.model.data.ItemInfo;
 
+import java.util.Arrays;
+
 /**
  * Utility object to manage the occupancy in a grid.
+ *
+ * Each row is stored as a bitmask, bit x being set when the cell (x, y) is occupied, so that
+ * region queries check a whole row span with a single mask test.
  */
 public class GridOccupancy extends AbsGridOccupancy {
 
     private final int mCountX;
     private final int mCountY;
 
-    public final boolean[][] cells;
+    private final long[] mRows;
 
     public GridOccupancy(int countX, int countY) {
+        if (countX > Long.SIZE) {
+            throw new IllegalArgumentException("Grid can't have more than " + Long.SIZE
+                    + " columns: " + countX);
+        }
         mCountX = countX;
         mCountY = countY;
-        cells = new boolean[countX][countY];
+        mRows = new long[countY];
     }
 
     /**
@@ -30,28 +39,56 @@ public class GridOccupancy extends AbsGridOccupancy {
      * @return true if a vacant cell was found
      */
     public boolean findVacantCell(int[] vacantOut, int spanX, int spanY) {
-        return super.findVacantCell(vacantOut, cells, mCountX, mCountY, spanX, spanY);
+        return super.findVacantCell(vacantOut, mCountX, mCountY, spanX, spanY);
+    }
+
+    public int getCountX() {
+        return mCountX;
+    }
+
+    public int getCountY() {
+        return mCountY;
     }
 
     public void copyTo(GridOccupancy dest) {
-        for (int i = 0; i < mCountX; i++) {
-            for (int j = 0; j < mCountY; j++) {
-                dest.cells[i][j] = cells[i][j];
-            }
-        }
+        System.arraycopy(mRows, 0, dest.mRows, 0, Math.min(mCountY, dest.mCountY));
     }
 
+    /**
+     * Returns true if the cell (x, y) is occupied
+     */
+    public boolean isOccupied(int x, int y) {
+        return (mRows[y] & (1L << x)) != 0;
+    }
+
+    @Override
     public boolean isRegionVacant(int x, int y, int spanX, int spanY) {
         int x2 = x + spanX - 1;
         int y2 = y + spanY - 1;
         if (x < 0 || y < 0 || x2 >= mCountX || y2 >= mCountY) {
             return false;
         }
-        for (int i = x; i <= x2; i++) {
-            for (int j = y; j <= y2; j++) {
-                if (cells[i][j]) {
-                    return false;
-                }
+        long mask = rowMask(x, spanX);
+        for (int j = y; j <= y2; j++) {
+            if ((mRows[j] & mask) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if {@code block} can be placed with its top left corner at (x, y), that is if
+     * none of the occupied cells of the block are occupied in this grid. Cells which are vacant
+     * in the block can overlap with occupied cells of the grid.
+     */
+    public boolean isRegionVacant(int x, int y, GridOccupancy block) {
+        if (x < 0 || y < 0 || x + block.mCountX > mCountX || y + block.mCountY > mCountY) {
+            return false;
+        }
+        for (int j = 0; j < block.mCountY; j++) {
+            if ((mRows[y + j] & (block.mRows[j] << x)) != 0) {
+                return false;
             }
         }
         return true;
@@ -59,9 +96,15 @@ public class GridOccupancy extends AbsGridOccupancy {
 
     public void markCells(int cellX, int cellY, int spanX, int spanY, boolean value) {
         if (cellX < 0 || cellY < 0) return;
-        for (int x = cellX; x < cellX + spanX && x < mCountX; x++) {
-            for (int y = cellY; y < cellY + spanY && y < mCountY; y++) {
-                cells[x][y] = value;
+        int x2 = Math.min(cellX + spanX, mCountX);
+        int y2 = Math.min(cellY + spanY, mCountY);
+        if (cellX >= x2) return;
+        long mask = rowMask(cellX, x2 - cellX);
+        for (int y = cellY; y < y2; y++) {
+            if (value) {
+                mRows[y] |= mask;
+            } else {
+                mRows[y] &= ~mask;
             }
         }
     }
@@ -82,12 +125,33 @@ public class GridOccupancy extends AbsGridOccupancy {
         markCells(0, 0, mCountX, mCountY, false);
     }
 
+    /**
+     * Returns the mask of {@code span} bits starting at bit {@code x}
+     */
+    private static long rowMask(int x, int span) {
+        return (span >= Long.SIZE ? -1L : (1L << span) - 1) << x;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof GridOccupancy)) {
+            return false;
+        }
+        GridOccupancy other = (GridOccupancy) obj;
+        return mCountX == other.mCountX && Arrays.equals(mRows, other.mRows);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * mCountX + Arrays.hashCode(mRows);
+    }
+
     @Override
     public String toString() {
         StringBuilder s = new StringBuilder("Grid: \n");
         for (int y = 0; y < mCountY; y++) {
             for (int x = 0; x < mCountX; x++) {
-                s.append(cells[x][y] ? 1 : 0).append(" ");
+                s.append(isOccupied(x, y) ? 1 : 0).append(" ");
             }
             s.append("\n");
         }
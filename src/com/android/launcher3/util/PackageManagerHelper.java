@@ -30,6 +30,7 @@ import android.content.pm.ResolveInfo;
 import android.graphics.Rect;
 import android.net.Uri;
 import android.os.Bundle;
+import android.os.Process;
 import android.os.UserHandle;
 import android.text.TextUtils;
 import android.util.Log;
@@ -118,6 +119,27 @@ public class PackageManagerHelper {
         }
     }
 
+    /**
+     * Returns the package info of the provided package for {@param user}, or null if it isn't
+     * installed for that user or can't be resolved for it.
+     */
+    @Nullable
+    public PackageInfo getPackageInfo(@NonNull final String packageName,
+            @NonNull final UserHandle user, final int flags) {
+        PackageManager pm = mPm;
+        if (!Process.myUserHandle().equals(user)) {
+            if (!Utilities.ATLEAST_R) {
+                return null;
+            }
+            pm = mContext.createContextAsUser(user, 0).getPackageManager();
+        }
+        try {
+            return pm.getPackageInfo(packageName, flags);
+        } catch (PackageManager.NameNotFoundException e) {
+            return null;
+        }
+    }
+
     public boolean isSafeMode() {
         return mPm.isSafeMode();
     }
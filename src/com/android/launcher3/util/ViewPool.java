@@ -17,6 +17,8 @@ package com.android.launcher3.util;
 
 import android.content.Context;
 import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -24,9 +26,12 @@ import android.view.ViewGroup;
 import androidx.annotation.AnyThread;
 import androidx.annotation.Nullable;
 import androidx.annotation.UiThread;
+import androidx.annotation.VisibleForTesting;
 
 import com.android.launcher3.util.ViewPool.Reusable;
 
+import java.util.concurrent.Executor;
+
 /**
  * Utility class to maintain a pool of reusable views.
  * During initialization, views are inflated on the background thread.
@@ -40,6 +45,13 @@ public class ViewPool<T extends View & Reusable> {
     private final int mLayoutId;
 
     private int mCurrentSize = 0;
+    // Number of views created by this pool and not dropped, including the ones in use
+    private int mCreatedCount = 0;
+    // Number of views being inflated in the background
+    private int mPendingCount = 0;
+
+    @Nullable
+    private volatile InflationListener mInflationListener;
 
     public ViewPool(Context context, @Nullable ViewGroup parent,
             int layoutId, int maxSize, int initialSize) {
@@ -57,6 +69,7 @@ public class ViewPool<T extends View & Reusable> {
     private void initPool(int initialSize) {
         Preconditions.assertUIThread();
         Handler handler = new Handler();
+        mPendingCount += initialSize;
 
         // LayoutInflater is not thread safe as it maintains a global variable 'mConstructorArgs'.
         // Create a different copy to use on the background thread.
@@ -67,11 +80,69 @@ public class ViewPool<T extends View & Reusable> {
         new Thread(() -> {
             for (int i = 0; i < initialSize; i++) {
                 T view = inflateNewView(inflater);
-                handler.post(() -> addToPool(view));
+                handler.post(() -> onInflatedInBackground(view));
             }
         }, "ViewPool-init").start();
     }
 
+    /**
+     * Inflates views on {@param executor} until this pool created {@param targetCount} views,
+     * counting the ones which are in use.
+     */
+    @UiThread
+    public void preinflate(int targetCount, Executor executor) {
+        Preconditions.assertUIThread();
+        int count = Math.min(targetCount, mPool.length) - mCreatedCount - mPendingCount;
+        if (count <= 0) {
+            return;
+        }
+        mPendingCount += count;
+        Handler handler = new Handler();
+        LayoutInflater inflater = mInflater.cloneInContext(mInflater.getContext());
+        executor.execute(() -> {
+            for (int i = 0; i < count; i++) {
+                T view = inflateNewView(inflater);
+                handler.post(() -> onInflatedInBackground(view));
+            }
+        });
+    }
+
+    /**
+     * Sets a listener called on the inflating thread after each view inflation.
+     */
+    public void setInflationListener(@Nullable InflationListener listener) {
+        mInflationListener = listener;
+    }
+
+    /**
+     * Returns the number of views created by this pool which were not dropped, including the
+     * ones in use.
+     */
+    @UiThread
+    public int getCreatedCount() {
+        return mCreatedCount;
+    }
+
+    /**
+     * Returns the number of views ready to be used.
+     */
+    @UiThread
+    public int getAvailableCount() {
+        return mCurrentSize;
+    }
+
+    @VisibleForTesting
+    public int getMaxSize() {
+        return mPool.length;
+    }
+
+    @UiThread
+    private void onInflatedInBackground(T view) {
+        mPendingCount--;
+        mCreatedCount++;
+        addToPool(view);
+    }
+
     @UiThread
     public void recycle(T view) {
         Preconditions.assertUIThread();
@@ -84,6 +155,7 @@ public class ViewPool<T extends View & Reusable> {
         Preconditions.assertUIThread();
         if (mCurrentSize >= mPool.length) {
             // pool is full
+            mCreatedCount--;
             return;
         }
 
@@ -98,12 +170,34 @@ public class ViewPool<T extends View & Reusable> {
             mCurrentSize--;
             return (T) mPool[mCurrentSize];
         }
+        mCreatedCount++;
         return inflateNewView(mInflater);
     }
 
     @AnyThread
     private T inflateNewView(LayoutInflater inflater) {
-        return (T) inflater.inflate(mLayoutId, mParent, false);
+        InflationListener listener = mInflationListener;
+        if (listener == null) {
+            return (T) inflater.inflate(mLayoutId, mParent, false);
+        }
+        long start = SystemClock.elapsedRealtimeNanos();
+        T view = (T) inflater.inflate(mLayoutId, mParent, false);
+        listener.onViewInflated(SystemClock.elapsedRealtimeNanos() - start,
+                Looper.myLooper() == Looper.getMainLooper());
+        return view;
+    }
+
+    /**
+     * Interface to be notified of the views inflated by a pool
+     */
+    public interface InflationListener {
+
+        /**
+         * Called after a view is inflated, on the inflating thread
+         *
+         * @param onMainThread whether the view was inflated synchronously on the main thread
+         */
+        void onViewInflated(long durationNanos, boolean onMainThread);
     }
 
     /**
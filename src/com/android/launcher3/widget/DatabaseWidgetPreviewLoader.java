@@ -15,6 +15,8 @@
  */
 package com.android.launcher3.widget;
 
+import static com.android.launcher3.config.FeatureFlags.ENABLE_PARALLEL_WIDGET_PREVIEWS;
+import static com.android.launcher3.config.FeatureFlags.ENABLE_WIDGET_PREVIEW_CACHE;
 import static com.android.launcher3.util.Executors.MAIN_EXECUTOR;
 
 import android.content.Context;
@@ -27,12 +29,14 @@ import android.graphics.PorterDuff;
 import android.graphics.PorterDuffXfermode;
 import android.graphics.RectF;
 import android.graphics.drawable.Drawable;
-import android.os.AsyncTask;
+import android.os.CancellationSignal;
 import android.os.Handler;
 import android.util.Log;
 import android.util.Size;
+import android.view.View;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import com.android.launcher3.DeviceProfile;
 import com.android.launcher3.LauncherAppState;
@@ -58,9 +62,13 @@ public class DatabaseWidgetPreviewLoader {
 
     private final Context mContext;
     private final float mPreviewBoxCornerRadius;
+    @Nullable
+    private final WidgetPreviewCache mPreviewCache;
 
     public DatabaseWidgetPreviewLoader(Context context) {
         mContext = context;
+        mPreviewCache = ENABLE_WIDGET_PREVIEW_CACHE.get()
+                ? WidgetPreviewCache.INSTANCE.get(context) : null;
         float previewCornerRadius = RoundedCornerEnforcement.computeEnforcedRadius(context);
         mPreviewBoxCornerRadius = previewCornerRadius > 0
                 ? previewCornerRadius
@@ -68,23 +76,61 @@ public class DatabaseWidgetPreviewLoader {
     }
 
     /**
-     * Generates the widget preview on {@link AsyncTask#THREAD_POOL_EXECUTOR}. Must be
-     * called on UI thread.
+     * Returns the preview of {@param item} if it is already in memory, or null if it needs to be
+     * loaded using {@link #loadPreview}.
+     */
+    @Nullable
+    public Bitmap getCachedPreview(@NonNull WidgetItem item, @NonNull Size previewSize) {
+        return mPreviewCache != null ? mPreviewCache.getFromMemory(item, previewSize) : null;
+    }
+
+    /**
+     * Generates the widget preview in the background. With ENABLE_PARALLEL_WIDGET_PREVIEWS, the
+     * previews are generated by the {@link WidgetPreviewScheduler} pool, closest to the viewport
+     * first, and delivered once per frame. Otherwise they are generated one at a time on
+     * {@link Executors#UI_HELPER_EXECUTOR}. Must be called on UI thread.
      *
-     * @return a request id which can be used to cancel the request.
+     * @param view the view showing the preview, used to prioritize the visible previews
+     * @param onDropped called if the request is dropped because {@param view} is detached before
+     *                  the preview is generated
+     * @return a signal which can be used to cancel the request.
      */
     @NonNull
-    public HandlerRunnable loadPreview(
+    public CancellationSignal loadPreview(
             @NonNull WidgetItem item,
             @NonNull Size previewSize,
-            @NonNull Consumer<Bitmap> callback) {
+            @NonNull View view,
+            @NonNull Consumer<Bitmap> callback,
+            @NonNull Runnable onDropped) {
+        if (ENABLE_PARALLEL_WIDGET_PREVIEWS.get()) {
+            return WidgetPreviewScheduler.INSTANCE.schedule(view,
+                    () -> getOrGeneratePreview(item, previewSize), callback, onDropped);
+        }
         Handler handler = Executors.UI_HELPER_EXECUTOR.getHandler();
         HandlerRunnable<Bitmap> request = new HandlerRunnable<>(handler,
-                () -> generatePreview(item, previewSize.getWidth(), previewSize.getHeight()),
+                () -> getOrGeneratePreview(item, previewSize),
                 MAIN_EXECUTOR,
                 callback);
         Utilities.postAsyncCallback(handler, request);
-        return request;
+        CancellationSignal signal = new CancellationSignal();
+        signal.setOnCancelListener(request::cancel);
+        return signal;
+    }
+
+    /**
+     * Returns the cached preview of a widget, generating and caching it if needed.
+     */
+    private Bitmap getOrGeneratePreview(WidgetItem item, Size previewSize) {
+        if (mPreviewCache == null) {
+            return generatePreview(item, previewSize.getWidth(), previewSize.getHeight());
+        }
+        WidgetPreviewCache.Request request = mPreviewCache.newRequest(item, previewSize);
+        Bitmap preview = mPreviewCache.get(request);
+        if (preview == null) {
+            preview = generatePreview(item, previewSize.getWidth(), previewSize.getHeight());
+            mPreviewCache.put(request, preview);
+        }
+        return preview;
     }
 
     /**
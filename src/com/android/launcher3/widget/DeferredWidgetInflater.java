@@ -0,0 +1,224 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.widget;
+
+import static com.android.launcher3.LauncherSettings.Favorites.CONTAINER_DESKTOP;
+import static com.android.launcher3.LauncherSettings.Favorites.ITEM_TYPE_APPWIDGET;
+
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.SystemClock;
+import android.view.Choreographer;
+import android.view.View;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.UiThread;
+
+import com.android.launcher3.Launcher;
+import com.android.launcher3.Workspace;
+import com.android.launcher3.config.FeatureFlags;
+import com.android.launcher3.model.data.LauncherAppWidgetInfo;
+import com.android.launcher3.util.IntSet;
+
+import java.util.ArrayList;
+
+/**
+ * Defers the inflation of the widgets bound on the workspace pages which aren't shown first.
+ *
+ * <p>While binding the workspace, the widgets which aren't on the pages bound first or their
+ * neighbours are bound as lightweight placeholders. Once the binding is complete and the main
+ * thread is idle, or as soon as the workspace starts moving to another page, the placeholders are
+ * replaced by the actual widgets, closest to the destination page first, within a budget per frame.
+ */
+@UiThread
+public class DeferredWidgetInflater implements Choreographer.FrameCallback,
+        MessageQueue.IdleHandler {
+
+    // Time which can be spent inflating widgets in a frame, after the first one
+    private static final long FRAME_BUDGET_MS = 4;
+
+    private final Launcher mLauncher;
+    private final WidgetManagerHelper mWidgetManager;
+
+    private final ArrayList<DeferredAppWidgetHostView> mPlaceholders = new ArrayList<>();
+    // Pages on which the widgets are inflated while binding, or null if none are deferred
+    @Nullable
+    private IntSet mInflatedScreenIds;
+    private boolean mIdleHandlerAdded;
+    private boolean mFrameCallbackPosted;
+
+    public DeferredWidgetInflater(Launcher launcher) {
+        mLauncher = launcher;
+        mWidgetManager = new WidgetManagerHelper(launcher);
+    }
+
+    /**
+     * Called once the items on {@param boundPages} are bound, before the items on the other
+     * pages. The widgets of the pages which aren't next to them are deferred until the binding is
+     * complete.
+     */
+    public void onInitialBindComplete(IntSet boundPages) {
+        if (!FeatureFlags.ENABLE_DEFERRED_WIDGET_INFLATION.get()
+                || mLauncher.isSafeModeEnabled()) {
+            return;
+        }
+        Workspace<?> workspace = mLauncher.getWorkspace();
+        int panelCount = workspace.getPanelCount();
+        mInflatedScreenIds = new IntSet();
+        for (int screenId : boundPages) {
+            int pageIndex = workspace.getPageIndexForScreenId(screenId);
+            if (pageIndex < 0) {
+                continue;
+            }
+            for (int i = pageIndex - panelCount; i <= pageIndex + panelCount; i++) {
+                int neighbourId = workspace.getScreenIdForPageIndex(i);
+                if (neighbourId >= 0) {
+                    mInflatedScreenIds.add(neighbourId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Called once all the items are bound, to inflate the deferred widgets when idle.
+     */
+    public void onBindComplete() {
+        mInflatedScreenIds = null;
+        if (!mPlaceholders.isEmpty() && !mIdleHandlerAdded && !mFrameCallbackPosted) {
+            mIdleHandlerAdded = true;
+            Looper.myQueue().addIdleHandler(this);
+        }
+    }
+
+    /**
+     * Called when the workspace starts moving to another page, to inflate the deferred widgets
+     * without waiting for the main thread to be idle.
+     */
+    public void onPageBeginTransition() {
+        if (!mPlaceholders.isEmpty()) {
+            postFrameCallback();
+        }
+    }
+
+    /**
+     * Returns a placeholder to bind instead of the view of {@param item} if its inflation should
+     * be deferred, or null if it should be inflated now.
+     */
+    @Nullable
+    public View createPlaceholder(LauncherAppWidgetInfo item) {
+        if (mInflatedScreenIds == null
+                || item.container != CONTAINER_DESKTOP
+                || item.itemType != ITEM_TYPE_APPWIDGET
+                || item.restoreStatus != LauncherAppWidgetInfo.RESTORE_COMPLETED
+                || item.hasOptionFlag(LauncherAppWidgetInfo.OPTION_SEARCH_WIDGET)
+                || mInflatedScreenIds.contains(item.screenId)) {
+            return null;
+        }
+        LauncherAppWidgetProviderInfo providerInfo = mWidgetManager.getLauncherAppWidgetInfo(
+                item.appWidgetId, item.getTargetComponent());
+        if (providerInfo == null) {
+            // Let the widget be removed while binding
+            return null;
+        }
+        DeferredAppWidgetHostView placeholder = new DeferredAppWidgetHostView(mLauncher);
+        placeholder.setAppWidget(item.appWidgetId, providerInfo);
+        placeholder.setTag(item);
+        placeholder.setFocusable(true);
+        mPlaceholders.add(placeholder);
+        return placeholder;
+    }
+
+    /**
+     * Drops the pending placeholders, e.g. because the workspace is bound again.
+     */
+    public void reset() {
+        mPlaceholders.clear();
+        mInflatedScreenIds = null;
+        if (mIdleHandlerAdded) {
+            mIdleHandlerAdded = false;
+            Looper.myQueue().removeIdleHandler(this);
+        }
+        if (mFrameCallbackPosted) {
+            mFrameCallbackPosted = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+    }
+
+    @Override
+    public boolean queueIdle() {
+        mIdleHandlerAdded = false;
+        postFrameCallback();
+        return false;
+    }
+
+    private void postFrameCallback() {
+        if (mIdleHandlerAdded) {
+            mIdleHandlerAdded = false;
+            Looper.myQueue().removeIdleHandler(this);
+        }
+        if (!mFrameCallbackPosted) {
+            mFrameCallbackPosted = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        mFrameCallbackPosted = false;
+        long deadline = SystemClock.uptimeMillis() + FRAME_BUDGET_MS;
+        Workspace<?> workspace = mLauncher.getWorkspace();
+        do {
+            DeferredAppWidgetHostView placeholder = removeClosestPlaceholder(workspace);
+            if (placeholder == null) {
+                break;
+            }
+            placeholder.reInflate();
+        } while (SystemClock.uptimeMillis() < deadline);
+
+        if (!mPlaceholders.isEmpty()) {
+            postFrameCallback();
+        }
+    }
+
+    /**
+     * Removes and returns the placeholder closest to the page the workspace is moving to, dropping
+     * the placeholders which are no longer on the workspace.
+     */
+    @Nullable
+    private DeferredAppWidgetHostView removeClosestPlaceholder(Workspace<?> workspace) {
+        int nextPage = workspace.getNextPage();
+        int closestIndex = -1;
+        int closestDistance = Integer.MAX_VALUE;
+        for (int i = mPlaceholders.size() - 1; i >= 0; i--) {
+            DeferredAppWidgetHostView placeholder = mPlaceholders.get(i);
+            int pageIndex = workspace.getPageIndexForScreenId(
+                    ((LauncherAppWidgetInfo) placeholder.getTag()).screenId);
+            if (pageIndex < 0 || !placeholder.isAttachedToWindow()) {
+                mPlaceholders.remove(i);
+                if (closestIndex > i) {
+                    closestIndex--;
+                }
+                continue;
+            }
+            int distance = Math.abs(pageIndex - nextPage);
+            if (distance < closestDistance) {
+                closestDistance = distance;
+                closestIndex = i;
+            }
+        }
+        return closestIndex < 0 ? null : mPlaceholders.remove(closestIndex);
+    }
+}
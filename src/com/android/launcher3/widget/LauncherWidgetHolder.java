@@ -173,7 +173,12 @@ public class LauncherWidgetHolder {
     public void deleteAppWidgetId(int appWidgetId) {
         mWidgetHost.deleteAppWidgetId(appWidgetId);
         mViews.remove(appWidgetId);
-        if (FeatureFlags.ENABLE_CACHED_WIDGET.get()) {
+        if (!FeatureFlags.ENABLE_CACHED_WIDGET.get()) {
+            return;
+        }
+        if (FeatureFlags.ENABLE_BOUNDED_REMOTE_VIEWS_CACHE.get()) {
+            WidgetRemoteViewsCache.INSTANCE.get(mContext).remove(appWidgetId);
+        } else {
             final LauncherAppState state = LauncherAppState.getInstance(mContext);
             synchronized (state.mCachedRemoteViews) {
                 state.mCachedRemoteViews.delete(appWidgetId);
@@ -319,7 +324,14 @@ public class LauncherWidgetHolder {
         if (WidgetsModel.GO_DISABLE_WIDGETS) {
             return;
         }
-        if (FeatureFlags.ENABLE_CACHED_WIDGET.get()) {
+        if (FeatureFlags.ENABLE_CACHED_WIDGET.get()
+                && FeatureFlags.ENABLE_BOUNDED_REMOTE_VIEWS_CACHE.get()) {
+            // Cache the content from the widgets when Launcher stops listening to widget updates
+            final WidgetRemoteViewsCache cache = WidgetRemoteViewsCache.INSTANCE.get(mContext);
+            for (int i = 0; i < mViews.size(); i++) {
+                cache.put(mViews.keyAt(i), mViews.valueAt(i).mLastRemoteViews);
+            }
+        } else if (FeatureFlags.ENABLE_CACHED_WIDGET.get()) {
             // Cache the content from the widgets when Launcher stops listening to widget updates
             final LauncherAppState state = LauncherAppState.getInstance(mContext);
             synchronized (state.mCachedRemoteViews) {
@@ -498,6 +510,9 @@ public class LauncherWidgetHolder {
 
     @Nullable
     private RemoteViews getCachedRemoteViews(int appWidgetId) {
+        if (FeatureFlags.ENABLE_BOUNDED_REMOTE_VIEWS_CACHE.get()) {
+            return WidgetRemoteViewsCache.INSTANCE.get(mContext).get(appWidgetId);
+        }
         final LauncherAppState state = LauncherAppState.getInstance(mContext);
         synchronized (state.mCachedRemoteViews) {
             return state.mCachedRemoteViews.get(appWidgetId);
@@ -23,6 +23,7 @@ import static com.android.launcher3.widget.util.WidgetSizes.getWidgetItemSizePx;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.drawable.Drawable;
+import android.os.CancellationSignal;
 import android.os.Process;
 import android.text.TextUtils;
 import android.util.AttributeSet;
@@ -48,7 +49,6 @@ import com.android.launcher3.Launcher;
 import com.android.launcher3.R;
 import com.android.launcher3.icons.FastBitmapDrawable;
 import com.android.launcher3.icons.RoundDrawableWrapper;
-import com.android.launcher3.icons.cache.HandlerRunnable;
 import com.android.launcher3.model.WidgetItem;
 import com.android.launcher3.views.ActivityContext;
 
@@ -87,7 +87,10 @@ public class WidgetCell extends LinearLayout {
 
     private final DatabaseWidgetPreviewLoader mWidgetPreviewLoader;
 
-    protected HandlerRunnable mActiveRequest;
+    protected CancellationSignal mActiveRequest;
+    // Callback of the preview request dropped when this view was detached, if any
+    @Nullable
+    private Consumer<Bitmap> mDroppedPreviewCallback;
     private boolean mAnimatePreview = true;
 
     protected final ActivityContext mActivity;
@@ -168,6 +171,7 @@ public class WidgetCell extends LinearLayout {
             mActiveRequest.cancel();
             mActiveRequest = null;
         }
+        mDroppedPreviewCallback = null;
         mRemoteViewsPreview = null;
         if (mAppWidgetHostViewPreview != null) {
             mWidgetImageContainer.removeView(mAppWidgetHostViewPreview);
@@ -253,12 +257,33 @@ public class WidgetCell extends LinearLayout {
         } else if (cachedPreview != null) {
             applyPreview(cachedPreview);
         } else {
-            if (mActiveRequest == null) {
-                mActiveRequest = mWidgetPreviewLoader.loadPreview(mItem, mWidgetSize, callback);
+            Bitmap preview = mWidgetPreviewLoader.getCachedPreview(mItem, mWidgetSize);
+            if (preview != null) {
+                applyPreview(preview);
+            } else if (mActiveRequest == null) {
+                loadPreview(callback);
             }
         }
     }
 
+    private void loadPreview(@NonNull Consumer<Bitmap> callback) {
+        mDroppedPreviewCallback = null;
+        mActiveRequest = mWidgetPreviewLoader.loadPreview(mItem, mWidgetSize, this, callback,
+                () -> {
+                    mActiveRequest = null;
+                    mDroppedPreviewCallback = callback;
+                });
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        // Load the preview dropped when this view was scrolled out of view
+        if (mDroppedPreviewCallback != null && mItem != null && mActiveRequest == null) {
+            loadPreview(mDroppedPreviewCallback);
+        }
+    }
+
     private void setAppWidgetHostViewPreview(
             NavigableAppWidgetHostView appWidgetHostViewPreview,
             LauncherAppWidgetProviderInfo providerInfo,
@@ -0,0 +1,264 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.widget;
+
+import static com.android.launcher3.util.Executors.ORDERED_BG_EXECUTOR;
+
+import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.os.UserHandle;
+import android.util.LruCache;
+import android.util.Size;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import com.android.launcher3.LauncherAppState;
+import com.android.launcher3.model.WidgetItem;
+import com.android.launcher3.pm.UserCache;
+import com.android.launcher3.util.ComponentKey;
+import com.android.launcher3.util.MainThreadInitializedObject;
+import com.android.launcher3.util.PackageManagerHelper;
+import com.android.launcher3.util.SafeCloseable;
+
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Cache of the previews generated for the widget picker, shared by all the {@link WidgetCell}s.
+ *
+ * <p>The previews are kept in memory up to a byte budget, and persisted in a
+ * {@link WidgetPreviewDiskCache} so that reopening the picker, even after the process restarts,
+ * doesn't need to generate them again. The entries of a package are removed when its widgets are
+ * updated.
+ */
+public class WidgetPreviewCache implements SafeCloseable {
+
+    public static final MainThreadInitializedObject<WidgetPreviewCache> INSTANCE =
+            new MainThreadInitializedObject<>(WidgetPreviewCache::new);
+
+    private static final int MAX_MEMORY_BYTES = 16 * 1024 * 1024;
+    private static final int MAX_DISK_ENTRIES = 256;
+
+    private final Context mContext;
+    private final PackageManagerHelper mPackageManagerHelper;
+    private final LruCache<PreviewKey, Bitmap> mMemoryCache;
+    private final WidgetPreviewDiskCache mDiskCache;
+    // Guarded by this
+    private int mInvalidationCount;
+
+    private WidgetPreviewCache(Context context) {
+        this(context, MAX_MEMORY_BYTES, new WidgetPreviewDiskCache(context, MAX_DISK_ENTRIES));
+    }
+
+    @VisibleForTesting
+    WidgetPreviewCache(Context context, int maxMemoryBytes, WidgetPreviewDiskCache diskCache) {
+        mContext = context;
+        mPackageManagerHelper = new PackageManagerHelper(context);
+        mDiskCache = diskCache;
+        mMemoryCache = new LruCache<>(maxMemoryBytes) {
+            @Override
+            protected int sizeOf(PreviewKey key, Bitmap value) {
+                return value.getAllocationByteCount();
+            }
+        };
+    }
+
+    /**
+     * Returns the preview of {@param item} at {@param size} if it is in memory, or null.
+     */
+    @Nullable
+    public Bitmap getFromMemory(@NonNull WidgetItem item, @NonNull Size size) {
+        return mMemoryCache.get(new PreviewKey(item, size, getConfigState()));
+    }
+
+    /**
+     * Returns a request for the preview of {@param item} at {@param size}, capturing the state of
+     * the cache and of the package before the preview is looked up and generated if needed.
+     */
+    @WorkerThread
+    @NonNull
+    public Request newRequest(@NonNull WidgetItem item, @NonNull Size size) {
+        // Capture the invalidation count first, so that a package updated while its disk key is
+        // computed drops the preview.
+        int invalidationCount;
+        synchronized (this) {
+            invalidationCount = mInvalidationCount;
+        }
+        String configState = getConfigState();
+        return new Request(new PreviewKey(item, size, configState), invalidationCount,
+                getDiskCacheKey(item, size, configState));
+    }
+
+    /**
+     * Returns the preview of {@param request} from memory or disk, or null if it needs to be
+     * generated.
+     */
+    @WorkerThread
+    @Nullable
+    public Bitmap get(@NonNull Request request) {
+        Bitmap preview = mMemoryCache.get(request.key);
+        if (preview != null) {
+            return preview;
+        }
+        preview = request.diskKey != null ? mDiskCache.get(request.diskKey) : null;
+        if (preview != null) {
+            synchronized (this) {
+                if (request.invalidationCount == mInvalidationCount) {
+                    mMemoryCache.put(request.key, preview);
+                }
+            }
+        }
+        return preview;
+    }
+
+    /**
+     * Adds the preview generated for {@param request} to the cache, unless the cache was
+     * invalidated since the request was created. It is persisted with the package state captured
+     * by the request, after the requests which are already queued.
+     */
+    @WorkerThread
+    public void put(@NonNull Request request, @NonNull Bitmap preview) {
+        synchronized (this) {
+            if (request.invalidationCount != mInvalidationCount) {
+                // The preview may have been generated from the previous version of the package
+                return;
+            }
+            mMemoryCache.put(request.key, preview);
+        }
+        WidgetPreviewDiskCache.Key diskKey = request.diskKey;
+        if (diskKey != null) {
+            ORDERED_BG_EXECUTOR.execute(() -> mDiskCache.put(diskKey, preview));
+        }
+    }
+
+    /**
+     * Removes the previews of the widgets and shortcuts of {@param packageNames} for
+     * {@param user}, so that they are generated again.
+     */
+    public void invalidate(@NonNull Set<String> packageNames, @NonNull UserHandle user) {
+        long userSerial = UserCache.INSTANCE.get(mContext).getSerialNumberForUser(user);
+        synchronized (this) {
+            mInvalidationCount++;
+            for (PreviewKey key : mMemoryCache.snapshot().keySet()) {
+                if (key.componentKey.user.equals(user) && packageNames.contains(
+                        key.componentKey.componentName.getPackageName())) {
+                    mMemoryCache.remove(key);
+                }
+            }
+        }
+        ORDERED_BG_EXECUTOR.execute(() -> {
+            for (String packageName : packageNames) {
+                mDiskCache.removeAll(packageName, userSerial);
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        mMemoryCache.evictAll();
+        ORDERED_BG_EXECUTOR.execute(mDiskCache::close);
+    }
+
+    /**
+     * Returns the state of the configuration and of the system icons the previews are rendered
+     * with, so that previews rendered for a previous state are not returned.
+     */
+    private String getConfigState() {
+        Configuration config = mContext.getResources().getConfiguration();
+        return config.densityDpi
+                + "," + (config.uiMode & Configuration.UI_MODE_NIGHT_MASK)
+                + "," + config.getLocales().toLanguageTags()
+                + "," + LauncherAppState.getInstance(mContext).getIconProvider()
+                        .getSystemIconState();
+    }
+
+    /**
+     * Returns the key of the preview in the disk cache, or null if it can't be persisted.
+     */
+    @WorkerThread
+    @Nullable
+    private WidgetPreviewDiskCache.Key getDiskCacheKey(WidgetItem item, Size size,
+            String configState) {
+        String packageName = item.componentName.getPackageName();
+        PackageInfo info = mPackageManagerHelper.getPackageInfo(packageName, item.user,
+                PackageManager.GET_UNINSTALLED_PACKAGES);
+        if (info == null) {
+            return null;
+        }
+        String state = info.getLongVersionCode()
+                + "," + info.lastUpdateTime
+                + "," + configState;
+        return new WidgetPreviewDiskCache.Key(item.componentName.flattenToString(), packageName,
+                UserCache.INSTANCE.get(mContext).getSerialNumberForUser(item.user),
+                size.getWidth(), size.getHeight(), state);
+    }
+
+    /**
+     * A preview being looked up or generated, see {@link #newRequest}.
+     */
+    public static final class Request {
+
+        private final PreviewKey key;
+        private final int invalidationCount;
+        @Nullable
+        private final WidgetPreviewDiskCache.Key diskKey;
+
+        private Request(PreviewKey key, int invalidationCount,
+                @Nullable WidgetPreviewDiskCache.Key diskKey) {
+            this.key = key;
+            this.invalidationCount = invalidationCount;
+            this.diskKey = diskKey;
+        }
+    }
+
+    /** Identifies a preview in memory, rendered with a given configuration. */
+    private static class PreviewKey {
+
+        final ComponentKey componentKey;
+        final int width;
+        final int height;
+        final String configState;
+
+        PreviewKey(WidgetItem item, Size size, String configState) {
+            componentKey = new ComponentKey(item.componentName, item.user);
+            width = size.getWidth();
+            height = size.getHeight();
+            this.configState = configState;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof PreviewKey)) {
+                return false;
+            }
+            PreviewKey other = (PreviewKey) o;
+            return componentKey.equals(other.componentKey)
+                    && width == other.width && height == other.height
+                    && configState.equals(other.configState);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(componentKey, width, height, configState);
+        }
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.widget;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.android.launcher3.icons.GraphicsUtils;
+
+/**
+ * Persists the widget and shortcut previews generated for the widget picker, so that they don't
+ * need to be generated again each time the picker opens.
+ *
+ * <p>Entries are keyed by the provider component, the user serial and the preview size, and
+ * store the state they were generated from: the package version and the display configuration.
+ * Only the most recently used entries are kept.
+ */
+class WidgetPreviewDiskCache extends SQLiteOpenHelper {
+
+    private static final String TAG = "WidgetPreviewDiskCache";
+
+    private static final String DB_NAME = "widget_previews.db";
+    private static final int DB_VERSION = 1;
+
+    private static final String TABLE_NAME = "widget_previews";
+    private static final String COLUMN_COMPONENT = "component";
+    private static final String COLUMN_PACKAGE = "package";
+    private static final String COLUMN_USER = "user";
+    private static final String COLUMN_WIDTH = "width";
+    private static final String COLUMN_HEIGHT = "height";
+    private static final String COLUMN_STATE = "state";
+    private static final String COLUMN_PREVIEW = "preview";
+    private static final String COLUMN_LAST_USED = "last_used";
+
+    private static final String[] ENTRY_COLUMNS = new String[] {COLUMN_STATE, COLUMN_PREVIEW};
+    private static final String KEY_SELECTION = COLUMN_COMPONENT + " = ? AND " + COLUMN_USER
+            + " = ? AND " + COLUMN_WIDTH + " = ? AND " + COLUMN_HEIGHT + " = ?";
+
+    private final int mMaxEntries;
+
+    WidgetPreviewDiskCache(Context context, int maxEntries) {
+        super(context, DB_NAME, null, DB_VERSION);
+        mMaxEntries = maxEntries;
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_NAME + " ("
+                + COLUMN_COMPONENT + " TEXT NOT NULL, "
+                + COLUMN_PACKAGE + " TEXT NOT NULL, "
+                + COLUMN_USER + " INTEGER NOT NULL, "
+                + COLUMN_WIDTH + " INTEGER NOT NULL, "
+                + COLUMN_HEIGHT + " INTEGER NOT NULL, "
+                + COLUMN_STATE + " TEXT NOT NULL, "
+                + COLUMN_PREVIEW + " BLOB NOT NULL, "
+                + COLUMN_LAST_USED + " INTEGER NOT NULL DEFAULT 0, "
+                + "PRIMARY KEY (" + COLUMN_COMPONENT + ", " + COLUMN_USER + ", "
+                + COLUMN_WIDTH + ", " + COLUMN_HEIGHT + "))");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        resetTable(db);
+    }
+
+    @Override
+    public void onDowngrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        resetTable(db);
+    }
+
+    private void resetTable(SQLiteDatabase db) {
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_NAME);
+        onCreate(db);
+    }
+
+    /**
+     * Returns the preview persisted for {@param key}, or null if there is none or it was
+     * generated from a different state.
+     */
+    @WorkerThread
+    @Nullable
+    Bitmap get(Key key) {
+        try (Cursor c = getReadableDatabase().query(TABLE_NAME, ENTRY_COLUMNS, KEY_SELECTION,
+                key.getSelectionArgs(), null, null, null)) {
+            if (!c.moveToNext() || !key.mState.equals(c.getString(0))) {
+                return null;
+            }
+            byte[] data = c.getBlob(1);
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inPreferredConfig = Bitmap.Config.HARDWARE;
+            Bitmap preview = BitmapFactory.decodeByteArray(data, 0, data.length, options);
+            if (preview == null) {
+                return null;
+            }
+            touch(key);
+            return preview;
+        } catch (SQLiteException e) {
+            Log.w(TAG, "Failed to read widget preview", e);
+            return null;
+        }
+    }
+
+    /**
+     * Persists {@param preview} for {@param key}, removing the least recently used entries if
+     * there are too many.
+     */
+    @WorkerThread
+    void put(Key key, Bitmap preview) {
+        byte[] data = GraphicsUtils.flattenBitmap(preview);
+        if (data == null) {
+            return;
+        }
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_COMPONENT, key.mComponent);
+        values.put(COLUMN_PACKAGE, key.mPackageName);
+        values.put(COLUMN_USER, key.mUserSerial);
+        values.put(COLUMN_WIDTH, key.mWidth);
+        values.put(COLUMN_HEIGHT, key.mHeight);
+        values.put(COLUMN_STATE, key.mState);
+        values.put(COLUMN_PREVIEW, data);
+        values.put(COLUMN_LAST_USED, System.currentTimeMillis());
+        try {
+            SQLiteDatabase db = getWritableDatabase();
+            db.beginTransaction();
+            try {
+                db.insertWithOnConflict(TABLE_NAME, null, values,
+                        SQLiteDatabase.CONFLICT_REPLACE);
+                db.execSQL("DELETE FROM " + TABLE_NAME + " WHERE rowid NOT IN (SELECT rowid FROM "
+                        + TABLE_NAME + " ORDER BY " + COLUMN_LAST_USED + " DESC LIMIT "
+                        + mMaxEntries + ")");
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        } catch (SQLiteException e) {
+            Log.w(TAG, "Failed to write widget preview", e);
+        }
+    }
+
+    /**
+     * Removes the entries of the given package and user.
+     */
+    @WorkerThread
+    void removeAll(String packageName, long userSerial) {
+        try {
+            getWritableDatabase().delete(TABLE_NAME,
+                    COLUMN_PACKAGE + " = ? AND " + COLUMN_USER + " = ?",
+                    new String[] {packageName, Long.toString(userSerial)});
+        } catch (SQLiteException e) {
+            Log.w(TAG, "Failed to remove widget previews", e);
+        }
+    }
+
+    private void touch(Key key) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_LAST_USED, System.currentTimeMillis());
+        getWritableDatabase().update(TABLE_NAME, values, KEY_SELECTION, key.getSelectionArgs());
+    }
+
+    /**
+     * Identifies a widget preview, along with the state it was generated from.
+     */
+    static class Key {
+
+        final String mComponent;
+        final String mPackageName;
+        final long mUserSerial;
+        final int mWidth;
+        final int mHeight;
+        final String mState;
+
+        /**
+         * @param state the package version and everything else the preview depends on
+         */
+        Key(String component, String packageName, long userSerial, int width, int height,
+                String state) {
+            mComponent = component;
+            mPackageName = packageName;
+            mUserSerial = userSerial;
+            mWidth = width;
+            mHeight = height;
+            mState = state;
+        }
+
+        String[] getSelectionArgs() {
+            return new String[] {mComponent, Long.toString(mUserSerial),
+                    Integer.toString(mWidth), Integer.toString(mHeight)};
+        }
+    }
+}
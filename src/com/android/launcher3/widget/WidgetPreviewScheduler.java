@@ -0,0 +1,224 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.widget;
+
+import static android.os.Process.THREAD_PRIORITY_FOREGROUND;
+
+import static com.android.launcher3.util.Executors.MAIN_EXECUTOR;
+
+import android.graphics.Bitmap;
+import android.os.CancellationSignal;
+import android.view.Choreographer;
+import android.view.View;
+import android.view.ViewParent;
+
+import androidx.annotation.UiThread;
+import androidx.annotation.WorkerThread;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.android.launcher3.util.Executors.SimpleThreadFactory;
+
+import java.util.ArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Generates the widget picker previews on a small pool of worker threads.
+ *
+ * <p>The pending previews are generated in the order of the distance of their views to the
+ * viewport of the list containing them, which is updated every frame, so that the visible rows
+ * are generated first. The previews of views which are no longer attached, e.g. because they were
+ * scrolled out of view, are dropped. The generated previews are delivered on the main thread
+ * together, once per frame.
+ */
+class WidgetPreviewScheduler implements Choreographer.FrameCallback {
+
+    private static final int POOL_SIZE =
+            Math.max(2, Math.min(Runtime.getRuntime().availableProcessors() - 1, 3));
+    private static final int KEEP_ALIVE_SECONDS = 1;
+
+    static final WidgetPreviewScheduler INSTANCE = new WidgetPreviewScheduler();
+
+    private final ThreadPoolExecutor mExecutor;
+
+    private final Object mLock = new Object();
+    // Guarded by mLock
+    private final ArrayList<Request> mPending = new ArrayList<>();
+    private final ArrayList<Request> mCompleted = new ArrayList<>();
+    private boolean mFrameCallbackPosted;
+
+    // Only accessed on the main thread
+    private final ArrayList<Request> mTmpRequests = new ArrayList<>();
+
+    private WidgetPreviewScheduler() {
+        mExecutor = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new SimpleThreadFactory("widget-preview-", THREAD_PRIORITY_FOREGROUND));
+        mExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Schedules the generation of the preview shown by {@param view}.
+     *
+     * @param callback called on the main thread with the generated preview
+     * @param onDropped called on the main thread if the view is detached before the preview is
+     *                  generated, in which case the preview isn't generated
+     * @return a signal which can be used to cancel the request.
+     */
+    @UiThread
+    CancellationSignal schedule(View view, Supplier<Bitmap> generator,
+            Consumer<Bitmap> callback, Runnable onDropped) {
+        Request request = new Request(view, generator, callback, onDropped);
+        request.distance = getViewportDistance(view);
+        request.signal.setOnCancelListener(() -> {
+            synchronized (mLock) {
+                mPending.remove(request);
+            }
+        });
+        synchronized (mLock) {
+            mPending.add(request);
+            postFrameCallbackLocked();
+        }
+        // One task per request, each generating the closest pending preview
+        mExecutor.execute(this::generateNext);
+        return request.signal;
+    }
+
+    @WorkerThread
+    private void generateNext() {
+        Request request = null;
+        synchronized (mLock) {
+            int count = mPending.size();
+            for (int i = 0; i < count; i++) {
+                Request r = mPending.get(i);
+                if (request == null || r.distance < request.distance) {
+                    request = r;
+                }
+            }
+            if (request == null) {
+                return;
+            }
+            mPending.remove(request);
+        }
+        if (request.signal.isCanceled()) {
+            return;
+        }
+        request.result = request.generator.get();
+        synchronized (mLock) {
+            mCompleted.add(request);
+            postFrameCallbackLocked();
+        }
+    }
+
+    private void postFrameCallbackLocked() {
+        if (!mFrameCallbackPosted) {
+            mFrameCallbackPosted = true;
+            MAIN_EXECUTOR.execute(() -> Choreographer.getInstance().postFrameCallback(this));
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        ArrayList<Request> requests = mTmpRequests;
+        synchronized (mLock) {
+            mFrameCallbackPosted = false;
+            requests.addAll(mCompleted);
+            mCompleted.clear();
+        }
+        for (int i = 0; i < requests.size(); i++) {
+            Request request = requests.get(i);
+            if (!request.signal.isCanceled()) {
+                request.callback.accept(request.result);
+            }
+        }
+        requests.clear();
+
+        synchronized (mLock) {
+            for (int i = mPending.size() - 1; i >= 0; i--) {
+                Request request = mPending.get(i);
+                if (request.view.isAttachedToWindow()) {
+                    request.distance = getViewportDistance(request.view);
+                } else {
+                    mPending.remove(i);
+                    requests.add(request);
+                }
+            }
+            if (!mPending.isEmpty() && !mFrameCallbackPosted) {
+                // Keep updating the priorities while previews are pending, unless a preview
+                // completed since the start of this frame already posted the next callback.
+                mFrameCallbackPosted = true;
+                Choreographer.getInstance().postFrameCallback(this);
+            }
+        }
+        for (int i = 0; i < requests.size(); i++) {
+            Request request = requests.get(i);
+            if (!request.signal.isCanceled()) {
+                request.onDropped.run();
+            }
+        }
+        requests.clear();
+    }
+
+    /**
+     * Returns the distance in pixels between {@param view} and the viewport of the closest
+     * {@link RecyclerView} containing it, or 0 if it is visible or not in a RecyclerView.
+     */
+    @UiThread
+    private static int getViewportDistance(View view) {
+        int top = 0;
+        View child = view;
+        ViewParent parent = view.getParent();
+        while (parent instanceof View) {
+            View parentView = (View) parent;
+            top += child.getTop() + (int) child.getTranslationY() - parentView.getScrollY();
+            if (parent instanceof RecyclerView) {
+                int bottom = top + view.getHeight();
+                if (bottom < 0) {
+                    return -bottom;
+                }
+                return Math.max(0, top - parentView.getHeight());
+            }
+            child = parentView;
+            parent = parentView.getParent();
+        }
+        return 0;
+    }
+
+    private static class Request {
+
+        final View view;
+        final Supplier<Bitmap> generator;
+        final Consumer<Bitmap> callback;
+        final Runnable onDropped;
+        final CancellationSignal signal = new CancellationSignal();
+
+        // Guarded by mLock
+        int distance;
+        // Written before the request is completed, read on the main thread after
+        Bitmap result;
+
+        Request(View view, Supplier<Bitmap> generator, Consumer<Bitmap> callback,
+                Runnable onDropped) {
+            this.view = view;
+            this.generator = generator;
+            this.callback = callback;
+            this.onDropped = onDropped;
+        }
+    }
+}
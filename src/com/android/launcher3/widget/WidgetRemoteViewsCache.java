@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.widget;
+
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.os.Parcel;
+import android.util.LruCache;
+import android.widget.RemoteViews;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.launcher3.util.MainThreadInitializedObject;
+import com.android.launcher3.util.SafeCloseable;
+
+import java.io.PrintWriter;
+
+/**
+ * Cache of the last {@link RemoteViews} of each app widget, used to show the widgets when they
+ * are bound while the widget host isn't listening, instead of deferred placeholders.
+ *
+ * <p>The entries are evicted in least recently used order once their estimated size exceeds a
+ * share of the app memory class, and that budget is reduced while the system is low on memory.
+ */
+public class WidgetRemoteViewsCache implements SafeCloseable {
+
+    public static final MainThreadInitializedObject<WidgetRemoteViewsCache> INSTANCE =
+            new MainThreadInitializedObject<>(WidgetRemoteViewsCache::new);
+
+    // Share of the app memory class which can be used by the cached RemoteViews
+    private static final int MEMORY_CLASS_BUDGET_DIVISOR = 32;
+
+    private final int mMaxBytes;
+    private final LruCache<Integer, Entry> mCache;
+    // Guarded by this
+    private int mHitCount;
+    private int mMissCount;
+
+    private WidgetRemoteViewsCache(Context context) {
+        this(context.getSystemService(ActivityManager.class).getMemoryClass() * 1024 * 1024
+                / MEMORY_CLASS_BUDGET_DIVISOR);
+    }
+
+    @VisibleForTesting
+    WidgetRemoteViewsCache(int maxBytes) {
+        mMaxBytes = maxBytes;
+        mCache = new LruCache<>(maxBytes) {
+            @Override
+            protected int sizeOf(Integer appWidgetId, Entry entry) {
+                return entry.size;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached views of {@param appWidgetId}, or null.
+     */
+    @Nullable
+    public synchronized RemoteViews get(int appWidgetId) {
+        Entry entry = mCache.get(appWidgetId);
+        if (entry == null) {
+            mMissCount++;
+            return null;
+        }
+        mHitCount++;
+        return entry.views;
+    }
+
+    /**
+     * Caches {@param views} as the last views of {@param appWidgetId}, or removes the cached views
+     * if it is null. Views larger than the whole budget are not cached.
+     */
+    public synchronized void put(int appWidgetId, @Nullable RemoteViews views) {
+        if (views == null) {
+            mCache.remove(appWidgetId);
+            return;
+        }
+        // The widgets which weren't updated since they were last cached keep the same views, so
+        // avoid estimating their size again.
+        Entry previous = mCache.snapshot().get(appWidgetId);
+        int size = previous != null && previous.views == views
+                ? previous.size : estimateSize(views);
+        if (size > mCache.maxSize()) {
+            mCache.remove(appWidgetId);
+            return;
+        }
+        mCache.put(appWidgetId, new Entry(views, size));
+    }
+
+    /**
+     * Removes the cached views of {@param appWidgetId}.
+     */
+    public void remove(int appWidgetId) {
+        mCache.remove(appWidgetId);
+    }
+
+    /**
+     * Trims the cache according to {@param level}, see {@link ComponentCallbacks2}. The budget is
+     * halved while the system is low on memory, and restored once the launcher is only notified
+     * that its UI is hidden.
+     */
+    public synchronized void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            mCache.evictAll();
+            mCache.resize(mMaxBytes / 2);
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            mCache.resize(mMaxBytes / 2);
+        } else if (level == ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+            mCache.resize(mMaxBytes);
+        }
+    }
+
+    public synchronized int getHitCount() {
+        return mHitCount;
+    }
+
+    public synchronized int getMissCount() {
+        return mMissCount;
+    }
+
+    @Override
+    public void close() {
+        mCache.evictAll();
+    }
+
+    public void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "WidgetRemoteViewsCache: entries=" + mCache.snapshot().size()
+                + " size=" + mCache.size() + "/" + mCache.maxSize()
+                + " hits=" + getHitCount() + " misses=" + getMissCount()
+                + " evictions=" + mCache.evictionCount());
+    }
+
+    /**
+     * Returns the estimated size in bytes of {@param views}, which is the size of their parcel.
+     * This doesn't account for the bitmaps large enough to be parcelled in shared memory.
+     */
+    @VisibleForTesting
+    static int estimateSize(@NonNull RemoteViews views) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            views.writeToParcel(parcel, 0);
+            return parcel.dataSize();
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    private static class Entry {
+
+        final RemoteViews views;
+        final int size;
+
+        Entry(RemoteViews views, int size) {
+            this.views = views;
+            this.size = size;
+        }
+    }
+}
@@ -40,6 +40,7 @@ public final class SimpleWidgetsSearchAlgorithm implements SearchAlgorithm<Widge
 
     private final Handler mResultHandler;
     private final PopupDataProvider mDataProvider;
+    private final WidgetsSearchIndex mIndex = new WidgetsSearchIndex();
 
     public SimpleWidgetsSearchAlgorithm(PopupDataProvider dataProvider) {
         mResultHandler = new Handler();
@@ -48,7 +49,8 @@ public final class SimpleWidgetsSearchAlgorithm implements SearchAlgorithm<Widge
 
     @Override
     public void doSearch(String query, SearchCallback<WidgetsListBaseEntry> callback) {
-        ArrayList<WidgetsListBaseEntry> result = getFilteredWidgets(mDataProvider, query);
+        ArrayList<WidgetsListBaseEntry> result =
+                mIndex.getFilteredWidgets(mDataProvider.getAllWidgets(), query);
         mResultHandler.post(() -> callback.onSearchResult(query, result));
     }
 
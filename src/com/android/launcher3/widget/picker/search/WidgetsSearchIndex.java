@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.widget.picker.search;
+
+import com.android.launcher3.model.WidgetItem;
+import com.android.launcher3.search.StringMatcherUtility;
+import com.android.launcher3.search.StringMatcherUtility.StringMatcher;
+import com.android.launcher3.util.IntArray;
+import com.android.launcher3.widget.model.WidgetsListBaseEntry;
+import com.android.launcher3.widget.model.WidgetsListContentEntry;
+import com.android.launcher3.widget.model.WidgetsListHeaderEntry;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Search index over the package titles and widget labels of the widget picker, giving the same
+ * results as {@link SimpleWidgetsSearchAlgorithm#getFilteredWidgets} without rescanning every
+ * title and label for word breaks on each keystroke.
+ *
+ * The index is rebuilt when the list of all widgets is replaced, reusing the entries of the
+ * packages which didn't change. When the new query extends the previous one, only the packages
+ * which previously matched are checked again, and the result entries of a package are reused as
+ * long as the same widgets match.
+ */
+public class WidgetsSearchIndex {
+
+    private final StringMatcher mMatcher;
+
+    private List<WidgetsListBaseEntry> mAllWidgets;
+    private IdentityHashMap<WidgetsListHeaderEntry, PackageEntry> mEntries =
+            new IdentityHashMap<>();
+    private final ArrayList<PackageEntry> mOrderedEntries = new ArrayList<>();
+
+    private String mLastQuery;
+    private boolean mLastQueryFuzzy;
+    private final ArrayList<PackageEntry> mLastMatches = new ArrayList<>();
+
+    public WidgetsSearchIndex() {
+        this(StringMatcher.getInstance());
+    }
+
+    public WidgetsSearchIndex(StringMatcher matcher) {
+        mMatcher = matcher;
+    }
+
+    /**
+     * Returns entries for all matched widgets in {@code allWidgets}
+     */
+    public ArrayList<WidgetsListBaseEntry> getFilteredWidgets(
+            List<WidgetsListBaseEntry> allWidgets, String query) {
+        if (allWidgets != mAllWidgets) {
+            sync(allWidgets);
+        }
+
+        final boolean fuzzy = StringMatcherUtility.requestSimpleFuzzySearch(query);
+
+        // A title or a label matching a query always matches any prefix of that query as well.
+        ArrayList<PackageEntry> candidates = mLastQuery != null && fuzzy == mLastQueryFuzzy
+                && query.startsWith(mLastQuery)
+                ? new ArrayList<>(mLastMatches) : mOrderedEntries;
+
+        mLastMatches.clear();
+        ArrayList<WidgetsListBaseEntry> results = new ArrayList<>();
+        int total = candidates.size();
+        for (int i = 0; i < total; i++) {
+            PackageEntry entry = candidates.get(i);
+            if (entry.addMatches(query, fuzzy, mMatcher, results)) {
+                mLastMatches.add(entry);
+            }
+        }
+        mLastQuery = query;
+        mLastQueryFuzzy = fuzzy;
+        return results;
+    }
+
+    /**
+     * Updates the index to reflect {@code allWidgets}.
+     */
+    private void sync(List<WidgetsListBaseEntry> allWidgets) {
+        IdentityHashMap<WidgetsListHeaderEntry, PackageEntry> entries = new IdentityHashMap<>();
+        mOrderedEntries.clear();
+        int total = allWidgets.size();
+        for (int i = 0; i < total; i++) {
+            if (!(allWidgets.get(i) instanceof WidgetsListHeaderEntry)) {
+                continue;
+            }
+            WidgetsListHeaderEntry header = (WidgetsListHeaderEntry) allWidgets.get(i);
+            PackageEntry entry = mEntries.get(header);
+            if (entry == null) {
+                entry = new PackageEntry(header, mMatcher);
+            }
+            entries.put(header, entry);
+            mOrderedEntries.add(entry);
+        }
+        mEntries = entries;
+        mAllWidgets = allWidgets;
+        mLastQuery = null;
+        mLastMatches.clear();
+    }
+
+    private static class PackageEntry {
+
+        final WidgetsListHeaderEntry header;
+        final IndexedString title;
+        final IndexedString[] labels;
+
+        // Result entries of the last query which matched this package
+        private List<WidgetItem> mMatchedWidgets;
+        private WidgetsListHeaderEntry mSearchHeader;
+        private WidgetsListContentEntry mSearchContent;
+
+        PackageEntry(WidgetsListHeaderEntry header, StringMatcher matcher) {
+            this.header = header;
+            title = new IndexedString(header.mPkgItem.title, matcher);
+            List<WidgetItem> widgets = header.mWidgets;
+            labels = new IndexedString[widgets.size()];
+            for (int i = 0; i < labels.length; i++) {
+                labels[i] = new IndexedString(widgets.get(i).label, matcher);
+            }
+        }
+
+        /**
+         * Adds the result entries of this package to {@code results} if it matches
+         * {@code query}, returning whether it did.
+         */
+        boolean addMatches(String query, boolean fuzzy, StringMatcher matcher,
+                ArrayList<WidgetsListBaseEntry> results) {
+            List<WidgetItem> matched;
+            if (title.matches(query, fuzzy, matcher)) {
+                matched = header.mWidgets;
+            } else {
+                matched = new ArrayList<>();
+                for (int i = 0; i < labels.length; i++) {
+                    if (labels[i].matches(query, fuzzy, matcher)) {
+                        matched.add(header.mWidgets.get(i));
+                    }
+                }
+                if (matched.isEmpty()) {
+                    return false;
+                }
+            }
+
+            if (!matched.equals(mMatchedWidgets)) {
+                mMatchedWidgets = matched;
+                mSearchHeader = WidgetsListHeaderEntry.createForSearch(header.mPkgItem,
+                        header.mTitleSectionName, matched);
+                mSearchContent = new WidgetsListContentEntry(header.mPkgItem,
+                        header.mTitleSectionName, matched);
+            }
+            results.add(mSearchHeader);
+            results.add(mSearchContent);
+            return true;
+        }
+    }
+
+    /** A string along with the positions at which a query can match it. */
+    private static class IndexedString {
+
+        final String text;
+        final IntArray starts;
+
+        private String mTextLower;
+
+        IndexedString(CharSequence source, StringMatcher matcher) {
+            text = source == null ? "" : source.toString();
+            starts = StringMatcherUtility.getMatchStarts(text, matcher);
+        }
+
+        boolean matches(String query, boolean fuzzy, StringMatcher matcher) {
+            if (text.length() < query.length() || query.isEmpty()) {
+                return false;
+            }
+            if (fuzzy) {
+                if (mTextLower == null) {
+                    mTextLower = text.toLowerCase();
+                }
+                return mTextLower.contains(query);
+            }
+            return StringMatcherUtility.matchesAt(query, text, starts, matcher);
+        }
+    }
+}
@@ -37,6 +37,7 @@ import com.android.launcher3.util.PackageUserKey;
 import com.android.launcher3.util.Preconditions;
 import com.android.launcher3.widget.LauncherAppWidgetProviderInfo;
 import com.android.launcher3.widget.WidgetManagerHelper;
+import com.android.launcher3.widget.WidgetPreviewCache;
 import com.android.launcher3.widget.WidgetSections;
 import com.android.launcher3.widget.model.WidgetsListBaseEntry;
 import com.android.launcher3.widget.model.WidgetsListContentEntry;
@@ -45,6 +46,7 @@ import com.android.launcher3.widget.model.WidgetsListHeaderEntry;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -114,6 +116,16 @@ public class WidgetsModel {
      */
     public List<ComponentWithLabelAndIcon> update(
             LauncherAppState app, @Nullable PackageUserKey packageUser) {
+        return update(app, packageUser, null);
+    }
+
+    /**
+     * Same as {@link #update(LauncherAppState, PackageUserKey)}, using already fetched widget
+     * providers matching {@code packageUser} if they are provided.
+     */
+    public List<ComponentWithLabelAndIcon> update(LauncherAppState app,
+            @Nullable PackageUserKey packageUser,
+            @Nullable List<AppWidgetProviderInfo> widgetProviders) {
         Preconditions.assertWorkerThread();
 
         Context context = app.getContext();
@@ -124,8 +136,10 @@ public class WidgetsModel {
             PackageManager pm = app.getContext().getPackageManager();
 
             // Widgets
-            WidgetManagerHelper widgetManager = new WidgetManagerHelper(context);
-            for (AppWidgetProviderInfo widgetInfo : widgetManager.getAllProviders(packageUser)) {
+            if (widgetProviders == null) {
+                widgetProviders = new WidgetManagerHelper(context).getAllProviders(packageUser);
+            }
+            for (AppWidgetProviderInfo widgetInfo : widgetProviders) {
                 LauncherAppWidgetProviderInfo launcherWidgetInfo =
                         LauncherAppWidgetProviderInfo.fromProviderInfo(context, widgetInfo);
 
@@ -171,6 +185,7 @@ public class WidgetsModel {
         } else {
             // Otherwise, only clear the widgets and shortcuts for the changed package.
             mWidgetsList.remove(packageItemInfoCache.getOrCreate(packageUser));
+            invalidatePreviews(Collections.singleton(packageUser.mPackageName), packageUser.mUser);
         }
 
         // add and update.
@@ -189,6 +204,7 @@ public class WidgetsModel {
 
     public void onPackageIconsUpdated(Set<String> packageNames, UserHandle user,
             LauncherAppState app) {
+        invalidatePreviews(packageNames, user);
         for (Entry<PackageItemInfo, List<WidgetItem>> entry : mWidgetsList.entrySet()) {
             if (packageNames.contains(entry.getKey().packageName)) {
                 List<WidgetItem> items = entry.getValue();
@@ -210,6 +226,14 @@ public class WidgetsModel {
         }
     }
 
+    /** Removes the cached picker previews of the widgets and shortcuts of the packages. */
+    private static void invalidatePreviews(Set<String> packageNames, UserHandle user) {
+        WidgetPreviewCache previewCache = WidgetPreviewCache.INSTANCE.getNoCreate();
+        if (previewCache != null) {
+            previewCache.invalidate(packageNames, user);
+        }
+    }
+
     public WidgetItem getWidgetProviderInfoByProviderName(
             ComponentName providerName, UserHandle user) {
         List<WidgetItem> widgetsList = mWidgetsList.get(
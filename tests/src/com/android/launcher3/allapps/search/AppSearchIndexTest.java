@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.allapps.search;
+
+import static org.junit.Assert.assertEquals;
+
+import android.content.ComponentName;
+import android.content.Intent;
+import android.os.Process;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import com.android.launcher3.allapps.BaseAllAppsAdapter.AdapterItem;
+import com.android.launcher3.model.data.AppInfo;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Unit tests for {@link AppSearchIndex}
+ */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class AppSearchIndexTest {
+
+    private static final String[] WORDS = {"white", "Cow", "cats&dogs", "YouTube", "Play",
+            "Store", "LEGO®Builder", "t-mobile", "电子邮件", "2+43", "Agar.io", "Élan", "camera"};
+    private static final String[] QUERIES = {"c", "ca", "cam", "came", "camer", "camera",
+            "w", "wh", "white c", "电", "电子", "43", "y", "yo", "tube", "ela"};
+
+    @Test
+    public void testMatchesLinearSearch() {
+        List<AppInfo> apps = createApps(200, new Random(1));
+        AppSearchIndex index = new AppSearchIndex();
+        for (String query : QUERIES) {
+            assertSameResult(query, DefaultAppSearchAlgorithm.getTitleMatchResult(apps, query),
+                    index.getTitleMatchResult(apps, query));
+        }
+    }
+
+    @Test
+    public void testNarrowingAfterAppListChanges() {
+        List<AppInfo> apps = createApps(50, new Random(2));
+        AppSearchIndex index = new AppSearchIndex();
+        index.getTitleMatchResult(apps, "c");
+
+        apps.add(createApp(apps.size(), "Camera Pro"));
+        apps.remove(0);
+        apps.get(3).title = "Calculator";
+        assertSameResult("ca", DefaultAppSearchAlgorithm.getTitleMatchResult(apps, "ca"),
+                index.getTitleMatchResult(apps, "ca"));
+    }
+
+    private static void assertSameResult(String query, List<AdapterItem> expected,
+            List<AdapterItem> actual) {
+        assertEquals(query, expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(query, expected.get(i).itemInfo, actual.get(i).itemInfo);
+        }
+    }
+
+    private static List<AppInfo> createApps(int count, Random random) {
+        List<AppInfo> apps = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String title = WORDS[random.nextInt(WORDS.length)]
+                    + (random.nextBoolean() ? " " : "") + WORDS[random.nextInt(WORDS.length)];
+            apps.add(createApp(i, title));
+        }
+        return apps;
+    }
+
+    private static AppInfo createApp(int id, String title) {
+        ComponentName cn = new ComponentName("com.example.app" + id, "com.example.Main");
+        return new AppInfo(cn, title, Process.myUserHandle(),
+                new Intent(Intent.ACTION_MAIN).setComponent(cn));
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.celllayout;
+
+import static androidx.test.core.app.ApplicationProvider.getApplicationContext;
+
+import static com.android.launcher3.config.FeatureFlags.ENABLE_REORDER_SOLUTION_CACHE;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.graphics.Point;
+import android.view.View;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import com.android.launcher3.CellLayout;
+import com.android.launcher3.DeviceProfile;
+import com.android.launcher3.InvariantDeviceProfile;
+import com.android.launcher3.util.ActivityContextWrapper;
+import com.android.launcher3.util.CellAndSpan;
+import com.android.launcher3.util.GridOccupancy;
+import com.android.launcher3.util.SafeCloseable;
+import com.android.launcher3.util.TestUtil;
+import com.android.launcher3.views.DoubleShadowBubbleTextView;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Tests for {@link ReorderSolutionCache}
+ */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class ReorderSolutionCacheTest {
+
+    private static final int GRID_SIZE = 5;
+
+    // Dragging a 2x2 item over the 2x2 block of icons at (1, 1)
+    private static final int DRAG_CELL_X = 1;
+    private static final int DRAG_CELL_Y = 1;
+    private static final int DRAG_SPAN = 2;
+
+    private Context mContext;
+    private SafeCloseable mFlagOverride;
+    private int mPrevNumColumns, mPrevNumRows;
+
+    private CellLayout mCellLayout;
+    private ReorderSolutionCache mCache;
+    private final int[] mDragPixel = new int[2];
+
+    @Before
+    public void setUp() {
+        mFlagOverride = TestUtil.overrideFlag(ENABLE_REORDER_SOLUTION_CACHE, true);
+        mContext = new ActivityContextWrapper(getApplicationContext());
+        DeviceProfile dp = getDeviceProfile();
+        mPrevNumColumns = dp.inv.numColumns;
+        mPrevNumRows = dp.inv.numRows;
+
+        mCellLayout = createCellLayout();
+        addViewInCellLayout(0, 0, 2, 1, true);
+        addViewInCellLayout(1, 1, 1, 1, false);
+        addViewInCellLayout(2, 1, 1, 1, false);
+        addViewInCellLayout(1, 2, 1, 1, false);
+        addViewInCellLayout(2, 2, 1, 1, false);
+        mCellLayout.regionToCenterPoint(DRAG_CELL_X, DRAG_CELL_Y, DRAG_SPAN, DRAG_SPAN,
+                mDragPixel);
+        mCache = mCellLayout.getReorderSolutionCache();
+    }
+
+    @After
+    public void tearDown() {
+        DeviceProfile dp = getDeviceProfile();
+        dp.inv.numColumns = mPrevNumColumns;
+        dp.inv.numRows = mPrevNumRows;
+        mFlagOverride.close();
+    }
+
+    @Test
+    public void testRestore_matchesComputedSolution() {
+        View dragView = new View(mContext);
+        int[] expectedDirection = new int[] {1, 0};
+        ItemConfiguration expected;
+        GridOccupancy expectedTmpOccupied = new GridOccupancy(GRID_SIZE, GRID_SIZE);
+        try (SafeCloseable c = TestUtil.overrideFlag(ENABLE_REORDER_SOLUTION_CACHE, false)) {
+            expected = findSolution(dragView, expectedDirection);
+        }
+        mCellLayout.mTmpOccupied.copyTo(expectedTmpOccupied);
+
+        // Computes the solution a second time and saves it
+        findSolution(dragView, new int[] {1, 0});
+        mCellLayout.mTmpOccupied.clear();
+
+        int[] direction = new int[] {1, 0};
+        ItemConfiguration restored = new ItemConfiguration();
+        assertTrue(restore(dragView, direction, restored));
+
+        assertEquals(expected.isSolution, restored.isSolution);
+        assertEquals(expected.cellX, restored.cellX);
+        assertEquals(expected.cellY, restored.cellY);
+        assertEquals(expected.spanX, restored.spanX);
+        assertEquals(expected.spanY, restored.spanY);
+        assertArrayEquals(expectedDirection, direction);
+        assertEquals(expected.intersectingViews, restored.intersectingViews);
+        assertEquals(expected.map.size(), restored.map.size());
+        for (int i = 0; i < expected.map.size(); i++) {
+            CellAndSpan expectedCell = expected.map.valueAt(i);
+            CellAndSpan restoredCell = restored.map.get(expected.map.keyAt(i));
+            assertNotNull(restoredCell);
+            assertEquals(expectedCell.toString(), restoredCell.toString());
+        }
+        assertEquals(expectedTmpOccupied, mCellLayout.mTmpOccupied);
+    }
+
+    @Test
+    public void testRestore_differentKey_returnsFalse() {
+        View dragView = new View(mContext);
+        findSolution(dragView, new int[] {1, 0});
+
+        assertFalse(restore(dragView, new int[] {-1, 0}, new ItemConfiguration()));
+        assertFalse(restore(new View(mContext), new int[] {1, 0}, new ItemConfiguration()));
+        assertTrue(restore(dragView, new int[] {1, 0}, new ItemConfiguration()));
+    }
+
+    @Test
+    public void testRestore_childAdded_returnsFalse() {
+        View dragView = new View(mContext);
+        findSolution(dragView, new int[] {1, 0});
+
+        addViewInCellLayout(4, 4, 1, 1, false);
+
+        assertFalse(restore(dragView, new int[] {1, 0}, new ItemConfiguration()));
+    }
+
+    @Test
+    public void testRestore_childMoved_returnsFalse() {
+        View dragView = new View(mContext);
+        findSolution(dragView, new int[] {1, 0});
+
+        View child = mCellLayout.getShortcutsAndWidgets().getChildAt(0);
+        CellLayoutLayoutParams lp = (CellLayoutLayoutParams) child.getLayoutParams();
+        lp.setCellY(4);
+
+        assertFalse(restore(dragView, new int[] {1, 0}, new ItemConfiguration()));
+    }
+
+    @Test
+    public void testSave_overMaxEntries_evictsLeastRecentlyUsed() {
+        View[] dragViews = new View[ReorderSolutionCache.MAX_ENTRIES + 1];
+        for (int i = 0; i < dragViews.length; i++) {
+            dragViews[i] = new View(mContext);
+        }
+        for (int i = 0; i < ReorderSolutionCache.MAX_ENTRIES; i++) {
+            findSolution(dragViews[i], new int[] {1, 0});
+        }
+        // Makes the first entry the most recently used, leaving the second one as the oldest
+        assertTrue(restore(dragViews[0], new int[] {1, 0}, new ItemConfiguration()));
+
+        findSolution(dragViews[ReorderSolutionCache.MAX_ENTRIES], new int[] {1, 0});
+
+        assertFalse(restore(dragViews[1], new int[] {1, 0}, new ItemConfiguration()));
+        assertTrue(restore(dragViews[0], new int[] {1, 0}, new ItemConfiguration()));
+        for (int i = 2; i < dragViews.length; i++) {
+            assertTrue(restore(dragViews[i], new int[] {1, 0}, new ItemConfiguration()));
+        }
+    }
+
+    @Test
+    public void testClear_removesAllEntries() {
+        View dragView = new View(mContext);
+        findSolution(dragView, new int[] {1, 0});
+
+        mCache.clear();
+
+        assertFalse(restore(dragView, new int[] {1, 0}, new ItemConfiguration()));
+    }
+
+    private ItemConfiguration findSolution(View dragView, int[] direction) {
+        return mCellLayout.createReorderAlgorithm().findReorderSolution(mDragPixel[0],
+                mDragPixel[1], DRAG_SPAN, DRAG_SPAN, DRAG_SPAN, DRAG_SPAN, direction, dragView,
+                true, new ItemConfiguration());
+    }
+
+    private boolean restore(View dragView, int[] direction, ItemConfiguration solution) {
+        return mCache.restore(mCellLayout.createReorderAlgorithm(), mDragPixel[0],
+                mDragPixel[1], DRAG_SPAN, DRAG_SPAN, DRAG_SPAN, DRAG_SPAN, direction, dragView,
+                true, solution);
+    }
+
+    private void addViewInCellLayout(int cellX, int cellY, int spanX, int spanY,
+            boolean isWidget) {
+        View cell = isWidget ? new View(mContext) : new DoubleShadowBubbleTextView(mContext);
+        cell.setLayoutParams(new CellLayoutLayoutParams(cellX, cellY, spanX, spanY));
+        mCellLayout.addViewToCellLayout(cell, -1, cell.getId(),
+                (CellLayoutLayoutParams) cell.getLayoutParams(), true);
+    }
+
+    private CellLayout createCellLayout() {
+        Context c = mContext;
+        DeviceProfile dp = getDeviceProfile().copy(c);
+        dp.inv.numColumns = GRID_SIZE;
+        dp.inv.numRows = GRID_SIZE;
+        dp.cellLayoutBorderSpacePx = new Point(0, 0);
+
+        CellLayout cl = new CellLayout(new ActivityContextWrapper(c) {
+            public DeviceProfile getDeviceProfile() {
+                return dp;
+            }
+        });
+        cl.measure(View.MeasureSpec.makeMeasureSpec(10000, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(10000, View.MeasureSpec.EXACTLY));
+        return cl;
+    }
+
+    private DeviceProfile getDeviceProfile() {
+        return InvariantDeviceProfile.INSTANCE.get(mContext).getDeviceProfile(mContext);
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.model;
+
+import static com.android.launcher3.LauncherSettings.Favorites.TABLE_NAME;
+import static com.android.launcher3.util.Executors.MODEL_EXECUTOR;
+import static com.android.launcher3.util.LauncherModelHelper.TEST_ACTIVITY;
+import static com.android.launcher3.util.LauncherModelHelper.TEST_ACTIVITY2;
+import static com.android.launcher3.util.LauncherModelHelper.TEST_ACTIVITY3;
+import static com.android.launcher3.util.LauncherModelHelper.TEST_ACTIVITY4;
+import static com.android.launcher3.util.LauncherModelHelper.TEST_PACKAGE;
+import static com.android.launcher3.util.TestUtil.runOnExecutorSync;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.content.ContentValues;
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import com.android.launcher3.InvariantDeviceProfile;
+import com.android.launcher3.LauncherSettings.Favorites;
+import com.android.launcher3.model.data.ItemInfo;
+import com.android.launcher3.util.LauncherLayoutBuilder;
+import com.android.launcher3.util.LauncherModelHelper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+/**
+ * Tests for {@link ModelSnapshot}
+ */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class ModelSnapshotTest {
+
+    private LauncherModelHelper mModelHelper;
+    private Context mContext;
+    private InvariantDeviceProfile mIdp;
+    private BgDataModel mDataModel;
+
+    @Before
+    public void setUp() throws Exception {
+        mModelHelper = new LauncherModelHelper();
+        mContext = mModelHelper.sandboxContext;
+        mModelHelper.setupDefaultLayoutProvider(new LauncherLayoutBuilder()
+                .atHotseat(0).putApp(TEST_PACKAGE, TEST_ACTIVITY)
+                .atWorkspace(0, 1, 0).putApp(TEST_PACKAGE, TEST_ACTIVITY2)
+                .atWorkspace(1, 1, 0).putFolder("MyFolder")
+                .addApp(TEST_PACKAGE, TEST_ACTIVITY3)
+                .addApp(TEST_PACKAGE, TEST_ACTIVITY4)
+                .build());
+        mModelHelper.loadModelSync();
+        mIdp = InvariantDeviceProfile.INSTANCE.get(mContext);
+        mDataModel = mModelHelper.getBgDataModel();
+        runOnExecutorSync(MODEL_EXECUTOR, () -> ModelSnapshot.write(mContext, mIdp, mDataModel));
+    }
+
+    @After
+    public void tearDown() {
+        mModelHelper.destroy();
+    }
+
+    @Test
+    public void testRead_returnsWrittenItems() {
+        List<ItemInfo> items = ModelSnapshot.read(mContext, mIdp);
+
+        assertNotNull(items);
+        // The hotseat app, the workspace app, the folder and its two apps
+        assertEquals(5, items.size());
+        assertTrue(ModelSnapshot.isSame(mContext, ModelSnapshot.collectItems(mContext, mDataModel),
+                items));
+        for (ItemInfo item : items) {
+            ItemInfo loaded = mDataModel.itemsIdMap.get(item.id);
+            assertNotNull(loaded);
+            assertEquals(loaded.getClass(), item.getClass());
+            assertEquals(loaded.container, item.container);
+            assertEquals(loaded.screenId, item.screenId);
+            assertEquals(loaded.cellX, item.cellX);
+            assertEquals(loaded.cellY, item.cellY);
+            assertEquals(loaded.user, item.user);
+            assertEquals(loaded.getTargetComponent(), item.getTargetComponent());
+        }
+    }
+
+    @Test
+    public void testIsSame_movedItem_returnsFalse() {
+        List<ItemInfo> items = ModelSnapshot.read(mContext, mIdp);
+        assertNotNull(items);
+
+        items.get(0).cellX++;
+
+        assertFalse(ModelSnapshot.isSame(mContext,
+                ModelSnapshot.collectItems(mContext, mDataModel), items));
+    }
+
+    @Test
+    public void testRead_otherGrid_returnsNull() {
+        int numColumns = mIdp.numColumns;
+        mIdp.numColumns++;
+        try {
+            assertNull(ModelSnapshot.read(mContext, mIdp));
+        } finally {
+            mIdp.numColumns = numColumns;
+        }
+        assertNotNull(ModelSnapshot.read(mContext, mIdp));
+    }
+
+    @Test
+    public void testCreateEmptyDb_deletesSnapshot() {
+        runOnExecutorSync(MODEL_EXECUTOR,
+                () -> mModelHelper.getModel().getModelDbController().createEmptyDB());
+
+        assertNull(ModelSnapshot.read(mContext, mIdp));
+    }
+
+    @Test
+    public void testDbUpdate_deletesSnapshot() {
+        ItemInfo item = ModelSnapshot.read(mContext, mIdp).get(0);
+        ContentValues values = new ContentValues();
+        values.put(Favorites.CELLX, item.cellX + 1);
+
+        runOnExecutorSync(MODEL_EXECUTOR, () -> mModelHelper.getModel().getModelDbController()
+                .update(TABLE_NAME, values, Favorites._ID + " = ?",
+                        new String[] {Integer.toString(item.id)}));
+
+        assertNull(ModelSnapshot.read(mContext, mIdp));
+    }
+}
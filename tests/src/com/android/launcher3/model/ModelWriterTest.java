@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.model;
+
+import static com.android.launcher3.config.FeatureFlags.ENABLE_BATCHED_MODEL_WRITES;
+import static com.android.launcher3.util.Executors.MAIN_EXECUTOR;
+import static com.android.launcher3.util.Executors.MODEL_EXECUTOR;
+import static com.android.launcher3.util.LauncherModelHelper.TEST_PACKAGE;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.database.Cursor;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import com.android.launcher3.LauncherModel;
+import com.android.launcher3.LauncherSettings.Favorites;
+import com.android.launcher3.celllayout.CellPosMapper;
+import com.android.launcher3.model.BgDataModel.Callbacks;
+import com.android.launcher3.model.data.ItemInfo;
+import com.android.launcher3.util.LauncherLayoutBuilder;
+import com.android.launcher3.util.LauncherModelHelper;
+import com.android.launcher3.util.SafeCloseable;
+import com.android.launcher3.util.TestUtil;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Tests for {@link ModelWriter}
+ */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class ModelWriterTest {
+
+    private LauncherModelHelper mModelHelper;
+    private SafeCloseable mFlagOverride;
+    private final Callbacks mCallbacks = new Callbacks() { };
+
+    @Before
+    public void setUp() throws Exception {
+        mFlagOverride = TestUtil.overrideFlag(ENABLE_BATCHED_MODEL_WRITES, true);
+        mModelHelper = new LauncherModelHelper();
+        mModelHelper.setupDefaultLayoutProvider(new LauncherLayoutBuilder()
+                .atWorkspace(1, 1, 0).putApp(TEST_PACKAGE, TEST_PACKAGE));
+        MAIN_EXECUTOR.submit(() -> mModelHelper.getModel().addCallbacksAndLoad(mCallbacks)).get();
+        waitForLoaderAndTempMainThread();
+    }
+
+    @After
+    public void tearDown() {
+        mModelHelper.destroy();
+        mFlagOverride.close();
+    }
+
+    @Test
+    public void testBatchedMove_forceReloadInWindow_isWritten() throws Exception {
+        LauncherModel model = mModelHelper.getModel();
+        MODEL_EXECUTOR.submit(() -> { }).get();
+        BgDataModel dataModel = mModelHelper.getBgDataModel();
+        ItemInfo item = MODEL_EXECUTOR.submit(() -> {
+            for (ItemInfo info : dataModel.itemsIdMap) {
+                if (info.container == Favorites.CONTAINER_DESKTOP) {
+                    return info;
+                }
+            }
+            return null;
+        }).get();
+
+        MAIN_EXECUTOR.submit(() -> {
+            ModelWriter writer = model.getWriter(false, CellPosMapper.DEFAULT, mCallbacks);
+            writer.moveItemInDatabase(item, Favorites.CONTAINER_DESKTOP, 0, 2, 3);
+            // Reload before the batched update is flushed on its own
+            model.forceReload();
+        }).get();
+        waitForLoaderAndTempMainThread();
+
+        try (Cursor c = MODEL_EXECUTOR.submit(() -> model.getModelDbController().query(
+                Favorites.TABLE_NAME, new String[] {Favorites.CELLX, Favorites.CELLY},
+                Favorites._ID + "=" + item.id, null, null)).get()) {
+            assertTrue(c.moveToNext());
+            assertEquals(2, c.getInt(0));
+            assertEquals(3, c.getInt(1));
+        }
+    }
+
+    private void waitForLoaderAndTempMainThread() throws Exception {
+        MAIN_EXECUTOR.submit(() -> { }).get();
+        MODEL_EXECUTOR.submit(() -> { }).get();
+        MAIN_EXECUTOR.submit(() -> { }).get();
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.ui.widget;
+
+import static androidx.test.platform.app.InstrumentationRegistry.getInstrumentation;
+
+import static com.android.launcher3.WorkspaceLayoutManager.FIRST_SCREEN_ID;
+import static com.android.launcher3.config.FeatureFlags.ENABLE_DEFERRED_WIDGET_INFLATION;
+import static com.android.launcher3.util.WidgetUtils.createWidgetInfo;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.view.View;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import com.android.launcher3.Launcher;
+import com.android.launcher3.celllayout.FavoriteItemsTransaction;
+import com.android.launcher3.model.data.ItemInfo;
+import com.android.launcher3.model.data.LauncherAppWidgetInfo;
+import com.android.launcher3.ui.AbstractLauncherUiTest;
+import com.android.launcher3.ui.TestViewHelpers;
+import com.android.launcher3.util.IntSet;
+import com.android.launcher3.util.SafeCloseable;
+import com.android.launcher3.util.TestUtil;
+import com.android.launcher3.util.rule.ShellCommandRule;
+import com.android.launcher3.widget.DeferredAppWidgetHostView;
+import com.android.launcher3.widget.DeferredWidgetInflater;
+import com.android.launcher3.widget.LauncherAppWidgetProviderInfo;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+
+/**
+ * Tests for {@link DeferredWidgetInflater}.
+ *
+ * Note running these tests will clear the workspace on the device.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class DeferredWidgetInflaterTest extends AbstractLauncherUiTest {
+
+    // Screen next to the first one, whatever the number of panels
+    private static final int NEAR_SCREEN_ID = FIRST_SCREEN_ID + 1;
+    // Screen which isn't next to the first one, even with two panels
+    private static final int FAR_SCREEN_ID = FIRST_SCREEN_ID + 4;
+
+    @Rule
+    public ShellCommandRule mGrantWidgetRule = ShellCommandRule.grantWidgetBind();
+
+    private SafeCloseable mFlagOverride;
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        mFlagOverride = TestUtil.overrideFlag(ENABLE_DEFERRED_WIDGET_INFLATION, true);
+
+        // A widget on each screen, so that none of the screens is removed
+        LauncherAppWidgetProviderInfo info = TestViewHelpers.findWidgetProvider(false);
+        FavoriteItemsTransaction transaction = new FavoriteItemsTransaction(mTargetContext);
+        for (int screenId = FIRST_SCREEN_ID; screenId <= FAR_SCREEN_ID; screenId++) {
+            int id = screenId;
+            transaction.addItem(() -> {
+                LauncherAppWidgetInfo item = createWidgetInfo(info, mTargetContext, true);
+                item.screenId = id;
+                return item;
+            });
+        }
+        transaction.commitAndLoadHome(mLauncher);
+
+        // Bind the widgets again as if the first screen was bound first. The binding is done in a
+        // single message so that the deferred widgets aren't inflated when the main thread is idle.
+        executeOnLauncher(l -> {
+            DeferredWidgetInflater inflater = l.getDeferredWidgetInflater();
+            // Drop anything left pending by the initial load
+            inflater.reset();
+            inflater.onInitialBindComplete(IntSet.wrap(FIRST_SCREEN_ID));
+            rebindWidgetOnScreen(l, NEAR_SCREEN_ID);
+            rebindWidgetOnScreen(l, FAR_SCREEN_ID);
+        });
+    }
+
+    @After
+    public void tearDown() {
+        executeOnLauncherInTearDown(l -> l.getDeferredWidgetInflater().reset());
+        mFlagOverride.close();
+    }
+
+    @Test
+    public void testWidgetNextToBoundScreen_isInflated() {
+        assertFalse("Widget next to the bound screen is deferred",
+                getFromLauncher(l -> isDeferred(l, NEAR_SCREEN_ID)));
+    }
+
+    @Test
+    public void testWidgetAwayFromBoundScreen_staysDeferredUntilApproached() {
+        assertTrue("Widget away from the bound screen is inflated",
+                getFromLauncher(l -> isDeferred(l, FAR_SCREEN_ID)));
+
+        // Let a few frames go through while the workspace stays on the first page
+        getInstrumentation().waitForIdleSync();
+        executeOnLauncher(l -> l.getWorkspace().invalidate());
+        getInstrumentation().waitForIdleSync();
+        assertTrue("Widget was inflated before its page was approached",
+                getFromLauncher(l -> isDeferred(l, FAR_SCREEN_ID)));
+
+        executeOnLauncher(l -> l.getWorkspace().snapToPage(
+                l.getWorkspace().getPageIndexForScreenId(FAR_SCREEN_ID)));
+        waitForLauncherCondition("Widget wasn't inflated when its page was approached",
+                l -> !isDeferred(l, FAR_SCREEN_ID));
+    }
+
+    private static void rebindWidgetOnScreen(Launcher launcher, int screenId) {
+        View view = getWidgetOnScreen(launcher, screenId);
+        ItemInfo info = (ItemInfo) view.getTag();
+        launcher.removeItem(view, info, false /* deleteFromDb */);
+        launcher.bindItems(Collections.singletonList(info), false /* forceAnimateIcons */);
+    }
+
+    private static boolean isDeferred(Launcher launcher, int screenId) {
+        return getWidgetOnScreen(launcher, screenId) instanceof DeferredAppWidgetHostView;
+    }
+
+    private static View getWidgetOnScreen(Launcher launcher, int screenId) {
+        return launcher.getWorkspace().getFirstMatch((info, v) ->
+                info instanceof LauncherAppWidgetInfo && info.screenId == screenId);
+    }
+}
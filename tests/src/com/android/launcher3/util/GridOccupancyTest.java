@@ -10,6 +10,8 @@ import androidx.test.filters.SmallTest;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.Random;
+
 /**
  * Unit tests for {@link GridOccupancy}
  */
@@ -55,16 +57,124 @@ public class GridOccupancyTest {
         assertFalse(grid.isRegionVacant(0, 0, 2, 1));
     }
 
+    @Test
+    public void testMatchesCellByCellImplementation() {
+        Random random = new Random(123);
+        // {width, height} of common grids
+        for (int[] size : new int[][] {{6, 5}, {8, 6}, {12, 6}}) {
+            int width = size[0];
+            int height = size[1];
+            GridOccupancy grid = new GridOccupancy(width, height);
+            BooleanGridOccupancy cells = new BooleanGridOccupancy(width, height);
+            for (int j = 0; j < width * height / 3; j++) {
+                int x = random.nextInt(width);
+                int y = random.nextInt(height);
+                grid.markCells(x, y, 1, 1, true);
+                cells.markCells(x, y, 1, 1, true);
+            }
+
+            assertEquals(runQueries(cells, new BooleanGridOccupancy(width, height)),
+                    runQueries(grid, new GridOccupancy(width, height)));
+        }
+    }
+
+    /**
+     * Runs the queries done by the reorder algorithm for every span on a copy of
+     * {@param grid}, returning a checksum of the results.
+     */
+    private static int runQueries(GridOccupancy grid, GridOccupancy copy) {
+        int width = grid.getCountX();
+        int height = grid.getCountY();
+        int result = 0;
+        int[] vacant = new int[2];
+        grid.copyTo(copy);
+        for (int spanX = 1; spanX <= width; spanX++) {
+            for (int spanY = 1; spanY <= height; spanY++) {
+                result *= 31;
+                if (copy.findVacantCell(vacant, spanX, spanY)) {
+                    result += vacant[0] * 31 + vacant[1];
+                }
+                for (int y = 0; y + spanY <= height; y++) {
+                    for (int x = 0; x + spanX <= width; x++) {
+                        if (copy.isRegionVacant(x, y, spanX, spanY)) {
+                            result++;
+                        }
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
     private GridOccupancy initGrid(int rows, int... cells) {
         int cols = cells.length / rows;
         int i = 0;
         GridOccupancy grid = new GridOccupancy(cols, rows);
         for (int y = 0; y < rows; y++) {
             for (int x = 0; x < cols; x++) {
-                grid.cells[x][y] = cells[i] != 0;
+                grid.markCells(x, y, 1, 1, cells[i] != 0);
                 i++;
             }
         }
         return grid;
     }
+
+    /**
+     * The previous {@link GridOccupancy}, checking region by region cell by cell.
+     */
+    private static class BooleanGridOccupancy extends GridOccupancy {
+
+        private final int mCountX;
+        private final int mCountY;
+        private final boolean[][] mCells;
+
+        BooleanGridOccupancy(int countX, int countY) {
+            super(countX, countY);
+            mCountX = countX;
+            mCountY = countY;
+            mCells = new boolean[countX][countY];
+        }
+
+        @Override
+        public void copyTo(GridOccupancy dest) {
+            BooleanGridOccupancy target = (BooleanGridOccupancy) dest;
+            for (int i = 0; i < mCountX; i++) {
+                for (int j = 0; j < mCountY; j++) {
+                    target.mCells[i][j] = mCells[i][j];
+                }
+            }
+        }
+
+        @Override
+        public boolean isOccupied(int x, int y) {
+            return mCells[x][y];
+        }
+
+        @Override
+        public boolean isRegionVacant(int x, int y, int spanX, int spanY) {
+            int x2 = x + spanX - 1;
+            int y2 = y + spanY - 1;
+            if (x < 0 || y < 0 || x2 >= mCountX || y2 >= mCountY) {
+                return false;
+            }
+            for (int i = x; i <= x2; i++) {
+                for (int j = y; j <= y2; j++) {
+                    if (mCells[i][j]) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void markCells(int cellX, int cellY, int spanX, int spanY, boolean value) {
+            if (cellX < 0 || cellY < 0) return;
+            for (int x = cellX; x < cellX + spanX && x < mCountX; x++) {
+                for (int y = cellY; y < cellY + spanY && y < mCountY; y++) {
+                    mCells[x][y] = value;
+                }
+            }
+        }
+    }
 }
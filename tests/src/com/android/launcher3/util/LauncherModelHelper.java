@@ -275,6 +275,14 @@ public class LauncherModelHelper {
             return new File(mDbDir, name);
         }
 
+        @Override
+        public File getNoBackupFilesDir() {
+            if (!mDbDir.exists()) {
+                mDbDir.mkdirs();
+            }
+            return mDbDir;
+        }
+
         @Override
         public ContentResolver getContentResolver() {
             return mMockResolver;
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.util;
+
+import static androidx.test.platform.app.InstrumentationRegistry.getInstrumentation;
+
+import static com.android.launcher3.util.Executors.MAIN_EXECUTOR;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.util.AttributeSet;
+import android.view.View;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import com.android.launcher3.tests.R;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for {@link ViewPool}
+ */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class ViewPoolTest {
+
+    private static final int MAX_SIZE = 3;
+
+    private ViewPool<TestReusableView> mPool;
+
+    @Before
+    public void setUp() throws Exception {
+        // The test context is needed to load the view class of the layout
+        Context context = getInstrumentation().getContext();
+        mPool = MAIN_EXECUTOR.submit(() -> new ViewPool<TestReusableView>(
+                context, null, R.layout.test_layout_reusable_view, MAX_SIZE, 0)).get();
+    }
+
+    @Test
+    public void preinflate_overMaxSize_stopsAtMaxSize() throws Exception {
+        MAIN_EXECUTOR.submit(() -> mPool.preinflate(MAX_SIZE + 2, Runnable::run)).get();
+        // Wait for the inflated views to be added to the pool
+        MAIN_EXECUTOR.submit(() -> { }).get();
+
+        MAIN_EXECUTOR.submit(() -> {
+            assertThat(mPool.getMaxSize()).isEqualTo(MAX_SIZE);
+            assertThat(mPool.getAvailableCount()).isEqualTo(mPool.getMaxSize());
+            assertThat(mPool.getCreatedCount()).isEqualTo(mPool.getMaxSize());
+        }).get();
+    }
+
+    @Test
+    public void preinflate_countsViewsInUse() throws Exception {
+        MAIN_EXECUTOR.submit(() -> {
+            mPool.getView();
+            mPool.getView();
+            mPool.preinflate(mPool.getMaxSize(), Runnable::run);
+        }).get();
+        MAIN_EXECUTOR.submit(() -> { }).get();
+
+        MAIN_EXECUTOR.submit(() -> {
+            assertThat(mPool.getAvailableCount()).isEqualTo(mPool.getMaxSize() - 2);
+            assertThat(mPool.getCreatedCount()).isEqualTo(mPool.getMaxSize());
+        }).get();
+    }
+
+    @Test
+    public void recycle_overMaxSize_dropsViews() throws Exception {
+        MAIN_EXECUTOR.submit(() -> {
+            List<TestReusableView> views = new ArrayList<>();
+            for (int i = 0; i < MAX_SIZE + 1; i++) {
+                views.add(mPool.getView());
+            }
+            for (TestReusableView view : views) {
+                mPool.recycle(view);
+            }
+
+            assertThat(views.get(0).mRecycleCount).isEqualTo(1);
+            assertThat(mPool.getAvailableCount()).isEqualTo(mPool.getMaxSize());
+            assertThat(mPool.getCreatedCount()).isEqualTo(mPool.getMaxSize());
+        }).get();
+    }
+
+    /**
+     * View inflated by {@link R.layout#test_layout_reusable_view}
+     */
+    public static class TestReusableView extends View implements ViewPool.Reusable {
+
+        private int mRecycleCount;
+
+        public TestReusableView(Context context, AttributeSet attrs) {
+            super(context, attrs);
+        }
+
+        @Override
+        public void onRecycle() {
+            mRecycleCount++;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.widget;
+
+import static androidx.test.core.app.ApplicationProvider.getApplicationContext;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import android.appwidget.AppWidgetProviderInfo;
+import android.content.ComponentName;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.os.Process;
+import android.util.Size;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import com.android.launcher3.InvariantDeviceProfile;
+import com.android.launcher3.icons.IconCache;
+import com.android.launcher3.model.WidgetItem;
+import com.android.launcher3.util.Executors;
+import com.android.launcher3.util.WidgetUtils;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Collections;
+
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public final class WidgetPreviewCacheTest {
+
+    private static final String TEST_PACKAGE = "com.google.test";
+    private static final String OTHER_PACKAGE = "com.google.other";
+    private static final Size PREVIEW_SIZE = new Size(10, 10);
+    // Each preview uses 400 bytes, so that two of them fit in memory
+    private static final int MAX_MEMORY_BYTES = 800;
+
+    private Context mContext;
+    private InvariantDeviceProfile mTestProfile;
+    private WidgetPreviewCache mCache;
+
+    @Mock
+    private IconCache mIconCache;
+    @Mock
+    private WidgetPreviewDiskCache mDiskCache;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mContext = getApplicationContext();
+        mTestProfile = new InvariantDeviceProfile();
+        mTestProfile.numRows = 5;
+        mTestProfile.numColumns = 5;
+        mCache = new WidgetPreviewCache(mContext, MAX_MEMORY_BYTES, mDiskCache);
+    }
+
+    @Test
+    public void getFromMemory_returnsPreviewOfSameSize() {
+        WidgetItem item = createWidgetItem(TEST_PACKAGE, 0);
+        Bitmap preview = createPreview();
+
+        mCache.put(mCache.newRequest(item, PREVIEW_SIZE), preview);
+
+        assertThat(mCache.getFromMemory(item, PREVIEW_SIZE)).isSameInstanceAs(preview);
+        assertThat(mCache.getFromMemory(item, new Size(20, 10))).isNull();
+    }
+
+    @Test
+    public void put_overMemoryBudget_evictsLeastRecentlyUsed() {
+        WidgetItem item0 = createWidgetItem(TEST_PACKAGE, 0);
+        WidgetItem item1 = createWidgetItem(TEST_PACKAGE, 1);
+        WidgetItem item2 = createWidgetItem(TEST_PACKAGE, 2);
+
+        mCache.put(mCache.newRequest(item0, PREVIEW_SIZE), createPreview());
+        mCache.put(mCache.newRequest(item1, PREVIEW_SIZE), createPreview());
+        mCache.getFromMemory(item0, PREVIEW_SIZE);
+        mCache.put(mCache.newRequest(item2, PREVIEW_SIZE), createPreview());
+
+        assertThat(mCache.getFromMemory(item0, PREVIEW_SIZE)).isNotNull();
+        assertThat(mCache.getFromMemory(item1, PREVIEW_SIZE)).isNull();
+        assertThat(mCache.getFromMemory(item2, PREVIEW_SIZE)).isNotNull();
+    }
+
+    @Test
+    public void invalidate_removesPreviewsOfPackageOnly() throws Exception {
+        WidgetItem item = createWidgetItem(TEST_PACKAGE, 0);
+        WidgetItem otherItem = createWidgetItem(OTHER_PACKAGE, 0);
+        mCache.put(mCache.newRequest(item, PREVIEW_SIZE), createPreview());
+        mCache.put(mCache.newRequest(otherItem, PREVIEW_SIZE), createPreview());
+
+        mCache.invalidate(Collections.singleton(TEST_PACKAGE), Process.myUserHandle());
+        Executors.ORDERED_BG_EXECUTOR.submit(() -> { }).get();
+
+        assertThat(mCache.getFromMemory(item, PREVIEW_SIZE)).isNull();
+        assertThat(mCache.getFromMemory(otherItem, PREVIEW_SIZE)).isNotNull();
+        verify(mDiskCache).removeAll(eq(TEST_PACKAGE), anyLong());
+        verify(mDiskCache, never()).removeAll(eq(OTHER_PACKAGE), anyLong());
+    }
+
+    @Test
+    public void put_afterInvalidation_ignoresPreviewGeneratedBefore() {
+        WidgetItem item = createWidgetItem(TEST_PACKAGE, 0);
+        WidgetPreviewCache.Request request = mCache.newRequest(item, PREVIEW_SIZE);
+
+        mCache.invalidate(Collections.singleton(TEST_PACKAGE), Process.myUserHandle());
+        mCache.put(request, createPreview());
+
+        assertThat(mCache.getFromMemory(item, PREVIEW_SIZE)).isNull();
+    }
+
+    private WidgetItem createWidgetItem(String packageName, int index) {
+        ComponentName cn = ComponentName.createRelative(packageName, ".SampleWidget" + index);
+        AppWidgetProviderInfo widgetInfo = WidgetUtils.createAppWidgetProviderInfo(cn);
+        return new WidgetItem(LauncherAppWidgetProviderInfo.fromProviderInfo(mContext, widgetInfo),
+                mTestProfile, mIconCache, mContext);
+    }
+
+    private static Bitmap createPreview() {
+        return Bitmap.createBitmap(PREVIEW_SIZE.getWidth(), PREVIEW_SIZE.getHeight(),
+                Bitmap.Config.ARGB_8888);
+    }
+}
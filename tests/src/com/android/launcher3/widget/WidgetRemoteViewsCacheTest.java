@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.widget;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.ComponentCallbacks2;
+import android.widget.RemoteViews;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public final class WidgetRemoteViewsCacheTest {
+
+    private static final String TEST_PACKAGE = "com.google.test";
+
+    private int mViewsSize;
+    private WidgetRemoteViewsCache mCache;
+
+    @Before
+    public void setUp() {
+        mViewsSize = WidgetRemoteViewsCache.estimateSize(createViews());
+        // Two views fit in the cache
+        mCache = new WidgetRemoteViewsCache(mViewsSize * 2);
+    }
+
+    @Test
+    public void get_countsHitsAndMisses() {
+        RemoteViews views = createViews();
+        mCache.put(1, views);
+
+        assertThat(mCache.get(1)).isSameInstanceAs(views);
+        assertThat(mCache.get(2)).isNull();
+        assertThat(mCache.getHitCount()).isEqualTo(1);
+        assertThat(mCache.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void put_overBudget_evictsLeastRecentlyUsed() {
+        mCache.put(1, createViews());
+        mCache.put(2, createViews());
+        mCache.get(1);
+        mCache.put(3, createViews());
+
+        assertThat(mCache.get(1)).isNotNull();
+        assertThat(mCache.get(2)).isNull();
+        assertThat(mCache.get(3)).isNotNull();
+    }
+
+    @Test
+    public void put_null_removesViews() {
+        mCache.put(1, createViews());
+        mCache.put(1, null);
+
+        assertThat(mCache.get(1)).isNull();
+    }
+
+    @Test
+    public void onTrimMemory_trimsByLevel() {
+        mCache.put(1, createViews());
+        mCache.put(2, createViews());
+
+        mCache.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+        assertThat(mCache.get(1)).isNull();
+        assertThat(mCache.get(2)).isNotNull();
+
+        mCache.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+        assertThat(mCache.get(2)).isNull();
+    }
+
+    @Test
+    public void onTrimMemory_lowMemory_keepsBudgetHalvedUntilUiHidden() {
+        mCache.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+        mCache.put(1, createViews());
+        mCache.put(2, createViews());
+        assertThat(mCache.get(1)).isNull();
+        assertThat(mCache.get(2)).isNotNull();
+
+        mCache.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+        mCache.put(1, createViews());
+        assertThat(mCache.get(1)).isNotNull();
+        assertThat(mCache.get(2)).isNotNull();
+    }
+
+    private static RemoteViews createViews() {
+        RemoteViews views = new RemoteViews(TEST_PACKAGE, android.R.layout.simple_list_item_1);
+        views.setTextViewText(android.R.id.text1, "Widget");
+        return views;
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.widget.picker.search;
+
+import static androidx.test.core.app.ApplicationProvider.getApplicationContext;
+
+import static com.android.launcher3.util.WidgetUtils.createAppWidgetProviderInfo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+
+import android.appwidget.AppWidgetProviderInfo;
+import android.content.ComponentName;
+import android.content.Context;
+import android.graphics.Bitmap;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import com.android.launcher3.InvariantDeviceProfile;
+import com.android.launcher3.icons.BitmapInfo;
+import com.android.launcher3.icons.ComponentWithLabel;
+import com.android.launcher3.icons.IconCache;
+import com.android.launcher3.model.WidgetItem;
+import com.android.launcher3.model.data.PackageItemInfo;
+import com.android.launcher3.popup.PopupDataProvider;
+import com.android.launcher3.widget.LauncherAppWidgetProviderInfo;
+import com.android.launcher3.widget.model.WidgetsListBaseEntry;
+import com.android.launcher3.widget.model.WidgetsListContentEntry;
+import com.android.launcher3.widget.model.WidgetsListHeaderEntry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit tests for {@link WidgetsSearchIndex}
+ */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class WidgetsSearchIndexTest {
+
+    @Mock
+    private IconCache mIconCache;
+    @Mock
+    private PopupDataProvider mDataProvider;
+
+    private Context mContext;
+    private InvariantDeviceProfile mTestProfile;
+    private AppWidgetProviderInfo mProviderInfo;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        // Use the class name of the provider as the widget label
+        doAnswer(invocation -> {
+            ComponentWithLabel componentWithLabel = (ComponentWithLabel) invocation.getArgument(0);
+            return componentWithLabel.getComponent().getClassName();
+        }).when(mIconCache).getTitleNoCache(any());
+        mContext = getApplicationContext();
+        mTestProfile = new InvariantDeviceProfile();
+        mTestProfile.numRows = 5;
+        mTestProfile.numColumns = 5;
+        mProviderInfo = createAppWidgetProviderInfo(
+                ComponentName.createRelative("com.example.app", ".Widget"));
+    }
+
+    @Test
+    public void testPackageTitleMatch_returnsAllWidgetsOfPackage() {
+        List<WidgetsListBaseEntry> allWidgets = new ArrayList<>();
+        allWidgets.addAll(createPackage(0, "Camera", new String[] {"Selfie", "Video"}));
+        allWidgets.addAll(createPackage(1, "Notes", new String[] {"Checklist"}));
+
+        List<WidgetsListBaseEntry> results =
+                new WidgetsSearchIndex().getFilteredWidgets(allWidgets, "cam");
+
+        assertEquals(2, results.size());
+        assertPackageResult(results, 0, "com.example.app0", "Selfie", "Video");
+    }
+
+    @Test
+    public void testWidgetLabelMatch_returnsOnlyMatchingWidgets() {
+        List<WidgetsListBaseEntry> allWidgets = new ArrayList<>();
+        allWidgets.addAll(createPackage(0, "Clock", new String[] {"Alarm", "World time"}));
+
+        List<WidgetsListBaseEntry> results =
+                new WidgetsSearchIndex().getFilteredWidgets(allWidgets, "time");
+
+        assertEquals(2, results.size());
+        assertPackageResult(results, 0, "com.example.app0", "World time");
+    }
+
+    @Test
+    public void testMatchesInSeveralPackages_groupedByPackageInOrder() {
+        List<WidgetsListBaseEntry> allWidgets = new ArrayList<>();
+        allWidgets.addAll(createPackage(0, "Camera", new String[] {"Selfie", "Video"}));
+        allWidgets.addAll(createPackage(1, "Notes", new String[] {"Checklist"}));
+        allWidgets.addAll(createPackage(2, "Clock", new String[] {"Alarm", "Camera timer"}));
+
+        List<WidgetsListBaseEntry> results =
+                new WidgetsSearchIndex().getFilteredWidgets(allWidgets, "cam");
+
+        assertEquals(4, results.size());
+        assertPackageResult(results, 0, "com.example.app0", "Selfie", "Video");
+        assertPackageResult(results, 2, "com.example.app2", "Camera timer");
+    }
+
+    @Test
+    public void testNoMatch_returnsNoEntries() {
+        List<WidgetsListBaseEntry> allWidgets = new ArrayList<>();
+        allWidgets.addAll(createPackage(0, "Camera", new String[] {"Selfie", "Video"}));
+
+        assertTrue(new WidgetsSearchIndex().getFilteredWidgets(allWidgets, "zz").isEmpty());
+    }
+
+    @Test
+    public void testTypingAndDeleting_matchesLinearSearch() {
+        List<WidgetsListBaseEntry> allWidgets = new ArrayList<>();
+        allWidgets.addAll(createPackage(0, "Camera", new String[] {"Selfie", "Video"}));
+        allWidgets.addAll(createPackage(1, "Notes", new String[] {"Checklist", "Camera roll"}));
+        allWidgets.addAll(createPackage(2, "Clock", new String[] {"Alarm", "Camera timer"}));
+        allWidgets.addAll(createPackage(3, "电子邮件", new String[] {"Inbox"}));
+        doReturn(allWidgets).when(mDataProvider).getAllWidgets();
+        WidgetsSearchIndex index = new WidgetsSearchIndex();
+
+        // Narrowed from the previous results while typing, then widened again while deleting
+        String[] queries = {"c", "ca", "cam", "camera", "camera t", "camera", "c", "ch", "电",
+                "电子", "i"};
+        for (String query : queries) {
+            assertEquals(query,
+                    SimpleWidgetsSearchAlgorithm.getFilteredWidgets(mDataProvider, query),
+                    index.getFilteredWidgets(allWidgets, query));
+        }
+    }
+
+    @Test
+    public void testRefreshedWhenWidgetsChange() {
+        List<WidgetsListBaseEntry> allWidgets = new ArrayList<>();
+        allWidgets.addAll(createPackage(0, "Camera", new String[] {"Selfie", "Video"}));
+        allWidgets.addAll(createPackage(1, "Clock", new String[] {"Alarm", "Camera timer"}));
+        WidgetsSearchIndex index = new WidgetsSearchIndex();
+        index.getFilteredWidgets(allWidgets, "c");
+
+        // Camera is uninstalled and Calculator installed
+        List<WidgetsListBaseEntry> newWidgets = new ArrayList<>(allWidgets.subList(2, 4));
+        newWidgets.addAll(createPackage(2, "Calculator", new String[] {"Scientific", "Basic"}));
+        doReturn(newWidgets).when(mDataProvider).getAllWidgets();
+        List<WidgetsListBaseEntry> results = index.getFilteredWidgets(newWidgets, "ca");
+
+        assertEquals(SimpleWidgetsSearchAlgorithm.getFilteredWidgets(mDataProvider, "ca"),
+                results);
+        assertEquals(4, results.size());
+        assertPackageResult(results, 0, "com.example.app1", "Camera timer");
+        assertPackageResult(results, 2, "com.example.app2", "Basic", "Scientific");
+    }
+
+    @Test
+    public void testReusesResultEntries() {
+        List<WidgetsListBaseEntry> allWidgets = new ArrayList<>();
+        allWidgets.addAll(createPackage(0, "Camera", new String[] {"Selfie", "Video"}));
+        allWidgets.addAll(createPackage(1, "Clock", new String[] {"Alarm", "Camera timer"}));
+        WidgetsSearchIndex index = new WidgetsSearchIndex();
+
+        List<WidgetsListBaseEntry> first = index.getFilteredWidgets(allWidgets, "ca");
+        List<WidgetsListBaseEntry> second = index.getFilteredWidgets(allWidgets, "cam");
+
+        assertEquals(4, second.size());
+        for (int i = 0; i < second.size(); i++) {
+            assertSame(first.get(i), second.get(i));
+        }
+    }
+
+    /**
+     * Asserts that {@param results} has the header and the content entries of
+     * {@param packageName} at {@param index}, both listing the widgets with {@param labels}, in
+     * the order of the picker.
+     */
+    private static void assertPackageResult(List<WidgetsListBaseEntry> results, int index,
+            String packageName, String... labels) {
+        WidgetsListBaseEntry header = results.get(index);
+        WidgetsListBaseEntry content = results.get(index + 1);
+        assertTrue(header instanceof WidgetsListHeaderEntry);
+        assertTrue(content instanceof WidgetsListContentEntry);
+        for (WidgetsListBaseEntry entry : List.of(header, content)) {
+            assertEquals(packageName, entry.mPkgItem.packageName);
+            assertEquals(labels.length, entry.mWidgets.size());
+            for (int i = 0; i < labels.length; i++) {
+                assertEquals(labels[i], entry.mWidgets.get(i).label);
+            }
+        }
+    }
+
+    private List<WidgetsListBaseEntry> createPackage(int id, String title, String[] labels) {
+        String packageName = "com.example.app" + id;
+        List<WidgetItem> widgetItems = new ArrayList<>(labels.length);
+        for (String label : labels) {
+            AppWidgetProviderInfo info = mProviderInfo.clone();
+            info.provider = new ComponentName(packageName, label);
+            widgetItems.add(new WidgetItem(
+                    LauncherAppWidgetProviderInfo.fromProviderInfo(mContext, info),
+                    mTestProfile, mIconCache, mContext));
+        }
+
+        PackageItemInfo pInfo = new PackageItemInfo(packageName, widgetItems.get(0).user);
+        pInfo.title = title;
+        pInfo.bitmap = BitmapInfo.of(Bitmap.createBitmap(10, 10, Bitmap.Config.ALPHA_8), 0);
+        return List.of(WidgetsListHeaderEntry.create(pInfo, /* titleSectionName= */ "",
+                        widgetItems),
+                new WidgetsListContentEntry(pInfo, /* titleSectionName= */ "", widgetItems));
+    }
+}